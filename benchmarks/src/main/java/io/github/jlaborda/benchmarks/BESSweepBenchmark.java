@@ -0,0 +1,67 @@
+package io.github.jlaborda.benchmarks;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
+import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.ges.threads.BESThread;
+
+/**
+ * Runs one backward search sweep ({@code BESThread.bs}) over the edges of a DAG learned by FES for the problem.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BESSweepBenchmark extends BenchmarkState {
+
+    private SweepBESThread thread;
+
+    private Graph graph;
+
+    private double score;
+
+    @Override
+    protected void setUp() {
+        Dag dag = learnDag();
+        graph = new EdgeListGraph(dag);
+        thread = new SweepBESThread(problem, dag);
+        score = problem.scoreGraph(graph);
+    }
+
+    @Benchmark
+    public double bs() {
+        double[] best = new double[1];
+        inPool(() -> best[0] = thread.sweep(graph, score));
+        return best[0];
+    }
+
+    /**
+     * BESThread that exposes a single sweep of the backward search over the edges of its graph.
+     */
+    static final class SweepBESThread extends BESThread {
+
+        SweepBESThread(Problem problem, Dag dag) {
+            super(problem, dag, new HashSet<>(dag.getEdges()));
+        }
+
+        double sweep(Graph graph, double initialScore) {
+            return bs(graph, initialScore);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.jlaborda.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Graph;
+import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.common.utils.Utils;
+import io.github.jlaborda.core.ges.threads.FESThread;
+import io.github.jlaborda.test.utils.Resources;
+
+/**
+ * Common state of the benchmarks. It builds a {@link Problem Problem} with the first {@link #variables} variables of
+ * the alarm dataset and a {@link ForkJoinPool ForkJoinPool} with {@link #threads} workers. Parallel streams started
+ * from a task of that pool run in it, so the benchmarks submit their work through {@link #inPool(Runnable)}.
+ */
+@State(Scope.Benchmark)
+public abstract class BenchmarkState {
+
+    /**
+     * Number of variables of the alarm dataset used in the benchmark.
+     */
+    @Param({"10", "20", "37"})
+    public int variables;
+
+    /**
+     * Number of worker threads.
+     */
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    protected static final long SEED = 42;
+
+    protected Problem problem;
+
+    protected ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUpState() throws InterruptedException {
+        Utils.setSeed(SEED);
+        problem = new Problem(alarm(variables));
+        pool = new ForkJoinPool(threads);
+        setUp();
+    }
+
+    /**
+     * Prepares the data of a benchmark once the problem and the pool have been created.
+     * @throws InterruptedException if the preparation is interrupted.
+     */
+    protected void setUp() throws InterruptedException {
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownState() {
+        pool.shutdown();
+    }
+
+    /**
+     * Runs a task in the pool of the benchmark and waits for it.
+     * @param task task to run.
+     */
+    protected void inPool(Runnable task) {
+        pool.submit(task).join();
+    }
+
+    /**
+     * Gets the first variables of the alarm dataset.
+     * @param nVariables number of variables to keep.
+     * @return dataset with the first nVariables columns of alarm.
+     */
+    protected static DataSet alarm(int nVariables) {
+        DataSet alarm = Resources.ALARM_DATASET;
+        if (nVariables >= alarm.getNumColumns())
+            return alarm;
+        return alarm.subsetColumns(IntStream.range(0, nVariables).toArray());
+    }
+
+    /**
+     * Generates random families of a problem, with up to three parents.
+     * @param nVariables number of variables of the problem.
+     * @param nFamilies number of families to generate.
+     * @return array where each row holds the child followed by its parents.
+     */
+    protected static int[][] randomFamilies(int nVariables, int nFamilies) {
+        Random random = new Random(SEED);
+        int[][] families = new int[nFamilies][];
+        for (int i = 0; i < nFamilies; i++) {
+            int nParents = Math.min(random.nextInt(4), nVariables - 1);
+            int[] family = random.ints(0, nVariables).distinct().limit(nParents + 1L).toArray();
+            families[i] = family;
+        }
+        return families;
+    }
+
+    /**
+     * Learns a DAG for the problem with a single FES thread over every possible arc.
+     * @return the learned DAG.
+     */
+    protected Dag learnDag() {
+        FESThread fes = new FESThread(problem, Utils.calculateArcs(problem.getData()), Integer.MAX_VALUE, false);
+        fes.run();
+        try {
+            Graph graph = fes.getCurrentGraph();
+            return new Dag(graph);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
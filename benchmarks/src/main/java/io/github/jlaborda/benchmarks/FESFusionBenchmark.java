@@ -0,0 +1,61 @@
+package io.github.jlaborda.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
+import io.github.jlaborda.core.common.utils.Utils;
+import io.github.jlaborda.core.ges.framework.FESFusion;
+import io.github.jlaborda.core.ges.threads.FESThread;
+
+/**
+ * Fuses with {@code FESFusion.fusion} the DAGs learned by one FES thread per worker, each one over a random subset
+ * of the possible arcs, as a PGES forward stage would do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FESFusionBenchmark extends BenchmarkState {
+
+    private final ArrayList<Dag> graphs = new ArrayList<>();
+
+    @Override
+    protected void setUp() throws InterruptedException {
+        Set<Edge> arcs = Utils.calculateArcs(problem.getData());
+        List<Set<Edge>> subsets = Utils.split(arcs, Math.max(threads, 2));
+        graphs.clear();
+        for (Set<Edge> subset : subsets) {
+            FESThread fes = new FESThread(problem, subset, Integer.MAX_VALUE, false);
+            fes.run();
+            graphs.add(new Dag(fes.getCurrentGraph()));
+        }
+    }
+
+    @Benchmark
+    public Dag fusion() {
+        Graph emptyGraph = new EdgeListGraph(new LinkedList<>(problem.getVariables()));
+        FESFusion fusion = new FESFusion(problem, emptyGraph, new ArrayList<>(graphs));
+        Dag[] result = new Dag[1];
+        inPool(() -> result[0] = fusion.fusion());
+        return result[0];
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.jlaborda.benchmarks;
+
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
+import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.common.utils.Utils;
+import io.github.jlaborda.core.ges.threads.FESThread;
+
+/**
+ * Runs one forward search sweep ({@code FESThread.fs}) that scores every possible arc of the problem over the empty
+ * graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FESSweepBenchmark extends BenchmarkState {
+
+    @Param({"warm", "cold"})
+    public String cache;
+
+    private SweepFESThread thread;
+
+    private Graph graph;
+
+    @Override
+    protected void setUp() {
+        thread = new SweepFESThread(problem, Utils.calculateArcs(problem.getData()));
+        graph = new EdgeListGraph(new LinkedList<>(problem.getVariables()));
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        if (cache.equals("cold"))
+            problem.getLocalScoreCache().invalidateAll();
+    }
+
+    @Benchmark
+    public double fs() {
+        double[] best = new double[1];
+        inPool(() -> best[0] = thread.sweep(graph));
+        return best[0];
+    }
+
+    /**
+     * FESThread that exposes a single sweep of the forward search over all of its candidate arcs.
+     */
+    static final class SweepFESThread extends FESThread {
+
+        SweepFESThread(Problem problem, Set<Edge> arcs) {
+            super(problem, arcs, 1, false);
+        }
+
+        double sweep(Graph graph) {
+            edgesCandidates = new HashSet<>(S);
+            scores = new HashSet<>();
+            return fs(graph);
+        }
+    }
+}
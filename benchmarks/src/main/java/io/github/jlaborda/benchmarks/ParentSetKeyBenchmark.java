@@ -0,0 +1,73 @@
+package io.github.jlaborda.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.jlaborda.core.common.utils.ParentSetKey;
+
+/**
+ * Builds and hashes {@link ParentSetKey ParentSetKeys} for a batch of random families.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParentSetKeyBenchmark extends BenchmarkState {
+
+    private static final int N_FAMILIES = 4096;
+
+    private int[][] parents;
+
+    private int[] children;
+
+    private ParentSetKey[] keys;
+
+    @Override
+    protected void setUp() {
+        int[][] families = randomFamilies(variables, N_FAMILIES);
+        parents = new int[N_FAMILIES][];
+        children = new int[N_FAMILIES];
+        keys = new ParentSetKey[N_FAMILIES];
+        for (int i = 0; i < N_FAMILIES; i++) {
+            children[i] = families[i][0];
+            parents[i] = new int[families[i].length - 1];
+            System.arraycopy(families[i], 1, parents[i], 0, parents[i].length);
+            keys[i] = new ParentSetKey(children[i], parents[i]);
+        }
+    }
+
+    @Benchmark
+    public long createAndHash() {
+        long[] hashes = new long[N_FAMILIES];
+        inPool(() -> IntStream.range(0, N_FAMILIES).parallel()
+                .forEach(i -> hashes[i] = new ParentSetKey(children[i], parents[i]).hashCode()));
+        return sum(hashes);
+    }
+
+    @Benchmark
+    public long hash() {
+        long[] hashes = new long[N_FAMILIES];
+        inPool(() -> IntStream.range(0, N_FAMILIES).parallel().forEach(i -> hashes[i] = keys[i].hashCode()));
+        return sum(hashes);
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
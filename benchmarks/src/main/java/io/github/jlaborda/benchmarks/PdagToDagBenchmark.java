@@ -0,0 +1,57 @@
+package io.github.jlaborda.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphTransforms;
+import io.github.jlaborda.core.common.utils.Utils;
+
+/**
+ * Converts the CPDAG of a learned DAG into a DAG with {@code Utils.pdagToDag}. Each worker thread converts its own
+ * copy of the CPDAG.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdagToDagBenchmark extends BenchmarkState {
+
+    private Graph cpdag;
+
+    private Graph[] copies;
+
+    @Override
+    protected void setUp() {
+        cpdag = GraphTransforms.dagToCpdag(learnDag());
+    }
+
+    @Setup(Level.Invocation)
+    public void copyCpdag() {
+        copies = new Graph[threads];
+        for (int i = 0; i < threads; i++) {
+            copies[i] = new EdgeListGraph(cpdag);
+        }
+    }
+
+    @Benchmark
+    public Graph[] pdagToDag() {
+        inPool(() -> IntStream.range(0, copies.length).parallel().forEach(i -> Utils.pdagToDag(copies[i])));
+        return copies;
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.jlaborda.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluates a batch of random families with {@code Problem.evaluate}. With a warm cache the batch repeats as many
+ * distinct families as fit in the cache, which are already cached, so it measures the cache lookup. With a cold cache
+ * the cache is cleared before each batch, so it measures the score computation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProblemEvaluateBenchmark extends BenchmarkState {
+
+    private static final int N_FAMILIES = 1024;
+
+    @Param({"warm", "cold"})
+    public String cache;
+
+    private int[][] families;
+
+    @Override
+    protected void setUp() {
+        if (cache.equals("warm")) {
+            int distinct = (int) Math.min(N_FAMILIES, problem.getLocalScoreCache().getMaximumSize());
+            int[][] cached = randomFamilies(variables, Math.max(distinct, 1));
+            families = new int[N_FAMILIES][];
+            for (int i = 0; i < N_FAMILIES; i++) {
+                families[i] = cached[i % cached.length];
+            }
+        } else {
+            families = randomFamilies(variables, N_FAMILIES);
+        }
+        evaluateAll();
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        if (cache.equals("cold"))
+            problem.getLocalScoreCache().invalidateAll();
+    }
+
+    @Benchmark
+    public double evaluate() {
+        return evaluateAll();
+    }
+
+    private double evaluateAll() {
+        double[] scores = new double[families.length];
+        inPool(() -> IntStream.range(0, families.length).parallel().forEach(i -> {
+            int[] family = families[i];
+            int[] parents = new int[family.length - 1];
+            System.arraycopy(family, 1, parents, 0, parents.length);
+            scores[i] = problem.evaluate(family[0], parents);
+        }));
+        double sum = 0;
+        for (double score : scores) {
+            sum += score;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,306 @@
+package io.github.jlaborda.core.common.data;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Sparse all-dimensions tree (AD-tree) over some {@link DiscreteColumns}, which answers {@link ContingencyTable}
+ * queries from cached counts instead of scanning every row, following Moore and Lee, "Cached Sufficient Statistics
+ * for Efficient Machine Learning with Large Datasets" (1998).
+ * <p>
+ * Each node of the tree stands for the rows matching a conjunction of values of some variables, and can be varied by
+ * any later variable, splitting its rows by the values of that variable. The most common value of each split isn't
+ * stored: its counts are obtained by subtracting the other values from the counts of the node being split, which is
+ * what keeps the tree sparse. A table with {@code k} variables is then built from the nodes of at most {@code k}
+ * levels, whose number of rows shrinks with every level.
+ * <p>
+ * The tree is expanded lazily, so only the splits needed by the queries so far are built, and nodes with at most
+ * {@link #getLeafThreshold()} rows are never split: their tables are counted from their rows. The splits are cached
+ * while their memory fits in {@link #getMemoryBudget()}; after that, the splits that aren't cached are built again
+ * when a query needs them, which still only goes through the rows of the node being split.
+ * <p>
+ * Since the tree counts complete rows, it only supports columns without missing values. Queries may run
+ * concurrently.
+ */
+public final class ADTree {
+
+    /**
+     * Default number of rows under which a node isn't split.
+     */
+    public static final int DEFAULT_LEAF_THRESHOLD = 16;
+
+    /**
+     * Approximate memory of a node and of a split, without their arrays.
+     */
+    private static final long NODE_BYTES = 48;
+
+    private final DiscreteColumns columns;
+
+    private final long memoryBudget;
+
+    private final int leafThreshold;
+
+    private final AtomicLong memoryUsed = new AtomicLong();
+
+    private final Node root;
+
+    /**
+     * Creates the tree with the default leaf threshold.
+     * @param columns columns to count, without missing values.
+     * @param memoryBudget maximum memory, in bytes, of the cached splits.
+     */
+    public ADTree(DiscreteColumns columns, long memoryBudget) {
+        this(columns, memoryBudget, DEFAULT_LEAF_THRESHOLD);
+    }
+
+    /**
+     * Creates the tree. Only the root is built; the rest is expanded as the queries need it.
+     * @param columns columns to count, without missing values.
+     * @param memoryBudget maximum memory, in bytes, of the cached splits.
+     * @param leafThreshold number of rows under which a node isn't split.
+     * @throws IllegalArgumentException if the columns have missing values, or the limits aren't positive.
+     */
+    public ADTree(DiscreteColumns columns, long memoryBudget, int leafThreshold) {
+        if (columns == null)
+            throw new NullPointerException("The columns must not be null");
+        if (columns.hasMissingValues())
+            throw new IllegalArgumentException("An AD-tree can't count columns with missing values");
+        if (memoryBudget < 0 || leafThreshold < 1)
+            throw new IllegalArgumentException("The memory budget and the leaf threshold must be positive");
+        this.columns = columns;
+        this.memoryBudget = memoryBudget;
+        this.leafThreshold = leafThreshold;
+        this.root = new Node(null, columns.getNumRows(), 0);
+    }
+
+    /**
+     * Gets the table of a family from the tree.
+     * @param child index of the child.
+     * @param parents indices of the parents, in the order of the configurations of the table.
+     * @return contingency table of the family, equal to the one counted by a {@link ContingencyCounter}.
+     * @throws IllegalArgumentException if a variable is repeated, or the table would be too large.
+     */
+    public ContingencyTable count(int child, int... parents) {
+        int n = parents.length + 1;
+        int[] family = new int[n];
+        System.arraycopy(parents, 0, family, 0, parents.length);
+        family[n - 1] = child;
+
+        // The tree is walked with the variables in increasing order
+        int[] sorted = family.clone();
+        Arrays.sort(sorted);
+        long size = 1;
+        for (int v = 0; v < n; v++) {
+            if (v > 0 && sorted[v] == sorted[v - 1])
+                throw new IllegalArgumentException("Variable " + sorted[v] + " is repeated in the family of " + child);
+            size *= columns.getNumCategories(sorted[v]);
+            if (size > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("Too many parent configurations for node " + child);
+        }
+        int[] joint = contingency(root, sorted, 0);
+
+        // Reorder the digits of the joint counts as the parents in order and then the child
+        int[] positions = new int[n];
+        for (int v = 0; v < n; v++) {
+            positions[v] = Arrays.binarySearch(sorted, family[v]);
+        }
+        int[] digits = new int[n];
+        int[] counts = new int[joint.length];
+        for (int cell = 0; cell < joint.length; cell++) {
+            for (int v = n - 1, rest = cell; v >= 0; v--) {
+                int radix = columns.getNumCategories(sorted[v]);
+                digits[v] = rest % radix;
+                rest /= radix;
+            }
+            int target = 0;
+            for (int v = 0; v < n; v++) {
+                target = target * columns.getNumCategories(family[v]) + digits[positions[v]];
+            }
+            counts[target] = joint[cell];
+        }
+
+        int[] numParentCategories = new int[parents.length];
+        for (int p = 0; p < parents.length; p++) {
+            numParentCategories[p] = columns.getNumCategories(parents[p]);
+        }
+        return new ContingencyTable(child, parents.clone(), numParentCategories, columns.getNumCategories(child), counts);
+    }
+
+    /**
+     * Joint counts of the variables from position i of the rows of a node, as a mixed-radix array with the first
+     * variable being the most significant.
+     */
+    private int[] contingency(Node node, int[] variables, int i) {
+        if (i == variables.length)
+            return new int[]{node.count};
+        if (node.isLeaf())
+            return countRows(node, variables, i);
+
+        int variable = variables[i];
+        int radix = columns.getNumCategories(variable);
+        Split split = split(node, variable);
+        int[] mostCommon = contingency(node, variables, i + 1);
+        int sliceSize = mostCommon.length;
+        int[] counts = new int[radix * sliceSize];
+        for (int value = 0; value < radix; value++) {
+            Node child = split.children[value];
+            if (value == split.mostCommonValue || child == null)
+                continue;
+            int[] slice = contingency(child, variables, i + 1);
+            System.arraycopy(slice, 0, counts, value * sliceSize, sliceSize);
+            for (int k = 0; k < sliceSize; k++) {
+                mostCommon[k] -= slice[k];
+            }
+        }
+        System.arraycopy(mostCommon, 0, counts, split.mostCommonValue * sliceSize, sliceSize);
+        return counts;
+    }
+
+    private int[] countRows(Node node, int[] variables, int i) {
+        int size = 1;
+        for (int v = i; v < variables.length; v++) {
+            size *= columns.getNumCategories(variables[v]);
+        }
+        int[] counts = new int[size];
+        for (int r = 0; r < node.count; r++) {
+            int row = node.row(r);
+            int index = 0;
+            for (int v = i; v < variables.length; v++) {
+                index = index * columns.getNumCategories(variables[v]) + columns.getValue(variables[v], row);
+            }
+            counts[index]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the split of a node by a variable, building it if it isn't cached, and caching it if it fits in the
+     * memory budget.
+     */
+    private Split split(Node node, int variable) {
+        int slot = variable - node.firstVariable;
+        Split split = node.splits.get(slot);
+        if (split != null)
+            return split;
+
+        int radix = columns.getNumCategories(variable);
+        int[] values = values(node, variable);
+        int[] valueCounts = new int[radix];
+        for (int value : values) {
+            valueCounts[value]++;
+        }
+        int mostCommonValue = 0;
+        for (int value = 1; value < radix; value++) {
+            if (valueCounts[value] > valueCounts[mostCommonValue])
+                mostCommonValue = value;
+        }
+
+        long bytes = NODE_BYTES + 4L * radix;
+        int[][] rows = new int[radix][];
+        for (int value = 0; value < radix; value++) {
+            if (value != mostCommonValue && valueCounts[value] > 0) {
+                rows[value] = new int[valueCounts[value]];
+                bytes += NODE_BYTES + 4L * (columns.getNumColumns() - variable) + 4L * valueCounts[value];
+            }
+        }
+        int[] filled = new int[radix];
+        for (int r = 0; r < values.length; r++) {
+            int[] target = rows[values[r]];
+            if (target != null)
+                target[filled[values[r]]++] = node.row(r);
+        }
+        Node[] children = new Node[radix];
+        for (int value = 0; value < radix; value++) {
+            if (rows[value] != null)
+                children[value] = new Node(rows[value], rows[value].length, variable + 1);
+        }
+        split = new Split(mostCommonValue, children);
+
+        if (memoryUsed.addAndGet(bytes) > memoryBudget) {
+            memoryUsed.addAndGet(-bytes);
+            return split;
+        }
+        if (!node.splits.compareAndSet(slot, null, split)) {
+            memoryUsed.addAndGet(-bytes);
+            return node.splits.get(slot);
+        }
+        return split;
+    }
+
+    /**
+     * Values of a variable in the rows of a node.
+     */
+    private int[] values(Node node, int variable) {
+        if (node.rows == null) {
+            int[] values = new int[columns.getNumRows()];
+            columns.accumulateIndex(variable, columns.getNumCategories(variable), values);
+            return values;
+        }
+        int[] values = new int[node.count];
+        for (int r = 0; r < node.count; r++) {
+            values[r] = columns.getValue(variable, node.rows[r]);
+        }
+        return values;
+    }
+
+    public DiscreteColumns getColumns() {
+        return columns;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Gets the approximate memory of the cached splits.
+     * @return bytes used by the cached splits, at most the memory budget.
+     */
+    public long getMemoryUsed() {
+        return memoryUsed.get();
+    }
+
+    public int getLeafThreshold() {
+        return leafThreshold;
+    }
+
+    /**
+     * Rows matching a conjunction of values. Only variables from {@code firstVariable} on can split it.
+     */
+    private final class Node {
+
+        /**
+         * Rows of the node, or null for the root, which has every row.
+         */
+        private final int[] rows;
+
+        private final int count;
+
+        private final int firstVariable;
+
+        private final AtomicReferenceArray<Split> splits;
+
+        private Node(int[] rows, int count, int firstVariable) {
+            this.rows = rows;
+            this.count = count;
+            this.firstVariable = firstVariable;
+            this.splits = count > leafThreshold && firstVariable < columns.getNumColumns()
+                    ? new AtomicReferenceArray<>(columns.getNumColumns() - firstVariable) : null;
+        }
+
+        private boolean isLeaf() {
+            return splits == null;
+        }
+
+        private int row(int r) {
+            return rows == null ? r : rows[r];
+        }
+    }
+
+    /**
+     * Nodes of the values of a variable in the rows of a node. The most common value and the values without rows
+     * have no node.
+     */
+    private record Split(int mostCommonValue, Node[] children) {
+    }
+}
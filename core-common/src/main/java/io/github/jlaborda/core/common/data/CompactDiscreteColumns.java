@@ -0,0 +1,202 @@
+package io.github.jlaborda.core.common.data;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * In-memory {@link DiscreteColumns} that stores each variable as a primitive array. Variables with up to
+ * {@value #MAX_BYTE_CATEGORIES} categories are stored in a {@code byte[]}, and the rest in a {@code short[]}.
+ * Missing values are stored as -1.
+ */
+public final class CompactDiscreteColumns implements DiscreteColumns {
+
+    /**
+     * Maximum number of categories of a variable stored as a byte column.
+     */
+    public static final int MAX_BYTE_CATEGORIES = Byte.MAX_VALUE;
+
+    /**
+     * Maximum number of categories of a variable stored as a short column.
+     */
+    public static final int MAX_SHORT_CATEGORIES = Short.MAX_VALUE;
+
+    private final int numRows;
+
+    private final int[] numCategories;
+
+    /**
+     * Byte columns. The position of a variable stored as a short column is null.
+     */
+    private final byte[][] byteColumns;
+
+    /**
+     * Short columns. The position of a variable stored as a byte column is null.
+     */
+    private final short[][] shortColumns;
+
+    private final boolean missingValues;
+
+    /**
+     * Creates the columns from already encoded arrays. For each variable, exactly one of byteColumns[i] and
+     * shortColumns[i] must be non-null, with numRows positions.
+     * @param numRows number of rows of the dataset.
+     * @param numCategories number of categories of each variable.
+     * @param byteColumns byte encoded columns.
+     * @param shortColumns short encoded columns.
+     */
+    public CompactDiscreteColumns(int numRows, int[] numCategories, byte[][] byteColumns, short[][] shortColumns) {
+        if (numCategories.length != byteColumns.length || numCategories.length != shortColumns.length)
+            throw new IllegalArgumentException("The number of columns doesn't match the number of variables");
+
+        boolean missing = false;
+        for (int i = 0; i < numCategories.length; i++) {
+            if ((byteColumns[i] == null) == (shortColumns[i] == null))
+                throw new IllegalArgumentException("Column " + i + " must be stored either as bytes or as shorts");
+            if (byteColumns[i] != null) {
+                if (byteColumns[i].length < numRows)
+                    throw new IllegalArgumentException("Column " + i + " has less than " + numRows + " rows");
+                for (int r = 0; r < numRows && !missing; r++)
+                    missing = byteColumns[i][r] < 0;
+            } else {
+                if (shortColumns[i].length < numRows)
+                    throw new IllegalArgumentException("Column " + i + " has less than " + numRows + " rows");
+                for (int r = 0; r < numRows && !missing; r++)
+                    missing = shortColumns[i][r] < 0;
+            }
+        }
+        this.numRows = numRows;
+        this.numCategories = numCategories.clone();
+        this.byteColumns = byteColumns;
+        this.shortColumns = shortColumns;
+        this.missingValues = missing;
+    }
+
+    /**
+     * Copies the values of a discrete {@link DataSet DataSet} into compact columns.
+     * @param dataSet dataset whose variables are all {@link DiscreteVariable DiscreteVariables}.
+     * @return the compact columns of the dataset.
+     */
+    public static CompactDiscreteColumns fromDataSet(DataSet dataSet) {
+        int numRows = dataSet.getNumRows();
+        int numColumns = dataSet.getNumColumns();
+        int[] numCategories = new int[numColumns];
+        byte[][] byteColumns = new byte[numColumns][];
+        short[][] shortColumns = new short[numColumns][];
+
+        for (int j = 0; j < numColumns; j++) {
+            Node variable = dataSet.getVariable(j);
+            if (!(variable instanceof DiscreteVariable discrete))
+                throw new IllegalArgumentException("Variable " + variable + " is not discrete");
+            int categories = discrete.getNumCategories();
+            numCategories[j] = categories;
+
+            if (categories <= MAX_BYTE_CATEGORIES) {
+                byte[] column = new byte[numRows];
+                for (int r = 0; r < numRows; r++) {
+                    int value = dataSet.getInt(r, j);
+                    column[r] = (byte) (value < 0 ? -1 : value);
+                }
+                byteColumns[j] = column;
+            } else if (categories <= MAX_SHORT_CATEGORIES) {
+                short[] column = new short[numRows];
+                for (int r = 0; r < numRows; r++) {
+                    int value = dataSet.getInt(r, j);
+                    column[r] = (short) (value < 0 ? -1 : value);
+                }
+                shortColumns[j] = column;
+            } else {
+                throw new IllegalArgumentException("Variable " + variable + " has more than " + MAX_SHORT_CATEGORIES + " categories");
+            }
+        }
+        return new CompactDiscreteColumns(numRows, numCategories, byteColumns, shortColumns);
+    }
+
+    @Override
+    public int getNumRows() {
+        return numRows;
+    }
+
+    @Override
+    public int getNumColumns() {
+        return numCategories.length;
+    }
+
+    @Override
+    public int getNumCategories(int column) {
+        return numCategories[column];
+    }
+
+    @Override
+    public int getValue(int column, int row) {
+        byte[] bytes = byteColumns[column];
+        return bytes != null ? bytes[row] : shortColumns[column][row];
+    }
+
+    @Override
+    public void accumulateIndex(int column, int radix, int[] index) {
+        byte[] bytes = byteColumns[column];
+        if (bytes != null) {
+            if (!missingValues) {
+                for (int r = 0; r < numRows; r++) {
+                    index[r] = index[r] * radix + bytes[r];
+                }
+            } else {
+                for (int r = 0; r < numRows; r++) {
+                    int value = bytes[r];
+                    int current = index[r];
+                    index[r] = (current < 0 || value < 0) ? -1 : current * radix + value;
+                }
+            }
+        } else {
+            short[] shorts = shortColumns[column];
+            if (!missingValues) {
+                for (int r = 0; r < numRows; r++) {
+                    index[r] = index[r] * radix + shorts[r];
+                }
+            } else {
+                for (int r = 0; r < numRows; r++) {
+                    int value = shorts[r];
+                    int current = index[r];
+                    index[r] = (current < 0 || value < 0) ? -1 : current * radix + value;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void accumulateIndex(int column, int radix, int[] index, int fromRow, int toRow) {
+        byte[] bytes = byteColumns[column];
+        if (bytes != null) {
+            if (!missingValues) {
+                for (int r = fromRow, i = 0; r < toRow; r++, i++) {
+                    index[i] = index[i] * radix + bytes[r];
+                }
+            } else {
+                for (int r = fromRow, i = 0; r < toRow; r++, i++) {
+                    int value = bytes[r];
+                    int current = index[i];
+                    index[i] = (current < 0 || value < 0) ? -1 : current * radix + value;
+                }
+            }
+        } else {
+            short[] shorts = shortColumns[column];
+            if (!missingValues) {
+                for (int r = fromRow, i = 0; r < toRow; r++, i++) {
+                    index[i] = index[i] * radix + shorts[r];
+                }
+            } else {
+                for (int r = fromRow, i = 0; r < toRow; r++, i++) {
+                    int value = shorts[r];
+                    int current = index[i];
+                    index[i] = (current < 0 || value < 0) ? -1 : current * radix + value;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean hasMissingValues() {
+        return missingValues;
+    }
+}
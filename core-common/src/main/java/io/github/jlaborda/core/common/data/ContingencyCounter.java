@@ -0,0 +1,264 @@
+package io.github.jlaborda.core.common.data;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Counts the {@link ContingencyTable ContingencyTables} of many families in a single pass over the rows of some
+ * {@link DiscreteColumns}. The rows are split into as many contiguous ranges as workers has the pool the counter runs
+ * in, and each range is counted in parallel into its own tables, which are added together at the end. Inside a range,
+ * the rows are processed in blocks of {@value #BLOCK_ROWS}: the mixed-radix index of every row of the block is built
+ * a whole column at a time with {@link DiscreteColumns#accumulateIndex(int, int, int[], int, int)}, and then the
+ * cells of the block are counted, so each value of a column is read once per family while it is still in cache.
+ * <p>
+ * To bound the memory of the partial tables, the families are counted in consecutive groups whose tables have at most
+ * {@link #getMaxCellsPerPass()} cells in total, each group being one pass over the rows.
+ */
+public final class ContingencyCounter {
+
+    /**
+     * Number of rows whose indices are built at the same time.
+     */
+    static final int BLOCK_ROWS = 4096;
+
+    /**
+     * Default maximum number of cells counted in a single pass.
+     */
+    public static final int DEFAULT_MAX_CELLS_PER_PASS = 1 << 20;
+
+    private final DiscreteColumns columns;
+
+    private int maxCellsPerPass = DEFAULT_MAX_CELLS_PER_PASS;
+
+    public ContingencyCounter(DiscreteColumns columns) {
+        if (columns == null)
+            throw new NullPointerException("The columns must not be null");
+        this.columns = columns;
+    }
+
+    public DiscreteColumns getColumns() {
+        return columns;
+    }
+
+    public int getMaxCellsPerPass() {
+        return maxCellsPerPass;
+    }
+
+    /**
+     * Sets how many cells may be counted in a single pass over the rows. Each worker holds its own copy of the tables
+     * of a pass. A family with more cells than this is counted on its own.
+     * @param maxCellsPerPass maximum number of cells of the tables of a pass.
+     */
+    public void setMaxCellsPerPass(int maxCellsPerPass) {
+        if (maxCellsPerPass < 1)
+            throw new IllegalArgumentException("The number of cells per pass must be positive");
+        this.maxCellsPerPass = maxCellsPerPass;
+    }
+
+    /**
+     * Counts the table of a single family.
+     * @param child index of the child.
+     * @param parents indices of the parents.
+     * @return contingency table of the family.
+     */
+    public ContingencyTable count(int child, int... parents) {
+        return count(new int[]{child}, new int[][]{parents})[0];
+    }
+
+    /**
+     * Counts the tables of several families.
+     * @param children index of the child of each family.
+     * @param parents indices of the parents of each family.
+     * @return contingency table of each family, in the same order.
+     * @throws IllegalArgumentException if the arrays have different lengths, or a table would be too large.
+     */
+    public ContingencyTable[] count(int[] children, int[][] parents) {
+        ContingencyTable[] tables = new ContingencyTable[children.length];
+        count(children, parents, (table, family) -> tables[family] = table);
+        return tables;
+    }
+
+    /**
+     * Counts the tables of several families, handing each table over as soon as the pass that counts it finishes,
+     * so that only the tables of one pass are held at the same time.
+     * @param children index of the child of each family.
+     * @param parents indices of the parents of each family.
+     * @param action called, in the order of the families, with each table and the position of its family.
+     * @throws IllegalArgumentException if the arrays have different lengths, or a table would be too large.
+     */
+    public void count(int[] children, int[][] parents, ObjIntConsumer<ContingencyTable> action) {
+        if (children.length != parents.length)
+            throw new IllegalArgumentException("There must be a set of parents for each child");
+
+        int n = children.length;
+        int[] sizes = new int[n];
+        for (int f = 0; f < n; f++) {
+            sizes[f] = tableSize(children[f], parents[f]);
+        }
+
+        int from = 0;
+        while (from < n) {
+            int to = from + 1;
+            long cells = sizes[from];
+            while (to < n && cells + sizes[to] <= maxCellsPerPass) {
+                cells += sizes[to++];
+            }
+            int[][] counts = countPass(children, parents, sizes, from, to);
+            for (int f = from; f < to; f++) {
+                action.accept(table(children[f], parents[f].clone(), counts[f - from]), f);
+                counts[f - from] = null;
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * Computes the configuration of some parents in every row, that is, the mixed-radix number of their categories,
+     * the first parent being the most significant. Tables of several children with the same parents can then be
+     * counted from it with {@link #count(int, int[], int[])}.
+     * @param parents indices of the parents.
+     * @return configuration of the parents in each row, negative in the rows where any of them is missing.
+     */
+    public int[] parentConfigurations(int... parents) {
+        int[] configurations = new int[columns.getNumRows()];
+        long numConfigurations = 1;
+        for (int parent : parents) {
+            numConfigurations *= columns.getNumCategories(parent);
+            if (numConfigurations > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("Too many parent configurations: " + numConfigurations);
+            columns.accumulateIndex(parent, columns.getNumCategories(parent), configurations);
+        }
+        return configurations;
+    }
+
+    /**
+     * Adds a parent to the configurations of some parents, with a single pass over the column of the new parent.
+     * @param configurations configuration of the parents in each row, as returned by
+     * {@link #parentConfigurations(int...)}. It isn't modified.
+     * @param numConfigurations number of configurations of the parents.
+     * @param parent index of the new parent, which becomes the least significant one.
+     * @return configuration of the parents and the new parent in each row.
+     */
+    public int[] extendConfigurations(int[] configurations, int numConfigurations, int parent) {
+        if ((long) numConfigurations * columns.getNumCategories(parent) > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many parent configurations adding " + parent);
+        int[] extended = Arrays.copyOf(configurations, columns.getNumRows());
+        columns.accumulateIndex(parent, columns.getNumCategories(parent), extended);
+        return extended;
+    }
+
+    /**
+     * Counts the table of a family from the configurations of its parents in every row.
+     * @param child index of the child.
+     * @param parents indices of the parents, in the order of the configurations.
+     * @param configurations configuration of the parents in each row, as returned by
+     * {@link #parentConfigurations(int...)}.
+     * @return contingency table of the family.
+     */
+    public ContingencyTable count(int child, int[] parents, int[] configurations) {
+        int[] counts = new int[tableSize(child, parents)];
+        int c = columns.getNumCategories(child);
+        int[] cells = new int[Math.min(BLOCK_ROWS, columns.getNumRows())];
+        for (int start = 0; start < columns.getNumRows(); start += BLOCK_ROWS) {
+            int end = Math.min(columns.getNumRows(), start + BLOCK_ROWS);
+            System.arraycopy(configurations, start, cells, 0, end - start);
+            columns.accumulateIndex(child, c, cells, start, end);
+            for (int i = 0; i < end - start; i++) {
+                int cell = cells[i];
+                if (cell >= 0)
+                    counts[cell]++;
+            }
+        }
+        return table(child, parents.clone(), counts);
+    }
+
+    private int tableSize(int child, int[] parents) {
+        int c = columns.getNumCategories(child);
+        long configurations = 1;
+        for (int parent : parents) {
+            configurations *= columns.getNumCategories(parent);
+            if (configurations * c > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("Too many parent configurations for node " + child);
+        }
+        return (int) configurations * c;
+    }
+
+    private ContingencyTable table(int child, int[] parents, int[] counts) {
+        int[] numParentCategories = new int[parents.length];
+        for (int p = 0; p < parents.length; p++) {
+            numParentCategories[p] = columns.getNumCategories(parents[p]);
+        }
+        return new ContingencyTable(child, parents, numParentCategories, columns.getNumCategories(child), counts);
+    }
+
+    /**
+     * Counts the families from (inclusive) to (exclusive) in one pass over the rows.
+     */
+    private int[][] countPass(int[] children, int[][] parents, int[] sizes, int from, int to) {
+        int numRows = columns.getNumRows();
+        int numBlocks = (numRows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        int partitions = Math.max(1, Math.min(parallelism(), numBlocks));
+        if (partitions == 1)
+            return countRows(children, parents, sizes, from, to, 0, numRows);
+
+        int blocksPerPartition = (numBlocks + partitions - 1) / partitions;
+        int rowsPerPartition = blocksPerPartition * BLOCK_ROWS;
+        return IntStream.range(0, partitions)
+                .parallel()
+                .mapToObj(p -> countRows(children, parents, sizes, from, to,
+                        Math.min(numRows, p * rowsPerPartition), Math.min(numRows, (p + 1) * rowsPerPartition)))
+                .reduce(ContingencyCounter::add)
+                .orElseThrow();
+    }
+
+    private int[][] countRows(int[] children, int[][] parents, int[] sizes, int from, int to,
+                              int firstRow, int lastRow) {
+        int[][] counts = new int[to - from][];
+        for (int f = from; f < to; f++) {
+            counts[f - from] = new int[sizes[f]];
+        }
+        int[] index = new int[Math.min(BLOCK_ROWS, Math.max(0, lastRow - firstRow))];
+        for (int start = firstRow; start < lastRow; start += BLOCK_ROWS) {
+            int end = Math.min(lastRow, start + BLOCK_ROWS);
+            int length = end - start;
+            for (int f = from; f < to; f++) {
+                // Mixed-radix index of every row of the block: parents in order, then the child.
+                Arrays.fill(index, 0, length, 0);
+                for (int parent : parents[f]) {
+                    columns.accumulateIndex(parent, columns.getNumCategories(parent), index, start, end);
+                }
+                columns.accumulateIndex(children[f], columns.getNumCategories(children[f]), index, start, end);
+
+                int[] cells = counts[f - from];
+                for (int i = 0; i < length; i++) {
+                    int cell = index[i];
+                    if (cell >= 0)
+                        cells[cell]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static int[][] add(int[][] a, int[][] b) {
+        for (int f = 0; f < a.length; f++) {
+            int[] x = a[f];
+            int[] y = b[f];
+            for (int i = 0; i < x.length; i++) {
+                x[i] += y[i];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Number of workers of the pool the counting runs in: the pool of the calling task, or the common pool.
+     */
+    private static int parallelism() {
+        ForkJoinPool pool = ForkJoinTask.getPool();
+        return pool != null ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+    }
+}
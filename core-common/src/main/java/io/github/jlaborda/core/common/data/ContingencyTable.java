@@ -0,0 +1,203 @@
+package io.github.jlaborda.core.common.data;
+
+import java.util.Arrays;
+
+/**
+ * Counts of a family, that is, of a child variable and a set of parents, over the rows of a dataset. The counts are
+ * stored in a single array with one row per configuration of the parents and one column per category of the child:
+ * the cell of the parent configuration {@code j} and the child category {@code k} is at {@code j * c + k}, where
+ * {@code c} is the number of categories of the child. Parent configurations are mixed-radix numbers of the categories
+ * of the parents, in the order they were given, the first one being the most significant. Rows with a missing value
+ * in any variable of the family aren't counted.
+ *
+ * @see ContingencyCounter
+ */
+public final class ContingencyTable {
+
+    private final int child;
+
+    private final int[] parents;
+
+    /**
+     * Number of categories of each parent, the radices of the parent configurations.
+     */
+    private final int[] numParentCategories;
+
+    private final int numChildCategories;
+
+    private final int numParentConfigurations;
+
+    private final int[] counts;
+
+    private final int[] rowCounts;
+
+    private final int total;
+
+    ContingencyTable(int child, int[] parents, int[] numParentCategories, int numChildCategories, int[] counts) {
+        this.child = child;
+        this.parents = parents;
+        this.numParentCategories = numParentCategories;
+        this.numChildCategories = numChildCategories;
+        this.numParentConfigurations = configurations(numParentCategories);
+        this.counts = counts;
+        this.rowCounts = new int[numParentConfigurations];
+        int sum = 0;
+        for (int j = 0, cell = 0; j < numParentConfigurations; j++) {
+            for (int k = 0; k < numChildCategories; k++, cell++) {
+                rowCounts[j] += counts[cell];
+            }
+            sum += rowCounts[j];
+        }
+        this.total = sum;
+    }
+
+    public int getChild() {
+        return child;
+    }
+
+    /**
+     * Gets the parents of the family, in the order used for the parent configurations.
+     * @return copy of the parents.
+     */
+    public int[] getParents() {
+        return parents.clone();
+    }
+
+    public int getNumParents() {
+        return parents.length;
+    }
+
+    public int getNumChildCategories() {
+        return numChildCategories;
+    }
+
+    public int getNumParentConfigurations() {
+        return numParentConfigurations;
+    }
+
+    /**
+     * Gets the count of a cell.
+     * @param parentConfiguration configuration of the parents.
+     * @param childCategory category of the child.
+     * @return number of rows with that configuration of the parents and that category of the child.
+     */
+    public int getCount(int parentConfiguration, int childCategory) {
+        return counts[parentConfiguration * numChildCategories + childCategory];
+    }
+
+    /**
+     * Gets the counts of every cell, as described in the class documentation. The array isn't copied and must not be
+     * modified.
+     * @return counts of the cells.
+     */
+    public int[] getCounts() {
+        return counts;
+    }
+
+    /**
+     * Gets the number of rows of each configuration of the parents. The array isn't copied and must not be modified.
+     * @return counts of the parent configurations.
+     */
+    public int[] getRowCounts() {
+        return rowCounts;
+    }
+
+    /**
+     * Gets the number of counted rows, that is, the rows without missing values in the family.
+     * @return sum of every count.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Sums out some of the parents of the table, giving the table of the child with fewer parents without going
+     * through the rows again.
+     * @param kept parents of this table to keep, in the order of the configurations of the new table.
+     * @return the table of the child with the kept parents.
+     * @throws IllegalArgumentException if a kept variable isn't a parent of this table, or is repeated.
+     */
+    public ContingencyTable marginalize(int... kept) {
+        // Position in this table of each kept parent
+        int[] positions = new int[kept.length];
+        int[] keptCategories = new int[kept.length];
+        for (int i = 0; i < kept.length; i++) {
+            positions[i] = -1;
+            for (int p = 0; p < parents.length; p++) {
+                if (parents[p] == kept[i])
+                    positions[i] = p;
+            }
+            for (int j = 0; j < i; j++) {
+                if (kept[j] == kept[i])
+                    positions[i] = -1;
+            }
+            if (positions[i] < 0)
+                throw new IllegalArgumentException("Variable " + kept[i] + " is not a distinct parent of the table");
+            keptCategories[i] = numParentCategories[positions[i]];
+        }
+
+        int[] marginal = new int[configurations(keptCategories) * numChildCategories];
+        int[] digits = new int[parents.length];
+        for (int j = 0; j < numParentConfigurations; j++) {
+            // Digits of the configuration j, the last parent being the least significant
+            for (int p = parents.length - 1, rest = j; p >= 0; p--) {
+                digits[p] = rest % numParentCategories[p];
+                rest /= numParentCategories[p];
+            }
+            int target = 0;
+            for (int i = 0; i < kept.length; i++) {
+                target = target * keptCategories[i] + digits[positions[i]];
+            }
+            int from = j * numChildCategories;
+            int to = target * numChildCategories;
+            for (int k = 0; k < numChildCategories; k++) {
+                marginal[to + k] += counts[from + k];
+            }
+        }
+        return new ContingencyTable(child, kept.clone(), keptCategories, numChildCategories, marginal);
+    }
+
+    private static int configurations(int[] numParentCategories) {
+        int product = 1;
+        for (int categories : numParentCategories) {
+            product *= categories;
+        }
+        return product;
+    }
+
+    /**
+     * Computes the mutual information, in bits, between the child and the configurations of the parents, using the
+     * frequencies of the counted rows as probabilities. With a single parent this is the mutual information between
+     * the two variables.
+     * @return mutual information of the table, or 0 if no row was counted.
+     */
+    public double mutualInformation() {
+        int n = total;
+        if (n == 0)
+            return 0;
+        int[] rows = rowCounts;
+        int[] columns = new int[numChildCategories];
+        for (int j = 0, cell = 0; j < numParentConfigurations; j++) {
+            for (int k = 0; k < numChildCategories; k++, cell++) {
+                columns[k] += counts[cell];
+            }
+        }
+
+        double mi = 0.0;
+        for (int j = 0, cell = 0; j < numParentConfigurations; j++) {
+            for (int k = 0; k < numChildCategories; k++, cell++) {
+                int count = counts[cell];
+                if (count == 0)
+                    continue;
+                double pXY = (double) count / n;
+                mi += pXY * Math.log((double) count * n / ((double) rows[j] * columns[k]));
+            }
+        }
+        return mi / Math.log(2);
+    }
+
+    @Override
+    public String toString() {
+        return "ContingencyTable{child=" + child + ", parents=" + Arrays.toString(parents) + ", total=" + total + "}";
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.jlaborda.core.common.data;
+
+/**
+ * Read-only, column-major view of a discrete dataset. Each value is the category index of a variable in a row, and
+ * missing values are represented by a negative number.
+ * The bulk operations work over whole columns so that implementations can run them as tight primitive loops.
+ */
+public interface DiscreteColumns {
+
+    /**
+     * Gets the number of rows (instances) of the dataset.
+     * @return number of rows.
+     */
+    int getNumRows();
+
+    /**
+     * Gets the number of columns (variables) of the dataset.
+     * @return number of columns.
+     */
+    int getNumColumns();
+
+    /**
+     * Gets the number of categories a variable can take.
+     * @param column index of the variable.
+     * @return number of categories of the variable.
+     */
+    int getNumCategories(int column);
+
+    /**
+     * Gets a single value of the dataset.
+     * @param column index of the variable.
+     * @param row index of the instance.
+     * @return category index of the value, or a negative number if it is missing.
+     */
+    int getValue(int column, int row);
+
+    /**
+     * Mixes the values of a column into a mixed-radix index per row, that is, {@code index[r] = index[r] * radix + value}.
+     * Rows whose index is already negative, or whose value is missing, end up with a negative index.
+     * @param column index of the variable being mixed in.
+     * @param radix radix used for the column, usually its number of categories.
+     * @param index array of at least {@link #getNumRows()} positions with the partial indices of each row.
+     */
+    void accumulateIndex(int column, int radix, int[] index);
+
+    /**
+     * Same as {@link #accumulateIndex(int, int, int[])}, but only over a block of rows: the partial index of row
+     * {@code r} is at {@code index[r - fromRow]}.
+     * @param column index of the variable being mixed in.
+     * @param radix radix used for the column, usually its number of categories.
+     * @param index array of at least {@code toRow - fromRow} positions with the partial indices of the block.
+     * @param fromRow first row of the block, inclusive.
+     * @param toRow last row of the block, exclusive.
+     */
+    default void accumulateIndex(int column, int radix, int[] index, int fromRow, int toRow) {
+        for (int r = fromRow; r < toRow; r++) {
+            int value = getValue(column, r);
+            int current = index[r - fromRow];
+            index[r - fromRow] = (current < 0 || value < 0) ? -1 : current * radix + value;
+        }
+    }
+
+    /**
+     * Checks if any value of the dataset is missing.
+     * @return true if there is at least one missing value, false otherwise.
+     */
+    boolean hasMissingValues();
+}
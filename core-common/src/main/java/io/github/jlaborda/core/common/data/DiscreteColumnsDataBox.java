@@ -0,0 +1,112 @@
+package io.github.jlaborda.core.common.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.DataBox;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.data.VerticalIntDataBox;
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * Read-only {@link DataBox DataBox} over {@link DiscreteColumns}, so that compact or memory-mapped columns can be used
+ * as a Tetrad {@link DataSet DataSet} without copying them. Copies and selections are made in memory as
+ * {@link VerticalIntDataBox VerticalIntDataBoxes}, which is also what gets serialized.
+ */
+public final class DiscreteColumnsDataBox implements DataBox {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient DiscreteColumns columns;
+
+    public DiscreteColumnsDataBox(DiscreteColumns columns) {
+        if (columns == null)
+            throw new NullPointerException("The columns must not be null");
+        this.columns = columns;
+    }
+
+    /**
+     * Creates a read-only dataset over some columns.
+     * @param columns values of the dataset.
+     * @param variables variables of the dataset, in the order of the columns.
+     * @return dataset backed by the columns.
+     */
+    public static DataSet toDataSet(DiscreteColumns columns, List<? extends Node> variables) {
+        if (variables.size() != columns.getNumColumns())
+            throw new IllegalArgumentException("The number of variables doesn't match the number of columns");
+        return new BoxDataSet(new DiscreteColumnsDataBox(columns), new ArrayList<>(variables));
+    }
+
+    /**
+     * Gets the columns of a dataset if it is backed by a {@link DiscreteColumnsDataBox DiscreteColumnsDataBox}.
+     * @param dataSet any dataset.
+     * @return the columns of the dataset, or null if it isn't backed by them.
+     */
+    public static DiscreteColumns columnsOf(DataSet dataSet) {
+        if (dataSet instanceof BoxDataSet box && box.getDataBox() instanceof DiscreteColumnsDataBox columnsBox)
+            return columnsBox.columns;
+        return null;
+    }
+
+    public DiscreteColumns getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int numRows() {
+        return columns.getNumRows();
+    }
+
+    @Override
+    public int numCols() {
+        return columns.getNumColumns();
+    }
+
+    /**
+     * The values of the columns can't be changed.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void set(int row, int col, Number value) {
+        throw new UnsupportedOperationException("Datasets backed by discrete columns are read-only");
+    }
+
+    @Override
+    public Number get(int row, int col) {
+        int value = columns.getValue(col, row);
+        return value < 0 ? DiscreteVariable.MISSING_VALUE : value;
+    }
+
+    @Override
+    public DataBox copy() {
+        int[][] data = new int[numCols()][numRows()];
+        for (int j = 0; j < data.length; j++) {
+            for (int r = 0; r < data[j].length; r++) {
+                data[j][r] = get(r, j).intValue();
+            }
+        }
+        return new VerticalIntDataBox(data);
+    }
+
+    @Override
+    public DataBox viewSelection(int[] rows, int[] cols) {
+        int[][] data = new int[cols.length][rows.length];
+        for (int j = 0; j < cols.length; j++) {
+            for (int r = 0; r < rows.length; r++) {
+                data[j][r] = get(rows[r], cols[j]).intValue();
+            }
+        }
+        return new VerticalIntDataBox(data);
+    }
+
+    @Override
+    public DataBox like() {
+        return new VerticalIntDataBox(numRows(), numCols());
+    }
+
+    private Object writeReplace() {
+        return copy();
+    }
+}
@@ -0,0 +1,281 @@
+package io.github.jlaborda.core.common.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.graph.Node;
+import io.github.jlaborda.core.common.utils.Utils;
+
+/**
+ * Binary columnar format for discrete datasets. The file starts with a header holding the number of rows, the
+ * variables and their categories, followed by one column per variable, stored as bytes if the variable has up to
+ * {@value CompactDiscreteColumns#MAX_BYTE_CATEGORIES} categories and as shorts otherwise, in the same encoding as
+ * {@link CompactDiscreteColumns}. Every column starts at a multiple of 8 bytes so that it can be mapped on its own.
+ * <p>
+ * Layout, in big-endian order:
+ * <pre>
+ * int magic, int version, int flags, int numRows, int numColumns, int headerLength
+ * for each variable: string name, int numCategories, numCategories x string category
+ * padding up to a multiple of 8, then for each variable: numRows values and padding up to a multiple of 8
+ * </pre>
+ * Strings are stored as an int length followed by their UTF-8 bytes. The only flag marks datasets with missing
+ * values, stored as -1.
+ * <p>
+ * {@link #open(Path)} maps the columns instead of reading them, and {@link #convert(Path, Path)} converts a CSV file
+ * readable by {@link Utils#readData(Path)} into this format. It can also be run from the command line with the CSV
+ * and binary paths as arguments.
+ */
+public final class DiscreteColumnsFile {
+
+    /**
+     * Usual extension of the files of this format.
+     */
+    public static final String EXTENSION = ".hbnc";
+
+    /**
+     * "HBNC" in ASCII.
+     */
+    static final int MAGIC = 0x48424E43;
+
+    static final int VERSION = 1;
+
+    private static final int FLAG_MISSING_VALUES = 1;
+
+    /**
+     * Bytes of the fixed part of the header.
+     */
+    private static final int FIXED_HEADER_LENGTH = 6 * Integer.BYTES;
+
+    private static final int ALIGNMENT = 8;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private DiscreteColumnsFile() {
+    }
+
+    /**
+     * Writes a discrete dataset in the binary format.
+     * @param dataSet dataset whose variables are all {@link DiscreteVariable DiscreteVariables}.
+     * @param path file to write. It is replaced if it exists.
+     * @throws IOException if the file can't be written.
+     */
+    public static void write(DataSet dataSet, Path path) throws IOException {
+        List<DiscreteVariable> variables = new ArrayList<>(dataSet.getNumColumns());
+        for (Node variable : dataSet.getVariables()) {
+            if (!(variable instanceof DiscreteVariable discrete))
+                throw new IllegalArgumentException("Variable " + variable + " is not discrete");
+            variables.add(discrete);
+        }
+        DiscreteColumns columns = DiscreteColumnsDataBox.columnsOf(dataSet);
+        write(variables, columns != null ? columns : CompactDiscreteColumns.fromDataSet(dataSet), path);
+    }
+
+    /**
+     * Writes the columns of a discrete dataset in the binary format.
+     * @param variables variables of the dataset, in the order of the columns.
+     * @param columns values of the dataset.
+     * @param path file to write. It is replaced if it exists.
+     * @throws IOException if the file can't be written.
+     */
+    public static void write(List<DiscreteVariable> variables, DiscreteColumns columns, Path path) throws IOException {
+        if (variables.size() != columns.getNumColumns())
+            throw new IllegalArgumentException("The number of variables doesn't match the number of columns");
+        for (int j = 0; j < variables.size(); j++) {
+            if (variables.get(j).getNumCategories() != columns.getNumCategories(j))
+                throw new IllegalArgumentException("The categories of " + variables.get(j) + " don't match its column");
+            if (columns.getNumCategories(j) > CompactDiscreteColumns.MAX_SHORT_CATEGORIES)
+                throw new IllegalArgumentException("Variable " + variables.get(j) + " has more than "
+                        + CompactDiscreteColumns.MAX_SHORT_CATEGORIES + " categories");
+        }
+
+        ByteArrayOutputStream variablesHeader = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(variablesHeader);
+        for (DiscreteVariable variable : variables) {
+            writeString(out, variable.getName());
+            out.writeInt(variable.getNumCategories());
+            for (String category : variable.getCategories()) {
+                writeString(out, category);
+            }
+        }
+        out.flush();
+
+        int numRows = columns.getNumRows();
+        int headerLength = FIXED_HEADER_LENGTH + variablesHeader.size();
+        ByteBuffer header = ByteBuffer.allocate(align(headerLength));
+        header.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(columns.hasMissingValues() ? FLAG_MISSING_VALUES : 0)
+                .putInt(numRows)
+                .putInt(variables.size())
+                .putInt(headerLength)
+                .put(variablesHeader.toByteArray());
+        header.position(header.capacity()).flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            for (int j = 0; j < variables.size(); j++) {
+                int width = width(columns.getNumCategories(j));
+                long columnLength = (long) numRows * width;
+                for (int r = 0; r < numRows; r++) {
+                    if (buffer.remaining() < width) {
+                        buffer.flip();
+                        writeFully(channel, buffer);
+                        buffer.clear();
+                    }
+                    int value = columns.getValue(j, r);
+                    if (width == Byte.BYTES)
+                        buffer.put((byte) (value < 0 ? -1 : value));
+                    else
+                        buffer.putShort((short) (value < 0 ? -1 : value));
+                }
+                for (long p = columnLength; p < align(columnLength); p++) {
+                    if (!buffer.hasRemaining()) {
+                        buffer.flip();
+                        writeFully(channel, buffer);
+                        buffer.clear();
+                    }
+                    buffer.put((byte) 0);
+                }
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+    }
+
+    /**
+     * Converts a CSV file into the binary format.
+     * @param csv CSV file with a header, readable by {@link Utils#readData(Path)}.
+     * @param binary file to write.
+     * @throws IOException if a file can't be read or written.
+     */
+    public static void convert(Path csv, Path binary) throws IOException {
+        write(Utils.readData(csv), binary);
+    }
+
+    /**
+     * Opens a file of the binary format, mapping its columns into memory. Only the header is read; the mapped
+     * columns stay valid after this method returns, until they are garbage collected.
+     * @param path file to open.
+     * @return the columns of the file.
+     * @throws IOException if the file can't be read or isn't in this format.
+     */
+    public static MappedDiscreteColumns open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < FIXED_HEADER_LENGTH)
+                throw new IOException(path + " is not a " + EXTENSION + " file");
+            ByteBuffer fixed = channel.map(FileChannel.MapMode.READ_ONLY, 0, FIXED_HEADER_LENGTH);
+            if (fixed.getInt() != MAGIC)
+                throw new IOException(path + " is not a " + EXTENSION + " file");
+            int version = fixed.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported version " + version + " of " + path);
+            boolean missingValues = (fixed.getInt() & FLAG_MISSING_VALUES) != 0;
+            int numRows = fixed.getInt();
+            int numColumns = fixed.getInt();
+            int headerLength = fixed.getInt();
+            if (numRows < 0 || numColumns < 0 || headerLength < FIXED_HEADER_LENGTH || headerLength > size)
+                throw new IOException("Corrupted header in " + path);
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, FIXED_HEADER_LENGTH,
+                    headerLength - FIXED_HEADER_LENGTH);
+            List<DiscreteVariable> variables = new ArrayList<>(numColumns);
+            for (int j = 0; j < numColumns; j++) {
+                String name = readString(header);
+                int numCategories = header.getInt();
+                List<String> categories = new ArrayList<>(numCategories);
+                for (int c = 0; c < numCategories; c++) {
+                    categories.add(readString(header));
+                }
+                variables.add(new DiscreteVariable(name, categories));
+            }
+
+            ByteBuffer[] byteColumns = new ByteBuffer[numColumns];
+            ShortBuffer[] shortColumns = new ShortBuffer[numColumns];
+            long offset = align(headerLength);
+            for (int j = 0; j < numColumns; j++) {
+                int width = width(variables.get(j).getNumCategories());
+                long columnLength = (long) numRows * width;
+                if (offset + columnLength > size)
+                    throw new IOException("Column " + j + " of " + path + " is truncated");
+                ByteBuffer column = channel.map(FileChannel.MapMode.READ_ONLY, offset, columnLength);
+                if (width == Byte.BYTES)
+                    byteColumns[j] = column;
+                else
+                    shortColumns[j] = column.asShortBuffer();
+                offset += align(columnLength);
+            }
+            return new MappedDiscreteColumns(numRows, variables, byteColumns, shortColumns, missingValues);
+        }
+    }
+
+    /**
+     * Opens a file of the binary format as a read-only {@link DataSet DataSet} backed by its mapped columns.
+     * @param path file to open.
+     * @return the dataset of the file.
+     * @throws IOException if the file can't be read or isn't in this format.
+     * @see MappedDiscreteColumns#toDataSet()
+     */
+    public static DataSet readDataSet(Path path) throws IOException {
+        return open(path).toDataSet();
+    }
+
+    private static int width(int numCategories) {
+        return numCategories <= CompactDiscreteColumns.MAX_BYTE_CATEGORIES ? Byte.BYTES : Short.BYTES;
+    }
+
+    private static int align(int length) {
+        return (int) align((long) length);
+    }
+
+    private static long align(long length) {
+        return (length + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Converts a CSV file into the binary format.
+     * @param args path of the CSV file and path of the binary file to write.
+     * @throws IOException if a file can't be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: DiscreteColumnsFile <input.csv> <output" + EXTENSION + ">");
+            System.exit(1);
+        }
+        long start = System.currentTimeMillis();
+        convert(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println("Converted " + args[0] + " into " + args[1] + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.jlaborda.core.common.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+
+/**
+ * {@link DiscreteColumns} read from a file written by {@link DiscreteColumnsFile}. Each column is a read-only
+ * memory-mapped region of the file, so opening a dataset only reads its header, the values are loaded by the
+ * operating system as they are accessed, and several processes opening the same file share its pages.
+ * Missing values are stored as -1.
+ */
+public final class MappedDiscreteColumns implements DiscreteColumns {
+
+    private final int numRows;
+
+    private final List<DiscreteVariable> variables;
+
+    private final int[] numCategories;
+
+    /**
+     * Byte columns. The position of a variable stored as a short column is null.
+     */
+    private final ByteBuffer[] byteColumns;
+
+    /**
+     * Short columns. The position of a variable stored as a byte column is null.
+     */
+    private final ShortBuffer[] shortColumns;
+
+    private final boolean missingValues;
+
+    MappedDiscreteColumns(int numRows, List<DiscreteVariable> variables, ByteBuffer[] byteColumns,
+                          ShortBuffer[] shortColumns, boolean missingValues) {
+        this.numRows = numRows;
+        this.variables = Collections.unmodifiableList(new ArrayList<>(variables));
+        this.numCategories = new int[variables.size()];
+        for (int i = 0; i < numCategories.length; i++) {
+            numCategories[i] = variables.get(i).getNumCategories();
+        }
+        this.byteColumns = byteColumns;
+        this.shortColumns = shortColumns;
+        this.missingValues = missingValues;
+    }
+
+    /**
+     * Gets the variables of the dataset, in the order of the columns.
+     * @return unmodifiable list of the variables.
+     */
+    public List<DiscreteVariable> getVariables() {
+        return variables;
+    }
+
+    /**
+     * Creates a read-only {@link DataSet DataSet} over the mapped columns. The values aren't copied, and
+     * {@link io.github.jlaborda.core.common.score.CompactBdeuScore CompactBdeuScore} scores the dataset directly over
+     * these columns.
+     * @return dataset backed by the columns.
+     */
+    public DataSet toDataSet() {
+        return DiscreteColumnsDataBox.toDataSet(this, variables);
+    }
+
+    @Override
+    public int getNumRows() {
+        return numRows;
+    }
+
+    @Override
+    public int getNumColumns() {
+        return numCategories.length;
+    }
+
+    @Override
+    public int getNumCategories(int column) {
+        return numCategories[column];
+    }
+
+    @Override
+    public int getValue(int column, int row) {
+        ByteBuffer bytes = byteColumns[column];
+        return bytes != null ? bytes.get(row) : shortColumns[column].get(row);
+    }
+
+    @Override
+    public void accumulateIndex(int column, int radix, int[] index) {
+        ByteBuffer bytes = byteColumns[column];
+        if (bytes != null) {
+            if (!missingValues) {
+                for (int r = 0; r < numRows; r++) {
+                    index[r] = index[r] * radix + bytes.get(r);
+                }
+            } else {
+                for (int r = 0; r < numRows; r++) {
+                    int value = bytes.get(r);
+                    int current = index[r];
+                    index[r] = (current < 0 || value < 0) ? -1 : current * radix + value;
+                }
+            }
+        } else {
+            ShortBuffer shorts = shortColumns[column];
+            if (!missingValues) {
+                for (int r = 0; r < numRows; r++) {
+                    index[r] = index[r] * radix + shorts.get(r);
+                }
+            } else {
+                for (int r = 0; r < numRows; r++) {
+                    int value = shorts.get(r);
+                    int current = index[r];
+                    index[r] = (current < 0 || value < 0) ? -1 : current * radix + value;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void accumulateIndex(int column, int radix, int[] index, int fromRow, int toRow) {
+        ByteBuffer bytes = byteColumns[column];
+        if (bytes != null) {
+            if (!missingValues) {
+                for (int r = fromRow, i = 0; r < toRow; r++, i++) {
+                    index[i] = index[i] * radix + bytes.get(r);
+                }
+            } else {
+                for (int r = fromRow, i = 0; r < toRow; r++, i++) {
+                    int value = bytes.get(r);
+                    int current = index[i];
+                    index[i] = (current < 0 || value < 0) ? -1 : current * radix + value;
+                }
+            }
+        } else {
+            ShortBuffer shorts = shortColumns[column];
+            if (!missingValues) {
+                for (int r = fromRow, i = 0; r < toRow; r++, i++) {
+                    index[i] = index[i] * radix + shorts.get(r);
+                }
+            } else {
+                for (int r = fromRow, i = 0; r < toRow; r++, i++) {
+                    int value = shorts.get(r);
+                    int current = index[i];
+                    index[i] = (current < 0 || value < 0) ? -1 : current * radix + value;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean hasMissingValues() {
+        return missingValues;
+    }
+}
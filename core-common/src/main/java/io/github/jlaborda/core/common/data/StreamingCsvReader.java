@@ -0,0 +1,277 @@
+package io.github.jlaborda.core.common.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+
+/**
+ * Reads a discrete CSV file with a header straight into {@link CompactDiscreteColumns}. The rows are read one by one,
+ * each value is encoded with a dictionary of the categories seen so far in its column, and the codes are appended to
+ * fixed-size chunks of each column. Once the file ends, the chunks of each column are copied into its final array and
+ * released, so at most one extra column is held at the same time and no matrix of ints is ever allocated.
+ * <p>
+ * As in Tetrad's {@link edu.pitt.dbmi.data.reader.tabular.VerticalDiscreteTabularDatasetFileReader
+ * VerticalDiscreteTabularDatasetFileReader}, values are trimmed, the categories of each variable are sorted, and empty
+ * values are missing.
+ */
+public class StreamingCsvReader {
+
+    /**
+     * Number of rows of each chunk of a column.
+     */
+    static final int CHUNK_ROWS = 1 << 16;
+
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    private char delimiter = ',';
+
+    private String missingValueMarker = "";
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public String getMissingValueMarker() {
+        return missingValueMarker;
+    }
+
+    /**
+     * Sets the value that marks a missing value. Empty values are always missing.
+     * @param missingValueMarker marker of missing values.
+     */
+    public void setMissingValueMarker(String missingValueMarker) {
+        this.missingValueMarker = missingValueMarker == null ? "" : missingValueMarker.trim();
+    }
+
+    /**
+     * Reads a CSV file.
+     * @param path path of the file.
+     * @return read-only dataset backed by the compact columns of the file.
+     * @throws IOException if the file can't be read or is malformed.
+     */
+    public DataSet read(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Reads a CSV stream encoded in UTF-8. The stream isn't closed.
+     * @param in stream to read.
+     * @return read-only dataset backed by the compact columns of the stream.
+     * @throws IOException if the stream can't be read or is malformed.
+     */
+    public DataSet read(InputStream in) throws IOException {
+        return read(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads CSV text. The reader isn't closed.
+     * @param reader reader of the text.
+     * @return read-only dataset backed by the compact columns of the text.
+     * @throws IOException if the text can't be read or is malformed.
+     */
+    public DataSet read(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader, READ_BUFFER_SIZE);
+        String line = nextLine(lines);
+        if (line == null)
+            throw new IOException("The file is empty");
+
+        String[] names = split(line);
+        ColumnBuilder[] builders = new ColumnBuilder[names.length];
+        for (int j = 0; j < names.length; j++) {
+            builders[j] = new ColumnBuilder(names[j]);
+        }
+
+        String[] values = new String[names.length];
+        int numRows = 0;
+        int lineNumber = 1;
+        while ((line = nextLine(lines)) != null) {
+            lineNumber++;
+            splitInto(line, values, lineNumber);
+            for (int j = 0; j < values.length; j++) {
+                builders[j].add(numRows, values[j]);
+            }
+            numRows++;
+        }
+
+        List<DiscreteVariable> variables = new ArrayList<>(builders.length);
+        int[] numCategories = new int[builders.length];
+        byte[][] byteColumns = new byte[builders.length][];
+        short[][] shortColumns = new short[builders.length][];
+        for (int j = 0; j < builders.length; j++) {
+            ColumnBuilder builder = builders[j];
+            variables.add(builder.finish(numRows, byteColumns, shortColumns, j));
+            numCategories[j] = variables.get(j).getNumCategories();
+            builders[j] = null;
+        }
+        CompactDiscreteColumns columns = new CompactDiscreteColumns(numRows, numCategories, byteColumns, shortColumns);
+        return DiscreteColumnsDataBox.toDataSet(columns, variables);
+    }
+
+    private static String nextLine(BufferedReader lines) throws IOException {
+        String line;
+        do {
+            line = lines.readLine();
+        } while (line != null && line.isBlank());
+        return line;
+    }
+
+    private String[] split(String line) {
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = line.indexOf(delimiter, start)) >= 0) {
+            tokens.add(line.substring(start, end).trim());
+            start = end + 1;
+        }
+        tokens.add(line.substring(start).trim());
+        return tokens.toArray(String[]::new);
+    }
+
+    private void splitInto(String line, String[] values, int lineNumber) throws IOException {
+        int start = 0;
+        for (int j = 0; j < values.length; j++) {
+            int end = line.indexOf(delimiter, start);
+            if (j == values.length - 1) {
+                if (end >= 0)
+                    throw new IOException("Line " + lineNumber + " has more than " + values.length + " values");
+                end = line.length();
+            } else if (end < 0) {
+                throw new IOException("Line " + lineNumber + " has " + (j + 1) + " values instead of " + values.length);
+            }
+            values[j] = line.substring(start, end).trim();
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Column being read. Codes are assigned in order of appearance while reading, and mapped to the sorted order of
+     * the categories once the column is complete. Chunks are bytes until the column has more than
+     * {@value CompactDiscreteColumns#MAX_BYTE_CATEGORIES} categories.
+     */
+    private final class ColumnBuilder {
+
+        private final String name;
+
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private final List<String> categories = new ArrayList<>();
+
+        private final List<byte[]> byteChunks = new ArrayList<>();
+
+        private List<short[]> shortChunks = null;
+
+        ColumnBuilder(String name) {
+            this.name = name;
+        }
+
+        void add(int row, String value) {
+            int code;
+            if (value.isEmpty() || value.equals(missingValueMarker)) {
+                code = -1;
+            } else {
+                Integer known = codes.get(value);
+                if (known == null) {
+                    known = categories.size();
+                    if (known == CompactDiscreteColumns.MAX_SHORT_CATEGORIES)
+                        throw new IllegalArgumentException("Variable " + name + " has more than "
+                                + CompactDiscreteColumns.MAX_SHORT_CATEGORIES + " categories");
+                    codes.put(value, known);
+                    categories.add(value);
+                    if (known == CompactDiscreteColumns.MAX_BYTE_CATEGORIES && shortChunks == null)
+                        widen();
+                }
+                code = known;
+            }
+
+            int chunk = row / CHUNK_ROWS;
+            int offset = row % CHUNK_ROWS;
+            if (shortChunks == null) {
+                if (offset == 0)
+                    byteChunks.add(new byte[CHUNK_ROWS]);
+                byteChunks.get(chunk)[offset] = (byte) code;
+            } else {
+                if (offset == 0)
+                    shortChunks.add(new short[CHUNK_ROWS]);
+                shortChunks.get(chunk)[offset] = (short) code;
+            }
+        }
+
+        /**
+         * Converts the byte chunks read so far into short chunks.
+         */
+        private void widen() {
+            shortChunks = new ArrayList<>(byteChunks.size() + 1);
+            for (int i = 0; i < byteChunks.size(); i++) {
+                byte[] bytes = byteChunks.get(i);
+                short[] shorts = new short[CHUNK_ROWS];
+                for (int r = 0; r < CHUNK_ROWS; r++) {
+                    shorts[r] = bytes[r];
+                }
+                byteChunks.set(i, null);
+                shortChunks.add(shorts);
+            }
+            byteChunks.clear();
+        }
+
+        /**
+         * Copies the chunks into the final column, with the codes of the sorted categories, releasing each chunk
+         * once it is copied.
+         */
+        DiscreteVariable finish(int numRows, byte[][] byteColumns, short[][] shortColumns, int column) {
+            String[] sorted = categories.toArray(String[]::new);
+            Arrays.sort(sorted);
+            int[] remap = new int[sorted.length];
+            for (int c = 0; c < sorted.length; c++) {
+                remap[codes.get(sorted[c])] = c;
+            }
+
+            if (shortChunks == null) {
+                byte[] values = new byte[numRows];
+                for (int chunk = 0; chunk < byteChunks.size(); chunk++) {
+                    byte[] codesOfChunk = byteChunks.get(chunk);
+                    int start = chunk * CHUNK_ROWS;
+                    int end = Math.min(numRows, start + CHUNK_ROWS);
+                    for (int r = start; r < end; r++) {
+                        int code = codesOfChunk[r - start];
+                        values[r] = (byte) (code < 0 ? -1 : remap[code]);
+                    }
+                    byteChunks.set(chunk, null);
+                }
+                byteColumns[column] = values;
+            } else {
+                short[] values = new short[numRows];
+                for (int chunk = 0; chunk < shortChunks.size(); chunk++) {
+                    short[] codesOfChunk = shortChunks.get(chunk);
+                    int start = chunk * CHUNK_ROWS;
+                    int end = Math.min(numRows, start + CHUNK_ROWS);
+                    for (int r = start; r < end; r++) {
+                        int code = codesOfChunk[r - start];
+                        values[r] = (short) (code < 0 ? -1 : remap[code]);
+                    }
+                    shortChunks.set(chunk, null);
+                }
+                shortColumns[column] = values;
+            }
+            return new DiscreteVariable(name, Arrays.asList(sorted));
+        }
+    }
+}
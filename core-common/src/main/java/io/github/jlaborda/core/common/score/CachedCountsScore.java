@@ -0,0 +1,249 @@
+package io.github.jlaborda.core.common.score;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Node;
+import io.github.jlaborda.core.common.data.ContingencyCounter;
+import io.github.jlaborda.core.common.data.ContingencyTable;
+import io.github.jlaborda.core.common.data.DiscreteColumns;
+import io.github.jlaborda.core.common.utils.ParentSetKey;
+
+/**
+ * {@link DecomposableScore} that wraps a {@link CountsScore} and reuses counts between families whose parents differ
+ * by one variable, which are the families compared by every insertion and deletion of the searches.
+ * <ul>
+ *     <li>The configurations of the parents in every row are kept for the most recently used parent sets. When a
+ *     family needs a parent set that is a cached one plus a variable, its configurations are extended with a single
+ *     pass over the column of the new variable instead of going through the columns of every parent.</li>
+ *     <li>The last tables counted for each child are kept too. When a family has a subset of the parents of one of
+ *     them, and the dataset has no missing values, its table is obtained by summing out the other parents, without
+ *     going through the rows at all.</li>
+ * </ul>
+ * The scores are the ones of the wrapped score, up to the rounding of adding the cells in a different order, since
+ * reused configurations keep the order in which their parents were added.
+ */
+public class CachedCountsScore implements DecomposableScore {
+
+    /**
+     * Default number of parent sets whose configurations are kept.
+     */
+    public static final int DEFAULT_MAX_CACHED_CONFIGURATIONS = 64;
+
+    /**
+     * Number of tables kept for each child.
+     */
+    static final int RECENT_TABLES = 4;
+
+    private final CountsScore score;
+
+    private final DiscreteColumns columns;
+
+    private final ContingencyCounter counter;
+
+    private final Map<ParentSetKey, Configurations> configurations;
+
+    private final ContingencyTable[][] recentTables;
+
+    private final int[] nextRecentTable;
+
+    /**
+     * Wraps a score keeping the configurations of {@value #DEFAULT_MAX_CACHED_CONFIGURATIONS} parent sets.
+     * @param score score computed from the counts.
+     */
+    public CachedCountsScore(CountsScore score) {
+        this(score, DEFAULT_MAX_CACHED_CONFIGURATIONS);
+    }
+
+    /**
+     * Wraps a score.
+     * @param score score computed from the counts.
+     * @param maxCachedConfigurations number of parent sets whose configurations are kept. Each one takes an int per
+     * row of the dataset.
+     */
+    public CachedCountsScore(CountsScore score, int maxCachedConfigurations) {
+        if (score == null)
+            throw new NullPointerException("The score must not be null");
+        if (maxCachedConfigurations < 1)
+            throw new IllegalArgumentException("At least one parent set must be cached");
+        this.score = score;
+        this.columns = score.getColumns();
+        this.counter = new ContingencyCounter(columns);
+        this.configurations = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ParentSetKey, Configurations> eldest) {
+                return size() > maxCachedConfigurations;
+            }
+        };
+        int n = columns.getNumColumns();
+        this.recentTables = new ContingencyTable[n][RECENT_TABLES];
+        this.nextRecentTable = new int[n];
+    }
+
+    @Override
+    public double localScore(int node, int... parents) {
+        // An index already answers the tables without going through the rows
+        if (score.getCountIndex() != null)
+            return score.localScore(node, parents);
+        ContingencyTable table = marginalizeRecent(node, parents);
+        if (table == null) {
+            Configurations parentConfigurations = configurationsOf(parents);
+            table = counter.count(node, parentConfigurations.parents, parentConfigurations.values);
+            remember(table);
+        }
+        return score.localScore(table);
+    }
+
+    /**
+     * Looks for a recent table of the node with a superset of the parents, and sums out the other parents.
+     * @return the table of the family, or null if none can be reused.
+     */
+    private ContingencyTable marginalizeRecent(int node, int[] parents) {
+        if (columns.hasMissingValues())
+            return null;
+        ContingencyTable[] recent = recentTables[node];
+        synchronized (recent) {
+            for (ContingencyTable table : recent) {
+                // Summing out a table larger than the dataset would be slower than counting the rows
+                if (table != null && table.getCounts().length <= columns.getNumRows()
+                        && containsAll(table.getParents(), parents))
+                    return table.marginalize(parents);
+            }
+        }
+        return null;
+    }
+
+    private void remember(ContingencyTable table) {
+        int node = table.getChild();
+        ContingencyTable[] recent = recentTables[node];
+        synchronized (recent) {
+            recent[nextRecentTable[node]] = table;
+            nextRecentTable[node] = (nextRecentTable[node] + 1) % RECENT_TABLES;
+        }
+    }
+
+    /**
+     * Gets the configurations of a parent set: cached, extended from a cached subset with one variable less, or
+     * computed from scratch.
+     */
+    private Configurations configurationsOf(int[] parents) {
+        Configurations cached = cachedConfigurations(parents);
+        if (cached != null)
+            return cached;
+
+        Configurations result = null;
+        int[] subset = new int[Math.max(0, parents.length - 1)];
+        for (int skip = 0; skip < parents.length && result == null; skip++) {
+            for (int p = 0, q = 0; p < parents.length; p++) {
+                if (p != skip)
+                    subset[q++] = parents[p];
+            }
+            Configurations base = cachedConfigurations(subset);
+            if (base != null) {
+                int parent = parents[skip];
+                int[] order = Arrays.copyOf(base.parents, parents.length);
+                order[parents.length - 1] = parent;
+                result = new Configurations(order,
+                        counter.extendConfigurations(base.values, base.numConfigurations, parent),
+                        base.numConfigurations * columns.getNumCategories(parent));
+            }
+        }
+        if (result == null) {
+            int numConfigurations = 1;
+            for (int parent : parents) {
+                numConfigurations *= columns.getNumCategories(parent);
+            }
+            result = new Configurations(parents.clone(), counter.parentConfigurations(parents), numConfigurations);
+        }
+        synchronized (configurations) {
+            configurations.put(new ParentSetKey(-1, parents), result);
+        }
+        return result;
+    }
+
+    private Configurations cachedConfigurations(int[] parents) {
+        synchronized (configurations) {
+            return configurations.get(new ParentSetKey(-1, parents));
+        }
+    }
+
+    private static boolean containsAll(int[] set, int[] subset) {
+        for (int x : subset) {
+            boolean found = false;
+            for (int y : set) {
+                if (x == y) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Scores the families together with the wrapped score, which counts them in as few passes as possible.
+     */
+    @Override
+    public double[] localScores(int[] nodes, int[][] parents) {
+        return score.localScores(nodes, parents);
+    }
+
+    /**
+     * Gets the wrapped score.
+     * @return the score computed from the counts.
+     */
+    public CountsScore getScore() {
+        return score;
+    }
+
+    @Override
+    public void setStructurePrior(double structurePrior) {
+        score.setStructurePrior(structurePrior);
+    }
+
+    @Override
+    public void setSamplePrior(double samplePrior) {
+        score.setSamplePrior(samplePrior);
+    }
+
+    @Override
+    public DataSet getDataSet() {
+        return score.getDataSet();
+    }
+
+    @Override
+    public List<Node> getVariables() {
+        return score.getVariables();
+    }
+
+    @Override
+    public int getSampleSize() {
+        return score.getSampleSize();
+    }
+
+    @Override
+    public boolean isEffectEdge(double bump) {
+        return score.isEffectEdge(bump);
+    }
+
+    @Override
+    public int getMaxDegree() {
+        return score.getMaxDegree();
+    }
+
+    @Override
+    public String toString() {
+        return "Cached counts " + score;
+    }
+
+    /**
+     * Configurations of some parents in every row, with the parents in the order of their digits.
+     */
+    private record Configurations(int[] parents, int[] values, int numConfigurations) {
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.jlaborda.core.common.score;
+
+import org.apache.commons.math3.util.FastMath;
+
+import edu.cmu.tetrad.data.DataSet;
+import io.github.jlaborda.core.common.data.DiscreteColumns;
+
+/**
+ * BIC score computed over {@link DiscreteColumns} instead of going through the generic accessors of a
+ * {@link DataSet DataSet}, as described in {@link CountsScore}.
+ * The score follows the same formula, penalty and structure prior as Tetrad's
+ * {@link edu.cmu.tetrad.search.score.DiscreteBicScore DiscreteBicScore}: only the configurations of the parents that
+ * appear in the data count as parameters, and the penalty uses the number of rows of the dataset.
+ */
+public class CompactBicScore extends CountsScore {
+
+    private double penaltyDiscount = 1;
+
+    private double structurePrior = 0;
+
+    /**
+     * Creates the score copying the dataset into compact columns, unless it is already backed by columns.
+     * @param dataSet discrete dataset.
+     * @see CountsScore#CountsScore(DataSet)
+     */
+    public CompactBicScore(DataSet dataSet) {
+        super(dataSet);
+    }
+
+    /**
+     * Creates the score over columns that already hold the values of the dataset.
+     * @param dataSet discrete dataset.
+     * @param columns values of the dataset, with the columns in the same order as its variables.
+     */
+    public CompactBicScore(DataSet dataSet, DiscreteColumns columns) {
+        super(dataSet, columns);
+    }
+
+    @Override
+    protected double score(int numParents, int r, int c, int[] cellCounts, int[] rowCounts, int counted) {
+        double likelihood = 0;
+        int observedRows = 0;
+        for (int j = 0; j < r; j++) {
+            int rowCount = rowCounts[j];
+            if (rowCount == 0)
+                continue;
+            observedRows++;
+            int offset = j * c;
+            for (int k = 0; k < c; k++) {
+                int cellCount = cellCounts[offset + k];
+                if (cellCount != 0)
+                    likelihood += cellCount * FastMath.log(cellCount / (double) rowCount);
+            }
+        }
+
+        int params = observedRows * (c - 1);
+        double score = 2 * likelihood - penaltyDiscount * params * FastMath.log(getSampleSize())
+                + 2 * getPriorForStructure(numParents);
+
+        if (Double.isNaN(score) || Double.isInfinite(score)) {
+            return Double.NaN;
+        }
+        return score;
+    }
+
+    private double getPriorForStructure(int numParents) {
+        if (FastMath.abs(structurePrior) <= 0)
+            return 0;
+        int n = getVariables().size();
+        double p = structurePrior / n;
+        return -(numParents * FastMath.log(p) + (n - numParents) * FastMath.log(1.0 - p));
+    }
+
+    @Override
+    public int getMaxDegree() {
+        return 1000;
+    }
+
+    public double getPenaltyDiscount() {
+        return penaltyDiscount;
+    }
+
+    public void setPenaltyDiscount(double penaltyDiscount) {
+        this.penaltyDiscount = penaltyDiscount;
+    }
+
+    public double getStructurePrior() {
+        return structurePrior;
+    }
+
+    @Override
+    public void setStructurePrior(double structurePrior) {
+        this.structurePrior = structurePrior;
+    }
+
+    /**
+     * BIC has no sample prior, so this does nothing.
+     */
+    @Override
+    public void setSamplePrior(double samplePrior) {
+    }
+
+    @Override
+    public String toString() {
+        return "Compact BIC Score Penalty discount = " + penaltyDiscount + " Structure prior = " + structurePrior;
+    }
+}
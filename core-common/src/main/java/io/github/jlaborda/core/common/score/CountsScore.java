@@ -0,0 +1,229 @@
+package io.github.jlaborda.core.common.score;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Node;
+import io.github.jlaborda.core.common.data.ADTree;
+import io.github.jlaborda.core.common.data.CompactDiscreteColumns;
+import io.github.jlaborda.core.common.data.ContingencyCounter;
+import io.github.jlaborda.core.common.data.ContingencyTable;
+import io.github.jlaborda.core.common.data.DiscreteColumns;
+import io.github.jlaborda.core.common.data.DiscreteColumnsDataBox;
+
+/**
+ * {@link DecomposableScore} computed from the contingency table of each family, counted over {@link DiscreteColumns}
+ * instead of going through the generic accessors of a {@link DataSet DataSet}. The counts of each call are gathered
+ * in per-thread buffers that are reused between calls, so scoring a family only allocates when a larger buffer is
+ * needed, and batches of families are counted together with a {@link ContingencyCounter ContingencyCounter}.
+ * Subclasses only define the score of a table.
+ * <p>
+ * An {@link ADTree} over the same columns can be {@link #setCountIndex(ADTree) set} so that single families are
+ * answered from the tree instead of scanning every row, which pays off for datasets with many rows.
+ */
+public abstract class CountsScore implements DecomposableScore {
+
+    /**
+     * Dataset being scored. Only used to expose its variables.
+     */
+    private final DataSet dataSet;
+
+    /**
+     * Column-major copy of the values of the dataset.
+     */
+    private final DiscreteColumns columns;
+
+    private final List<Node> variables;
+
+    /**
+     * Buffers of each thread calling {@link #localScore(int, int...)}.
+     */
+    private final ThreadLocal<Workspace> workspace;
+
+    /**
+     * Index the tables of single families are taken from, or null to count them from the rows.
+     */
+    private volatile ADTree countIndex;
+
+    /**
+     * Creates the score copying the dataset into {@link CompactDiscreteColumns}. Datasets already backed by
+     * {@link DiscreteColumns}, such as the ones read by {@link io.github.jlaborda.core.common.utils.Utils#readData
+     * Utils.readData}, are scored directly over their columns instead.
+     * @param dataSet discrete dataset.
+     */
+    protected CountsScore(DataSet dataSet) {
+        this(dataSet, columnsOf(dataSet));
+    }
+
+    private static DiscreteColumns columnsOf(DataSet dataSet) {
+        if (dataSet == null)
+            throw new NullPointerException("Data was not provided.");
+        DiscreteColumns mapped = DiscreteColumnsDataBox.columnsOf(dataSet);
+        return mapped != null ? mapped : CompactDiscreteColumns.fromDataSet(dataSet);
+    }
+
+    /**
+     * Creates the score over columns that already hold the values of the dataset.
+     * @param dataSet discrete dataset.
+     * @param columns values of the dataset, with the columns in the same order as its variables.
+     */
+    protected CountsScore(DataSet dataSet, DiscreteColumns columns) {
+        if (dataSet == null || columns == null)
+            throw new NullPointerException("Data was not provided.");
+        if (dataSet.getNumColumns() != columns.getNumColumns() || dataSet.getNumRows() != columns.getNumRows())
+            throw new IllegalArgumentException("The columns don't match the dimensions of the dataset");
+        this.dataSet = dataSet;
+        this.columns = columns;
+        this.variables = dataSet.getVariables();
+        this.workspace = ThreadLocal.withInitial(() -> new Workspace(columns.getNumRows()));
+    }
+
+    @Override
+    public double localScore(int node, int... parents) {
+        ADTree tree = countIndex;
+        if (tree != null)
+            return localScore(tree.count(node, parents));
+
+        int c = columns.getNumCategories(node);
+        long rowConfigurations = 1;
+        for (int parent : parents) {
+            rowConfigurations *= columns.getNumCategories(parent);
+        }
+        if (rowConfigurations * c > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many parent configurations for node " + node + ": " + rowConfigurations);
+        int r = (int) rowConfigurations;
+
+        Workspace ws = workspace.get();
+        int[] index = ws.index;
+        int numRows = columns.getNumRows();
+
+        // Mixed-radix index of every row: parents in order, then the child.
+        Arrays.fill(index, 0, numRows, 0);
+        for (int parent : parents) {
+            columns.accumulateIndex(parent, columns.getNumCategories(parent), index);
+        }
+        columns.accumulateIndex(node, c, index);
+
+        int[] cellCounts = ws.cellCounts(r * c);
+        int[] rowCounts = ws.rowCounts(r);
+        int counted = 0;
+        for (int i = 0; i < numRows; i++) {
+            int cell = index[i];
+            if (cell < 0)
+                continue;
+            cellCounts[cell]++;
+            rowCounts[cell / c]++;
+            counted++;
+        }
+
+        return score(parents.length, r, c, cellCounts, rowCounts, counted);
+    }
+
+    /**
+     * Computes the local score of a family from its already counted table, for instance one of the tables counted in
+     * a batch by a {@link ContingencyCounter ContingencyCounter} over the columns of this score.
+     * @param table contingency table of the family.
+     * @return local score of the family, the same value returned by {@link #localScore(int, int...)}.
+     */
+    public double localScore(ContingencyTable table) {
+        return score(table.getNumParents(), table.getNumParentConfigurations(), table.getNumChildCategories(),
+                table.getCounts(), table.getRowCounts(), table.getTotal());
+    }
+
+    /**
+     * Counts all the families together, in as few passes over the rows as possible.
+     */
+    @Override
+    public double[] localScores(int[] nodes, int[][] parents) {
+        double[] scores = new double[nodes.length];
+        new ContingencyCounter(columns).count(nodes, parents, (table, f) -> scores[f] = localScore(table));
+        return scores;
+    }
+
+    /**
+     * Computes the score of a family from its counts.
+     * @param numParents number of parents of the family.
+     * @param r number of configurations of the parents.
+     * @param c number of categories of the child.
+     * @param cellCounts count of each configuration of the parents (row) and category of the child (column), in
+     * row-major order. Only the first r * c positions are meaningful.
+     * @param rowCounts count of each configuration of the parents. Only the first r positions are meaningful.
+     * @param counted number of rows counted, that is, without missing values in the family.
+     * @return local score of the family.
+     */
+    protected abstract double score(int numParents, int r, int c, int[] cellCounts, int[] rowCounts, int counted);
+
+    @Override
+    public List<Node> getVariables() {
+        return variables;
+    }
+
+    @Override
+    public int getSampleSize() {
+        return columns.getNumRows();
+    }
+
+    @Override
+    public boolean isEffectEdge(double bump) {
+        return bump > 0;
+    }
+
+    @Override
+    public DataSet getDataSet() {
+        return dataSet;
+    }
+
+    /**
+     * Gets the columns the score counts from.
+     * @return the columns of the dataset.
+     */
+    public DiscreteColumns getColumns() {
+        return columns;
+    }
+
+    public ADTree getCountIndex() {
+        return countIndex;
+    }
+
+    /**
+     * Sets the index the tables of single families are taken from. The scores don't change, only how the counts
+     * are obtained.
+     * @param countIndex AD-tree over the columns of this score, or null to count the rows.
+     * @throws IllegalArgumentException if the index is over other columns.
+     */
+    public void setCountIndex(ADTree countIndex) {
+        if (countIndex != null && countIndex.getColumns() != columns)
+            throw new IllegalArgumentException("The count index must be over the columns of the score");
+        this.countIndex = countIndex;
+    }
+
+    /**
+     * Per-thread buffers. The count buffers are cleared when they are handed out.
+     */
+    private static final class Workspace {
+        private final int[] index;
+        private int[] cellCounts = new int[64];
+        private int[] rowCounts = new int[16];
+
+        private Workspace(int numRows) {
+            this.index = new int[numRows];
+        }
+
+        private int[] cellCounts(int size) {
+            if (cellCounts.length < size)
+                cellCounts = new int[size];
+            else
+                Arrays.fill(cellCounts, 0, size, 0);
+            return cellCounts;
+        }
+
+        private int[] rowCounts(int size) {
+            if (rowCounts.length < size)
+                rowCounts = new int[size];
+            else
+                Arrays.fill(rowCounts, 0, size, 0);
+            return rowCounts;
+        }
+    }
+}
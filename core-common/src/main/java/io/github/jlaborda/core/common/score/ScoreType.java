@@ -0,0 +1,36 @@
+package io.github.jlaborda.core.common.score;
+
+import edu.cmu.tetrad.data.DataSet;
+import io.github.jlaborda.core.common.data.DiscreteColumns;
+
+/**
+ * Scores a {@link io.github.jlaborda.core.common.utils.Problem Problem} can evaluate its families with.
+ */
+public enum ScoreType {
+
+    BDEU,
+    BIC,
+    /**
+     * BDeu reusing the counts of families whose parents differ by one variable.
+     */
+    CACHED_BDEU,
+    /**
+     * BIC reusing the counts of families whose parents differ by one variable.
+     */
+    CACHED_BIC;
+
+    /**
+     * Creates a score of this type.
+     * @param dataSet discrete dataset.
+     * @param columns values of the dataset, with the columns in the same order as its variables.
+     * @return the new score.
+     */
+    public DecomposableScore create(DataSet dataSet, DiscreteColumns columns) {
+        return switch (this) {
+            case BDEU -> new CompactBdeuScore(dataSet, columns);
+            case BIC -> new CompactBicScore(dataSet, columns);
+            case CACHED_BDEU -> new CachedCountsScore(new CompactBdeuScore(dataSet, columns));
+            case CACHED_BIC -> new CachedCountsScore(new CompactBicScore(dataSet, columns));
+        };
+    }
+}
@@ -0,0 +1,422 @@
+package io.github.jlaborda.core.common.utils;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe cache of local scores keyed by a node and its parent set, stored in primitive arrays.
+ * <p>
+ * A key is packed into two longs: the node and up to {@value #MAX_KEY_PARENTS} parents, sorted in ascending order,
+ * each stored as {@code index + 1} in a 21-bit field (0 marks an unused field). Families with more parents can't be
+ * encoded and are never cached. Keys and scores live in open-addressing tables with linear probing, split in
+ * segments guarded by a {@link StampedLock} so that lookups are usually lock-free. When a segment is full the entry
+ * to replace is chosen with the CLOCK (second chance) policy.
+ * </p>
+ * Each entry takes two longs, a double and a reference byte, that is about {@value #BYTES_PER_ENTRY} bytes at the
+ * maximum load factor of the tables.
+ */
+public class LocalScoreCache {
+
+    /**
+     * Maximum number of parents of a family that can be cached.
+     */
+    public static final int MAX_KEY_PARENTS = 5;
+
+    /**
+     * Estimated memory used by each cached entry, in bytes.
+     */
+    public static final int BYTES_PER_ENTRY = 34;
+
+    /**
+     * Value returned by {@link #get(int, int[], int)} when the family isn't cached. It is a NaN with a payload that
+     * is never stored, so it must be checked with {@link #isMissing(double)}.
+     */
+    public static final double MISSING = Double.longBitsToDouble(0x7ff80000_00c0ffeeL);
+
+    private static final long MISSING_BITS = Double.doubleToRawLongBits(MISSING);
+
+    private static final int BITS_PER_INDEX = 21;
+
+    private static final long INDEX_MASK = (1L << BITS_PER_INDEX) - 1;
+
+    /**
+     * Largest node index that can be encoded in a key.
+     */
+    public static final int MAX_INDEX = (int) INDEX_MASK - 1;
+
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private static final int MAX_SEGMENT_CAPACITY = 1 << 30;
+
+    private static final int MIN_ENTRIES_PER_SEGMENT = 64;
+
+    private final Segment[] segments;
+
+    private final int segmentShift;
+
+    private final long maximumSize;
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache with a segment per available processor, rounded to a power of two.
+     * @param maximumSize maximum number of entries kept in the cache. If it's 0, nothing is cached.
+     */
+    public LocalScoreCache(long maximumSize) {
+        this(maximumSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a cache with a given number of segments.
+     * @param maximumSize maximum number of entries kept in the cache. If it's 0, nothing is cached.
+     * @param concurrencyLevel expected number of threads using the cache at the same time.
+     */
+    public LocalScoreCache(long maximumSize, int concurrencyLevel) {
+        if (maximumSize < 0)
+            throw new IllegalArgumentException("maximumSize must be non-negative");
+        if (concurrencyLevel <= 0)
+            throw new IllegalArgumentException("concurrencyLevel must be positive");
+
+        int nSegments = 1;
+        while (nSegments < concurrencyLevel && (long) nSegments * 2 * MIN_ENTRIES_PER_SEGMENT <= maximumSize) {
+            nSegments <<= 1;
+        }
+        long perSegment = (maximumSize + nSegments - 1) / nSegments;
+        long maxCapacity = (long) MAX_SEGMENT_CAPACITY * 3 / 4;
+        perSegment = Math.min(perSegment, maxCapacity);
+
+        this.maximumSize = perSegment * nSegments;
+        this.segments = new Segment[nSegments];
+        for (int i = 0; i < nSegments; i++) {
+            segments[i] = new Segment((int) perSegment);
+        }
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(nSegments);
+    }
+
+    /**
+     * Checks whether a family with the given number of parents can be stored in the cache.
+     * @param nParents number of parents of the family.
+     * @return true if the family can be cached.
+     */
+    public static boolean canCache(int nParents) {
+        return nParents <= MAX_KEY_PARENTS;
+    }
+
+    /**
+     * Checks if a value returned by {@link #get(int, int[], int)} means that the family wasn't cached.
+     * @param value value returned by the cache.
+     * @return true if the family wasn't found.
+     */
+    public static boolean isMissing(double value) {
+        return Double.doubleToRawLongBits(value) == MISSING_BITS;
+    }
+
+    /**
+     * Gets the cached score of a family.
+     * @param node index of the child node.
+     * @param sortedParents indices of the parents in ascending order.
+     * @param nParents number of parents, read from the start of sortedParents.
+     * @return the cached score, or {@link #MISSING} if the family isn't cached.
+     */
+    public double get(int node, int[] sortedParents, int nParents) {
+        if (!canCache(nParents))
+            return MISSING;
+        long high = encodeHigh(node, sortedParents, nParents);
+        long low = encodeLow(sortedParents, nParents);
+        long hash = hash(high, low);
+        return segmentFor(hash).get(high, low, hash);
+    }
+
+    /**
+     * Stores the score of a family, replacing an older entry if the cache is full.
+     * @param node index of the child node.
+     * @param sortedParents indices of the parents in ascending order.
+     * @param nParents number of parents, read from the start of sortedParents.
+     * @param score score of the family.
+     */
+    public void put(int node, int[] sortedParents, int nParents, double score) {
+        if (!canCache(nParents) || maximumSize == 0)
+            return;
+        long high = encodeHigh(node, sortedParents, nParents);
+        long low = encodeLow(sortedParents, nParents);
+        long hash = hash(high, low);
+        segmentFor(hash).put(high, low, hash, Double.isNaN(score) ? Double.NaN : score);
+    }
+
+    /**
+     * Removes every entry from the cache.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Gets the number of entries currently in the cache.
+     * @return number of cached families.
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the maximum number of entries the cache can hold.
+     * @return maximum number of entries.
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Gets the number of entries that have been replaced to make room for new ones.
+     * @return number of evictions since the cache was created.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments.length == 1 ? segments[0] : segments[(int) (hash >>> segmentShift)];
+    }
+
+    static long encodeHigh(int node, int[] parents, int nParents) {
+        long high = checkIndex(node) + 1L;
+        for (int i = 0; i < 2; i++) {
+            high = (high << BITS_PER_INDEX) | (i < nParents ? checkIndex(parents[i]) + 1L : 0L);
+        }
+        return high;
+    }
+
+    static long encodeLow(int[] parents, int nParents) {
+        long low = 0;
+        for (int i = 2; i < MAX_KEY_PARENTS; i++) {
+            low = (low << BITS_PER_INDEX) | (i < nParents ? checkIndex(parents[i]) + 1L : 0L);
+        }
+        return low;
+    }
+
+    private static int checkIndex(int index) {
+        if (index < 0 || index > MAX_INDEX)
+            throw new IllegalArgumentException("Node index out of range for the score cache: " + index);
+        return index;
+    }
+
+    static long hash(long high, long low) {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Open-addressing table of a part of the key space. An empty slot has a high key of 0, which can't be produced
+     * by {@link #encodeHigh(int, int[], int)}.
+     */
+    private final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private final int maxEntries;
+        private final int maxCapacity;
+
+        private long[] highKeys;
+        private long[] lowKeys;
+        private double[] values;
+        private byte[] referenced;
+        private int size;
+        private int hand;
+
+        private Segment(int maxEntries) {
+            this.maxEntries = maxEntries;
+            int capacity = MIN_SEGMENT_CAPACITY;
+            while (capacity < MAX_SEGMENT_CAPACITY && (long) capacity * 3 / 4 < maxEntries) {
+                capacity <<= 1;
+            }
+            this.maxCapacity = capacity;
+            allocate(MIN_SEGMENT_CAPACITY);
+        }
+
+        private void allocate(int capacity) {
+            highKeys = new long[capacity];
+            lowKeys = new long[capacity];
+            values = new double[capacity];
+            referenced = new byte[capacity];
+            hand = 0;
+        }
+
+        private double get(long high, long low, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                double value = find(high, low, hash);
+                if (lock.validate(stamp))
+                    return value;
+            }
+            stamp = lock.readLock();
+            try {
+                return find(high, low, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private double find(long high, long low, long hash) {
+            long[] highs = highKeys;
+            long[] lows = lowKeys;
+            double[] vals = values;
+            byte[] refs = referenced;
+            int mask = highs.length - 1;
+            if (vals.length != highs.length || refs.length != highs.length || lows.length != highs.length)
+                return MISSING;
+            int slot = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long h = highs[slot];
+                if (h == 0)
+                    return MISSING;
+                if (h == high && lows[slot] == low) {
+                    double value = vals[slot];
+                    if (refs[slot] == 0)
+                        refs[slot] = 1;
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return MISSING;
+        }
+
+        private void put(long high, long low, long hash, double value) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = indexOf(high, low, hash);
+                if (slot >= 0) {
+                    values[slot] = value;
+                    referenced[slot] = 1;
+                    return;
+                }
+                if (size >= maxEntries) {
+                    if (maxEntries == 0)
+                        return;
+                    evict();
+                } else if ((size + 1) > highKeys.length * 3 / 4 && highKeys.length < maxCapacity) {
+                    resize(highKeys.length << 1);
+                }
+                insert(high, low, hash, value);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private int indexOf(long high, long low, long hash) {
+            int mask = highKeys.length - 1;
+            int slot = (int) hash & mask;
+            while (highKeys[slot] != 0) {
+                if (highKeys[slot] == high && lowKeys[slot] == low)
+                    return slot;
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int insert(long high, long low, long hash, double value) {
+            int mask = highKeys.length - 1;
+            int slot = (int) hash & mask;
+            while (highKeys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            highKeys[slot] = high;
+            lowKeys[slot] = low;
+            values[slot] = value;
+            referenced[slot] = 0;
+            size++;
+            return slot;
+        }
+
+        private void resize(int capacity) {
+            long[] oldHighs = highKeys;
+            long[] oldLows = lowKeys;
+            double[] oldValues = values;
+            byte[] oldRefs = referenced;
+            allocate(capacity);
+            size = 0;
+            for (int i = 0; i < oldHighs.length; i++) {
+                if (oldHighs[i] != 0) {
+                    int slot = insert(oldHighs[i], oldLows[i], hash(oldHighs[i], oldLows[i]), oldValues[i]);
+                    referenced[slot] = oldRefs[i];
+                }
+            }
+        }
+
+        /**
+         * Moves the clock hand over the table, clearing reference bits, until it finds an entry that hasn't been
+         * used since the last sweep, and removes it.
+         */
+        private void evict() {
+            int mask = highKeys.length - 1;
+            while (true) {
+                int slot = hand;
+                hand = (hand + 1) & mask;
+                if (highKeys[slot] == 0)
+                    continue;
+                if (referenced[slot] != 0) {
+                    referenced[slot] = 0;
+                    continue;
+                }
+                remove(slot);
+                evictions.increment();
+                return;
+            }
+        }
+
+        /**
+         * Removes the entry in a slot, shifting back the entries of its probe sequence so that no tombstones are
+         * needed.
+         */
+        private void remove(int slot) {
+            int mask = highKeys.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (highKeys[next] != 0) {
+                int home = (int) hash(highKeys[next], lowKeys[next]) & mask;
+                // The entry can fill the hole if its home slot isn't cyclically within (hole, next].
+                boolean movable = hole <= next ? (home <= hole || home > next) : (home <= hole && home > next);
+                if (movable) {
+                    highKeys[hole] = highKeys[next];
+                    lowKeys[hole] = lowKeys[next];
+                    values[hole] = values[next];
+                    referenced[hole] = referenced[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            highKeys[hole] = 0;
+            lowKeys[hole] = 0;
+            values[hole] = 0;
+            referenced[hole] = 0;
+            size--;
+        }
+
+        private void clear() {
+            long stamp = lock.writeLock();
+            try {
+                allocate(MIN_SEGMENT_CAPACITY);
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
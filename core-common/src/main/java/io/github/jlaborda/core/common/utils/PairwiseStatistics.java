@@ -0,0 +1,265 @@
+package io.github.jlaborda.core.common.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.IntStream;
+
+import edu.cmu.tetrad.search.score.Score;
+import io.github.jlaborda.core.common.data.ContingencyCounter;
+import io.github.jlaborda.core.common.data.ContingencyTable;
+import io.github.jlaborda.core.common.score.CountsScore;
+
+/**
+ * Statistics of every pair of variables of a {@link Problem}: their mutual information, and the BDeu gain of adding
+ * an arc between them, that is, {@code score(y | x) - score(y)}. Since BDeu is score equivalent, the gain is the same
+ * whichever variable is the parent, so both statistics are kept in {@link SymmetricMatrix SymmetricMatrices}. The
+ * diagonal of the mutual information holds the entropy of each variable, and the diagonal of the gains is 0. The
+ * gains are computed with {@link Problem#getScoreEvaluator() the score of the problem}, which is score equivalent for
+ * BDeu and BIC; for a score that isn't, the gain kept for a pair is the one with the later variable as the child.
+ * <p>
+ * Every variable is counted against all the variables before it in a single pass of a {@link ContingencyCounter},
+ * with the variables processed in parallel. Each table gives both statistics of its pair.
+ * <p>
+ * The statistics can be saved and loaded from a directory, in a file named after {@link Problem#getDatasetHash() the
+ * hash of the dataset} and the score, as the files of a {@link ScoreStore}, so that later runs over the same dataset
+ * and score don't count them again.
+ */
+public final class PairwiseStatistics {
+
+    /**
+     * Extension of the files where the statistics are saved.
+     */
+    public static final String EXTENSION = ".hbnp";
+
+    /**
+     * "HBNP" in ASCII.
+     */
+    static final int MAGIC = 0x48424E50;
+
+    static final int VERSION = 2;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String datasetHash;
+
+    private final String scoreDescription;
+
+    private final double samplePrior;
+
+    private final double structurePrior;
+
+    private final SymmetricMatrix mutualInformation;
+
+    private final SymmetricMatrix bdeuGain;
+
+    private PairwiseStatistics(String datasetHash, String scoreDescription, double samplePrior, double structurePrior,
+                               SymmetricMatrix mutualInformation, SymmetricMatrix bdeuGain) {
+        this.datasetHash = datasetHash;
+        this.scoreDescription = scoreDescription;
+        this.samplePrior = samplePrior;
+        this.structurePrior = structurePrior;
+        this.mutualInformation = mutualInformation;
+        this.bdeuGain = bdeuGain;
+    }
+
+    /**
+     * Computes the statistics of every pair of variables of a problem.
+     * @param problem problem whose dataset is counted. Its current score and priors are used for the gains.
+     * @param singlePrecision whether the statistics are stored as floats instead of doubles.
+     * @return the statistics of the problem.
+     */
+    public static PairwiseStatistics compute(Problem problem, boolean singlePrecision) {
+        int n = problem.getVariables().size();
+        SymmetricMatrix mutualInformation = new SymmetricMatrix(n, singlePrecision);
+        SymmetricMatrix bdeuGain = new SymmetricMatrix(n, singlePrecision);
+        Score score = problem.getScoreEvaluator();
+        CountsScore compact = score instanceof CountsScore c && c.getColumns() == problem.getColumns() ? c : null;
+        ContingencyCounter counter = new ContingencyCounter(problem.getColumns());
+
+        IntStream.range(0, n).parallel().forEach(y -> {
+            // Families y | x for every x <= y, and the family of y without parents at the end
+            int[] children = new int[y + 2];
+            int[][] parents = new int[y + 2][];
+            for (int x = 0; x <= y; x++) {
+                children[x] = y;
+                parents[x] = new int[]{x};
+            }
+            children[y + 1] = y;
+            parents[y + 1] = new int[0];
+
+            ContingencyTable[] tables = counter.count(children, parents);
+            double emptyScore = compact != null ? compact.localScore(tables[y + 1]) : score.localScore(y);
+            for (int x = 0; x <= y; x++) {
+                mutualInformation.set(x, y, tables[x].mutualInformation());
+                if (x < y) {
+                    double parentScore = compact != null ? compact.localScore(tables[x]) : score.localScore(y, x);
+                    bdeuGain.set(x, y, parentScore - emptyScore);
+                }
+            }
+        });
+        return new PairwiseStatistics(problem.getDatasetHash(), problem.getScoreDescription(), problem.getSamplePrior(),
+                problem.getStructurePrior(), mutualInformation, bdeuGain);
+    }
+
+    /**
+     * Loads the statistics of a problem from a directory, or computes and saves them there if they weren't saved
+     * before with the same score, priors and precision.
+     * @param problem problem whose statistics are needed.
+     * @param directory directory of the saved statistics. It is created if it doesn't exist.
+     * @param singlePrecision whether the statistics are stored as floats instead of doubles.
+     * @return the statistics of the problem.
+     * @throws IOException if the statistics can't be saved.
+     */
+    public static PairwiseStatistics loadOrCompute(Problem problem, Path directory, boolean singlePrecision)
+            throws IOException {
+        Path path = directory.resolve(fileName(problem.getDatasetHash(), problem.getScoreDescription()));
+        if (Files.isRegularFile(path)) {
+            try {
+                PairwiseStatistics saved = load(path);
+                if (saved.matches(problem, singlePrecision))
+                    return saved;
+            } catch (IOException e) {
+                System.err.println("Ignoring the pairwise statistics of " + path + ": " + e.getMessage());
+            }
+        }
+        PairwiseStatistics statistics = compute(problem, singlePrecision);
+        Files.createDirectories(directory);
+        statistics.save(path);
+        return statistics;
+    }
+
+    /**
+     * Gets the name of the file where the statistics of a dataset and a score are saved.
+     * @param datasetHash hash of the dataset, as given by {@link Problem#getDatasetHash()}.
+     * @param scoreDescription description of the score and every hyperparameter its values depend on.
+     * @return name of the file, derived from the dataset hash and the description of the score.
+     */
+    public static String fileName(String datasetHash, String scoreDescription) {
+        return ScoreStore.fileName(datasetHash, scoreDescription, EXTENSION);
+    }
+
+    /**
+     * Checks if these statistics were computed for a problem with its current score and priors.
+     */
+    private boolean matches(Problem problem, boolean singlePrecision) {
+        return datasetHash.equals(problem.getDatasetHash())
+                && scoreDescription.equals(problem.getScoreDescription())
+                && getNumVariables() == problem.getVariables().size()
+                && mutualInformation.isSinglePrecision() == singlePrecision
+                && Double.compare(samplePrior, problem.getSamplePrior()) == 0
+                && Double.compare(structurePrior, problem.getStructurePrior()) == 0;
+    }
+
+    /**
+     * Saves the statistics. The file is written next to its final path and then moved into place, so that a
+     * concurrent reader never sees it half written.
+     * @param path file to write. It is replaced if it exists.
+     * @throws IOException if the file can't be written.
+     */
+    public void save(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(datasetHash);
+                out.writeUTF(scoreDescription);
+                out.writeInt(getNumVariables());
+                out.writeBoolean(mutualInformation.isSinglePrecision());
+                out.writeDouble(samplePrior);
+                out.writeDouble(structurePrior);
+                mutualInformation.writeValues(out);
+                bdeuGain.writeValues(out);
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Loads statistics saved by {@link #save(Path)}.
+     * @param path file to read.
+     * @return the saved statistics.
+     * @throws IOException if the file can't be read or isn't in this format.
+     */
+    public static PairwiseStatistics load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(path + " is not a " + EXTENSION + " file");
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported version " + version + " of " + path);
+            String datasetHash = in.readUTF();
+            String scoreDescription = in.readUTF();
+            int n = in.readInt();
+            if (n < 0)
+                throw new IOException("Corrupted header in " + path);
+            boolean singlePrecision = in.readBoolean();
+            double samplePrior = in.readDouble();
+            double structurePrior = in.readDouble();
+            SymmetricMatrix mutualInformation = new SymmetricMatrix(n, singlePrecision);
+            SymmetricMatrix bdeuGain = new SymmetricMatrix(n, singlePrecision);
+            mutualInformation.readValues(in);
+            bdeuGain.readValues(in);
+            return new PairwiseStatistics(datasetHash, scoreDescription, samplePrior, structurePrior, mutualInformation, bdeuGain);
+        }
+    }
+
+    public String getDatasetHash() {
+        return datasetHash;
+    }
+
+    public String getScoreDescription() {
+        return scoreDescription;
+    }
+
+    public int getNumVariables() {
+        return mutualInformation.getSize();
+    }
+
+    public double getSamplePrior() {
+        return samplePrior;
+    }
+
+    public double getStructurePrior() {
+        return structurePrior;
+    }
+
+    /**
+     * Gets the mutual information, in bits, between two variables.
+     * @param x index of a variable.
+     * @param y index of another variable, or of the same one to get its entropy.
+     * @return mutual information of the variables.
+     */
+    public double getMutualInformation(int x, int y) {
+        return mutualInformation.get(x, y);
+    }
+
+    /**
+     * Gets the gain of adding an arc between two variables, in either direction, under the score of the problem.
+     * @param x index of a variable.
+     * @param y index of another variable.
+     * @return score of one variable with the other as its only parent minus its score without parents.
+     */
+    public double getBdeuGain(int x, int y) {
+        return bdeuGain.get(x, y);
+    }
+
+    public SymmetricMatrix getMutualInformationMatrix() {
+        return mutualInformation;
+    }
+
+    public SymmetricMatrix getBdeuGainMatrix() {
+        return bdeuGain;
+    }
+}
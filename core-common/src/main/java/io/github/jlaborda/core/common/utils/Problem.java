@@ -1,29 +1,44 @@
 package io.github.jlaborda.core.common.utils;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.graph.Dag;
 import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
-import edu.cmu.tetrad.search.score.BdeuScore;
 import edu.cmu.tetrad.search.score.DiscreteScore;
 import edu.cmu.tetrad.search.score.Score;
-import edu.cmu.tetrad.util.Matrix;
-import edu.cmu.tetrad.util.Vector;
+import io.github.jlaborda.core.common.data.ADTree;
+import io.github.jlaborda.core.common.data.CompactDiscreteColumns;
+import io.github.jlaborda.core.common.data.ContingencyCounter;
+import io.github.jlaborda.core.common.data.ContingencyTable;
+import io.github.jlaborda.core.common.data.DiscreteColumns;
+import io.github.jlaborda.core.common.data.DiscreteColumnsDataBox;
+import io.github.jlaborda.core.common.score.CachedCountsScore;
+import io.github.jlaborda.core.common.score.CompactBdeuScore;
+import io.github.jlaborda.core.common.score.CountsScore;
+import io.github.jlaborda.core.common.score.ScoreType;
+
 import static io.github.jlaborda.core.common.utils.Utils.pdagToDag;
 
 public class Problem {
@@ -71,25 +86,42 @@ public class Problem {
     /**
      * Caches scores for discrete search.
      */
-    private final Cache<ParentSetKey, Double> localScoreCache; 
+    private final LocalScoreCache localScoreCache;
     //private final ConcurrentHashMap<ParentSetKey,Double> localScoreCache = new ConcurrentHashMap<>();
     //protected LocalScoreCacheConcurrent localScoreCache = new LocalScoreCacheConcurrent();
     
     /**
-     * Maximum number of parents for a variable.
+     * Default maximum number of parents of a variable.
+     */
+    public static final int DEFAULT_MAX_PARENTS = 4;
+
+    /**
+     * Maximum number of parents a variable may get from an insertion. The families already in a graph are scored
+     * whatever their number of parents.
      */
-    public static int MAX_PARENTS =  5; //Integer.MAX_VALUE;
+    private volatile int maxParents = DEFAULT_MAX_PARENTS;
+
+    private static final int HASH_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Per-thread buffer where the parents of a family are sorted before looking up the cache.
+     */
+    private static final ThreadLocal<int[]> parentsBuffer = ThreadLocal.withInitial(() -> new int[LocalScoreCache.MAX_KEY_PARENTS + 1]);
     
     /**
-     * Total calls done
+     * Counters of the local score evaluations of this problem.
      */
-    public static int numTotalCalls=0;
+    private final ScoreMetrics scoreMetrics;
 
     /**
-     * Total calls done to non-cached information
+     * Column-major values of the dataset, shared by the BDeu score and the contingency counts of the problem.
      */
-    public static int numNonCachedCalls=0;
+    private final DiscreteColumns columns;
 
+    /**
+     * Index answering the counts of the score, or null to count the rows.
+     */
+    private ADTree countIndex;
 
     /**
      * BDeu Score.
@@ -97,14 +129,48 @@ public class Problem {
     protected DiscreteScore bdeu;
     //protected BdeuScoreOptimized bdeu;
 
-    public static double emptyGraphScore;
+    /**
+     * Score of the graph without edges.
+     */
+    private double emptyGraphScore;
 
-    public static int nInstances;
+    /**
+     * Number of instances of the dataset.
+     */
+    private final int nInstances;
     
     //public AtomicInteger counter;
     //public AtomicInteger counterSinDict;
 
-    private double [][] mutualInformationMatrix = null;
+    /**
+     * Statistics of every pair of variables, computed the first time they are needed.
+     */
+    private PairwiseStatistics pairwiseStatistics = null;
+
+    /**
+     * Directory where the pairwise statistics are saved and loaded from, or null to always compute them.
+     */
+    private Path pairwiseStatisticsDirectory = null;
+
+    /**
+     * Whether the pairwise statistics are stored as floats instead of doubles.
+     */
+    private boolean singlePrecisionPairwiseStatistics = false;
+
+    /**
+     * SHA-256 of the dataset, computed the first time it is needed.
+     */
+    private String datasetHash = null;
+
+    /**
+     * Directory of the score stores, or null to keep the scores only in memory.
+     */
+    private Path scoreStoreDirectory = null;
+
+    /**
+     * Store of the scores of the current score and priors on disk, behind the cache.
+     */
+    private volatile ScoreStore scoreStore = null;
 
 
     public Problem(DataSet dataSet){
@@ -133,16 +199,17 @@ public class Problem {
         Graph graph = new EdgeListGraph(new LinkedList<>(this.variables));
         buildIndexing(graph);
         
-        bdeu = new BdeuScore(data);
+        DiscreteColumns dataColumns = DiscreteColumnsDataBox.columnsOf(data);
+        columns = dataColumns != null ? dataColumns : CompactDiscreteColumns.fromDataSet(data);
+        bdeu = new CompactBdeuScore(data, columns);
         bdeu.setSamplePrior(samplePrior);
         bdeu.setStructurePrior(structurePrior);
 
         //Initializing cache
         long ramGB = (long)((double)Runtime.getRuntime().maxMemory() / Math.pow(1024,3));
-        long maxCacheSize = Utils.computeCacheSize(this.getVariables().size(), MAX_PARENTS, ramGB, 0.1, 220);//Utils.sumCombinations(this.getVariables().size(), Problem.MAX_PARENTS);
-        localScoreCache = Caffeine.newBuilder()
-            .maximumSize(maxCacheSize)
-            .build();
+        long maxCacheSize = Utils.computeCacheSize(this.getVariables().size(), DEFAULT_MAX_PARENTS, ramGB, 0.1, LocalScoreCache.BYTES_PER_ENTRY);//Utils.sumCombinations(this.getVariables().size(), DEFAULT_MAX_PARENTS);
+        localScoreCache = new LocalScoreCache(maxCacheSize);
+        scoreMetrics = new ScoreMetrics(localScoreCache);
         
         //bdeu = new BdeuScoreOptimized(data);
         nInstances = dataSet.getNumRows();
@@ -156,6 +223,30 @@ public class Problem {
         emptyGraphScore = scoreGraph(graph, this);
     }
 
+    /**
+     * Gets the score of the graph without edges.
+     * @return BDeu score of the empty graph.
+     */
+    public double getEmptyGraphScore() {
+        return emptyGraphScore;
+    }
+
+    /**
+     * Gets the number of instances of the dataset.
+     * @return number of rows of the dataset.
+     */
+    public int getNumInstances() {
+        return nInstances;
+    }
+
+    /**
+     * Gets the counters of the local score evaluations done with this problem.
+     * @return metrics of the problem.
+     */
+    public ScoreMetrics getScoreMetrics() {
+        return scoreMetrics;
+    }
+
 
     public Problem(String resourcePath) throws IOException{
         this(Utils.readDataFromResource(resourcePath));
@@ -210,6 +301,8 @@ public class Problem {
     public void setSamplePrior(double samplePrior){
         this.samplePrior = samplePrior;
         this.bdeu.setSamplePrior(samplePrior);
+        discardPairwiseStatistics();
+        reopenScoreStore();
     }
 
 
@@ -220,6 +313,33 @@ public class Problem {
     public void setStructurePrior(double structurePrior) {
         this.structurePrior = structurePrior;
         this.bdeu.setStructurePrior(structurePrior);
+        discardPairwiseStatistics();
+        reopenScoreStore();
+    }
+
+    public int getMaxParents() {
+        return maxParents;
+    }
+
+    /**
+     * Sets the maximum number of parents a variable may get from an insertion. The searches don't try the insertions
+     * that would exceed it, but every family is scored normally, so the deletions from a variable with more parents,
+     * as the ones of a fused graph, are compared by their real scores. The cache keeps the size it was given for
+     * {@link #DEFAULT_MAX_PARENTS}.
+     * @param maxParents maximum number of parents of a variable after an insertion.
+     * @throws IllegalArgumentException if maxParents is negative.
+     */
+    public void setMaxParents(int maxParents) {
+        if (maxParents < 0)
+            throw new IllegalArgumentException("The maximum number of parents must be non-negative");
+        this.maxParents = maxParents;
+    }
+
+    /**
+     * Discards the pairwise statistics, whose BDeu gains depend on the score and its priors.
+     */
+    private synchronized void discardPairwiseStatistics() {
+        pairwiseStatistics = null;
     }
 /* 
     public int[] getnValues() {
@@ -246,7 +366,7 @@ public class Problem {
         return localScoreCache;
     }*/
     
-    public Cache<ParentSetKey, Double> getLocalScoreCache() {
+    public LocalScoreCache getLocalScoreCache() {
         return localScoreCache;
     }
 
@@ -287,50 +407,299 @@ public class Problem {
     }
 
     public double evaluate(Integer x, Set<Integer> parents){
-        // Creating key for the cache
-        numTotalCalls++;
-        ParentSetKey key = new ParentSetKey(x, parents);
-    
+        int[] buffer = parentsBuffer(parents.size());
+        int nParents = 0;
+        for (int p : parents) {
+            buffer[nParents++] = p;
+        }
+        return evaluateSorted(x, buffer, sortParents(buffer, nParents));
+    }
+
+    public double evaluate(Integer x, List<Integer> parents){
+        int[] buffer = parentsBuffer(parents.size());
+        int nParents = 0;
+        for (int p : parents) {
+            buffer[nParents++] = p;
+        }
+        return evaluateSorted(x, buffer, sortParents(buffer, nParents));
+    }
+
+    public double evaluate(Integer x, int[] parents){
+        int[] buffer = parentsBuffer(parents.length);
+        System.arraycopy(parents, 0, buffer, 0, parents.length);
+        return evaluateSorted(x, buffer, sortParents(buffer, parents.length));
+    }
+
+    /**
+     * Evaluates several families at once. The families that aren't cached are counted together, in as few passes over
+     * the rows as possible, with a {@link ContingencyCounter ContingencyCounter}, and their scores are cached as if
+     * they had been evaluated one by one.
+     * @param children index of the child of each family.
+     * @param parents indices of the parents of each family.
+     * @return local score of each family, in the same order.
+     */
+    public double[] evaluate(int[] children, int[][] parents) {
+        if (children.length != parents.length)
+            throw new IllegalArgumentException("There must be a set of parents for each child");
+
+        double[] scores = new double[children.length];
+        int[][] sortedParents = new int[children.length][];
+        int[] pending = new int[children.length];
+        int nPending = 0;
+        for (int f = 0; f < children.length; f++) {
+            int[] family = parents[f].clone();
+            int nParents = sortParents(family, family.length);
+            sortedParents[f] = nParents == family.length ? family : Arrays.copyOf(family, nParents);
+
+            double cachedScore = cachedScore(children[f], family, nParents);
+            if (!LocalScoreCache.isMissing(cachedScore)) {
+                scoreMetrics.recordHit(nParents);
+                scores[f] = cachedScore;
+                continue;
+            }
+            scoreMetrics.recordMiss(nParents);
+            pending[nPending++] = f;
+        }
+        if (nPending == 0)
+            return scores;
+
+        // Scores that aren't computed from counts over the columns of the problem can't use the counter, and scores
+        // with a count index answer each family without going through the rows
+        if (!(bdeu instanceof CountsScore compact) || compact.getColumns() != columns
+                || compact.getCountIndex() != null) {
+            for (int i = 0; i < nPending; i++) {
+                int f = pending[i];
+                scores[f] = computeAndCache(children[f], sortedParents[f], sortedParents[f].length);
+            }
+            return scores;
+        }
+
+        int[] pendingChildren = new int[nPending];
+        int[][] pendingParents = new int[nPending][];
+        for (int i = 0; i < nPending; i++) {
+            pendingChildren[i] = children[pending[i]];
+            pendingParents[i] = sortedParents[pending[i]];
+        }
+        long[] start = {System.nanoTime()};
+        new ContingencyCounter(columns).count(pendingChildren, pendingParents, (table, i) -> {
+            int f = pending[i];
+            double score = compact.localScore(table);
+            long now = System.nanoTime();
+            scoreMetrics.recordScoreComputation(now - start[0]);
+            start[0] = now;
+            cacheScore(children[f], sortedParents[f], sortedParents[f].length, score);
+            scores[f] = score;
+        });
+        return scores;
+    }
+
+    /**
+     * Evaluates the change of the score of a node when a parent is added to a set of parents.
+     * @param child index of the child node.
+     * @param parents parents of the child without the extra parent. The extra parent is ignored if present.
+     * @param extra parent being added.
+     * @return score of the child with the parents and the extra parent minus its score with only the parents.
+     * @see #evaluateDeltas(int, int[][], int[])
+     */
+    public double evaluateDelta(int child, int[] parents, int extra) {
+        return evaluateDeltas(child, new int[][]{parents}, new int[]{extra})[0];
+    }
+
+    /**
+     * Evaluates the change of the score of a node when a parent is added to each of several sets of parents, as
+     * the insertions or deletions of arcs into the node compared during a sweep of the search.
+     * <p>
+     * Both families of every change are looked up in the cache. When the score counts over the columns of the
+     * problem and the dataset has no missing values, the changes with neither family cached are counted only once,
+     * with the extra parent, in a single pass over the rows, and the table without the extra parent is summed out of
+     * that table. The remaining families are evaluated together with {@link #evaluate(int[], int[][])}.
+     * @param child index of the child node.
+     * @param parents parents of the child without the extra parent of each change.
+     * @param extra parent added in each change.
+     * @return for each change, the score of the child with its parents and extra parent minus its score with only
+     * its parents.
+     */
+    public double[] evaluateDeltas(int child, int[][] parents, int[] extra) {
+        if (parents.length != extra.length)
+            throw new IllegalArgumentException("There must be an extra parent for each set of parents");
+
+        // Family with the extra parent at 2 * i, and without it at 2 * i + 1, both sorted
+        int n = parents.length;
+        int[][] families = new int[2 * n][];
+        for (int i = 0; i < n; i++) {
+            int[] with = Arrays.copyOf(parents[i], parents[i].length + 1);
+            with[parents[i].length] = extra[i];
+            with = Arrays.copyOf(with, sortParents(with, with.length));
+            int[] without = new int[with.length - 1];
+            for (int p = 0, q = 0; p < with.length; p++) {
+                if (with[p] != extra[i])
+                    without[q++] = with[p];
+            }
+            families[2 * i] = with;
+            families[2 * i + 1] = without;
+        }
+
+        double[] scores = new double[2 * n];
+        boolean[] done = new boolean[2 * n];
+        if (bdeu instanceof CountsScore counts && counts.getColumns() == columns && counts.getCountIndex() == null
+                && !columns.hasMissingValues()) {
+            refineDeltas(child, counts, families, scores, done);
+        }
+
+        int remaining = 0;
+        for (boolean d : done) {
+            if (!d)
+                remaining++;
+        }
+        if (remaining > 0) {
+            int[] children = new int[remaining];
+            int[][] remainingFamilies = new int[remaining][];
+            for (int f = 0, r = 0; f < families.length; f++) {
+                if (!done[f]) {
+                    children[r] = child;
+                    remainingFamilies[r++] = families[f];
+                }
+            }
+            double[] remainingScores = evaluate(children, remainingFamilies);
+            for (int f = 0, r = 0; f < families.length; f++) {
+                if (!done[f])
+                    scores[f] = remainingScores[r++];
+            }
+        }
+
+        double[] deltas = new double[n];
+        for (int i = 0; i < n; i++) {
+            deltas[i] = scores[2 * i] - scores[2 * i + 1];
+        }
+        return deltas;
+    }
+
+    /**
+     * Scores the changes of {@link #evaluateDeltas(int, int[][], int[])} with neither family cached from one table
+     * per change, counting all those tables in a single pass.
+     */
+    private void refineDeltas(int child, CountsScore counts, int[][] families, double[] scores, boolean[] done) {
+        int n = families.length / 2;
+        int[] refined = new int[n];
+        int nRefined = 0;
+        for (int i = 0; i < n; i++) {
+            int[] with = families[2 * i];
+            int[] without = families[2 * i + 1];
+            if (!LocalScoreCache.isMissing(cachedScore(child, with, with.length))
+                    || !LocalScoreCache.isMissing(cachedScore(child, without, without.length)))
+                continue;
+            refined[nRefined++] = i;
+        }
+        if (nRefined == 0)
+            return;
+
+        int[] children = new int[nRefined];
+        int[][] refinedParents = new int[nRefined][];
+        for (int r = 0; r < nRefined; r++) {
+            children[r] = child;
+            refinedParents[r] = families[2 * refined[r]];
+        }
+        long[] start = {System.nanoTime()};
+        new ContingencyCounter(columns).count(children, refinedParents, (table, r) -> {
+            int i = refined[r];
+            int[] with = families[2 * i];
+            int[] without = families[2 * i + 1];
+            double withScore = counts.localScore(table);
+            double withoutScore = counts.localScore(table.marginalize(without));
+            long now = System.nanoTime();
+            scoreMetrics.recordMiss(with.length);
+            scoreMetrics.recordMiss(without.length);
+            scoreMetrics.recordScoreComputation(now - start[0]);
+            start[0] = now;
+            cacheScore(child, with, with.length, withScore);
+            cacheScore(child, without, without.length, withoutScore);
+            scores[2 * i] = withScore;
+            scores[2 * i + 1] = withoutScore;
+            done[2 * i] = true;
+            done[2 * i + 1] = true;
+        });
+    }
+
+    /**
+     * Evaluates a family whose parents are already sorted and without duplicates.
+     * @param x index of the child node.
+     * @param parents buffer with the sorted parents at its start.
+     * @param nParents number of parents in the buffer.
+     * @return local score of the family.
+     */
+    private double evaluateSorted(int x, int[] parents, int nParents){
         // Check if the evaluation is already in the cache
-        Double cachedScore = localScoreCache.getIfPresent(key);
-        // Double cachedScore = localScoreCache.getOrDefault(key,null );
-        if (cachedScore != null) {
+        double cachedScore = cachedScore(x, parents, nParents);
+        if (!LocalScoreCache.isMissing(cachedScore)) {
+            scoreMetrics.recordHit(nParents);
             return cachedScore;
         }
+        scoreMetrics.recordMiss(nParents);
 
-        // If the number of parents exceeds the maximum, return negative infinity
-        if(parents.size() >= MAX_PARENTS){
-            localScoreCache.put(key, Double.NEGATIVE_INFINITY);
-            return Double.NEGATIVE_INFINITY;
-        }
-        numNonCachedCalls++;
-    
-        // Convertimos a array para el evaluador
-        int[] parentArray = new int[parents.size()];
-        int i = 0;
-        for (int p : parents) {
-            parentArray[i++] = p;
+        return computeAndCache(x, parents, nParents);
+    }
+
+    /**
+     * Looks up the score of a family in the cache and then in the score store, if there is one. Scores found in the
+     * store are added to the cache.
+     * @return the score, or {@link LocalScoreCache#MISSING} if it isn't cached nor stored.
+     */
+    private double cachedScore(int x, int[] parents, int nParents) {
+        double score = localScoreCache.get(x, parents, nParents);
+        ScoreStore store = scoreStore;
+        if (LocalScoreCache.isMissing(score) && store != null) {
+            score = store.get(x, parents, nParents);
+            if (!LocalScoreCache.isMissing(score))
+                localScoreCache.put(x, parents, nParents, score);
         }
-    
-        double score = bdeu.localScore(x, parentArray);
-        localScoreCache.put(key, score);
-    
         return score;
     }
 
-    public double evaluate(Integer x, List<Integer> parents){
-        // Convertimos la lista de padres a Set
-        Set<Integer> parentSet = new HashSet<>(parents);
-        return evaluate(x, parentSet);
+    /**
+     * Stores a computed score in the cache and in the score store, if there is one.
+     */
+    private void cacheScore(int x, int[] parents, int nParents, double score) {
+        localScoreCache.put(x, parents, nParents, score);
+        ScoreStore store = scoreStore;
+        if (store != null)
+            store.put(x, parents, nParents, score);
     }
 
-    public double evaluate(Integer x, int[] parents){
-        // Convertimos el array de padres a Set
-        Set<Integer> parentSet = new HashSet<>();
-        for (int p : parents) {
-            parentSet.add(p);
+    /**
+     * Computes the score of a family that wasn't cached and stores it in the cache.
+     */
+    private double computeAndCache(int x, int[] parents, int nParents) {
+        long start = System.nanoTime();
+        double score = bdeu.localScore(x, Arrays.copyOf(parents, nParents));
+        scoreMetrics.recordScoreComputation(System.nanoTime() - start);
+        cacheScore(x, parents, nParents, score);
+
+        return score;
+    }
+
+    private static int[] parentsBuffer(int size) {
+        int[] buffer = parentsBuffer.get();
+        if (buffer.length < size) {
+            buffer = new int[size];
+            parentsBuffer.set(buffer);
         }
-        return evaluate(x, parentSet);
+        return buffer;
+    }
+
+    /**
+     * Sorts the parents at the start of a buffer and removes repeated ones.
+     * @return number of distinct parents.
+     */
+    private static int sortParents(int[] parents, int nParents) {
+        if (nParents < 2)
+            return nParents;
+        Arrays.sort(parents, 0, nParents);
+        int distinct = 1;
+        for (int i = 1; i < nParents; i++) {
+            if (parents[i] != parents[distinct - 1])
+                parents[distinct++] = parents[i];
+        }
+        return distinct;
     }
 
         /**
@@ -375,23 +744,68 @@ public class Problem {
         return score;
     }
 
+    /**
+     * Scores a DAG as {@link #scoreGraph(Graph)} does, but without leaving any trace in the problem: the families are
+     * read from the cache or the score store when they are there and computed otherwise, and neither the
+     * {@link ScoreMetrics ScoreMetrics}, which the budgets of the searches count, nor the cache record them. It lets
+     * the progress of a search be reported without changing the search.
+     * @param graph DAG graph being evaluated.
+     * @return score of the graph, or negative infinity if the graph is null.
+     */
+    public double peekScoreGraph(Graph graph) {
+        if (graph == null)
+            return Double.NEGATIVE_INFINITY;
+
+        Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < varNames.length; i++) {
+            indices.put(varNames[i], i);
+        }
+        Graph dag = new EdgeListGraph(graph);
+        Utils.pdagToDag(dag);
+        double score = 0;
+        for (Node next : dag.getNodes()) {
+            int node = indices.get(next.getName());
+            List<Node> parentNodes = dag.getParents(next);
+            int[] parents = new int[parentNodes.size()];
+            for (int p = 0; p < parents.length; p++) {
+                parents[p] = indices.get(parentNodes.get(p).getName());
+            }
+            int nParents = sortParents(parents, parents.length);
+
+            double familyScore = localScoreCache.get(node, parents, nParents);
+            ScoreStore store = scoreStore;
+            if (LocalScoreCache.isMissing(familyScore) && store != null)
+                familyScore = store.get(node, parents, nParents);
+            if (LocalScoreCache.isMissing(familyScore))
+                familyScore = bdeu.localScore(node, Arrays.copyOf(parents, nParents));
+            score += familyScore;
+        }
+        return score;
+    }
+
     private double localBdeuScore(int node, int[] parents) {
-        numTotalCalls++;
         // Check if the evaluation is already in the cache
-        ParentSetKey key = new ParentSetKey(node, parents);
-        Double cachedScore = localScoreCache.getIfPresent(key);
-        if (cachedScore != null) {
+        int[] buffer = parentsBuffer(parents.length);
+        System.arraycopy(parents, 0, buffer, 0, parents.length);
+        int nParents = sortParents(buffer, parents.length);
+        double cachedScore = cachedScore(node, buffer, nParents);
+        if (!LocalScoreCache.isMissing(cachedScore)) {
+            scoreMetrics.recordHit(nParents);
             return cachedScore;
         }
-       
+        scoreMetrics.recordMiss(nParents);
+
         // If not, calculate the score and store it in the cache
-        numNonCachedCalls++;
-        double score = bdeu.localScore(node, parents);
-        localScoreCache.put(key, score);
-        
-        return score;
+        return computeAndCache(node, buffer, nParents);
     }
 
+    /**
+     * Gets the mutual information, in bits, between two discrete variables of the dataset, counting the rows where
+     * neither of them is missing. It is read from the {@link #getPairwiseStatistics() pairwise statistics}.
+     * @param x first variable.
+     * @param y second variable.
+     * @return mutual information of the variables, or NaN if any of them isn't a discrete variable of the dataset.
+     */
     public double mutualInformation(Node x, Node y){
         // Check if x and y are in the dataset
         Integer xIndex = this.getHashIndices().get(x);
@@ -399,74 +813,219 @@ public class Problem {
         if (xIndex == null || yIndex == null) {
             return Double.NaN; // or throw an exception
         }
-        // Checking if the matrix is initialized
-        if(this.mutualInformationMatrix == null){
-            this.mutualInformationMatrix = new double[this.getVariables().size()][this.getVariables().size()];
-            for(int i = 0; i < this.getVariables().size(); i++){
-                for(int j = 0; j < this.getVariables().size(); j++){
-                    this.mutualInformationMatrix[i][j] = Double.NaN;
+        // Check if x and y are discrete variables
+        if (! (x instanceof DiscreteVariable) || ! (y instanceof DiscreteVariable)) {
+            return Double.NaN; // or throw an exception
+        }
+        return getPairwiseStatistics().getMutualInformation(xIndex, yIndex);
+    }
+
+    /**
+     * Gets the mutual information and the BDeu gain of every pair of variables, computing them the first time. If a
+     * directory was set with {@link #setPairwiseStatisticsDirectory(Path)}, they are loaded from there when they were
+     * already saved for this dataset, score and priors, and saved there otherwise.
+     * @return statistics of every pair of variables.
+     */
+    public synchronized PairwiseStatistics getPairwiseStatistics() {
+        if (pairwiseStatistics == null) {
+            if (pairwiseStatisticsDirectory != null) {
+                try {
+                    pairwiseStatistics = PairwiseStatistics.loadOrCompute(this, pairwiseStatisticsDirectory,
+                            singlePrecisionPairwiseStatistics);
+                } catch (IOException e) {
+                    System.err.println("Couldn't save the pairwise statistics in " + pairwiseStatisticsDirectory + ": "
+                            + e.getMessage());
                 }
             }
+            if (pairwiseStatistics == null)
+                pairwiseStatistics = PairwiseStatistics.compute(this, singlePrecisionPairwiseStatistics);
         }
-        // Checking if the mutual information has already been calculated
-        if(this.mutualInformationMatrix[xIndex][yIndex] != Double.NaN){
-            return this.mutualInformationMatrix[xIndex][yIndex];
-        }
+        return pairwiseStatistics;
+    }
 
+    public Path getPairwiseStatisticsDirectory() {
+        return pairwiseStatisticsDirectory;
+    }
 
+    /**
+     * Sets the directory where the pairwise statistics are saved, so that later problems over the same dataset load
+     * them instead of counting them again.
+     * @param directory directory of the statistics, or null to always compute them.
+     */
+    public synchronized void setPairwiseStatisticsDirectory(Path directory) {
+        this.pairwiseStatisticsDirectory = directory;
+    }
 
-        // Check if x and y are discrete variables
-        if (! (x instanceof DiscreteVariable) || ! (y instanceof DiscreteVariable)) {
-            return Double.NaN; // or throw an exception
+    public boolean isSinglePrecisionPairwiseStatistics() {
+        return singlePrecisionPairwiseStatistics;
+    }
+
+    /**
+     * Sets whether the pairwise statistics are stored as floats, halving their memory. Statistics already computed
+     * with another precision are discarded.
+     * @param singlePrecision whether the statistics are stored as floats instead of doubles.
+     */
+    public synchronized void setSinglePrecisionPairwiseStatistics(boolean singlePrecision) {
+        if (singlePrecision != singlePrecisionPairwiseStatistics)
+            pairwiseStatistics = null;
+        this.singlePrecisionPairwiseStatistics = singlePrecision;
+    }
+
+    /**
+     * Gets the SHA-256 hash of the dataset, covering the names and categories of its variables and all its values,
+     * so that it identifies the dataset across runs.
+     * @return hexadecimal hash of the dataset.
+     */
+    public synchronized String getDatasetHash() {
+        if (datasetHash == null) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DigestOutputStream(OutputStream.nullOutputStream(), digest), HASH_BUFFER_SIZE))) {
+                out.writeInt(columns.getNumRows());
+                out.writeInt(columns.getNumColumns());
+                for (Node variable : variables) {
+                    out.writeUTF(variable.getName());
+                    List<String> categories = variable instanceof DiscreteVariable discrete
+                            ? discrete.getCategories() : List.of();
+                    out.writeInt(categories.size());
+                    for (String category : categories) {
+                        out.writeUTF(category);
+                    }
+                }
+                for (int j = 0; j < columns.getNumColumns(); j++) {
+                    for (int r = 0; r < columns.getNumRows(); r++) {
+                        out.writeShort(columns.getValue(j, r));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            datasetHash = HexFormat.of().formatHex(digest.digest());
         }
+        return datasetHash;
+    }
+
+    /**
+     * Sets the directory where the local scores are saved, so that later problems over the same dataset, score and
+     * priors take them from there instead of computing them. The {@link ScoreStore} of the current score is opened
+     * right away, and replaced by the one of the new score or priors whenever they change.
+     * @param directory directory of the score stores, or null to keep the scores only in memory.
+     * @throws IOException if the store can't be opened.
+     */
+    public synchronized void setScoreStoreDirectory(Path directory) throws IOException {
+        closeScoreStore();
+        this.scoreStoreDirectory = directory;
+        if (directory != null)
+            scoreStore = ScoreStore.open(directory, getDatasetHash(), getScoreDescription());
+    }
 
-        // Initialize variables
-        int[] colX = this.getColumnValues(xIndex);
-        int[] colY = this.getColumnValues(yIndex);
-        Map<Integer, Integer> xCounts = new HashMap<>();
-        Map<Integer, Integer> yCounts = new HashMap<>();
-        Map<String, Integer> jointCounts = new HashMap<>();
-        int totalCount = this.getDataSetNumberOfRows();
+    public Path getScoreStoreDirectory() {
+        return scoreStoreDirectory;
+    }
+
+    public ScoreStore getScoreStore() {
+        return scoreStore;
+    }
+
+    /**
+     * Writes the scores computed since the last flush to the score store, if there is one.
+     */
+    public synchronized void flushScoreStore() {
+        if (scoreStore != null) {
+            try {
+                scoreStore.flush();
+            } catch (IOException e) {
+                System.err.println("Couldn't write the scores to " + scoreStore.getPath() + ": " + e.getMessage());
+            }
+        }
+    }
 
-        // Count occurrences of each value in x and y and jointCounts.
-        for (int i = 0; i < totalCount; i++) { 
-            xCounts.put(colX[i], xCounts.getOrDefault(colX[i], 0) + 1);
-            yCounts.put(colY[i], yCounts.getOrDefault(colY[i], 0) + 1);
-            String key = colX[i] + "," + colY[i];
-            jointCounts.put(key, jointCounts.getOrDefault(key, 0) + 1);
+    /**
+     * Flushes and closes the score store, if there is one. Later scores are only kept in memory until a directory
+     * is set again.
+     */
+    public synchronized void closeScoreStore() {
+        ScoreStore store = scoreStore;
+        scoreStore = null;
+        scoreStoreDirectory = null;
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.err.println("Couldn't write the scores to " + store.getPath() + ": " + e.getMessage());
+            }
         }
+    }
 
-        // Calculate the mutual information score
-        double mi = 0.0;
-        for (Map.Entry<String, Integer> entry : jointCounts.entrySet()) {
-            String[] parts = entry.getKey().split(",");
-            int xi = Integer.parseInt(parts[0]);
-            int yi = Integer.parseInt(parts[1]);
-            double pXY = (double) entry.getValue() / totalCount;
-            double pX = (double) xCounts.get(xi) / totalCount;
-            double pY = (double) yCounts.get(yi) / totalCount;
-            mi += pXY * Math.log(pXY / (pX * pY)) / Math.log(2);
+    /**
+     * Replaces the score store by the one of the current score and priors.
+     */
+    private synchronized void reopenScoreStore() {
+        Path directory = scoreStoreDirectory;
+        if (directory == null)
+            return;
+        try {
+            setScoreStoreDirectory(directory);
+        } catch (IOException e) {
+            System.err.println("Couldn't open the score store in " + directory + ": " + e.getMessage());
         }
-        // Store the mutual information in the matrix
-        this.mutualInformationMatrix[xIndex][yIndex] = mi;
-        return mi;
     }
 
+    /**
+     * Describes the score and the hyperparameters its values depend on, which identify its score store and its
+     * pairwise statistics.
+     */
+    String getScoreDescription() {
+        return bdeu.getClass().getName() + "[" + bdeu + "] samplePrior=" + samplePrior
+                + " structurePrior=" + structurePrior;
+    }
+
+    /**
+     * Counts the contingency table of a family over the rows of the dataset.
+     * @param child index of the child.
+     * @param parents indices of the parents.
+     * @return contingency table of the family.
+     */
+    public ContingencyTable countFamily(int child, int... parents) {
+        return new ContingencyCounter(columns).count(child, parents);
+    }
+
+    /**
+     * Counts the contingency tables of several families in as few passes over the rows of the dataset as possible.
+     * @param children index of the child of each family.
+     * @param parents indices of the parents of each family.
+     * @return contingency table of each family, in the same order.
+     * @see ContingencyCounter
+     */
+    public ContingencyTable[] countFamilies(int[] children, int[][] parents) {
+        return new ContingencyCounter(columns).count(children, parents);
+    }
+
+    /**
+     * Gets the column-major values of the dataset. They aren't copied.
+     * @return the columns of the dataset.
+     */
+    public DiscreteColumns getColumns() {
+        return columns;
+    }
+
+    /**
+     * Gets the values of a variable. Missing values are {@link DiscreteVariable#MISSING_VALUE}.
+     * @param colIndex index of the variable.
+     * @return new array with the value of the variable in each row.
+     */
     public int[] getColumnValues(int colIndex) {
-        Matrix dataBox =  this.data.getDoubleData();
-        Vector columnVector = dataBox.getColumn(colIndex);
-        double[] aux = columnVector.toArray();
-        int[] column = new int[aux.length];
-        for (int i = 0; i < aux.length; i++) {
-            column[i] = (int) aux[i];
+        int[] column = new int[columns.getNumRows()];
+        for (int i = 0; i < column.length; i++) {
+            int value = columns.getValue(colIndex, i);
+            column[i] = value < 0 ? DiscreteVariable.MISSING_VALUE : value;
         }
         return column;
-        //int[][] cases = dataBox.getData();
-        //int[] column = new int[cases.length];
-        //for (int i = 0; i < cases.length; i++) {
-        //    column[i] = cases[i][colIndex];
-        //}
-        //return column;
     }
 
 
@@ -493,8 +1052,55 @@ public class Problem {
         return this.data.getNumRows();
     }
 
+    /**
+     * Replaces the score used to evaluate the families of the problem. The priors of the problem are set in the new
+     * score, and the cached local scores are discarded since they were computed with the previous one.
+     * @param bdeu score over the same dataset as the problem.
+     */
     public void setBdeu(DiscreteScore bdeu) {
         this.bdeu = bdeu;
+        this.bdeu.setSamplePrior(samplePrior);
+        this.bdeu.setStructurePrior(structurePrior);
+        applyCountIndex();
+        this.localScoreCache.invalidateAll();
+        discardPairwiseStatistics();
+        reopenScoreStore();
+    }
+
+    /**
+     * Builds an {@link ADTree AD-tree} over the dataset, so that the score of the problem takes the counts of each
+     * family from it instead of scanning every row. The tree is expanded lazily as families are scored. Only
+     * datasets without missing values can be indexed. The scores don't change, so the cached ones are kept.
+     * @param memoryBudget maximum memory, in bytes, of the tree, or 0 to count the rows again.
+     * @throws IllegalArgumentException if the dataset has missing values.
+     */
+    public void setCountIndexMemoryBudget(long memoryBudget) {
+        this.countIndex = memoryBudget > 0 ? new ADTree(columns, memoryBudget) : null;
+        applyCountIndex();
+    }
+
+    public ADTree getCountIndex() {
+        return countIndex;
+    }
+
+    /**
+     * Sets the count index in the score, if it counts over the columns of the problem.
+     */
+    private void applyCountIndex() {
+        CountsScore counts = bdeu instanceof CountsScore c ? c
+                : bdeu instanceof CachedCountsScore cached ? cached.getScore() : null;
+        if (counts != null && counts.getColumns() == columns)
+            counts.setCountIndex(countIndex);
+    }
+
+    /**
+     * Replaces the score used to evaluate the families of the problem by a new score of a type, computed over the
+     * columns of the problem.
+     * @param scoreType type of the new score.
+     * @see #setBdeu(DiscreteScore)
+     */
+    public void setScoreType(ScoreType scoreType) {
+        setBdeu(scoreType.create(data, columns));
     }
 
     public Dag createDummyDag() {
@@ -619,7 +1225,7 @@ public class Problem {
     public static void main(String[] args) {
         System.out.println("RAM(B): " + Runtime.getRuntime().maxMemory());
         System.out.println("RAM(GB): " + (double)Runtime.getRuntime().maxMemory()/Math.pow(1024,3));
-        System.out.println("Cache size: " + Utils.computeCacheSize(1041, 5, (long)((double)Runtime.getRuntime().maxMemory() / Math.pow(1024,3)), 0.1, 220));
+        System.out.println("Cache size: " + Utils.computeCacheSize(1041, 5, (long)((double)Runtime.getRuntime().maxMemory() / Math.pow(1024,3)), 0.1, LocalScoreCache.BYTES_PER_ENTRY));
     }
 
 }
@@ -0,0 +1,230 @@
+package io.github.jlaborda.core.common.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the local score evaluations of a {@link Problem Problem}. They are backed by {@link LongAdder LongAdders},
+ * so the threads of a search can update them concurrently without contending on a single field.
+ * The values are read through {@link #snapshot()}.
+ */
+public class ScoreMetrics {
+
+    /**
+     * Number of buckets of the parent set size histogram. The last bucket counts every family with that many parents
+     * or more.
+     */
+    public static final int HISTOGRAM_BUCKETS = LocalScoreCache.MAX_KEY_PARENTS + 2;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder scoreComputations = new LongAdder();
+
+    private final LongAdder scoreNanos = new LongAdder();
+
+    private final LongAdder[] parentSetSizes = new LongAdder[HISTOGRAM_BUCKETS];
+
+    /**
+     * Cache whose evictions are reported.
+     */
+    private final LocalScoreCache cache;
+
+    /**
+     * Evictions of the cache when the metrics were last reset.
+     */
+    private volatile long evictionsAtReset;
+
+    /**
+     * Creates the metrics of a problem.
+     * @param cache local score cache of the problem, or null if it has none.
+     */
+    public ScoreMetrics(LocalScoreCache cache) {
+        this.cache = cache;
+        for (int i = 0; i < parentSetSizes.length; i++) {
+            parentSetSizes[i] = new LongAdder();
+        }
+        this.evictionsAtReset = cache == null ? 0 : cache.getEvictionCount();
+    }
+
+    /**
+     * Records a call whose score was found in the cache.
+     * @param nParents number of parents of the evaluated family.
+     */
+    public void recordHit(int nParents) {
+        hits.increment();
+        parentSetSizes[bucket(nParents)].increment();
+    }
+
+    /**
+     * Records a call whose score wasn't found in the cache.
+     * @param nParents number of parents of the evaluated family.
+     */
+    public void recordMiss(int nParents) {
+        misses.increment();
+        parentSetSizes[bucket(nParents)].increment();
+    }
+
+    /**
+     * Records the time spent computing a local score that wasn't cached.
+     * @param nanos elapsed time in nanoseconds.
+     */
+    public void recordScoreComputation(long nanos) {
+        scoreComputations.increment();
+        scoreNanos.add(nanos);
+    }
+
+    /**
+     * Gets the number of local scores computed so far, without taking a whole {@link #snapshot()}.
+     * @return number of score computations since the last reset.
+     */
+    public long getScoreComputations() {
+        return scoreComputations.sum();
+    }
+
+    /**
+     * Sets every counter back to zero. Updates done concurrently with the reset may be lost.
+     */
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        scoreComputations.reset();
+        scoreNanos.reset();
+        for (LongAdder adder : parentSetSizes) {
+            adder.reset();
+        }
+        evictionsAtReset = cache == null ? 0 : cache.getEvictionCount();
+    }
+
+    /**
+     * Takes an immutable copy of the current values of the counters.
+     * @return snapshot of the metrics.
+     */
+    public Snapshot snapshot() {
+        long[] histogram = new long[parentSetSizes.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = parentSetSizes[i].sum();
+        }
+        long evictions = cache == null ? 0 : cache.getEvictionCount() - evictionsAtReset;
+        long cacheSize = cache == null ? 0 : cache.size();
+        return new Snapshot(hits.sum(), misses.sum(), evictions, scoreComputations.sum(), scoreNanos.sum(),
+                histogram, cacheSize);
+    }
+
+    private static int bucket(int nParents) {
+        return Math.min(nParents, HISTOGRAM_BUCKETS - 1);
+    }
+
+    /**
+     * Values of the {@link ScoreMetrics ScoreMetrics} at a given moment.
+     */
+    public static final class Snapshot {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long scoreComputations;
+        private final long scoreNanos;
+        private final long[] parentSetSizeHistogram;
+        private final long cacheSize;
+
+        public Snapshot(long hits, long misses, long evictions, long scoreComputations, long scoreNanos,
+                        long[] parentSetSizeHistogram, long cacheSize) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.scoreComputations = scoreComputations;
+            this.scoreNanos = scoreNanos;
+            this.parentSetSizeHistogram = parentSetSizeHistogram.clone();
+            this.cacheSize = cacheSize;
+        }
+
+        /**
+         * Gets the difference between this snapshot and an earlier one, that is, what happened in between. The cache
+         * size is the one of this snapshot.
+         * @param earlier snapshot taken before this one.
+         * @return snapshot with the difference of every counter.
+         */
+        public Snapshot minus(Snapshot earlier) {
+            long[] histogram = new long[parentSetSizeHistogram.length];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = parentSetSizeHistogram[i] - earlier.parentSetSizeHistogram[i];
+            }
+            return new Snapshot(hits - earlier.hits, misses - earlier.misses, evictions - earlier.evictions,
+                    scoreComputations - earlier.scoreComputations, scoreNanos - earlier.scoreNanos, histogram,
+                    cacheSize);
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Gets the total number of calls, that is, hits plus misses.
+         * @return number of evaluated families.
+         */
+        public long getTotalCalls() {
+            return hits + misses;
+        }
+
+        /**
+         * Gets the fraction of calls answered by the cache.
+         * @return hit rate between 0 and 1, or 0 if there were no calls.
+         */
+        public double getHitRate() {
+            long total = getTotalCalls();
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * Gets the number of local scores actually computed by the score function.
+         * @return number of score computations.
+         */
+        public long getScoreComputations() {
+            return scoreComputations;
+        }
+
+        /**
+         * Gets the time spent computing local scores.
+         * @return time in nanoseconds.
+         */
+        public long getScoreNanos() {
+            return scoreNanos;
+        }
+
+        /**
+         * Gets how many calls were done for each parent set size. Position i counts the families with i parents,
+         * and the last position the families with {@link #HISTOGRAM_BUCKETS} - 1 or more parents.
+         * @return copy of the histogram.
+         */
+        public long[] getParentSetSizeHistogram() {
+            return parentSetSizeHistogram.clone();
+        }
+
+        public long getCacheSize() {
+            return cacheSize;
+        }
+
+        @Override
+        public String toString() {
+            return "ScoreMetrics{" +
+                    "calls=" + getTotalCalls() +
+                    ", hits=" + hits +
+                    ", misses=" + misses +
+                    ", evictions=" + evictions +
+                    ", scoreComputations=" + scoreComputations +
+                    ", scoreMillis=" + scoreNanos / 1_000_000 +
+                    ", cacheSize=" + cacheSize +
+                    ", parentSetSizes=" + Arrays.toString(parentSetSizeHistogram) +
+                    '}';
+        }
+    }
+}
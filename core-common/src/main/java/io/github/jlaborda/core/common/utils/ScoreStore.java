@@ -0,0 +1,504 @@
+package io.github.jlaborda.core.common.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Local scores saved on disk, so that later runs over the same dataset and score don't compute them again. It is the
+ * second level behind the {@link LocalScoreCache} of a {@link Problem}: scores missing from the cache are looked up
+ * here before being computed, and computed scores are added here too.
+ * <p>
+ * The store is an append-only file of fixed-size records, each with a family encoded as in the
+ * {@link LocalScoreCache} and its score, after a header with the hash of the dataset and a description of the score
+ * and its hyperparameters. The file is memory-mapped, so the records live in the page cache of the operating system,
+ * and only an open-addressing index of record numbers is kept in the heap. New scores are buffered and appended every
+ * {@link #getFlushRecords()} records, on {@link #flush()} and on {@link #close()}.
+ * <p>
+ * Lookups don't lock: they read the pending scores from concurrent maps and the mapped ones from an index published
+ * through a volatile reference. Adding a score only shares a lock with the other threads adding scores, and a flush
+ * holds it exclusively just to swap the pending scores for an empty batch, writing them after releasing it.
+ * <p>
+ * Several processes can use the same file: appends are done under a file lock at the current end of the file, and a
+ * flush also indexes the records appended by others since the last one. A record half written by a process that
+ * died is overwritten by the next append.
+ */
+public final class ScoreStore implements Closeable {
+
+    /**
+     * Extension of the files of the stores.
+     */
+    public static final String EXTENSION = ".hbns";
+
+    /**
+     * "HBNS" in ASCII.
+     */
+    static final int MAGIC = 0x48424E53;
+
+    static final int VERSION = 1;
+
+    /**
+     * Two longs with the family and a double with its score.
+     */
+    static final int RECORD_BYTES = 24;
+
+    /**
+     * Number of records of each mapped region of the file.
+     */
+    static final int CHUNK_RECORDS = 1 << 24;
+
+    public static final int DEFAULT_FLUSH_RECORDS = 4096;
+
+    /**
+     * Locks of the files open in this JVM, taken before the file locks, which can't overlap inside a JVM.
+     */
+    private static final ConcurrentHashMap<Path, Object> FILE_MUTEXES = new ConcurrentHashMap<>();
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final Object fileMutex;
+
+    private final String datasetHash;
+
+    private final String scoreDescription;
+
+    /**
+     * Offset of the first record in the file.
+     */
+    private final long dataStart;
+
+    /**
+     * Taken by the thread that flushes, which is the only one that maps and indexes records.
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * Shared by the threads adding pending scores, and exclusive to swap the pending batch when flushing.
+     */
+    private final StampedLock swapLock = new StampedLock();
+
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+
+    private long numMapped;
+
+    private long numIndexed;
+
+    /**
+     * Index of the mapped records, replaced by each flush that maps new ones.
+     */
+    private volatile Index index = new Index(new AtomicLongArray(1024), new ByteBuffer[0], 0, 0);
+
+    /**
+     * Scores added since the last flush.
+     */
+    private volatile ConcurrentHashMap<Family, Double> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Scores being written by the current flush.
+     */
+    private volatile Map<Family, Double> flushing = Map.of();
+
+    private volatile int flushRecords = DEFAULT_FLUSH_RECORDS;
+
+    private ScoreStore(Path path, FileChannel channel, String datasetHash, String scoreDescription, long dataStart) {
+        this.path = path;
+        this.channel = channel;
+        this.fileMutex = FILE_MUTEXES.computeIfAbsent(path, p -> new Object());
+        this.datasetHash = datasetHash;
+        this.scoreDescription = scoreDescription;
+        this.dataStart = dataStart;
+    }
+
+    /**
+     * Opens the store of a dataset and a score in a directory, creating it if it doesn't exist. The name of the file
+     * is derived from the dataset hash and the description of the score.
+     * @param directory directory of the stores. It is created if it doesn't exist.
+     * @param datasetHash hash of the dataset, as given by {@link Problem#getDatasetHash()}.
+     * @param scoreDescription description of the score and every hyperparameter its values depend on.
+     * @return the open store.
+     * @throws IOException if the file can't be opened, or belongs to another dataset or score.
+     */
+    public static ScoreStore open(Path directory, String datasetHash, String scoreDescription) throws IOException {
+        Files.createDirectories(directory);
+        Path path = directory.resolve(fileName(datasetHash, scoreDescription, EXTENSION)).toAbsolutePath();
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            Object mutex = FILE_MUTEXES.computeIfAbsent(path, p -> new Object());
+            long dataStart;
+            synchronized (mutex) {
+                try (FileLock ignored = channel.lock()) {
+                    dataStart = channel.size() == 0
+                            ? writeHeader(channel, datasetHash, scoreDescription)
+                            : readHeader(channel, path, datasetHash, scoreDescription);
+                }
+            }
+            ScoreStore store = new ScoreStore(path, channel, datasetHash, scoreDescription, dataStart);
+            store.mapNewRecords();
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Names a file after a dataset hash and a short digest of a score description.
+     */
+    static String fileName(String datasetHash, String scoreDescription, String extension) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(scoreDescription.getBytes(StandardCharsets.UTF_8));
+            return datasetHash + "-" + HexFormat.of().formatHex(digest, 0, 8) + extension;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static long writeHeader(FileChannel channel, String datasetHash, String scoreDescription)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(datasetHash);
+            out.writeUTF(scoreDescription);
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes.toByteArray());
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        channel.force(false);
+        return position;
+    }
+
+    private static long readHeader(FileChannel channel, Path path, String datasetHash, String scoreDescription)
+            throws IOException {
+        channel.position(0);
+        DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+        if (in.readInt() != MAGIC)
+            throw new IOException(path + " is not a " + EXTENSION + " file");
+        int version = in.readInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported version " + version + " of " + path);
+        String savedHash = in.readUTF();
+        String savedDescription = in.readUTF();
+        if (!savedHash.equals(datasetHash) || !savedDescription.equals(scoreDescription))
+            throw new IOException(path + " stores the scores of another dataset or score");
+        return channel.position();
+    }
+
+    /**
+     * Gets the stored score of a family. Lookups don't take any lock, so they can run while other threads add scores
+     * or flush them.
+     * @param node index of the child node.
+     * @param sortedParents indices of the parents in ascending order.
+     * @param nParents number of parents, read from the start of sortedParents.
+     * @return the stored score, or {@link LocalScoreCache#MISSING} if the family isn't stored.
+     */
+    public double get(int node, int[] sortedParents, int nParents) {
+        if (!LocalScoreCache.canCache(nParents))
+            return LocalScoreCache.MISSING;
+        long high = LocalScoreCache.encodeHigh(node, sortedParents, nParents);
+        long low = LocalScoreCache.encodeLow(sortedParents, nParents);
+        // A flush publishes the records it appends before dropping its batch, so reading in this order finds them
+        Family family = new Family(high, low);
+        Double score = pending.get(family);
+        if (score == null)
+            score = flushing.get(family);
+        return score != null ? score : index.lookup(high, low);
+    }
+
+    /**
+     * Adds the score of a family, unless it is already stored. It is written to the file with the next flush, which
+     * is done by the thread that adds the {@link #getFlushRecords()}-th pending score, unless another one is already
+     * flushing.
+     * @param node index of the child node.
+     * @param sortedParents indices of the parents in ascending order.
+     * @param nParents number of parents, read from the start of sortedParents.
+     * @param score score of the family.
+     */
+    public void put(int node, int[] sortedParents, int nParents, double score) {
+        if (!LocalScoreCache.canCache(nParents))
+            return;
+        long high = LocalScoreCache.encodeHigh(node, sortedParents, nParents);
+        long low = LocalScoreCache.encodeLow(sortedParents, nParents);
+        Family family = new Family(high, low);
+        if (!LocalScoreCache.isMissing(index.lookup(high, low)) || flushing.containsKey(family))
+            return;
+
+        ConcurrentHashMap<Family, Double> batch;
+        long stamp = swapLock.readLock();
+        try {
+            batch = pending;
+            if (batch.putIfAbsent(family, Double.isNaN(score) ? Double.NaN : score) != null)
+                return;
+        } finally {
+            swapLock.unlockRead(stamp);
+        }
+
+        if (batch.mappingCount() >= flushRecords && flushLock.tryLock()) {
+            try {
+                if (pending.mappingCount() >= flushRecords)
+                    flushPending();
+            } catch (IOException e) {
+                System.err.println("Couldn't write the scores to " + path + ": " + e.getMessage());
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Appends the pending scores to the file, and indexes the scores appended by other processes since the last
+     * flush.
+     * @throws IOException if the file can't be written.
+     */
+    public void flush() throws IOException {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Swaps the pending scores for an empty batch, and then writes them while other threads keep adding and looking
+     * up scores. The batch stays visible to lookups until its records are indexed.
+     */
+    private void flushPending() throws IOException {
+        ConcurrentHashMap<Family, Double> batch;
+        long stamp = swapLock.writeLock();
+        try {
+            batch = pending;
+            flushing = batch;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.unlockWrite(stamp);
+        }
+
+        try {
+            if (!batch.isEmpty()) {
+                ByteBuffer records = ByteBuffer.allocate(batch.size() * RECORD_BYTES);
+                batch.forEach((family, score) ->
+                        records.putLong(family.high()).putLong(family.low()).putDouble(score));
+                records.flip();
+                synchronized (fileMutex) {
+                    try (FileLock ignored = channel.lock()) {
+                        long position = dataStart + completeRecords(channel.size()) * RECORD_BYTES;
+                        while (records.hasRemaining()) {
+                            position += channel.write(records, position);
+                        }
+                    }
+                }
+            }
+            mapNewRecords();
+        } catch (IOException | RuntimeException e) {
+            // The scores are kept for the next flush
+            stamp = swapLock.readLock();
+            try {
+                batch.forEach(pending::putIfAbsent);
+            } finally {
+                swapLock.unlockRead(stamp);
+            }
+            throw e;
+        } finally {
+            flushing = Map.of();
+        }
+    }
+
+    /**
+     * Maps and indexes the records added to the file since the last time, and publishes the new index. The slots of
+     * the new records are filled in the published array, where lookups skip the records it doesn't cover yet, unless
+     * it has to grow. A family appended twice, as by two processes, keeps its first record.
+     */
+    private void mapNewRecords() throws IOException {
+        long total = completeRecords(channel.size());
+        if (total <= numMapped)
+            return;
+        int firstChunk = (int) (numMapped / CHUNK_RECORDS);
+        int lastChunk = (int) ((total - 1) / CHUNK_RECORDS);
+        for (int c = firstChunk; c <= lastChunk; c++) {
+            long records = Math.min(CHUNK_RECORDS, total - (long) c * CHUNK_RECORDS);
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                    dataStart + (long) c * CHUNK_RECORDS * RECORD_BYTES, records * RECORD_BYTES);
+            if (c < chunks.size())
+                chunks.set(c, chunk);
+            else
+                chunks.add(chunk);
+        }
+        AtomicLongArray slots = index.slots;
+        for (long r = numMapped; r < total; r++) {
+            int slot = find(slots, high(r), low(r));
+            if (slots.get(slot) != 0)
+                continue;
+            slots.set(slot, r + 1);
+            numIndexed++;
+            if (numIndexed * 2 > slots.length())
+                slots = rehash(slots);
+        }
+        numMapped = total;
+        index = new Index(slots, chunks.toArray(new ByteBuffer[0]), total, numIndexed);
+    }
+
+    private long completeRecords(long fileSize) {
+        return Math.max(0, fileSize - dataStart) / RECORD_BYTES;
+    }
+
+    /**
+     * Finds the slot of a family among the mapped records: the one holding it, or the empty slot where it would be
+     * added.
+     */
+    private int find(AtomicLongArray slots, long high, long low) {
+        int mask = slots.length() - 1;
+        int slot = (int) LocalScoreCache.hash(high, low) & mask;
+        long entry;
+        while ((entry = slots.get(slot)) != 0 && (high(entry - 1) != high || low(entry - 1) != low)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Copies the entries of the index into an array twice as large, which isn't published until the new records are
+     * indexed.
+     */
+    private AtomicLongArray rehash(AtomicLongArray old) {
+        AtomicLongArray slots = new AtomicLongArray(old.length() * 2);
+        for (int i = 0; i < old.length(); i++) {
+            long entry = old.get(i);
+            if (entry != 0)
+                slots.set(find(slots, high(entry - 1), low(entry - 1)), entry);
+        }
+        return slots;
+    }
+
+    private long high(long record) {
+        return chunks.get((int) (record / CHUNK_RECORDS)).getLong((int) (record % CHUNK_RECORDS) * RECORD_BYTES);
+    }
+
+    private long low(long record) {
+        return chunks.get((int) (record / CHUNK_RECORDS)).getLong((int) (record % CHUNK_RECORDS) * RECORD_BYTES + 8);
+    }
+
+    /**
+     * Flushes the pending scores and closes the file.
+     * @throws IOException if the file can't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            try {
+                channel.close();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of scores of the store, including the ones not flushed yet.
+     * @return number of stored families.
+     */
+    public long size() {
+        return index.numIndexed + pending.mappingCount() + flushing.size();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getDatasetHash() {
+        return datasetHash;
+    }
+
+    public String getScoreDescription() {
+        return scoreDescription;
+    }
+
+    public int getFlushRecords() {
+        return flushRecords;
+    }
+
+    /**
+     * Sets how many new scores are buffered before they are appended to the file.
+     * @param flushRecords number of pending scores that triggers a flush.
+     */
+    public void setFlushRecords(int flushRecords) {
+        if (flushRecords < 1)
+            throw new IllegalArgumentException("The number of records per flush must be positive");
+        this.flushRecords = flushRecords;
+    }
+
+    /**
+     * Family encoded as in the {@link LocalScoreCache}.
+     */
+    private record Family(long high, long low) {
+    }
+
+    /**
+     * Snapshot of the index of the mapped records: 0 for an empty slot and {@code r + 1} for the record {@code r}.
+     * The slots may hold records appended after the snapshot, which are skipped since its chunks don't cover them.
+     */
+    private static final class Index {
+
+        private final AtomicLongArray slots;
+
+        private final ByteBuffer[] chunks;
+
+        private final long numRecords;
+
+        private final long numIndexed;
+
+        private Index(AtomicLongArray slots, ByteBuffer[] chunks, long numRecords, long numIndexed) {
+            this.slots = slots;
+            this.chunks = chunks;
+            this.numRecords = numRecords;
+            this.numIndexed = numIndexed;
+        }
+
+        private double lookup(long high, long low) {
+            int mask = slots.length() - 1;
+            int slot = (int) LocalScoreCache.hash(high, low) & mask;
+            long entry;
+            while ((entry = slots.get(slot)) != 0) {
+                long r = entry - 1;
+                if (r < numRecords) {
+                    ByteBuffer chunk = chunks[(int) (r / CHUNK_RECORDS)];
+                    int offset = (int) (r % CHUNK_RECORDS) * RECORD_BYTES;
+                    if (chunk.getLong(offset) == high && chunk.getLong(offset + 8) == low)
+                        return chunk.getDouble(offset + 16);
+                }
+                slot = (slot + 1) & mask;
+            }
+            return LocalScoreCache.MISSING;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.jlaborda.core.common.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Square symmetric matrix that only stores its upper triangle, diagonal included, as a condensed array of
+ * {@code n * (n + 1) / 2} values. The values can be stored as doubles or, to halve the memory, as floats.
+ */
+public final class SymmetricMatrix {
+
+    private final int size;
+
+    private final double[] doubles;
+
+    private final float[] floats;
+
+    /**
+     * Creates a matrix filled with zeros.
+     * @param size number of rows and columns.
+     * @param singlePrecision whether the values are stored as floats instead of doubles.
+     * @throws IllegalArgumentException if the size is negative or the triangle doesn't fit in an array.
+     */
+    public SymmetricMatrix(int size, boolean singlePrecision) {
+        if (size < 0)
+            throw new IllegalArgumentException("The size of the matrix can't be negative");
+        long length = (long) size * (size + 1) / 2;
+        if (length > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("A symmetric matrix of size " + size + " doesn't fit in an array");
+        this.size = size;
+        this.doubles = singlePrecision ? null : new double[(int) length];
+        this.floats = singlePrecision ? new float[(int) length] : null;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isSinglePrecision() {
+        return floats != null;
+    }
+
+    public double get(int i, int j) {
+        int position = position(i, j);
+        return floats != null ? floats[position] : doubles[position];
+    }
+
+    /**
+     * Sets the value of the positions (i, j) and (j, i).
+     * @param i row or column.
+     * @param j column or row.
+     * @param value value of both positions.
+     */
+    public void set(int i, int j, double value) {
+        int position = position(i, j);
+        if (floats != null)
+            floats[position] = (float) value;
+        else
+            doubles[position] = value;
+    }
+
+    /**
+     * Position of (i, j) in the condensed upper triangle, stored row by row.
+     */
+    private int position(int i, int j) {
+        if (i > j) {
+            int aux = i;
+            i = j;
+            j = aux;
+        }
+        if (i < 0 || j >= size)
+            throw new IndexOutOfBoundsException("Position (" + i + ", " + j + ") out of a matrix of size " + size);
+        return (int) ((long) i * size - (long) i * (i - 1) / 2 + (j - i));
+    }
+
+    /**
+     * Writes the stored values, without the size or the precision.
+     * @param out output to write to.
+     * @throws IOException if the values can't be written.
+     */
+    void writeValues(DataOutput out) throws IOException {
+        if (floats != null) {
+            for (float value : floats) {
+                out.writeFloat(value);
+            }
+        } else {
+            for (double value : doubles) {
+                out.writeDouble(value);
+            }
+        }
+    }
+
+    /**
+     * Reads the values written by {@link #writeValues(DataOutput)} into this matrix, which must have the same size and
+     * precision as the written one.
+     * @param in input to read from.
+     * @throws IOException if the values can't be read.
+     */
+    void readValues(DataInput in) throws IOException {
+        if (floats != null) {
+            for (int p = 0; p < floats.length; p++) {
+                floats[p] = in.readFloat();
+            }
+        } else {
+            for (int p = 0; p < doubles.length; p++) {
+                doubles[p] = in.readDouble();
+            }
+        }
+    }
+}
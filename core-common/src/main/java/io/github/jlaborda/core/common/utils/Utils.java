@@ -7,10 +7,8 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,10 +23,8 @@ import edu.cmu.tetrad.bayes.BayesIm;
 import edu.cmu.tetrad.bayes.BayesPm;
 import edu.cmu.tetrad.bayes.MlBayesIm;
 import edu.cmu.tetrad.bayes.MlBayesIm.InitializationMethod;
-import edu.cmu.tetrad.data.BoxDataSet;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
-import edu.cmu.tetrad.data.IntDataBox;
 import edu.cmu.tetrad.graph.Dag;
 import edu.cmu.tetrad.graph.Edge;
 import edu.cmu.tetrad.graph.EdgeListGraph;
@@ -38,11 +34,9 @@ import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphNode;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
-import edu.pitt.dbmi.data.reader.Delimiter;
-import edu.pitt.dbmi.data.reader.DiscreteData;
-import edu.pitt.dbmi.data.reader.DiscreteDataColumn;
-import edu.pitt.dbmi.data.reader.tabular.VerticalDiscreteTabularDatasetFileReader;
 import es.uclm.i3a.simd.consensusBN.PairWiseConsensusBES;
+import io.github.jlaborda.core.common.data.DiscreteColumnsFile;
+import io.github.jlaborda.core.common.data.StreamingCsvReader;
 import weka.classifiers.bayes.BayesNet;
 import weka.classifiers.bayes.net.BIFReader;
 
@@ -171,13 +165,27 @@ public class Utils {
     }
 
     /**
-     * Separates the set of possible arcs into as many subsets as threads we use to solve the problem.
+     * Separates the set of possible arcs into as many subsets as threads we use to solve the problem, shuffling them
+     * with the random number generator shared by the whole JVM, see {@link #setSeed(long)}.
      *
      * @param listOfArcs List of {@link Edge Edges} containing all the possible edges for the actual problem.
      * @param numSplits  The number of splits to do in the listOfArcs.
      * @return The subsets of the listOfArcs in an ArrayList of TupleNode.
      */
     public static <T> List<Set<T>> split(Set<T> set, int numSplits) {
+        return split(set, numSplits, random);
+    }
+
+    /**
+     * Separates a set into a number of subsets after shuffling it with a given random number generator, so searches
+     * running at the same time don't share the generator.
+     *
+     * @param set       elements to split.
+     * @param numSplits number of subsets.
+     * @param random    random number generator used to shuffle the elements.
+     * @return the subsets of the set. The last one also contains the elements left over.
+     */
+    public static <T> List<Set<T>> split(Set<T> set, int numSplits, Random random) {
         List<Set<T>> subSets = new ArrayList<>(numSplits);
 
         // Mezclamos los elementos del conjunto
@@ -271,42 +279,18 @@ public class Utils {
         return setOfArcs;
     }
 
+    /**
+     * Reads a discrete dataset from a CSV file with a header, streaming it into compact columns with
+     * {@link StreamingCsvReader StreamingCsvReader}, or from a file with the {@value DiscreteColumnsFile#EXTENSION}
+     * extension, which is memory-mapped instead of read. The dataset is read-only.
+     * @param path path of the file.
+     * @return DataSet containing the data of the file.
+     * @throws IOException if the file can't be read.
+     */
     public static DataSet readData(Path path) throws IOException {
-        VerticalDiscreteTabularDatasetFileReader datasetReader = new VerticalDiscreteTabularDatasetFileReader(path, Delimiter.COMMA);
-        datasetReader.setHasHeader(true);
-        DiscreteData data = (DiscreteData) datasetReader.readInData();
-
-        // Data to DataSet
-        // Paso 3: crear variables discretas para Tetrad
-        List<Node> variables = new ArrayList<>();
-        for (DiscreteDataColumn column : data.getDataColumns()) {
-            String varName = column.getDataColumn().getName();
-            //System.out.println("Type of column: " + column.getDataColumn().getClass());
-            //System.out.println("Name of column: " + varName);
-            //System.out.println("Number of Categories: " + column.getCategories().size());
-            List<String> categories = column.getCategories();//((TabularDataColumn) column.getDataColumn());
-            variables.add(new DiscreteVariable(varName,categories));
-        } //System.out.println("Size variables: " + variables.size());
-        //System.out.println("Size data: " + data.getDataColumns().length);
-
-        // Transposing the data matrix (rows to columns and columns to rows)
-        int [][] dataMatrix = data.getData();
-        int rows = dataMatrix[0].length;  // número de filas reales
-        int cols = dataMatrix.length;     // número de columnas reales
-
-        int[][] transposed = new int[rows][cols];
-
-        for (int i = 0; i < cols; i++) {
-            for (int j = 0; j < rows; j++) {
-                transposed[j][i] = dataMatrix[i][j];
-            }
-        }
-
-        IntDataBox dataBox = new IntDataBox(transposed);
-
-        //System.out.println("Number of columns in dataBox: " + dataBox.numCols());
-
-        return new BoxDataSet(dataBox, variables);
+        if (path.getFileName() != null && path.getFileName().toString().endsWith(DiscreteColumnsFile.EXTENSION))
+            return DiscreteColumnsFile.readDataSet(path);
+        return new StreamingCsvReader().read(path);
     }
 
 
@@ -322,39 +306,21 @@ public class Utils {
         return Utils.readData(path);
     }
 
-/**
- * Lee un DataSet directamente desde un recurso del classpath.
- * Este método se encarga de todo el proceso: extrae el recurso a un
- * fichero temporal, lo lee y garantiza su eliminación.
- *
- * @param resourcePath La ruta absoluta al recurso en el classpath (ej: "/datasets/cancer.csv").
- * @return El DataSet cargado.
- * @throws IOException Si el recurso no se encuentra o hay un error de lectura.
- */
-public static DataSet readDataFromResource(String resourcePath) throws IOException {
-    Path tempFile = null;
-    // Usamos try-with-resources para asegurar que el InputStream se cierre siempre
-    try (InputStream inputStream = Utils.class.getResourceAsStream(resourcePath)) {
-        if (inputStream == null) {
-            throw new IOException("Recurso no encontrado en el classpath: " + resourcePath);
-        }
-        
-        // 1. Crear el fichero temporal
-        tempFile = Files.createTempFile("horizonBN-", ".tmp");
-
-        // 2. Copiar el contenido al fichero
-        Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
-
-        // 3. Llamar a tu método readData existente, que ya sabe trabajar con Path
-        return readData(tempFile);
-
-    } finally {
-        // 4. Asegurarse de que el fichero se borra, pase lo que pase
-        if (tempFile != null) {
-            Files.deleteIfExists(tempFile);
+    /**
+     * Reads a discrete dataset from a CSV resource of the classpath, streaming it without copying it to a file.
+     *
+     * @param resourcePath absolute path of the resource in the classpath (e.g. "/datasets/cancer.csv").
+     * @return the read-only DataSet of the resource.
+     * @throws IOException if the resource isn't found or can't be read.
+     */
+    public static DataSet readDataFromResource(String resourcePath) throws IOException {
+        try (InputStream inputStream = Utils.class.getResourceAsStream(resourcePath)) {
+            if (inputStream == null) {
+                throw new IOException("Recurso no encontrado en el classpath: " + resourcePath);
+            }
+            return new StreamingCsvReader().read(inputStream);
         }
     }
-}
 
 
     public static Node getNodeByName(List<Node> nodes, String name){
@@ -848,7 +814,7 @@ public static DataSet readDataFromResource(String resourcePath) throws IOExcepti
         BigInteger byPercent = new BigInteger(String.valueOf((long)(percent * 1e6))); // factor para evitar dobles
         BigInteger nPercent = nTotal.multiply(byPercent).divide(BigInteger.valueOf(1_000_000));
 
-        // 3. Límite por memoria (aprox. 220 bytes por entrada)
+        // 3. Límite por memoria (estimatedBytesPerEntry bytes por entrada)
         long bytesAvailable = (long)(ramGB * 1L << 30) / 3; // solo 1/3 de la RAM para cache
         long maxEntriesByRAM = bytesAvailable / estimatedBytesPerEntry;
 
@@ -0,0 +1,88 @@
+package io.github.jlaborda.core.common.data;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import io.github.jlaborda.core.common.score.CompactBdeuScore;
+import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.test.utils.Resources;
+
+public class ADTreeTest {
+
+    /**
+     * Checks random families against the counts of the rows, with a budget large enough to cache the whole tree and
+     * with one that only fits a few splits.
+     */
+    @Test
+    public void countsMatchCounterTest() {
+        CompactDiscreteColumns columns = CompactDiscreteColumns.fromDataSet(Resources.ALARM_DATASET);
+        ContingencyCounter counter = new ContingencyCounter(columns);
+        ADTree large = new ADTree(columns, Long.MAX_VALUE);
+        ADTree small = new ADTree(columns, 1 << 12, 4);
+
+        Random random = new Random(42);
+        int nVariables = columns.getNumColumns();
+        for (int i = 0; i < 200; i++) {
+            int child = random.nextInt(nVariables);
+            int[] parents = random.ints(0, nVariables).filter(p -> p != child).distinct().limit(random.nextInt(5)).toArray();
+            ContingencyTable expected = counter.count(child, parents);
+
+            for (ADTree tree : new ADTree[]{large, small}) {
+                ContingencyTable table = tree.count(child, parents);
+                assertArrayEquals(expected.getParents(), table.getParents());
+                assertArrayEquals(expected.getCounts(), table.getCounts());
+                assertEquals(expected.getTotal(), table.getTotal());
+            }
+        }
+        assertTrue(small.getMemoryUsed() <= small.getMemoryBudget());
+        assertTrue(large.getMemoryUsed() > 0);
+    }
+
+    @Test
+    public void concurrentQueriesTest() {
+        CompactDiscreteColumns columns = CompactDiscreteColumns.fromDataSet(Resources.ALARM_DATASET);
+        ContingencyCounter counter = new ContingencyCounter(columns);
+        ADTree tree = new ADTree(columns, Long.MAX_VALUE);
+        int nVariables = columns.getNumColumns();
+
+        IntStream.range(0, nVariables).parallel().forEach(i -> {
+            int[] parents = {(i + 1) % nVariables, (i + 5) % nVariables};
+            assertArrayEquals(counter.count(i, parents).getCounts(), tree.count(i, parents).getCounts());
+        });
+    }
+
+    @Test
+    public void problemScoresDontChangeTest() {
+        Problem problem = new Problem(Resources.ALARM_DATASET);
+        CompactBdeuScore expected = new CompactBdeuScore(Resources.ALARM_DATASET);
+        expected.setSamplePrior(problem.getSamplePrior());
+        expected.setStructurePrior(problem.getStructurePrior());
+
+        problem.setCountIndexMemoryBudget(1 << 24);
+
+        assertEquals(expected.localScore(3, 0, 7), problem.evaluate(3, new int[]{0, 7}), 0.0);
+        double[] batch = problem.evaluate(new int[]{5, 9}, new int[][]{{1}, {2, 4, 6}});
+        assertEquals(expected.localScore(5, 1), batch[0], 0.0);
+        assertEquals(expected.localScore(9, 2, 4, 6), batch[1], 0.0);
+    }
+
+    @Test
+    public void illegalArgumentsTest() {
+        int numRows = 4;
+        byte[] x = {0, 1, -1, 1};
+        byte[] y = {0, 0, 1, 1};
+        CompactDiscreteColumns missing = new CompactDiscreteColumns(numRows, new int[]{2, 2},
+                new byte[][]{x, y}, new short[2][]);
+        CompactDiscreteColumns columns = CompactDiscreteColumns.fromDataSet(Resources.CANCER_DATASET);
+
+        assertThrows(IllegalArgumentException.class, () -> new ADTree(missing, 1 << 20));
+        assertThrows(IllegalArgumentException.class, () -> new ADTree(columns, 1 << 20, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ADTree(columns, 1 << 20).count(0, 1, 1));
+    }
+}
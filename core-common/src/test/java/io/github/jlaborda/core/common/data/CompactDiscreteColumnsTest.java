@@ -0,0 +1,64 @@
+package io.github.jlaborda.core.common.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.data.DoubleDataBox;
+import edu.cmu.tetrad.data.IntDataBox;
+import edu.cmu.tetrad.graph.Node;
+import io.github.jlaborda.test.utils.Resources;
+
+public class CompactDiscreteColumnsTest {
+
+    @Test
+    public void fromDataSetTest() {
+        DataSet dataSet = Resources.CANCER_DATASET;
+        CompactDiscreteColumns columns = CompactDiscreteColumns.fromDataSet(dataSet);
+
+        assertEquals(dataSet.getNumRows(), columns.getNumRows());
+        assertEquals(dataSet.getNumColumns(), columns.getNumColumns());
+        assertFalse(columns.hasMissingValues());
+        for (int j = 0; j < dataSet.getNumColumns(); j++) {
+            assertEquals(((DiscreteVariable) dataSet.getVariable(j)).getNumCategories(), columns.getNumCategories(j));
+            for (int r = 0; r < dataSet.getNumRows(); r++) {
+                assertEquals(dataSet.getInt(r, j), columns.getValue(j, r));
+            }
+        }
+    }
+
+    @Test
+    public void accumulateIndexTest() {
+        List<Node> variables = new ArrayList<>();
+        variables.add(new DiscreteVariable("A", 2));
+        variables.add(new DiscreteVariable("B", 3));
+        int[][] data = {{0, 2}, {1, 1}, {DiscreteVariable.MISSING_VALUE, 0}, {1, DiscreteVariable.MISSING_VALUE}};
+        CompactDiscreteColumns columns = CompactDiscreteColumns.fromDataSet(new BoxDataSet(new IntDataBox(data), variables));
+
+        int[] index = new int[4];
+        columns.accumulateIndex(0, 2, index);
+        columns.accumulateIndex(1, 3, index);
+
+        assertTrue(columns.hasMissingValues());
+        assertArrayEquals(new int[]{2, 4, -1, -1}, index);
+    }
+
+    @Test
+    public void nonDiscreteVariableTest() {
+        List<Node> variables = new ArrayList<>();
+        variables.add(new ContinuousVariable("C"));
+        DataSet dataSet = new BoxDataSet(new DoubleDataBox(new double[][]{{0.5}}), variables);
+
+        assertThrows(IllegalArgumentException.class, () -> CompactDiscreteColumns.fromDataSet(dataSet));
+    }
+}
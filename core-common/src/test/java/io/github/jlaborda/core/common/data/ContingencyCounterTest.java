@@ -0,0 +1,158 @@
+package io.github.jlaborda.core.common.data;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.data.DataSet;
+import io.github.jlaborda.core.common.score.CompactBdeuScore;
+import io.github.jlaborda.test.utils.Resources;
+
+public class ContingencyCounterTest {
+
+    private static final int[] CHILDREN = {0, 1, 2, 3, 4, 2};
+
+    private static final int[][] PARENTS = {{}, {0}, {0, 1}, {4, 2, 0}, {3}, {1, 0}};
+
+    @Test
+    public void countsMatchNaiveCountsTest() {
+        CompactDiscreteColumns columns = CompactDiscreteColumns.fromDataSet(Resources.ALARM_DATASET);
+        ContingencyCounter counter = new ContingencyCounter(columns);
+
+        ContingencyTable[] tables = counter.count(CHILDREN, PARENTS);
+
+        for (int f = 0; f < CHILDREN.length; f++) {
+            assertEquals(CHILDREN[f], tables[f].getChild());
+            assertArrayEquals(PARENTS[f], tables[f].getParents());
+            assertArrayEquals(naiveCounts(columns, CHILDREN[f], PARENTS[f]), tables[f].getCounts());
+            assertEquals(columns.getNumRows(), tables[f].getTotal());
+        }
+    }
+
+    @Test
+    public void countsWithMissingValuesAcrossBlocksAndPassesTest() {
+        int numRows = 5 * ContingencyCounter.BLOCK_ROWS + 17;
+        Random random = new Random(42);
+        int[] numCategories = {2, 3, 200, 4, 2};
+        byte[][] bytes = new byte[numCategories.length][];
+        short[][] shorts = new short[numCategories.length][];
+        for (int j = 0; j < numCategories.length; j++) {
+            if (numCategories[j] <= CompactDiscreteColumns.MAX_BYTE_CATEGORIES)
+                bytes[j] = new byte[numRows];
+            else
+                shorts[j] = new short[numRows];
+            for (int r = 0; r < numRows; r++) {
+                int value = random.nextInt(20) == 0 ? -1 : random.nextInt(numCategories[j]);
+                if (bytes[j] != null)
+                    bytes[j][r] = (byte) value;
+                else
+                    shorts[j][r] = (short) value;
+            }
+        }
+        CompactDiscreteColumns columns = new CompactDiscreteColumns(numRows, numCategories, bytes, shorts);
+        ContingencyCounter counter = new ContingencyCounter(columns);
+        counter.setMaxCellsPerPass(50);
+
+        ContingencyTable[] tables = counter.count(CHILDREN, PARENTS);
+
+        for (int f = 0; f < CHILDREN.length; f++) {
+            int[] expected = naiveCounts(columns, CHILDREN[f], PARENTS[f]);
+            assertArrayEquals(expected, tables[f].getCounts());
+            int total = 0;
+            for (int count : expected) {
+                total += count;
+            }
+            assertEquals(total, tables[f].getTotal());
+        }
+    }
+
+    @Test
+    public void scoresFromTablesMatchLocalScoresTest() {
+        DataSet dataSet = Resources.ALARM_DATASET;
+        CompactBdeuScore score = new CompactBdeuScore(dataSet);
+        score.setSamplePrior(10);
+        score.setStructurePrior(0.001);
+
+        ContingencyTable[] tables = new ContingencyCounter(score.getColumns()).count(CHILDREN, PARENTS);
+
+        for (int f = 0; f < CHILDREN.length; f++) {
+            assertEquals(score.localScore(CHILDREN[f], PARENTS[f]), score.localScore(tables[f]));
+        }
+    }
+
+    @Test
+    public void mutualInformationTest() {
+        int numRows = 8;
+        byte[] x = {0, 1, 0, 1, 0, 1, 0, 1};
+        byte[] y = {0, 0, 1, 1, 0, 0, 1, 1};
+        CompactDiscreteColumns columns = new CompactDiscreteColumns(numRows, new int[]{2, 2},
+                new byte[][]{x, y}, new short[2][]);
+        ContingencyCounter counter = new ContingencyCounter(columns);
+
+        assertEquals(1.0, counter.count(0, 0).mutualInformation(), 1e-12);
+        assertEquals(0.0, counter.count(0, 1).mutualInformation(), 1e-12);
+        assertEquals(0.0, counter.count(0).mutualInformation(), 1e-12);
+    }
+
+    @Test
+    public void extendedConfigurationsMatchCountsTest() {
+        CompactDiscreteColumns columns = CompactDiscreteColumns.fromDataSet(Resources.ALARM_DATASET);
+        ContingencyCounter counter = new ContingencyCounter(columns);
+
+        int[] configurations = counter.parentConfigurations(4);
+        int[] extended = counter.extendConfigurations(configurations, columns.getNumCategories(4), 2);
+        ContingencyTable table = counter.count(3, new int[]{4, 2}, extended);
+
+        assertArrayEquals(new int[]{4, 2}, table.getParents());
+        assertArrayEquals(naiveCounts(columns, 3, new int[]{4, 2}), table.getCounts());
+        assertArrayEquals(counter.parentConfigurations(4), configurations);
+    }
+
+    @Test
+    public void marginalizeMatchesCountsTest() {
+        CompactDiscreteColumns columns = CompactDiscreteColumns.fromDataSet(Resources.ALARM_DATASET);
+        ContingencyCounter counter = new ContingencyCounter(columns);
+        ContingencyTable table = counter.count(3, 4, 2, 0);
+
+        assertArrayEquals(naiveCounts(columns, 3, new int[]{4, 0}), table.marginalize(4, 0).getCounts());
+        assertArrayEquals(naiveCounts(columns, 3, new int[]{0, 2}), table.marginalize(0, 2).getCounts());
+        assertArrayEquals(naiveCounts(columns, 3, new int[0]), table.marginalize().getCounts());
+        assertThrows(IllegalArgumentException.class, () -> table.marginalize(1));
+        assertThrows(IllegalArgumentException.class, () -> table.marginalize(4, 4));
+    }
+
+    @Test
+    public void illegalFamiliesTest() {
+        ContingencyCounter counter = new ContingencyCounter(CompactDiscreteColumns.fromDataSet(Resources.ALARM_DATASET));
+
+        assertThrows(IllegalArgumentException.class, () -> counter.count(new int[]{0, 1}, new int[][]{{2}}));
+        assertThrows(IllegalArgumentException.class, () -> counter.setMaxCellsPerPass(0));
+    }
+
+    private static int[] naiveCounts(DiscreteColumns columns, int child, int[] parents) {
+        int c = columns.getNumCategories(child);
+        int r = 1;
+        for (int parent : parents) {
+            r *= columns.getNumCategories(parent);
+        }
+        int[] counts = new int[r * c];
+        rows:
+        for (int row = 0; row < columns.getNumRows(); row++) {
+            int index = 0;
+            for (int parent : parents) {
+                int value = columns.getValue(parent, row);
+                if (value < 0)
+                    continue rows;
+                index = index * columns.getNumCategories(parent) + value;
+            }
+            int value = columns.getValue(child, row);
+            if (value < 0)
+                continue;
+            counts[index * c + value]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.jlaborda.core.common.data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.data.VerticalIntDataBox;
+import edu.cmu.tetrad.graph.Node;
+import io.github.jlaborda.core.common.score.CompactBdeuScore;
+import io.github.jlaborda.core.common.utils.Utils;
+import io.github.jlaborda.test.utils.Resources;
+
+public class DiscreteColumnsFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static void assertSameValues(DataSet expected, DataSet result) {
+        assertEquals(expected.getNumRows(), result.getNumRows());
+        assertEquals(expected.getNumColumns(), result.getNumColumns());
+        for (int j = 0; j < expected.getNumColumns(); j++) {
+            DiscreteVariable expectedVariable = (DiscreteVariable) expected.getVariable(j);
+            DiscreteVariable variable = (DiscreteVariable) result.getVariable(j);
+            assertEquals(expectedVariable.getName(), variable.getName());
+            assertEquals(expectedVariable.getCategories(), variable.getCategories());
+            for (int r = 0; r < expected.getNumRows(); r++) {
+                assertEquals(expected.getInt(r, j), result.getInt(r, j));
+            }
+        }
+    }
+
+    @Test
+    public void writeAndOpenTest() throws IOException {
+        DataSet dataSet = Resources.ALARM_DATASET;
+        Path path = tempDir.resolve("alarm" + DiscreteColumnsFile.EXTENSION);
+
+        DiscreteColumnsFile.write(dataSet, path);
+        MappedDiscreteColumns columns = DiscreteColumnsFile.open(path);
+
+        assertEquals(dataSet.getNumRows(), columns.getNumRows());
+        assertFalse(columns.hasMissingValues());
+        assertSameValues(dataSet, columns.toDataSet());
+    }
+
+    @Test
+    public void convertCsvAndReadDataTest() throws IOException {
+        Path csv = tempDir.resolve("cancer.csv");
+        try (var in = getClass().getResourceAsStream(Resources.CANCER_DATASET_PATH)) {
+            Files.copy(in, csv);
+        }
+        Path binary = tempDir.resolve("cancer" + DiscreteColumnsFile.EXTENSION);
+
+        DiscreteColumnsFile.convert(csv, binary);
+        DataSet dataSet = Utils.readData(binary);
+
+        assertNotNull(DiscreteColumnsDataBox.columnsOf(dataSet));
+        assertSameValues(Utils.readData(csv), dataSet);
+    }
+
+    @Test
+    public void scoreOverMappedColumnsTest() throws IOException {
+        DataSet dataSet = Resources.ALARM_DATASET;
+        Path path = tempDir.resolve("alarm" + DiscreteColumnsFile.EXTENSION);
+        DiscreteColumnsFile.write(dataSet, path);
+
+        CompactBdeuScore expected = new CompactBdeuScore(dataSet);
+        CompactBdeuScore score = new CompactBdeuScore(DiscreteColumnsFile.readDataSet(path));
+
+        assertEquals(expected.localScore(0), score.localScore(0));
+        assertEquals(expected.localScore(4, 1, 2), score.localScore(4, 1, 2));
+        assertEquals(expected.localScore(10, 3, 5, 7), score.localScore(10, 3, 5, 7));
+    }
+
+    @Test
+    public void shortColumnsAndMissingValuesTest() throws IOException {
+        List<String> categories = new ArrayList<>();
+        for (int c = 0; c < 300; c++) {
+            categories.add("c" + c);
+        }
+        List<Node> variables = List.of(new DiscreteVariable("Wide", categories), new DiscreteVariable("Narrow", 2));
+        int[][] values = {{0, 299, DiscreteVariable.MISSING_VALUE, 150}, {1, 0, 1, DiscreteVariable.MISSING_VALUE}};
+        DataSet dataSet = new BoxDataSet(new VerticalIntDataBox(values), variables);
+        Path path = tempDir.resolve("wide" + DiscreteColumnsFile.EXTENSION);
+
+        DiscreteColumnsFile.write(dataSet, path);
+        MappedDiscreteColumns columns = DiscreteColumnsFile.open(path);
+
+        assertTrue(columns.hasMissingValues());
+        assertEquals(299, columns.getValue(0, 1));
+        assertEquals(-1, columns.getValue(0, 2));
+        assertEquals(-1, columns.getValue(1, 3));
+        assertSameValues(dataSet, columns.toDataSet());
+
+        int[] index = new int[4];
+        columns.accumulateIndex(0, 300, index);
+        columns.accumulateIndex(1, 2, index);
+        assertEquals(1, index[0]);
+        assertEquals(598, index[1]);
+        assertEquals(-1, index[2]);
+        assertEquals(-1, index[3]);
+    }
+
+    @Test
+    public void mappedDataSetIsReadOnlyTest() throws IOException {
+        Path path = tempDir.resolve("cancer" + DiscreteColumnsFile.EXTENSION);
+        DiscreteColumnsFile.write(Resources.CANCER_DATASET, path);
+        DataSet dataSet = DiscreteColumnsFile.readDataSet(path);
+
+        // The variables of cancer are binary
+        int other = 1 - dataSet.getInt(0, 0);
+
+        assertThrows(UnsupportedOperationException.class, () -> ((BoxDataSet) dataSet).getDataBox().set(0, 0, other));
+        // BoxDataSet ignores the failure
+        dataSet.setInt(0, 0, other);
+        assertEquals(1 - other, dataSet.getInt(0, 0));
+        DataSet copy = dataSet.copy();
+        copy.setInt(0, 0, other);
+        assertNull(DiscreteColumnsDataBox.columnsOf(copy));
+        assertEquals(other, copy.getInt(0, 0));
+    }
+
+    @Test
+    public void invalidFileThrowsTest() throws IOException {
+        Path path = tempDir.resolve("invalid" + DiscreteColumnsFile.EXTENSION);
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24});
+
+        assertThrows(IOException.class, () -> DiscreteColumnsFile.open(path));
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.jlaborda.core.common.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import io.github.jlaborda.test.utils.Resources;
+
+public class StreamingCsvReaderTest {
+
+    @Test
+    public void readsTheSameDataAsTetradReaderTest() throws IOException {
+        DataSet expected = Resources.ALARM_DATASET;
+        DataSet dataSet;
+        try (InputStream in = getClass().getResourceAsStream(Resources.ALARM_DATASET_PATH)) {
+            dataSet = new StreamingCsvReader().read(in);
+        }
+
+        assertNotNull(DiscreteColumnsDataBox.columnsOf(dataSet));
+        assertEquals(expected.getNumRows(), dataSet.getNumRows());
+        assertEquals(expected.getNumColumns(), dataSet.getNumColumns());
+        for (int j = 0; j < expected.getNumColumns(); j++) {
+            DiscreteVariable expectedVariable = (DiscreteVariable) expected.getVariable(j);
+            DiscreteVariable variable = (DiscreteVariable) dataSet.getVariable(j);
+            assertEquals(expectedVariable.getName(), variable.getName());
+            assertEquals(expectedVariable.getCategories(), variable.getCategories());
+            for (int r = 0; r < expected.getNumRows(); r++) {
+                assertEquals(expected.getInt(r, j), dataSet.getInt(r, j));
+            }
+        }
+    }
+
+    @Test
+    public void missingValuesAndSortedCategoriesTest() throws IOException {
+        String csv = "A, B\n"
+                + "z, 1\n"
+                + "\n"
+                + "y ,\n"
+                + "?, 0\n";
+        StreamingCsvReader reader = new StreamingCsvReader();
+        reader.setMissingValueMarker("?");
+
+        DataSet dataSet = reader.read(new StringReader(csv));
+
+        assertEquals(3, dataSet.getNumRows());
+        assertEquals(List.of("y", "z"), ((DiscreteVariable) dataSet.getVariable("A")).getCategories());
+        assertEquals(List.of("0", "1"), ((DiscreteVariable) dataSet.getVariable("B")).getCategories());
+        assertEquals(1, dataSet.getInt(0, 0));
+        assertEquals(0, dataSet.getInt(1, 0));
+        assertEquals(DiscreteVariable.MISSING_VALUE, dataSet.getInt(1, 1));
+        assertEquals(DiscreteVariable.MISSING_VALUE, dataSet.getInt(2, 0));
+        assertTrue(DiscreteColumnsDataBox.columnsOf(dataSet).hasMissingValues());
+    }
+
+    @Test
+    public void columnsAreWidenedAcrossChunksTest() throws IOException {
+        // More rows than a chunk, and a column that only gets its 200 categories after the first chunk
+        int numRows = StreamingCsvReader.CHUNK_ROWS + 1000;
+        StringBuilder csv = new StringBuilder("Wide,Narrow\n");
+        for (int r = 0; r < numRows; r++) {
+            int wide = r < StreamingCsvReader.CHUNK_ROWS ? r % 3 : r % 200;
+            csv.append(String.format("v%03d", wide)).append(',').append(r % 2).append('\n');
+        }
+
+        DataSet dataSet = new StreamingCsvReader().read(new StringReader(csv.toString()));
+
+        assertEquals(numRows, dataSet.getNumRows());
+        assertEquals(200, ((DiscreteVariable) dataSet.getVariable(0)).getNumCategories());
+        for (int r = 0; r < numRows; r++) {
+            int wide = r < StreamingCsvReader.CHUNK_ROWS ? r % 3 : r % 200;
+            assertEquals(wide, dataSet.getInt(r, 0));
+            assertEquals(r % 2, dataSet.getInt(r, 1));
+        }
+    }
+
+    @Test
+    public void malformedLinesThrowTest() {
+        StreamingCsvReader reader = new StreamingCsvReader();
+
+        assertThrows(IOException.class, () -> reader.read(new StringReader("A,B\n1\n")));
+        assertThrows(IOException.class, () -> reader.read(new StringReader("A,B\n1,2,3\n")));
+        assertThrows(IOException.class, () -> reader.read(new StringReader("")));
+    }
+}
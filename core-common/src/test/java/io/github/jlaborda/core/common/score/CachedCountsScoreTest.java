@@ -0,0 +1,85 @@
+package io.github.jlaborda.core.common.score;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.data.IntDataBox;
+import edu.cmu.tetrad.graph.Node;
+import io.github.jlaborda.test.utils.Resources;
+
+public class CachedCountsScoreTest {
+
+    /**
+     * Walks the parent sets of every node adding and removing one parent at a time, as a search does, and checks the
+     * scores against the wrapped score.
+     */
+    @Test
+    public void sameScoresAsWrappedScoreTest() {
+        DataSet dataSet = Resources.ALARM_DATASET;
+        checkRandomWalk(new CompactBdeuScore(dataSet), new CachedCountsScore(new CompactBdeuScore(dataSet), 8), 11);
+        checkRandomWalk(new CompactBicScore(dataSet), new CachedCountsScore(new CompactBicScore(dataSet), 8), 12);
+    }
+
+    @Test
+    public void missingValuesTest() {
+        List<Node> variables = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            variables.add(new DiscreteVariable("X" + i, 3));
+        }
+        Random random = new Random(7);
+        int[][] data = new int[1000][5];
+        for (int[] row : data) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextInt(10) == 0 ? DiscreteVariable.MISSING_VALUE : random.nextInt(3);
+            }
+        }
+        DataSet dataSet = new BoxDataSet(new IntDataBox(data), variables);
+
+        checkRandomWalk(new CompactBdeuScore(dataSet), new CachedCountsScore(new CompactBdeuScore(dataSet)), 13);
+    }
+
+    @Test
+    public void priorsAreDelegatedTest() {
+        CompactBdeuScore expected = new CompactBdeuScore(Resources.CANCER_DATASET);
+        CachedCountsScore result = new CachedCountsScore(new CompactBdeuScore(Resources.CANCER_DATASET));
+        expected.setSamplePrior(10);
+        expected.setStructurePrior(0.001);
+        result.setSamplePrior(10);
+        result.setStructurePrior(0.001);
+
+        assertEquals(expected.localScore(0, 1, 2), result.localScore(0, 1, 2), 1e-9);
+        assertEquals(expected.localScoreDelta(0, new int[]{1, 2}, new int[]{1}),
+                result.localScoreDelta(0, new int[]{1, 2}, new int[]{1}), 1e-9);
+        assertEquals(Arrays.toString(expected.localScores(new int[]{0, 3}, new int[][]{{1}, {2, 4}})),
+                Arrays.toString(result.localScores(new int[]{0, 3}, new int[][]{{1}, {2, 4}})));
+    }
+
+    private static void checkRandomWalk(CountsScore expected, CachedCountsScore result, long seed) {
+        Random random = new Random(seed);
+        int nVariables = expected.getVariables().size();
+        for (int node = 0; node < nVariables; node++) {
+            List<Integer> parents = new ArrayList<>();
+            for (int step = 0; step < 30; step++) {
+                int candidate = random.nextInt(nVariables);
+                if (candidate == node)
+                    continue;
+                if (parents.contains(candidate))
+                    parents.remove(Integer.valueOf(candidate));
+                else if (parents.size() < 3)
+                    parents.add(candidate);
+                int[] family = parents.stream().mapToInt(Integer::intValue).toArray();
+                double expectedScore = expected.localScore(node, family);
+                assertEquals(expectedScore, result.localScore(node, family), Math.abs(expectedScore) * 1e-12,
+                        "Node " + node + " with parents " + parents);
+            }
+        }
+    }
+}
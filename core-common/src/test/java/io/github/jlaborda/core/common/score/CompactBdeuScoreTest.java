@@ -0,0 +1,112 @@
+package io.github.jlaborda.core.common.score;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.data.IntDataBox;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.score.BdeuScore;
+import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.test.utils.Resources;
+
+public class CompactBdeuScoreTest {
+
+    /**
+     * Checks that random families of the alarm dataset get exactly the same score as with Tetrad's BdeuScore.
+     */
+    @Test
+    public void sameScoreAsTetradTest() {
+        DataSet dataSet = Resources.ALARM_DATASET;
+        BdeuScore expected = new BdeuScore(dataSet);
+        CompactBdeuScore result = new CompactBdeuScore(dataSet);
+        expected.setSamplePrior(10.0);
+        expected.setStructurePrior(0.001);
+        result.setSamplePrior(10.0);
+        result.setStructurePrior(0.001);
+
+        Random random = new Random(42);
+        int nVariables = dataSet.getNumColumns();
+        for (int i = 0; i < 200; i++) {
+            int node = random.nextInt(nVariables);
+            int[] parents = randomParents(random, node, nVariables, random.nextInt(4));
+            assertEquals(expected.localScore(node, parents), result.localScore(node, parents), 0.0);
+        }
+    }
+
+    @Test
+    public void missingValuesTest() {
+        List<Node> variables = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            variables.add(new DiscreteVariable("X" + i, 3));
+        }
+        Random random = new Random(7);
+        int[][] data = new int[500][3];
+        for (int[] row : data) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextInt(10) == 0 ? DiscreteVariable.MISSING_VALUE : random.nextInt(3);
+            }
+        }
+        DataSet dataSet = new BoxDataSet(new IntDataBox(data), variables);
+
+        BdeuScore expected = new BdeuScore(dataSet);
+        CompactBdeuScore result = new CompactBdeuScore(dataSet);
+
+        assertEquals(expected.localScore(0), result.localScore(0), 0.0);
+        assertEquals(expected.localScore(0, 1), result.localScore(0, 1), 0.0);
+        assertEquals(expected.localScore(2, new int[]{0, 1}), result.localScore(2, new int[]{0, 1}), 0.0);
+    }
+
+    @Test
+    public void concurrentCallsTest() {
+        DataSet dataSet = Resources.ALARM_DATASET;
+        CompactBdeuScore score = new CompactBdeuScore(dataSet);
+        int nVariables = dataSet.getNumColumns();
+
+        double[] sequential = new double[nVariables];
+        for (int i = 0; i < nVariables; i++) {
+            sequential[i] = score.localScore(i, (i + 1) % nVariables, (i + 2) % nVariables);
+        }
+        double[] parallel = new double[nVariables];
+        Arrays.parallelSetAll(parallel, i -> score.localScore(i, (i + 1) % nVariables, (i + 2) % nVariables));
+
+        for (int i = 0; i < nVariables; i++) {
+            assertEquals(sequential[i], parallel[i], 0.0);
+        }
+    }
+
+    @Test
+    public void problemUsesCompactScoreTest() {
+        Problem problem = new Problem(Resources.CANCER_DATASET);
+        CompactBdeuScore score = (CompactBdeuScore) problem.getScoreEvaluator();
+
+        assertSame(problem.getData(), score.getDataSet());
+        assertEquals(problem.getSamplePrior(), score.getSamplePrior(), 0.0);
+        assertEquals(problem.getStructurePrior(), score.getStructurePrior(), 0.0);
+        assertEquals(problem.getData().getNumRows(), score.getColumns().getNumRows());
+    }
+
+    private static int[] randomParents(Random random, int node, int nVariables, int nParents) {
+        int[] parents = new int[nParents];
+        int filled = 0;
+        while (filled < nParents) {
+            int candidate = random.nextInt(nVariables);
+            boolean used = candidate == node;
+            for (int j = 0; j < filled && !used; j++) {
+                used = parents[j] == candidate;
+            }
+            if (!used) {
+                parents[filled++] = candidate;
+            }
+        }
+        return parents;
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.jlaborda.core.common.score;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.data.IntDataBox;
+import edu.cmu.tetrad.graph.Node;
+import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.test.utils.Resources;
+
+public class CompactBicScoreTest {
+
+    /**
+     * Checks random families of the alarm dataset against a direct computation of the formula of Tetrad's
+     * DiscreteBicScore over the values of the dataset.
+     */
+    @Test
+    public void sameScoreAsFormulaTest() {
+        DataSet dataSet = Resources.ALARM_DATASET;
+        CompactBicScore result = new CompactBicScore(dataSet);
+        result.setPenaltyDiscount(2);
+        result.setStructurePrior(1);
+
+        Random random = new Random(42);
+        int nVariables = dataSet.getNumColumns();
+        for (int i = 0; i < 100; i++) {
+            int node = random.nextInt(nVariables);
+            int[] parents = random.ints(0, nVariables).filter(p -> p != node).distinct().limit(random.nextInt(4)).toArray();
+            double expected = naiveScore(dataSet, node, parents, 2, 1);
+            assertEquals(expected, result.localScore(node, parents), Math.abs(expected) * 1e-12);
+        }
+    }
+
+    @Test
+    public void missingValuesTest() {
+        List<Node> variables = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            variables.add(new DiscreteVariable("X" + i, 3));
+        }
+        Random random = new Random(7);
+        int[][] data = new int[500][3];
+        for (int[] row : data) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextInt(10) == 0 ? DiscreteVariable.MISSING_VALUE : random.nextInt(3);
+            }
+        }
+        DataSet dataSet = new BoxDataSet(new IntDataBox(data), variables);
+
+        CompactBicScore result = new CompactBicScore(dataSet);
+
+        assertEquals(naiveScore(dataSet, 0, new int[0], 1, 0), result.localScore(0), 1e-9);
+        assertEquals(naiveScore(dataSet, 0, new int[]{1}, 1, 0), result.localScore(0, 1), 1e-9);
+        assertEquals(naiveScore(dataSet, 2, new int[]{0, 1}, 1, 0), result.localScore(2, new int[]{0, 1}), 1e-9);
+    }
+
+    @Test
+    public void problemScoreTypeTest() {
+        Problem problem = new Problem(Resources.CANCER_DATASET);
+        problem.setScoreType(ScoreType.BIC);
+
+        assertInstanceOf(CompactBicScore.class, problem.getScoreEvaluator());
+        CompactBicScore expected = new CompactBicScore(Resources.CANCER_DATASET);
+        expected.setStructurePrior(problem.getStructurePrior());
+        assertEquals(expected.localScore(0, 1), problem.evaluate(0, new int[]{1}), 0.0);
+        double[] batch = problem.evaluate(new int[]{2, 3}, new int[][]{{0}, {1, 2}});
+        assertEquals(expected.localScore(2, 0), batch[0], 0.0);
+        assertEquals(expected.localScore(3, 1, 2), batch[1], 0.0);
+    }
+
+    /**
+     * Log-likelihood of the family over the rows without missing values, minus the penalty of the observed parent
+     * configurations, plus the structure prior.
+     */
+    private static double naiveScore(DataSet dataSet, int node, int[] parents, double penaltyDiscount,
+                                     double structurePrior) {
+        Map<List<Integer>, int[]> counts = new HashMap<>();
+        int c = ((DiscreteVariable) dataSet.getVariable(node)).getNumCategories();
+        rows:
+        for (int row = 0; row < dataSet.getNumRows(); row++) {
+            List<Integer> configuration = new ArrayList<>();
+            for (int parent : parents) {
+                int value = dataSet.getInt(row, parent);
+                if (value == DiscreteVariable.MISSING_VALUE)
+                    continue rows;
+                configuration.add(value);
+            }
+            int value = dataSet.getInt(row, node);
+            if (value == DiscreteVariable.MISSING_VALUE)
+                continue;
+            counts.computeIfAbsent(configuration, k -> new int[c])[value]++;
+        }
+
+        double likelihood = 0;
+        for (int[] cells : counts.values()) {
+            int rowCount = Arrays.stream(cells).sum();
+            for (int cell : cells) {
+                if (cell > 0)
+                    likelihood += cell * Math.log(cell / (double) rowCount);
+            }
+        }
+        double prior = 0;
+        if (structurePrior > 0) {
+            int n = dataSet.getNumColumns();
+            double p = structurePrior / n;
+            prior = -(parents.length * Math.log(p) + (n - parents.length) * Math.log(1 - p));
+        }
+        return 2 * likelihood - penaltyDiscount * counts.size() * (c - 1) * Math.log(dataSet.getNumRows()) + 2 * prior;
+    }
+}
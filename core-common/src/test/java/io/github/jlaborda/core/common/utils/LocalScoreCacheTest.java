@@ -0,0 +1,142 @@
+package io.github.jlaborda.core.common.utils;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class LocalScoreCacheTest {
+
+    @Test
+    public void putAndGetTest() {
+        LocalScoreCache cache = new LocalScoreCache(1000);
+        int[] parents = {1, 4, 7};
+
+        assertTrue(LocalScoreCache.isMissing(cache.get(3, parents, 3)));
+        cache.put(3, parents, 3, -123.5);
+
+        assertEquals(-123.5, cache.get(3, parents, 3), 0.0);
+        // Different child, number of parents or parents are different keys
+        assertTrue(LocalScoreCache.isMissing(cache.get(4, parents, 3)));
+        assertTrue(LocalScoreCache.isMissing(cache.get(3, parents, 2)));
+        assertTrue(LocalScoreCache.isMissing(cache.get(3, new int[]{1, 4, 8}, 3)));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void specialValuesTest() {
+        LocalScoreCache cache = new LocalScoreCache(1000);
+        cache.put(0, new int[0], 0, Double.NEGATIVE_INFINITY);
+        cache.put(1, new int[0], 0, Double.NaN);
+
+        assertEquals(Double.NEGATIVE_INFINITY, cache.get(0, new int[0], 0), 0.0);
+        double nan = cache.get(1, new int[0], 0);
+        assertTrue(Double.isNaN(nan));
+        assertFalse(LocalScoreCache.isMissing(nan));
+    }
+
+    @Test
+    public void familiesTooLargeAreNotCachedTest() {
+        LocalScoreCache cache = new LocalScoreCache(1000);
+        int[] parents = {0, 1, 2, 3, 4, 5};
+        cache.put(9, parents, 6, -1.0);
+
+        assertTrue(LocalScoreCache.isMissing(cache.get(9, parents, 6)));
+        assertEquals(0, cache.size());
+
+        cache.put(9, parents, 5, -2.0);
+        assertEquals(-2.0, cache.get(9, parents, 5), 0.0);
+    }
+
+    @Test
+    public void indexOutOfRangeTest() {
+        LocalScoreCache cache = new LocalScoreCache(1000);
+        assertThrows(IllegalArgumentException.class, () -> cache.put(LocalScoreCache.MAX_INDEX + 1, new int[0], 0, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> cache.get(0, new int[]{-1}, 1));
+    }
+
+    @Test
+    public void evictionKeepsSizeBoundedTest() {
+        LocalScoreCache cache = new LocalScoreCache(100, 1);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, new int[]{i + 1}, 1, i);
+        }
+
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.getEvictionCount());
+        // Every entry still in the cache must keep its own value
+        int found = 0;
+        for (int i = 0; i < 1000; i++) {
+            double value = cache.get(i, new int[]{i + 1}, 1);
+            if (!LocalScoreCache.isMissing(value)) {
+                assertEquals(i, value, 0.0);
+                found++;
+            }
+        }
+        assertEquals(100, found);
+    }
+
+    @Test
+    public void referencedEntriesSurviveEvictionTest() {
+        LocalScoreCache cache = new LocalScoreCache(64, 1);
+        for (int i = 0; i < 64; i++) {
+            cache.put(i, new int[0], 0, i);
+        }
+        // Touching the first entry gives it a second chance
+        cache.get(0, new int[0], 0);
+        cache.put(100, new int[0], 0, 100);
+
+        assertEquals(0.0, cache.get(0, new int[0], 0), 0.0);
+        assertEquals(100.0, cache.get(100, new int[0], 0), 0.0);
+        assertEquals(64, cache.size());
+    }
+
+    @Test
+    public void invalidateAllTest() {
+        LocalScoreCache cache = new LocalScoreCache(1000);
+        for (int i = 0; i < 500; i++) {
+            cache.put(i, new int[0], 0, i);
+        }
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+        assertTrue(LocalScoreCache.isMissing(cache.get(10, new int[0], 0)));
+    }
+
+    @Test
+    public void zeroSizeCachesNothingTest() {
+        LocalScoreCache cache = new LocalScoreCache(0);
+        cache.put(1, new int[0], 0, 1.0);
+
+        assertTrue(LocalScoreCache.isMissing(cache.get(1, new int[0], 0)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void concurrentAccessTest() {
+        LocalScoreCache cache = new LocalScoreCache(5000, 8);
+        ConcurrentHashMap<Integer, Boolean> wrongValues = new ConcurrentHashMap<>();
+
+        IntStream.range(0, 8).parallel().forEach(t -> {
+            Random random = new Random(t);
+            for (int i = 0; i < 50_000; i++) {
+                int node = random.nextInt(200);
+                int[] parents = {node + 1, node + 2};
+                double value = cache.get(node, parents, 2);
+                if (LocalScoreCache.isMissing(value)) {
+                    cache.put(node, parents, 2, -node);
+                } else if (value != -node) {
+                    wrongValues.put(node, true);
+                }
+            }
+        });
+
+        assertTrue(wrongValues.isEmpty());
+        assertTrue(cache.size() <= cache.getMaximumSize());
+    }
+}
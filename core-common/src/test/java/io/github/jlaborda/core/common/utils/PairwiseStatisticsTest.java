@@ -0,0 +1,140 @@
+package io.github.jlaborda.core.common.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.jlaborda.core.common.score.ScoreType;
+import io.github.jlaborda.test.utils.Resources;
+
+public class PairwiseStatisticsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void statisticsMatchSingleEvaluationsTest() {
+        Problem problem = new Problem(Resources.ALARM_DATASET);
+        PairwiseStatistics statistics = PairwiseStatistics.compute(problem, false);
+        int n = problem.getVariables().size();
+
+        assertEquals(n, statistics.getNumVariables());
+        for (int x = 0; x < n; x++) {
+            assertEquals(0, statistics.getBdeuGain(x, x));
+            for (int y = 0; y < n; y++) {
+                if (x == y)
+                    continue;
+                double gain = problem.evaluate(y, new int[]{x}) - problem.evaluate(y, new int[0]);
+                assertEquals(gain, statistics.getBdeuGain(x, y), 1e-8 * Math.max(1, Math.abs(gain)));
+                if (x < y)
+                    assertEquals(gain, statistics.getBdeuGain(x, y));
+                assertEquals(problem.countFamily(y, x).mutualInformation(), statistics.getMutualInformation(x, y), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void saveAndLoadTest() throws IOException {
+        Problem problem = new Problem(Resources.CANCER_DATASET);
+        PairwiseStatistics statistics = PairwiseStatistics.compute(problem, true);
+        Path path = directory.resolve("cancer" + PairwiseStatistics.EXTENSION);
+
+        statistics.save(path);
+        PairwiseStatistics loaded = PairwiseStatistics.load(path);
+
+        assertEquals(statistics.getDatasetHash(), loaded.getDatasetHash());
+        assertEquals(statistics.getSamplePrior(), loaded.getSamplePrior());
+        assertEquals(statistics.getStructurePrior(), loaded.getStructurePrior());
+        assertTrue(loaded.getMutualInformationMatrix().isSinglePrecision());
+        for (int x = 0; x < statistics.getNumVariables(); x++) {
+            for (int y = 0; y < statistics.getNumVariables(); y++) {
+                assertEquals(statistics.getMutualInformation(x, y), loaded.getMutualInformation(x, y));
+                assertEquals(statistics.getBdeuGain(x, y), loaded.getBdeuGain(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void loadOrComputeReusesSavedStatisticsTest() throws IOException {
+        Problem problem = new Problem(Resources.CANCER_DATASET);
+        Path path = directory.resolve(PairwiseStatistics.fileName(problem.getDatasetHash(),
+                problem.getScoreDescription()));
+
+        PairwiseStatistics computed = PairwiseStatistics.loadOrCompute(problem, directory, false);
+        assertTrue(Files.isRegularFile(path));
+        FileTime written = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(path, written);
+
+        PairwiseStatistics loaded = PairwiseStatistics.loadOrCompute(new Problem(Resources.CANCER_DATASET), directory, false);
+        assertEquals(written, Files.getLastModifiedTime(path));
+        assertEquals(computed.getBdeuGain(0, 1), loaded.getBdeuGain(0, 1));
+
+        // Other priors can't reuse the saved gains, and are saved in a file of their own
+        problem.setSamplePrior(1.0);
+        PairwiseStatistics recomputed = PairwiseStatistics.loadOrCompute(problem, directory, false);
+        assertEquals(written, Files.getLastModifiedTime(path));
+        assertTrue(Files.isRegularFile(directory.resolve(PairwiseStatistics.fileName(problem.getDatasetHash(),
+                problem.getScoreDescription()))));
+        assertNotEquals(computed.getBdeuGain(0, 1), recomputed.getBdeuGain(0, 1));
+        assertEquals(1.0, recomputed.getSamplePrior());
+    }
+
+    @Test
+    public void otherScoresDontReuseSavedStatisticsTest() throws IOException {
+        Problem bdeu = new Problem(Resources.CANCER_DATASET);
+        bdeu.setPairwiseStatisticsDirectory(directory);
+        PairwiseStatistics bdeuStatistics = bdeu.getPairwiseStatistics();
+
+        Problem bic = new Problem(Resources.CANCER_DATASET);
+        bic.setScoreType(ScoreType.BIC);
+        bic.setPairwiseStatisticsDirectory(directory);
+        PairwiseStatistics bicStatistics = bic.getPairwiseStatistics();
+
+        // The BIC problem finds the BDeu gains in the directory but computes its own
+        assertEquals(bic.getScoreDescription(), bicStatistics.getScoreDescription());
+        assertNotEquals(bdeuStatistics.getBdeuGain(0, 1), bicStatistics.getBdeuGain(0, 1));
+        assertEquals(bic.getScoreEvaluator().localScore(1, 0) - bic.getScoreEvaluator().localScore(1),
+                bicStatistics.getBdeuGain(0, 1), 1e-9);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+
+        // Switching the score back loads the BDeu gains again
+        bic.setScoreType(ScoreType.BDEU);
+        assertEquals(bdeuStatistics.getBdeuGain(0, 1), bic.getPairwiseStatistics().getBdeuGain(0, 1));
+    }
+
+    @Test
+    public void problemStatisticsTest() {
+        Problem problem = new Problem(Resources.CANCER_DATASET);
+        problem.setPairwiseStatisticsDirectory(directory);
+
+        PairwiseStatistics statistics = problem.getPairwiseStatistics();
+
+        assertSame(statistics, problem.getPairwiseStatistics());
+        assertTrue(Files.isRegularFile(directory.resolve(PairwiseStatistics.fileName(problem.getDatasetHash(),
+                problem.getScoreDescription()))));
+        problem.setStructurePrior(0.01);
+        assertNotEquals(statistics, problem.getPairwiseStatistics());
+        problem.setSinglePrecisionPairwiseStatistics(true);
+        assertTrue(problem.getPairwiseStatistics().getBdeuGainMatrix().isSinglePrecision());
+    }
+
+    @Test
+    public void loadRejectsOtherFilesTest() throws IOException {
+        Path path = directory.resolve("other" + PairwiseStatistics.EXTENSION);
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThrows(IOException.class, () -> PairwiseStatistics.load(path));
+    }
+}
@@ -8,16 +8,18 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
-import com.github.benmanes.caffeine.cache.Cache;
-
 import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
 import io.github.jlaborda.test.utils.Resources;
 
@@ -53,7 +55,7 @@ public class ProblemTest {
         String [] varNames = problem.getVarNames();
         List<Node> variables = problem.getVariables();
         DataSet data = problem.getData();
-        Cache<ParentSetKey,Double> cache = problem.getLocalScoreCache();
+        LocalScoreCache cache = problem.getLocalScoreCache();
         // ConcurrentHashMap<ParentSetKey,Double> cache = problem.getLocalScoreCache();
         problem.setSamplePrior(20);
         problem.setStructurePrior(0.002);
@@ -175,14 +177,41 @@ public class ProblemTest {
         assertNull(node);
         assertNull(node2);
     }
+    @Test
+    public void scoreMetricsTest() {
+        Problem problem = new Problem(Resources.ALARM_DATASET);
+        ScoreMetrics metrics = problem.getScoreMetrics();
+        problem.getLocalScoreCache().invalidateAll();
+        metrics.reset();
+
+        problem.evaluate(0, new int[]{});
+        problem.evaluate(1, new int[]{2, 3});
+        problem.evaluate(1, new int[]{3, 2});
+        problem.evaluate(4, new int[]{0, 1, 2, 3, 5});
+
+        ScoreMetrics.Snapshot snapshot = metrics.snapshot();
+        // Families over the maximum number of parents are computed as any other
+        assertEquals(4, snapshot.getTotalCalls());
+        assertEquals(1, snapshot.getHits());
+        assertEquals(3, snapshot.getMisses());
+        assertEquals(3, snapshot.getScoreComputations());
+        assertTrue(snapshot.getScoreNanos() > 0);
+        assertEquals(3, snapshot.getCacheSize());
+        assertArrayEquals(new long[]{1, 0, 2, 0, 0, 1, 0}, snapshot.getParentSetSizeHistogram());
+
+        problem.evaluate(0, new int[]{});
+        ScoreMetrics.Snapshot difference = metrics.snapshot().minus(snapshot);
+        assertEquals(1, difference.getHits());
+        assertEquals(0, difference.getMisses());
+    }
+
 /*
     @Test
     public void testEvaluatePerformanceAndStability() {
         // Cambia esto si tu instancia de Problem requiere parámetros concretos
         String alarmPath = Resources.ALARM_DATASET_PATH;
         Problem problem = new Problem(alarmPath); 
-        Problem.numTotalCalls = 0;
-        Problem.numNonCachedCalls = 0;
+        problem.getScoreMetrics().reset();
         int numVariables = problem.getAllVariables().size(); // Por ejemplo: 37
         Random random = new Random(42);
 
@@ -226,10 +255,10 @@ public class ProblemTest {
 
         System.out.println("Time elapsed: " + durationMs + " ms");
         System.out.println("Approx. memory used: " + (memoryUsed / (1024 * 1024)) + " MB");
-        System.out.println("Cache size: " + problem.getLocalScoreCache().estimatedSize());
-        System.out.println("Number of calls: " + Problem.numTotalCalls);
-        System.out.println("Number of non-cached calls: " + Problem.numNonCachedCalls);
-        System.out.println("Number of cached calls: " + (Problem.numTotalCalls - Problem.numNonCachedCalls));
+        System.out.println("Cache size: " + problem.getLocalScoreCache().size());
+        System.out.println("Number of calls: " + problem.getScoreMetrics().snapshot().getTotalCalls());
+        System.out.println("Number of non-cached calls: " + problem.getScoreMetrics().snapshot().getMisses());
+        System.out.println("Number of cached calls: " + problem.getScoreMetrics().snapshot().getHits());
     }
 
     private long getUsedMemory() {
@@ -252,28 +281,28 @@ public class ProblemTest {
         // Asegura que la cache está vacía
         problem.getLocalScoreCache().invalidateAll();
         //problem.getLocalScoreCache().clear();
-        Problem.numTotalCalls = 0;
-        Problem.numNonCachedCalls = 0;
+        ScoreMetrics metrics = problem.getScoreMetrics();
+        metrics.reset();
 
         // Primera llamada (debe calcular y guardar en cache)
         double score1 = problem.evaluate(variableIndex, parentsOriginal);
-        int nonCachedCallsAfterFirst = Problem.numNonCachedCalls;
-        int totalCallsAfterFirst = Problem.numTotalCalls;
+        long nonCachedCallsAfterFirst = metrics.snapshot().getMisses();
+        long totalCallsAfterFirst = metrics.snapshot().getTotalCalls();
         
         // Segunda llamada con mismo contenido pero orden distinto
         double score2 = problem.evaluate(variableIndex, parentsShuffled);
-        int nonCachedCallsAfterSecond = Problem.numNonCachedCalls;
-        int totalCallsAfterSecond = Problem.numTotalCalls;
+        long nonCachedCallsAfterSecond = metrics.snapshot().getMisses();
+        long totalCallsAfterSecond = metrics.snapshot().getTotalCalls();
 
         // Tercera llamada con el mismo contenido pero orden distinto
         double score3 = problem.evaluate(variableIndex, parentsArray);
-        int nonCachedCallsAfterThird = Problem.numNonCachedCalls;
-        int totalCallsAfterThird = Problem.numTotalCalls;
+        long nonCachedCallsAfterThird = metrics.snapshot().getMisses();
+        long totalCallsAfterThird = metrics.snapshot().getTotalCalls();
 
         // Cuarta llamada con el mismo contenido pero orden distinto
         double score4 = problem.evaluate(variableIndex, parentsArrayShuffled);
-        int nonCachedCallsAfterFourth = Problem.numNonCachedCalls;
-        int totalCallsAfterFourth = Problem.numTotalCalls;
+        long nonCachedCallsAfterFourth = metrics.snapshot().getMisses();
+        long totalCallsAfterFourth = metrics.snapshot().getTotalCalls();
 
         // Assert 1: las puntuaciones deben coincidir
         assertEquals(score1, score2, 1e-8); // La puntuación debe ser la misma sin importar el orden de los padres
@@ -294,11 +323,113 @@ public class ProblemTest {
         assertEquals(totalCallsAfterFirst + 3, totalCallsAfterFourth); // La cuarta llamada debe ser cacheada
         
         // Assert 4: el tamaño de la cache debe ser 1 después de las llamadas
-        assertEquals(1, problem.getLocalScoreCache().asMap().size()); // La cache debe tener un tamaño de 1
+        assertEquals(1, problem.getLocalScoreCache().size()); // La cache debe tener un tamaño de 1
         //assertEquals(1, problem.getLocalScoreCache().size()); // La cache debe tener un tamaño de 1
     }
 
+    @Test
+    public void batchEvaluateMatchesSingleEvaluationsTest() {
+        Problem problem = new Problem(Resources.ALARM_DATASET);
+        int[] children = {3, 5, 7, 3, 0};
+        int[][] parents = {{2, 0, 1}, {}, {4, 4}, {0}, {1, 2, 3, 4, 5}};
+
+        problem.getLocalScoreCache().invalidateAll();
+        ScoreMetrics metrics = problem.getScoreMetrics();
+        metrics.reset();
+        double[] scores = problem.evaluate(children, parents);
+
+        assertEquals(children.length, metrics.snapshot().getMisses());
+        for (int f = 0; f < children.length; f++) {
+            assertEquals(problem.getScoreEvaluator().localScore(children[f],
+                    Arrays.stream(parents[f]).sorted().distinct().toArray()), scores[f]);
+            assertEquals(scores[f], problem.evaluate(children[f], parents[f]));
+        }
+        assertEquals(children.length, metrics.snapshot().getMisses());
+    }
+
+    @Test
+    public void evaluateDeltasMatchesDifferencesTest() {
+        Problem problem = new Problem(Resources.ALARM_DATASET);
+        Problem expected = new Problem(Resources.ALARM_DATASET);
+        int child = 3;
+        int[][] parents = {{}, {0}, {2, 0}, {1, 4}, {0, 1, 2, 4}, {5}};
+        int[] extra = {1, 2, 1, 4, 6, 7};
+
+        // One of the families is already cached, so only the other ones are counted
+        problem.evaluate(child, new int[]{5, 7});
+        problem.getScoreMetrics().reset();
+        double[] deltas = problem.evaluateDeltas(child, parents, extra);
+
+        assertEquals(2 * parents.length, problem.getScoreMetrics().snapshot().getHits()
+                + problem.getScoreMetrics().snapshot().getMisses());
+        for (int i = 0; i < parents.length; i++) {
+            int[] with = Arrays.copyOf(parents[i], parents[i].length + 1);
+            with[parents[i].length] = extra[i];
+            int added = extra[i];
+            int[] without = Arrays.stream(parents[i]).filter(p -> p != added).toArray();
+            double delta = expected.evaluate(child, with) - expected.evaluate(child, without);
+            assertEquals(delta, deltas[i]);
+            assertEquals(delta, problem.evaluateDelta(child, parents[i], extra[i]));
+        }
+        // The family with 5 parents has a real score too
+        assertTrue(Double.isFinite(deltas[4]));
+    }
+
+    @Test
+    public void maxParentsTest() {
+        Problem problem = new Problem(Resources.ALARM_DATASET);
+        assertEquals(Problem.DEFAULT_MAX_PARENTS, problem.getMaxParents());
+        problem.setMaxParents(1);
+        assertEquals(1, problem.getMaxParents());
+
+        // The bound only limits the insertions of the searches, the families over it keep their real scores
+        assertEquals(problem.getScoreEvaluator().localScore(0, 1, 2), problem.evaluate(0, new int[]{1, 2}));
+        assertEquals(problem.getScoreEvaluator().localScore(0, 3, 4),
+                problem.evaluate(new int[]{0}, new int[][]{{3, 4}})[0]);
+        assertTrue(Double.isFinite(problem.evaluateDelta(0, new int[]{5, 6}, 7)));
+        assertThrows(IllegalArgumentException.class, () -> problem.setMaxParents(-1));
+    }
 
+    @Test
+    public void peekScoreGraphTest() {
+        Problem problem = new Problem(Resources.ALARM_DATASET);
+        Graph graph = new EdgeListGraph(problem.getVariables());
+        graph.addDirectedEdge(problem.getNode(0), problem.getNode(1));
+        graph.addDirectedEdge(problem.getNode(2), problem.getNode(1));
+        graph.addDirectedEdge(problem.getNode(3), problem.getNode(4));
+
+        // Peeking does not count the scores it computes nor caches them
+        ScoreMetrics.Snapshot before = problem.getScoreMetrics().snapshot();
+        double peeked = problem.peekScoreGraph(graph);
+        ScoreMetrics.Snapshot after = problem.getScoreMetrics().snapshot();
+        assertEquals(before.getScoreComputations(), after.getScoreComputations());
+        assertEquals(before.getTotalCalls(), after.getTotalCalls());
+        assertEquals(before.getCacheSize(), after.getCacheSize());
+
+        assertEquals(problem.scoreGraph(graph), peeked, 1e-9);
+        // Once cached, the scores are read from the cache
+        assertEquals(problem.scoreGraph(graph), problem.peekScoreGraph(graph), 1e-9);
+    }
+
+    @Test
+    public void mutualInformationTest() {
+        Problem problem = new Problem(dataset);
+        Node x = problem.getVariables().get(0);
+        Node y = problem.getVariables().get(1);
 
+        double mi = problem.mutualInformation(x, y);
 
+        assertEquals(problem.countFamily(0, 1).mutualInformation(), mi);
+        assertEquals(mi, problem.mutualInformation(y, x), 1e-12);
+        assertTrue(mi >= 0);
+
+        // The mutual information of a variable with itself is its entropy
+        int[] counts = problem.countFamily(0).getCounts();
+        double entropy = 0;
+        for (int count : counts) {
+            double p = (double) count / problem.getNumInstances();
+            entropy -= count == 0 ? 0 : p * Math.log(p) / Math.log(2);
+        }
+        assertEquals(entropy, problem.mutualInformation(x, x), 1e-12);
+    }
 }
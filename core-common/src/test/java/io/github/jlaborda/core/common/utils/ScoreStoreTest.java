@@ -0,0 +1,163 @@
+package io.github.jlaborda.core.common.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.jlaborda.test.utils.Resources;
+
+public class ScoreStoreTest {
+
+    private static final String HASH = "0123456789abcdef";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void scoresSurviveReopeningTest() throws IOException {
+        try (ScoreStore store = ScoreStore.open(directory, HASH, "score")) {
+            store.setFlushRecords(7);
+            for (int node = 0; node < 100; node++) {
+                store.put(node, new int[]{node + 1, node + 2}, 2, -node);
+                store.put(node, new int[0], 0, Double.NaN);
+            }
+            store.put(3, new int[]{4, 5}, 2, 1234);
+            assertEquals(200, store.size());
+        }
+
+        try (ScoreStore store = ScoreStore.open(directory, HASH, "score")) {
+            assertEquals(200, store.size());
+            for (int node = 0; node < 100; node++) {
+                assertEquals(-node, store.get(node, new int[]{node + 1, node + 2}, 2));
+                assertTrue(Double.isNaN(store.get(node, new int[0], 0)));
+            }
+            assertTrue(LocalScoreCache.isMissing(store.get(0, new int[]{2}, 1)));
+            assertTrue(LocalScoreCache.isMissing(store.get(0, new int[]{1, 2, 3, 4, 5, 6}, 6)));
+        }
+    }
+
+    @Test
+    public void storesSharingAFileTest() throws IOException {
+        try (ScoreStore first = ScoreStore.open(directory, HASH, "score");
+             ScoreStore second = ScoreStore.open(directory, HASH, "score")) {
+            first.put(1, new int[]{2}, 1, -1);
+            second.put(1, new int[]{2}, 1, -1);
+            second.put(2, new int[]{3}, 1, -2);
+            first.flush();
+            second.flush();
+
+            // The second store sees the score of the first one when it flushes
+            assertEquals(-1, second.get(1, new int[]{2}, 1));
+            assertTrue(LocalScoreCache.isMissing(first.get(2, new int[]{3}, 1)));
+            first.flush();
+            assertEquals(-2, first.get(2, new int[]{3}, 1));
+        }
+    }
+
+    @Test
+    public void concurrentPutsAndGetsTest() throws IOException {
+        int nThreads = 4;
+        int perThread = 2000;
+        try (ScoreStore store = ScoreStore.open(directory, HASH, "score")) {
+            store.setFlushRecords(100);
+            // Every thread adds its own families and looks up the ones of the others while they are flushed
+            IntStream.range(0, nThreads).parallel().forEach(t -> {
+                for (int i = 0; i < perThread; i++) {
+                    int node = t * perThread + i;
+                    store.put(node, new int[]{node + 1}, 1, -node);
+                    assertEquals(-node, store.get(node, new int[]{node + 1}, 1));
+                    int other = ((t + 1) % nThreads) * perThread + i / 2;
+                    double score = store.get(other, new int[]{other + 1}, 1);
+                    assertTrue(LocalScoreCache.isMissing(score) || score == -other);
+                }
+            });
+            assertEquals(nThreads * perThread, store.size());
+        }
+
+        try (ScoreStore store = ScoreStore.open(directory, HASH, "score")) {
+            assertEquals(nThreads * perThread, store.size());
+            for (int node = 0; node < nThreads * perThread; node++) {
+                assertEquals(-node, store.get(node, new int[]{node + 1}, 1));
+            }
+        }
+    }
+
+    @Test
+    public void truncatedRecordIsOverwrittenTest() throws IOException {
+        Path path;
+        try (ScoreStore store = ScoreStore.open(directory, HASH, "score")) {
+            store.put(1, new int[]{2}, 1, -1);
+            path = store.getPath();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(ScoreStore.RECORD_BYTES / 2));
+        }
+
+        try (ScoreStore store = ScoreStore.open(directory, HASH, "score")) {
+            assertEquals(1, store.size());
+            store.put(2, new int[]{3}, 1, -2);
+        }
+        try (ScoreStore store = ScoreStore.open(directory, HASH, "score")) {
+            assertEquals(-1, store.get(1, new int[]{2}, 1));
+            assertEquals(-2, store.get(2, new int[]{3}, 1));
+        }
+    }
+
+    @Test
+    public void otherScoresUseOtherFilesTest() throws IOException {
+        try (ScoreStore bdeu = ScoreStore.open(directory, HASH, "bdeu");
+             ScoreStore bic = ScoreStore.open(directory, HASH, "bic")) {
+            assertNotEquals(bdeu.getPath(), bic.getPath());
+        }
+    }
+
+    @Test
+    public void problemWarmStartTest() throws IOException {
+        Problem problem = new Problem(Resources.ALARM_DATASET);
+        problem.setScoreStoreDirectory(directory);
+        double score = problem.evaluate(3, new int[]{0, 7});
+        problem.closeScoreStore();
+
+        Problem warm = new Problem(Resources.ALARM_DATASET);
+        warm.setScoreStoreDirectory(directory);
+        warm.getScoreMetrics().reset();
+        assertEquals(score, warm.evaluate(3, new int[]{7, 0}));
+        assertEquals(0, warm.getScoreMetrics().snapshot().getScoreComputations());
+
+        // Other priors use another store
+        warm.setSamplePrior(1);
+        warm.getLocalScoreCache().invalidateAll();
+        warm.evaluate(3, new int[]{0, 7});
+        assertEquals(1, warm.getScoreMetrics().snapshot().getScoreComputations());
+        warm.closeScoreStore();
+    }
+
+    @Test
+    public void mismatchedHeaderTest() throws IOException {
+        Path path;
+        Path otherPath;
+        try (ScoreStore store = ScoreStore.open(directory, HASH, "score");
+             ScoreStore other = ScoreStore.open(directory, "fedcba9876543210", "score")) {
+            path = store.getPath();
+            otherPath = other.getPath();
+        }
+        Files.copy(path, otherPath, StandardCopyOption.REPLACE_EXISTING);
+
+        assertThrows(IOException.class, () -> ScoreStore.open(directory, "fedcba9876543210", "score"));
+        try (ScoreStore store = ScoreStore.open(directory, HASH, "score")) {
+            assertThrows(IllegalArgumentException.class, () -> store.setFlushRecords(0));
+        }
+    }
+}
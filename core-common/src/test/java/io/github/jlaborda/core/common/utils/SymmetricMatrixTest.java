@@ -0,0 +1,36 @@
+package io.github.jlaborda.core.common.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class SymmetricMatrixTest {
+
+    @Test
+    public void setAndGetTest() {
+        int n = 7;
+        SymmetricMatrix matrix = new SymmetricMatrix(n, false);
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                matrix.set(j, i, i * 100 + j + 0.5);
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                assertEquals(Math.min(i, j) * 100 + Math.max(i, j) + 0.5, matrix.get(i, j));
+            }
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> matrix.get(0, n));
+        assertThrows(IndexOutOfBoundsException.class, () -> matrix.set(-1, 0, 0));
+    }
+
+    @Test
+    public void singlePrecisionTest() {
+        SymmetricMatrix matrix = new SymmetricMatrix(3, true);
+        matrix.set(2, 1, 0.1);
+
+        assertEquals((float) 0.1, matrix.get(1, 2));
+        assertEquals(0, matrix.get(0, 0));
+    }
+}
@@ -10,8 +10,7 @@ import edu.cmu.tetrad.graph.Graph;
 import io.github.jlaborda.core.common.utils.Problem;
 import io.github.jlaborda.core.common.utils.Utils;
 import io.github.jlaborda.core.ges.framework.BNBuilder;
-import io.github.jlaborda.core.ges.framework.BackwardStage;
-import io.github.jlaborda.core.ges.framework.ForwardStage;
+import io.github.jlaborda.core.ges.framework.SearchEvent;
 import io.github.jlaborda.core.ges.threads.BESThread;
 import io.github.jlaborda.core.ges.threads.FESThread;
 
@@ -68,8 +67,8 @@ public class GreedyEquivalenceSearch extends BNBuilder {
 
     @Override
     protected void forwardStage() throws InterruptedException {
-        ForwardStage.meanTimeTotal = 0;
         FESThread fes = new FESThread(problem, super.getInitialGraph(), setOfArcs, Integer.MAX_VALUE, speedUp);
+        fes.setContext(getContext());
         fes.run();
         currentGraph = fes.getCurrentGraph();
         fesFlag = fes.getFlag();
@@ -83,8 +82,8 @@ public class GreedyEquivalenceSearch extends BNBuilder {
 
     @Override
     protected void backwardStage() throws InterruptedException {
-        BackwardStage.meanTimeTotal = 0;
         BESThread bes = new BESThread(problem, currentGraph, setOfArcs);
+        bes.setContext(getContext());
         bes.run();
         currentGraph = bes.getCurrentGraph();
         besFlag = bes.getFlag();
@@ -97,10 +96,10 @@ public class GreedyEquivalenceSearch extends BNBuilder {
 
     }
     @Override
-    public Graph search(){
+    protected Graph runSearch(){
         try {
-            forwardStage();
-            backwardStage();
+            runPhase(SearchEvent.Phase.FORWARD_STAGE, this::forwardStage);
+            runPhase(SearchEvent.Phase.BACKWARD_STAGE, this::backwardStage);
         }catch(InterruptedException e){
             System.err.println("Interrupted Exception");
             System.out.println(e.getMessage());
@@ -6,6 +6,7 @@ import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.Graph;
 import io.github.jlaborda.core.common.utils.Utils;
 import io.github.jlaborda.core.ges.framework.BNBuilder;
+import io.github.jlaborda.core.ges.framework.SearchEvent;
 import io.github.jlaborda.core.ges.threads.BackwardsHillClimbingThread;
 import io.github.jlaborda.core.ges.threads.ForwardHillClimbingThread;
 
@@ -61,6 +62,7 @@ public class HillClimbingSearch extends BNBuilder {
         else {
             fhc = new ForwardHillClimbingThread(getProblem(), getCurrentGraph(), getSetOfArcs(), getItInterleaving());
         }
+        fhc.setContext(getContext());
         fhc.run();
         Graph graph = fhc.getCurrentGraph();
         currentGraph = Utils.removeInconsistencies(graph);
@@ -74,6 +76,7 @@ public class HillClimbingSearch extends BNBuilder {
     @Override
     protected void backwardStage() throws InterruptedException {
         BackwardsHillClimbingThread bhc = new BackwardsHillClimbingThread(getProblem(), getCurrentGraph(), getSetOfArcs());
+        bhc.setContext(getContext());
         bhc.run();
         Graph g = bhc.getCurrentGraph();
         currentGraph = Utils.removeInconsistencies(g);
@@ -85,10 +88,10 @@ public class HillClimbingSearch extends BNBuilder {
     }
 
     @Override
-    public Graph search(){
+    protected Graph runSearch(){
         try {
-            forwardStage();
-            backwardStage();
+            runPhase(SearchEvent.Phase.FORWARD_STAGE, this::forwardStage);
+            runPhase(SearchEvent.Phase.BACKWARD_STAGE, this::backwardStage);
         }catch(InterruptedException e){
             System.err.println("Interrupted Exception");
             System.out.println(e.getMessage());
@@ -0,0 +1,215 @@
+package io.github.jlaborda.core.ges.clustering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+import io.github.jlaborda.core.common.utils.SymmetricMatrix;
+
+/**
+ * Agglomerative clustering of variables used by {@link HierarchicalNodeClustering}. The similarity of two clusters is
+ * the average score of every pair of variables of their union, and the two most similar clusters are merged until
+ * the requested number of clusters is left.
+ * <p>
+ * Instead of re-summing the pairs of every candidate union, each cluster keeps the sum of the scores of its inner
+ * pairs, and the condensed matrix of the sums of the scores between clusters is updated with the Lance–Williams
+ * recurrence {@code cross(a + b, k) = cross(a, k) + cross(b, k)} when a and b are merged, so the similarity of any two
+ * clusters is computed in constant time and a merge updates the matrix in O(n). Every cluster caches its most similar
+ * cluster among the ones after it, and those candidates are kept in a priority queue, so the best pair is found in
+ * O(log n) and only the candidates that involved the merged clusters are looked up again.
+ * <p>
+ * Clusters are identified by the index of their first variable. Ties are broken as a scan of the upper triangle of
+ * the similarity matrix would, in favour of the pair with the smallest first and then second cluster, and the merged
+ * cluster keeps the smallest index, so the result is the same as merging the rows of a full similarity matrix.
+ */
+final class AgglomerativeClustering {
+
+    private final int n;
+
+    /**
+     * Sum of the scores between the variables of two clusters, only meaningful for active clusters.
+     */
+    private final SymmetricMatrix crossScores;
+
+    /**
+     * Sum of the scores between the variables of each cluster.
+     */
+    private final double[] innerScores;
+
+    private final int[] sizes;
+
+    private final boolean[] active;
+
+    /**
+     * Members of each cluster as linked lists: first member, next member of each variable and last member.
+     */
+    private final int[] first;
+    private final int[] next;
+    private final int[] last;
+
+    /**
+     * Most similar active cluster after each cluster, or -1 if there is none, and its similarity.
+     */
+    private final int[] neighbor;
+    private final double[] neighborSimilarity;
+
+    /**
+     * Incremented whenever the neighbor of a cluster changes, to discard outdated entries of the queue.
+     */
+    private final int[] versions;
+
+    private final PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+
+    private final boolean parallel;
+
+    /**
+     * Creates the clustering of n variables, each one starting in its own cluster.
+     * @param scores score of each pair of variables. It isn't modified.
+     * @param parallel whether the initial candidates are computed in parallel.
+     */
+    AgglomerativeClustering(SymmetricMatrix scores, boolean parallel) {
+        this.n = scores.getSize();
+        this.parallel = parallel;
+        this.crossScores = new SymmetricMatrix(n, false);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                crossScores.set(i, j, scores.get(i, j));
+            }
+        }
+        this.innerScores = new double[n];
+        this.sizes = new int[n];
+        this.active = new boolean[n];
+        this.first = new int[n];
+        this.next = new int[n];
+        this.last = new int[n];
+        this.neighbor = new int[n];
+        this.neighborSimilarity = new double[n];
+        this.versions = new int[n];
+        for (int i = 0; i < n; i++) {
+            sizes[i] = 1;
+            active[i] = true;
+            first[i] = i;
+            next[i] = -1;
+            last[i] = i;
+        }
+    }
+
+    /**
+     * Merges clusters until the number of clusters is reached.
+     * @param numClusters number of clusters to leave.
+     * @return the variables of each cluster, with the clusters in the order of their first variable.
+     */
+    List<int[]> cluster(int numClusters) {
+        IntStream indices = IntStream.range(0, n);
+        (parallel ? indices.parallel() : indices).forEach(this::findNeighbor);
+        for (int i = 0; i < n; i++) {
+            offer(i);
+        }
+
+        int numActive = n;
+        while (numActive > numClusters) {
+            Candidate best = candidates.poll();
+            if (best == null)
+                break;
+            if (!active[best.cluster] || versions[best.cluster] != best.version)
+                continue;
+            merge(best.cluster, best.neighbor);
+            numActive--;
+        }
+
+        List<int[]> clusters = new ArrayList<>(numActive);
+        for (int i = 0; i < n; i++) {
+            if (!active[i])
+                continue;
+            int[] members = new int[sizes[i]];
+            for (int m = first[i], p = 0; m >= 0; m = next[m]) {
+                members[p++] = m;
+            }
+            clusters.add(members);
+        }
+        return clusters;
+    }
+
+    /**
+     * Average score of every pair of variables of the union of two clusters.
+     */
+    private double similarity(int a, int b) {
+        int size = sizes[a] + sizes[b];
+        double score = innerScores[a] + innerScores[b] + crossScores.get(a, b);
+        return score / ((double) size * (size - 1) / 2);
+    }
+
+    /**
+     * Merges the cluster b into the cluster a, where a is less than b.
+     */
+    private void merge(int a, int b) {
+        innerScores[a] += innerScores[b] + crossScores.get(a, b);
+        for (int k = 0; k < n; k++) {
+            if (active[k] && k != a && k != b)
+                crossScores.set(a, k, crossScores.get(a, k) + crossScores.get(b, k));
+        }
+        sizes[a] += sizes[b];
+        active[b] = false;
+        next[last[a]] = first[b];
+        last[a] = last[b];
+
+        findNeighbor(a);
+        offer(a);
+        for (int i = 0; i < b; i++) {
+            if (!active[i] || i == a)
+                continue;
+            if (neighbor[i] == a || neighbor[i] == b) {
+                findNeighbor(i);
+                offer(i);
+            } else if (i < a) {
+                double similarity = similarity(i, a);
+                if (similarity > neighborSimilarity[i] || (similarity == neighborSimilarity[i] && a < neighbor[i])) {
+                    setNeighbor(i, a, similarity);
+                    offer(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up the most similar active cluster after a cluster, keeping the first one in case of ties.
+     */
+    private void findNeighbor(int i) {
+        int best = -1;
+        double bestSimilarity = Double.NEGATIVE_INFINITY;
+        for (int j = i + 1; j < n; j++) {
+            if (!active[j])
+                continue;
+            double similarity = similarity(i, j);
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                best = j;
+            }
+        }
+        setNeighbor(i, best, bestSimilarity);
+    }
+
+    private void setNeighbor(int i, int j, double similarity) {
+        neighbor[i] = j;
+        neighborSimilarity[i] = similarity;
+        versions[i]++;
+    }
+
+    private void offer(int i) {
+        if (neighbor[i] >= 0)
+            candidates.add(new Candidate(i, neighbor[i], neighborSimilarity[i], versions[i]));
+    }
+
+    /**
+     * Entry of the queue: a cluster and its most similar cluster after it when the entry was added.
+     */
+    private record Candidate(int cluster, int neighbor, double similarity, int version) implements Comparable<Candidate> {
+
+        @Override
+        public int compareTo(Candidate other) {
+            int bySimilarity = Double.compare(other.similarity, similarity);
+            return bySimilarity != 0 ? bySimilarity : Integer.compare(cluster, other.cluster);
+        }
+    }
+}
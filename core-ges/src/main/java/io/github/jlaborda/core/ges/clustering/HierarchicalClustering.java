@@ -8,6 +8,7 @@ import java.util.stream.Collectors;
 import edu.cmu.tetrad.graph.Edge;
 import edu.cmu.tetrad.graph.Node;
 import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.common.utils.Utils;
 
 public class HierarchicalClustering extends HierarchicalNodeClustering implements EdgeClustering{
 
@@ -52,6 +53,8 @@ public class HierarchicalClustering extends HierarchicalNodeClustering implement
 
         // Generating the Inner and Outer edges
         System.out.println("Generating inner and outer edges");
+        if (allEdges == null)
+            allEdges = Utils.calculateArcs(problem.getData());
         allEdges.forEach(edge -> {
             Node node1 = edge.getNode1();
             Node node2 = edge.getNode2();
@@ -1,26 +1,20 @@
 package io.github.jlaborda.core.ges.clustering;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import edu.cmu.tetrad.graph.Edge;
-import edu.cmu.tetrad.graph.Endpoint;
 import edu.cmu.tetrad.graph.Node;
+import io.github.jlaborda.core.common.utils.PairwiseStatistics;
 import io.github.jlaborda.core.common.utils.Problem;
-import io.github.jlaborda.core.common.utils.Utils;
-import io.github.jlaborda.core.ges.threads.GESThread;
+import io.github.jlaborda.core.common.utils.SymmetricMatrix;
 
 public class HierarchicalNodeClustering extends NodeClustering{
-    protected final Object lock = new Object();
     protected Set<Edge> allEdges;
-    protected double[][] simMatrix;
-    protected final Map<Edge, Double> edgeScores = new ConcurrentHashMap<>();
     protected List<Set<Node>> clusters;
     protected final Map<Node, Set<Integer>> nodeClusterMap = new HashMap<>();
 
@@ -47,63 +41,20 @@ public class HierarchicalNodeClustering extends NodeClustering{
     public List<Set<Node>> generateNodeClusters(int numClusters) {
         //Initial setup
         System.out.println("Generating node clusters");
-        if(edgeScores.isEmpty()) {
-            System.out.println("Generating edge scores");
-            calculateEdgesScore();
-        }
         List<Node> nodes = problem.getVariables();
 
-        //Initializing clusters
-        System.out.println("Initializing clusters");
-        clusters = new ArrayList<>(nodes.size());
-        for (Node n : nodes) {
-            Set<Node> s = new HashSet<>();
-            s.add(n);
-            clusters.add(s);
-        }
-
-        // Initializing Similarity Matrix
-        System.out.println("Initializing similarity matrix");
-        initializeSimMatrix();
-
         // Calculating clusters
         System.out.println("Calculating clusters");
-        while (clusters.size() > numClusters) {
-
-            // Initializing scores and initial positions of indexes
-            double maxValue = Double.NEGATIVE_INFINITY;
-            int posI = -1;
-            int posJ = -1;
-
-            //Checking which two clusters are better to merge together in parallel
-            for (int i = 0; i < (clusters.size() - 1); i++) {
-                for (int j = i + 1; j < clusters.size(); j++) {
-                    if (simMatrix[i][j] > maxValue) {
-                        maxValue = simMatrix[i][j];
-                        posI = i;
-                        posJ = j;
-                    }
-                }
-            }
-            // Merging the chosen clusters into posI of the clusters list.
-            Set<Node> mergeCluster = new HashSet<>();
-            mergeCluster.addAll(clusters.get(posI));
-            mergeCluster.addAll(clusters.get(posJ));
-            clusters.set(posI, mergeCluster);
-
-            //Recalculating simMatrix
-            for (int j = posI + 1; j < clusters.size(); j++) {
-                if (j != posJ) {
-                    simMatrix[posI][j] = getScoreClusters(clusters.get(posI), clusters.get(j));
-                }
+        AgglomerativeClustering agglomerative = new AgglomerativeClustering(
+                problem.getPairwiseStatistics().getBdeuGainMatrix(), isParallel);
+        List<int[]> groups = agglomerative.cluster(numClusters);
+        clusters = new ArrayList<>(groups.size());
+        for (int[] group : groups) {
+            Set<Node> cluster = new HashSet<>();
+            for (int i : group) {
+                cluster.add(nodes.get(i));
             }
-            for (int i = 0; i < posI; i++) {
-                simMatrix[i][posI] = getScoreClusters(clusters.get(i), clusters.get(posI));
-            }
-
-            // Deleting cluster and the information of posJ in simMatrix
-            deleteClusterInSimMatrix(posJ);
-
+            clusters.add(cluster);
         }
 
         // Creating joint clusters if necessary
@@ -119,164 +70,77 @@ public class HierarchicalNodeClustering extends NodeClustering{
         return clusters;
     }
 
-    private void calculateEdgesScore(){
-        // Calculating all the edges
-        allEdges = Utils.calculateArcs(problem.getData());
-
-        // Getting hashmap of indexes
-        HashMap<Node, Integer> index = problem.getHashIndices();
-
-        // Parallel for loop to calculate the scores of each edge with no other subset of parents
-        allEdges.parallelStream().forEach((edge) -> {
-            Node parent = edge.getNode1();
-            Node child = edge.getNode2();
-            int parentIndex = index.get(parent);
-            int childIndex = index.get(child);
-
-            HashSet<Node> hashParent = new HashSet<>();
-            hashParent.add(parent);
-            double score = GESThread.localBdeuScore(childIndex, new int[]{parentIndex}, problem) -
-                    GESThread.localBdeuScore(childIndex, new int[]{}, problem);
-            edgeScores.put(edge, score);
-        });
-    }
-
-    private void initializeSimMatrix() {
-        this.simMatrix = new double[problem.getVariables().size()][problem.getVariables().size()];
-        if (isParallel)
-            initializeSimMatrixParallel();
-        else
-            initializeSimMatrixSequential();
-
-    }
-
-    private void initializeSimMatrixParallel() {
-        // Similarity matrix
-        // Getting hashmap of indexes
-        Map<Node, Integer> index = problem.getHashIndices();
-        // Calculating similarity
-        edgeScores.entrySet().parallelStream().forEach(edgeDoubleEntry -> {
-                    int i = index.get(edgeDoubleEntry.getKey().getNode1()); //Getting node 1 index
-                    int j = index.get(edgeDoubleEntry.getKey().getNode2()); // Getting node 2 index
-                    double score = edgeDoubleEntry.getValue();              // Getting score of edge
-                    addValueSimMatrix(i, j, score);                         //Adding value to the sim matrix
-                }
-        );
-    }
-
-    private void addValueSimMatrix(int i, int j, double score) {
-        synchronized (lock) {
-            simMatrix[i][j] = score;
-        }
-    }
-
-    private void initializeSimMatrixSequential() {
-        List<Node> nodes = problem.getVariables();
-        int numNodes = problem.getVariables().size();
-        for (int i = 0; i < (numNodes - 1); i++) {
-            for (int j = i + 1; j < numNodes; j++) {
-                // Getting Nodes
-                Node x = nodes.get(i);
-                Node y = nodes.get(j);
-                // Getting Edge
-                Edge edge = new Edge(x, y, Endpoint.TAIL, Endpoint.ARROW);
-                // Getting score
-                simMatrix[i][j] = edgeScores.get(edge);
-            }
-        }
-    }
-
-    private double getScoreClusters(Set<Node> cluster1, Set<Node> cluster2) {
-        // Merged cluster
-        Set<Node> mergeCluster = ConcurrentHashMap.newKeySet();//new HashSet<>();
-        mergeCluster.addAll(cluster1);
-        mergeCluster.addAll(cluster2);
-        // initializing score
-        double score = 0.0;
-        // Sequential for loop
-
-        List<Node> mergeClusterList = new ArrayList<>(mergeCluster);
-        for (int i = 0; i < (mergeClusterList.size() - 1); i++) {
-            for (int j = i + 1; j < mergeClusterList.size(); j++) {
-                Node nodeI = mergeClusterList.get(i);
-                Node nodeJ = mergeClusterList.get(j);
-                Edge edge = new Edge(nodeI, nodeJ, Endpoint.TAIL, Endpoint.ARROW);
-                //System.out.println(edge);
-                score += edgeScores.get(edge);
-            }
-        }
-
-        score /= ((double) mergeCluster.size() * (mergeCluster.size() - 1) / 2);
-        return score;
-    }
-
     public double getScoreDifference(Set<Node> cluster, Node node){
+        // The score of every edge is the gain of its pair, computed once for all the pairs
+        PairwiseStatistics statistics = problem.getPairwiseStatistics();
+        Map<Node, Integer> index = problem.getHashIndices();
+        int nodeIndex = index.get(node);
         double score = 0;
         for (Node n: cluster) {
-            Edge edge = new Edge(n, node, Endpoint.TAIL, Endpoint.ARROW);
-            score+= edgeScores.get(edge);
+            score+= statistics.getBdeuGain(index.get(n), nodeIndex);
         }
         return score;
     }
 
-    private void deleteClusterInSimMatrix(int posJ){
-        // Deleting cluster in position posJ
-        clusters.remove(posJ);
-        // Making copy
-        double[][]auxMatrix = Arrays.stream(simMatrix)
-                .map(double[]::clone)
-                .toArray(double[][]::new);
-        // Reducing by one the size of the simMatrix since the size of the clusters is one less
-        simMatrix = new double[clusters.size()][clusters.size()];
-
-        // Row posJ and column posJ will be deleted
-        int p = 0;
-        for (int i = 0; i < auxMatrix.length; i++) {
-            if(i == posJ)
-                continue;
-            int q = 0;
-            for (int j = 0; j < auxMatrix.length; j++) {
-                if(j == posJ)
-                    continue;
-                simMatrix[p][q] = auxMatrix[i][j];
-                q++;
-            }
-            p++;
-        }
-    }
-
     private void createJointClusters(){
         double start = System.currentTimeMillis();
         //1. Calculating the number of variables that need to be in each cluster
         int maxVarsClusters = clusters.parallelStream().map(Set::size).max(Integer::compare).orElse(-1);
 
-        //2. For each cluster, find the best nodes to add until the cluster size is equal to maxVarsClusters
-        clusters.forEach(cluster -> {
-            while(cluster.size() < maxVarsClusters){
-                //2.1. Find the best node to add to the cluster
-                Node bestNode = null;
-                double bestScore = Double.NEGATIVE_INFINITY;
-                for(Node node : problem.getVariables()){
-                    if(!cluster.contains(node)){
-                        //Set<Node> auxCluster = new HashSet<>(cluster);
-                        //auxCluster.add(node);
-                        //double score = getScoreClusters(auxCluster, cluster);
-                        double score = getScoreDifference(cluster, node);
-                        if(score > bestScore){
-                            bestScore = score;
-                            bestNode = node;
-                        }
-                    }
-                }
-                //2.2. Add the best node to the cluster
-                cluster.add(bestNode);
-            }
-        });
+        //2. For each cluster, in parallel, add the best nodes until the cluster size is equal to maxVarsClusters
+        SymmetricMatrix scores = problem.getPairwiseStatistics().getBdeuGainMatrix();
+        clusters.parallelStream().forEach(cluster -> expandCluster(cluster, maxVarsClusters, scores));
 
         double end = System.currentTimeMillis();
         System.out.println("Time to create joint clusters: " + (end - start)/1000 + " seconds");
     }
 
+    /**
+     * Adds to a cluster the nodes with the highest score difference until it has the given size. The score difference
+     * of every node, the sum of its edge scores with the nodes of the cluster, is kept in an affinity vector that is
+     * updated in O(n) whenever a node is added, instead of summing the whole cluster again for every candidate.
+     * @param cluster cluster to expand. Only this cluster is modified.
+     * @param size final size of the cluster.
+     * @param scores edge score of each pair of nodes.
+     */
+    private void expandCluster(Set<Node> cluster, int size, SymmetricMatrix scores) {
+        List<Node> nodes = problem.getVariables();
+        Map<Node, Integer> index = problem.getHashIndices();
+        double[] affinity = new double[nodes.size()];
+        boolean[] inCluster = new boolean[nodes.size()];
+        for (Node member : cluster) {
+            inCluster[index.get(member)] = true;
+        }
+        for (Node member : cluster) {
+            addAffinity(affinity, index.get(member), scores);
+        }
+
+        while (cluster.size() < size) {
+            //2.1. Find the best node to add to the cluster, the first one in case of ties
+            int bestNode = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int v = 0; v < affinity.length; v++) {
+                if (!inCluster[v] && affinity[v] > bestScore) {
+                    bestScore = affinity[v];
+                    bestNode = v;
+                }
+            }
+            if (bestNode < 0)
+                break;
+            //2.2. Add the best node to the cluster
+            cluster.add(nodes.get(bestNode));
+            inCluster[bestNode] = true;
+            addAffinity(affinity, bestNode, scores);
+        }
+    }
+
+    private static void addAffinity(double[] affinity, int node, SymmetricMatrix scores) {
+        for (int v = 0; v < affinity.length; v++) {
+            if (v != node)
+                affinity[v] += scores.get(node, v);
+        }
+    }
+
     private void indexClusters() {
         for (int i = 0; i < clusters.size(); i++) {
             Set<Node> nodesCluster = clusters.get(i);
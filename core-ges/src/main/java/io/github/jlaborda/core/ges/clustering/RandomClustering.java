@@ -2,6 +2,7 @@ package io.github.jlaborda.core.ges.clustering;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import edu.cmu.tetrad.graph.Edge;
@@ -11,29 +12,34 @@ import io.github.jlaborda.core.common.utils.Utils;
 
 public class RandomClustering extends NodeClustering implements EdgeClustering{
 
+    /**
+     * Random number generator of the clustering, so each search shuffles its edges with its own seed.
+     */
+    private Random random;
+
     public RandomClustering(Problem problem){
         super(problem);
-        Utils.setSeed(42);
+        this.random = new Random(42);
     }
 
     public RandomClustering(Problem problem,long seed){
         this(problem);
-        Utils.setSeed(seed);
+        this.random = new Random(seed);
     }
 
     public RandomClustering(long seed){
         super();
-        Utils.setSeed(seed);
+        this.random = new Random(seed);
     }
 
     public RandomClustering(){
         super();
-        Utils.setSeed(42);
+        this.random = new Random(42);
     }
 
     @Override
     public List<Set<Edge>> generateEdgeDistribution(int numClusters) {
-        return Utils.split(Utils.calculateArcs(problem.getData()), numClusters);
+        return Utils.split(Utils.calculateArcs(problem.getData()), numClusters, random);
     }
 
     @Override
@@ -41,7 +47,7 @@ public class RandomClustering extends NodeClustering implements EdgeClustering{
         // 1. Get variables from problem
         Set<Node> nodes = new HashSet<>(problem.getVariables());
         // 2. Split the variables into numClusters
-        return Utils.split(nodes, numClusters);   
+        return Utils.split(nodes, numClusters, random);   
     }
     
 }
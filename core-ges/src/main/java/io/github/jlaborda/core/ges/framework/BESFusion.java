@@ -40,6 +40,7 @@ public class BESFusion extends FusionStage{
         }
 
         BESThread fuse = new BESThread(this.problem,this.currentGraph,candidates);
+        fuse.setContext(context);
 
         fuse.run();
         
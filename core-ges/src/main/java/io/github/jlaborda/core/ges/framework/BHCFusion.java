@@ -50,6 +50,7 @@ public class BHCFusion extends FusionStage{
         // Quizás sea mejor poner el BES
         //BESThread fuse = new BESThread(this.problem, this.currentGraph, candidates);
         BackwardsHillClimbingThread fuse = new BackwardsHillClimbingThread(this.problem,this.currentGraph,candidates);
+        fuse.setContext(context);
 
         fuse.run();
 
@@ -27,7 +27,7 @@ public class BHCStage extends BackwardStage {
         //problem.buildIndexing(currentGraph);
 
         // Rearranging the subsets, so that the BES stage only deletes edges of the current graph.
-        List<Set<Edge>> subsets_BHC = Utils.split(this.currentGraph.getEdges(), this.nThreads);
+        List<Set<Edge>> subsets_BHC = Utils.split(this.currentGraph.getEdges(), this.nThreads, context.getRandom());
         for (int i = 0; i < this.nThreads; i++) {
             this.gesThreads[i] = new BackwardsHillClimbingThread(this.problem, this.currentGraph, subsets_BHC.get(i));
         }
@@ -36,7 +36,6 @@ public class BHCStage extends BackwardStage {
         for(int i = 0 ; i< this.nThreads; i++){
             // Resetting the  search flag
             this.gesThreads[i].resetFlag();
-            this.threads[i] = new Thread(this.gesThreads[i]);
         }
     }
 
@@ -4,7 +4,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.Dag;
@@ -13,6 +21,7 @@ import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.common.utils.ScoreMetrics;
 import io.github.jlaborda.core.common.utils.Utils;
 import io.github.jlaborda.core.ges.threads.BESThread;
 import io.github.jlaborda.core.ges.threads.FESThread;
@@ -97,6 +106,40 @@ public abstract class BNBuilder {
      */
     protected Set<Edge> setOfArcs;
 
+    /**
+     * Score evaluations done by the last call to {@link #search()}.
+     */
+    private ScoreMetrics.Snapshot scoreMetrics;
+
+    /**
+     * Cores the search may use, or null to run it in the calling thread, each stage in a pool of its own.
+     */
+    private ExecutionPolicy executionPolicy = null;
+
+    /**
+     * Executor of the stages of the running search.
+     */
+    private StageExecutor stageExecutor = StageExecutor.perStage();
+
+    /**
+     * Limits of each call to {@link #search()}.
+     */
+    private SearchBudget searchBudget = SearchBudget.UNLIMITED;
+
+    /**
+     * Context of the running search, with its budget and its random number generator.
+     */
+    private SearchContext context = SearchContext.standalone();
+
+    /**
+     * Start of the running search, from {@link System#nanoTime()}.
+     */
+    private long searchStartNanos;
+
+    /**
+     * Listeners of the progress of the searches.
+     */
+    private final List<SearchListener> listeners = new CopyOnWriteArrayList<>();
 
 
     public BNBuilder(DataSet data, int nThreads, int maxIterations, int nItInterleaving){
@@ -176,33 +219,186 @@ public abstract class BNBuilder {
     protected abstract void backwardFusion() throws InterruptedException;
 
 
+    /**
+     * Runs the search and records the score evaluations it does, which can be read afterwards with
+     * {@link #getScoreMetrics()}. The scores computed by the search are written to the score store of the problem,
+     * if it has one. If the {@link SearchBudget SearchBudget} runs out, the search stops and returns the best graph
+     * found so far.
+     * <p>
+     * Every call runs in a {@link SearchContext SearchContext} of its own, whose random number generator is seeded
+     * with {@link #getSeed()}, so builders over different problems can search at the same time. The
+     * {@link SearchListener SearchListeners} of the builder are told about each stage and fusion.
+     * @return the graph found by the search.
+     */
     public Graph search(){
+        return search(newContext());
+    }
+
+    /**
+     * Runs {@link #search()} in an executor without blocking the calling thread. However the returned future
+     * completes before the search ends, cancelled, timed out or completed by the caller, the search is cancelled: its
+     * threads stop before applying their next operator and it ends soon after, without completing the future again.
+     * A builder runs one search at a time, so it must not search again until the future completes.
+     * @param executor executor that runs the search.
+     * @return future completed with the graph found by the search, or with the exception thrown by the search.
+     */
+    public CompletableFuture<Graph> searchAsync(Executor executor) {
+        if (executor == null)
+            throw new NullPointerException("The executor must not be null");
+        CompletableFuture<Graph> future = new CompletableFuture<>();
+        AtomicReference<SearchContext> running = new AtomicReference<>();
+        future.whenComplete((graph, e) -> {
+            SearchContext started = running.get();
+            if (started != null)
+                started.cancel();
+        });
+        try {
+            executor.execute(() -> {
+                if (future.isDone())
+                    return;
+                SearchContext started = newContext();
+                running.set(started);
+                // The future may have completed before the context was published
+                if (future.isDone())
+                    started.cancel();
+                try {
+                    future.complete(search(started));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Creates the context of a new search, starting its budget.
+     * @return context of the search.
+     */
+    private SearchContext newContext() {
+        return new SearchContext(searchBudget.start(problem), new Random(seed));
+    }
+
+    /**
+     * Runs a search in a given context.
+     * @param context context of the search.
+     * @return the graph found by the search.
+     */
+    private Graph search(SearchContext context) {
+        ScoreMetrics.Snapshot metricsAtStart = problem.getScoreMetrics().snapshot();
+        this.context = context;
+        this.searchStartNanos = System.nanoTime();
+        Graph result = (executionPolicy == null) ? runSearch() : runSearchInPool();
+        this.scoreMetrics = problem.getScoreMetrics().snapshot().minus(metricsAtStart);
+        problem.flushScoreStore();
+        return result;
+    }
+
+    /**
+     * Runs {@link #runSearch()} inside a pool created from the {@link ExecutionPolicy ExecutionPolicy}, so the stages
+     * and every parallel stream of the search run in its workers. The pool is shut down when the search finishes.
+     * @return the graph found by the search.
+     */
+    private Graph runSearchInPool() {
+        ForkJoinPool pool = executionPolicy.createPool();
+        StageExecutor previous = this.stageExecutor;
+        this.stageExecutor = new StageExecutor(pool);
+        try {
+            return pool.submit(this::runSearch).get();
+        } catch (InterruptedException e) {
+            System.err.println("Interrupted Exception");
+            System.out.println(e.getMessage());
+            Thread.currentThread().interrupt();
+            return this.currentGraph;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            pool.shutdownNow();
+            this.stageExecutor = previous;
+        }
+    }
+
+    /**
+     * Search loop of the algorithm. By default, it runs the forward and backward stages and fusions until
+     * {@link #convergence()}, or until the budget of the search runs out.
+     * @return the graph found by the search.
+     */
+    protected Graph runSearch(){
         initialConfig();
         repartition();
         do{
             try{
-                forwardStage();
-                forwardFusion();
-                backwardStage();
-                backwardFusion();
+                runPhase(SearchEvent.Phase.FORWARD_STAGE, this::forwardStage);
+                runPhase(SearchEvent.Phase.FORWARD_FUSION, this::forwardFusion);
+                runPhase(SearchEvent.Phase.BACKWARD_STAGE, this::backwardStage);
+                runPhase(SearchEvent.Phase.BACKWARD_FUSION, this::backwardFusion);
             } catch (InterruptedException e) {
                 System.err.println("Interrupted Exception");
                 System.out.println(e.getMessage());
             }
-        }while(!convergence());
+        }while(!context.getBudget().isExhausted() && !convergence());
 
         return this.currentGraph;
     }
 
+    /**
+     * Stage or fusion of an iteration of the search.
+     */
+    @FunctionalInterface
+    protected interface Step {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Runs a stage or a fusion of the search and reports it to the {@link SearchListener SearchListeners} with the
+     * graph of the search once it finishes. The graph is only copied and scored if there are listeners, and it is
+     * scored with {@link Problem#peekScoreGraph(Graph)}, so the listeners don't change the budget nor the score
+     * metrics of the search.
+     * @param phase phase of the iteration being run.
+     * @param step stage or fusion to run.
+     * @throws InterruptedException if the step is interrupted.
+     */
+    protected void runPhase(SearchEvent.Phase phase, Step step) throws InterruptedException {
+        long start = System.nanoTime();
+        step.run();
+        if (listeners.isEmpty())
+            return;
+        long end = System.nanoTime();
+        Graph graph = (currentGraph == null) ? null : new EdgeListGraph(currentGraph);
+        SearchEvent event = new SearchEvent(it, phase, graph, problem.peekScoreGraph(graph),
+                (end - start) / 1_000_000, (end - searchStartNanos) / 1_000_000);
+        for (SearchListener listener : listeners) {
+            listener.onEvent(event);
+        }
+    }
+
+    /**
+     * Adds a listener of the progress of the searches of the builder.
+     * @param listener listener called after each stage and fusion.
+     */
+    public void addSearchListener(SearchListener listener) {
+        if (listener == null)
+            throw new NullPointerException("The listener must not be null");
+        listeners.add(listener);
+    }
 
+    public void removeSearchListener(SearchListener listener) {
+        listeners.remove(listener);
+    }
 
     /**
-     * Sets the seed for the random generator.
+     * Sets the seed for the random generator of each search.
      * @param seed seed used for the random number generator.
      */
     public void setSeed(long seed) {
         this.seed = seed;
-        Utils.setSeed(seed);
     }
 
     /**
@@ -297,11 +493,96 @@ public abstract class BNBuilder {
         return problem;
     }
 
+    /**
+     * Gets the score evaluations done by the last call to {@link #search()}, such as cache hits, misses and the time
+     * spent computing scores.
+     * @return snapshot of the score metrics of the last search, or null if no search has been run.
+     */
+    public ScoreMetrics.Snapshot getScoreMetrics() {
+        return scoreMetrics;
+    }
+
 
     public int getnThreads() {
         return nThreads;
     }
 
+    /**
+     * Sets the cores the search may use. The number of threads of each stage becomes the outer threads of the
+     * policy, and the search runs in a pool of its own with at most {@link ExecutionPolicy#getParallelism()}
+     * workers.
+     * @param executionPolicy policy of the search, or null to run it in the calling thread, each stage in a pool of its own.
+     */
+    public void setExecutionPolicy(ExecutionPolicy executionPolicy) {
+        this.executionPolicy = executionPolicy;
+        if (executionPolicy != null) {
+            this.nThreads = executionPolicy.getOuterThreads();
+            this.gesThreads = new FESThread[this.nThreads];
+            this.threads = new Thread[this.nThreads];
+        }
+    }
+
+    public ExecutionPolicy getExecutionPolicy() {
+        return executionPolicy;
+    }
+
+    /**
+     * Gets the executor the stages of the running search have to use.
+     * @return executor over the pool of the {@link ExecutionPolicy ExecutionPolicy} while the search runs, or the
+     * one set with {@link #setStageExecutor(StageExecutor)} otherwise.
+     */
+    protected StageExecutor getStageExecutor() {
+        return stageExecutor;
+    }
+
+    /**
+     * Sets the executor of the stages of the searches run without an {@link ExecutionPolicy ExecutionPolicy}.
+     * @param stageExecutor executor of the stages, {@link StageExecutor#perStage()} by default.
+     */
+    public void setStageExecutor(StageExecutor stageExecutor) {
+        if (stageExecutor == null)
+            throw new NullPointerException("The executor must not be null");
+        this.stageExecutor = stageExecutor;
+    }
+
+    /**
+     * Checks whether the threads of the search score their operators in parallel.
+     * @return true without an {@link ExecutionPolicy ExecutionPolicy}, or if the policy scores in parallel.
+     */
+    protected boolean isParallelScoring() {
+        return executionPolicy == null || executionPolicy.isParallelScoring();
+    }
+
+    /**
+     * Sets the limits of each call to {@link #search()}.
+     * @param searchBudget limits of the search, {@link SearchBudget#UNLIMITED} by default.
+     */
+    public void setSearchBudget(SearchBudget searchBudget) {
+        if (searchBudget == null)
+            throw new NullPointerException("The search budget must not be null");
+        this.searchBudget = searchBudget;
+    }
+
+    public SearchBudget getSearchBudget() {
+        return searchBudget;
+    }
+
+    /**
+     * Gets the budget of the running search.
+     * @return budget of the running search, or an unlimited one if no search has been run.
+     */
+    protected SearchBudget.Tracker getBudget() {
+        return context.getBudget();
+    }
+
+    /**
+     * Gets the context of the running search, which the stages, fusions and threads it creates have to share.
+     * @return context of the running search.
+     */
+    protected SearchContext getContext() {
+        return context;
+    }
+
     public int getItInterleaving() {
         return nItInterleaving;
     }
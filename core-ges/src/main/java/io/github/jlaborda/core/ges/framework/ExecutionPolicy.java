@@ -0,0 +1,101 @@
+package io.github.jlaborda.core.ges.framework;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sets how many cores a {@link BNBuilder BNBuilder} uses. The search runs in a dedicated {@link ForkJoinPool
+ * ForkJoinPool} whose number of running workers never exceeds the parallelism budget, so every parallel task of the
+ * search, from the threads of a stage to the scoring of their operators, shares those workers instead of the common
+ * pool.
+ * <p>
+ * The outer threads are the {@link io.github.jlaborda.core.ges.threads.GESThread GESThreads} of each stage, one for
+ * each subset of edges. With parallel scoring, each of them splits the scoring of its operators into tasks of the
+ * pool, which any idle worker may run; without it, the operators of each thread are scored sequentially. A parallel
+ * stream can't be limited to a number of workers, so parallel scoring is a switch and not a number of threads.
+ */
+public class ExecutionPolicy {
+
+    /**
+     * Workers the pool may add to replace the ones blocked joining a task, as the common pool does. They only run
+     * while another worker is blocked, so the running workers stay within the budget.
+     */
+    static final int MAX_SPARES = 256;
+
+    private final int parallelism;
+
+    private final int outerThreads;
+
+    private final boolean parallelScoring;
+
+    /**
+     * Creates a policy.
+     * @param parallelism maximum number of workers the search may run at the same time.
+     * @param outerThreads number of threads, and subsets of edges, of each stage.
+     * @param parallelScoring whether the threads score their operators in parallel.
+     * @throws IllegalArgumentException if a value is less than 1, or the outer threads exceed the parallelism
+     * budget.
+     */
+    public ExecutionPolicy(int parallelism, int outerThreads, boolean parallelScoring) {
+        if (parallelism < 1 || outerThreads < 1)
+            throw new IllegalArgumentException("The parallelism and outer threads must be positive");
+        if (outerThreads > parallelism)
+            throw new IllegalArgumentException("The outer threads can't exceed the parallelism of " + parallelism);
+        this.parallelism = parallelism;
+        this.outerThreads = outerThreads;
+        this.parallelScoring = parallelScoring;
+    }
+
+    /**
+     * Creates a policy that runs one thread for each available worker, each of them scoring its operators
+     * sequentially.
+     * @param parallelism maximum number of workers the search may use.
+     * @return the policy.
+     */
+    public static ExecutionPolicy withParallelism(int parallelism) {
+        return new ExecutionPolicy(parallelism, parallelism, false);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getOuterThreads() {
+        return outerThreads;
+    }
+
+    /**
+     * Checks whether the threads score their operators in parallel.
+     * @return true if the scoring of each thread is split into tasks of the pool.
+     */
+    public boolean isParallelScoring() {
+        return parallelScoring;
+    }
+
+    /**
+     * Number of workers of the pool: the parallelism budget with parallel scoring, or the outer threads otherwise,
+     * since then no other task can use the rest.
+     * @return number of workers of the pool.
+     */
+    public int getPoolSize() {
+        return parallelScoring ? parallelism : outerThreads;
+    }
+
+    /**
+     * Creates the pool of the policy. It runs at most {@link #getPoolSize()} workers at the same time, and adds up to
+     * {@link #MAX_SPARES} spare workers to make up for the ones blocked joining a task of a nested parallel stream,
+     * so they can't starve the pool. It has to be shut down once the search finishes.
+     * @return a new pool.
+     */
+    public ForkJoinPool createPool() {
+        int size = getPoolSize();
+        return new ForkJoinPool(size, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false,
+                size, size + MAX_SPARES, 1, pool -> true, 60, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionPolicy{parallelism=" + parallelism + ", outerThreads=" + outerThreads
+                + ", parallelScoring=" + parallelScoring + "}";
+    }
+}
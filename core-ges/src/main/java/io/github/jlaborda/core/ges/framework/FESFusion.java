@@ -52,6 +52,7 @@ public class FESFusion extends FusionStage{
         
 
         FESThread fuse = new FESThread(this.problem,this.currentGraph,candidates,candidates.size(),false);
+        fuse.setContext(context);
 
         fuse.run();
         
@@ -60,7 +60,6 @@ public class FESStage extends ForwardStage{
         for(int i = 0 ; i< this.nThreads; i++){
             // Resetting the search flag
             this.gesThreads[i].resetFlag();
-            this.threads[i] = new Thread(this.gesThreads[i]);
         }
     }
 }
@@ -55,6 +55,7 @@ public class FHCFusion extends FusionStage{
 
         //FESThread fuse = new FESThread(this.problem,this.currentGraph,candidates,candidates.size());
         ForwardHillClimbingThread fuse = new ForwardHillClimbingThread(problem, this.currentGraph, candidates, candidates.size());
+        fuse.setContext(context);
 
         fuse.run();
 
@@ -43,7 +43,6 @@ public class FHCStage extends ForwardStage {
         for(int i = 0 ; i< this.nThreads; i++){
             // Resetting the search flag
             this.gesThreads[i].resetFlag();
-            this.threads[i] = new Thread(this.gesThreads[i]);
         }
     }
 
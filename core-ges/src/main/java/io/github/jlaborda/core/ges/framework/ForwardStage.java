@@ -2,7 +2,6 @@ package io.github.jlaborda.core.ges.framework;
 
 import edu.cmu.tetrad.graph.Edge;
 import edu.cmu.tetrad.graph.Graph;
-import io.github.jlaborda.core.ges.threads.GESThread;
 import io.github.jlaborda.core.common.utils.Problem;
 
 import java.util.List;
@@ -10,14 +9,6 @@ import java.util.Set;
 
 public abstract class ForwardStage extends ThreadStage{
 
-    private static long sumTimeThreads = 0;
-    private static long sumDeviationThreads = 0;
-    private static int n = 0;
-
-    public static double meanTimeTotal=0;
-    public static double varianceTimeTotal =0;
-
-
     public ForwardStage(Problem problem, int nThreads, int itInterleaving, List<Set<Edge>> subsets) {
         super(problem, nThreads, itInterleaving, subsets);
     }
@@ -28,19 +19,8 @@ public abstract class ForwardStage extends ThreadStage{
 
     @Override
     protected void calculateStatsTimeTotal() {
-        // Calculating mean
-        for(GESThread g: gesThreads){
-            n++;
-            sumTimeThreads += g.getElapsedTime();
-        }
-        meanTimeTotal = (double) sumTimeThreads / n;
-
-        // Calculating std
-        for(GESThread g: gesThreads){
-            sumDeviationThreads += Math.pow((g.getElapsedTime() - meanTimeTotal),2);
-        }
-        varianceTimeTotal = (double) sumDeviationThreads / n;
-        System.out.println("Forwards Time Stats: n=" + n + " sumTimeThreads=" + sumTimeThreads + " meanTimeTotal: " +
-                meanTimeTotal + " sumDeviationThreads=" + sumDeviationThreads + " varianceTimeTotal: " + varianceTimeTotal);
+        SearchContext.ThreadTimes times = context.getForwardTimes();
+        times.record(gesThreads);
+        System.out.println("Forwards Time Stats: " + times);
     }
 }
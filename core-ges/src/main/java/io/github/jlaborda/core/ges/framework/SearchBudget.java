@@ -0,0 +1,151 @@
+package io.github.jlaborda.core.ges.framework;
+
+import io.github.jlaborda.core.common.utils.Problem;
+
+/**
+ * Limits of a run of a {@link BNBuilder BNBuilder}: a wall-clock time limit, a maximum number of local scores
+ * computed, and a maximum number of parents of each node. A value of -1 leaves the corresponding limit unset.
+ * <p>
+ * The limits are honored cooperatively. Once the time or the score computations run out, the threads and the fusions
+ * stop before applying their next operator and the search returns the best graph found so far, so the limits can be
+ * exceeded by the operators being scored when they run out. The in-degree limit prunes the insertions that would
+ * give the head of the arc more parents than allowed, before they are scored. A search can also be cancelled, which
+ * stops it the same way.
+ */
+public class SearchBudget {
+
+    /**
+     * Budget without limits, used by default.
+     */
+    public static final SearchBudget UNLIMITED = new SearchBudget(-1, -1, -1);
+
+    private final long timeLimitMillis;
+
+    private final long maxScoreComputations;
+
+    private final int maxInDegree;
+
+    /**
+     * Creates a budget.
+     * @param timeLimitMillis wall-clock time the search may take, in milliseconds, or -1 for no limit.
+     * @param maxScoreComputations maximum number of local scores the search may compute, not counting the ones found
+     *                             in a cache, or -1 for no limit.
+     * @param maxInDegree maximum number of parents of each node, or -1 for no limit.
+     * @throws IllegalArgumentException if a limit is negative and not -1.
+     */
+    public SearchBudget(long timeLimitMillis, long maxScoreComputations, int maxInDegree) {
+        if (timeLimitMillis < -1 || maxScoreComputations < -1 || maxInDegree < -1)
+            throw new IllegalArgumentException("The limits of a budget must be non-negative, or -1 for no limit");
+        this.timeLimitMillis = timeLimitMillis;
+        this.maxScoreComputations = maxScoreComputations;
+        this.maxInDegree = maxInDegree;
+    }
+
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    public long getMaxScoreComputations() {
+        return maxScoreComputations;
+    }
+
+    public int getMaxInDegree() {
+        return maxInDegree;
+    }
+
+    /**
+     * Starts counting the budget of a run: the deadline is set from the current time and the score computations are
+     * counted from the current ones of the problem.
+     * @param problem problem whose score computations are counted.
+     * @return the budget of the run.
+     */
+    public Tracker start(Problem problem) {
+        return new Tracker(this, problem);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchBudget{timeLimitMillis=" + timeLimitMillis + ", maxScoreComputations=" + maxScoreComputations
+                + ", maxInDegree=" + maxInDegree + "}";
+    }
+
+    /**
+     * Budget of a running search, shared by its stages and threads. Once it runs out or the search is cancelled, it
+     * stays exhausted.
+     */
+    public static final class Tracker {
+
+        /**
+         * Tracker without limits, used by the threads and stages that run outside of a {@link BNBuilder BNBuilder}.
+         */
+        public static final Tracker UNLIMITED = SearchBudget.UNLIMITED.start(null);
+
+        private final SearchBudget budget;
+
+        private final Problem problem;
+
+        private final long deadlineNanos;
+
+        private final long scoreComputationsAtStart;
+
+        private volatile boolean exhausted = false;
+
+        private volatile boolean cancelled = false;
+
+        private Tracker(SearchBudget budget, Problem problem) {
+            this.budget = budget;
+            this.problem = problem;
+            this.deadlineNanos = System.nanoTime() + budget.timeLimitMillis * 1_000_000L;
+            this.scoreComputationsAtStart = (budget.maxScoreComputations == -1) ? 0
+                    : problem.getScoreMetrics().getScoreComputations();
+        }
+
+        public SearchBudget getBudget() {
+            return budget;
+        }
+
+        /**
+         * Checks whether the time or the score computations of the search have run out, or the search was cancelled.
+         * @return true if the search has to stop.
+         */
+        public boolean isExhausted() {
+            if (exhausted)
+                return true;
+            if (budget.timeLimitMillis != -1 && System.nanoTime() - deadlineNanos >= 0) {
+                exhausted = true;
+            } else if (budget.maxScoreComputations != -1 && problem.getScoreMetrics().getScoreComputations()
+                    - scoreComputationsAtStart >= budget.maxScoreComputations) {
+                exhausted = true;
+            }
+            return exhausted;
+        }
+
+        /**
+         * Cancels the search, so the budget is exhausted from now on. Only the budgets started by a search can be
+         * cancelled, never {@link #UNLIMITED}.
+         */
+        void cancel() {
+            if (this == UNLIMITED)
+                throw new IllegalStateException("The unlimited budget can't be cancelled");
+            cancelled = true;
+            exhausted = true;
+        }
+
+        /**
+         * Checks whether the search was cancelled, rather than running out of its budget.
+         * @return true if the search was cancelled.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Checks whether a node may have a number of parents.
+         * @param numParents number of parents of the node.
+         * @return true if the number of parents exceeds the in-degree limit.
+         */
+        public boolean exceedsInDegree(int numParents) {
+            return budget.maxInDegree != -1 && numParents > budget.maxInDegree;
+        }
+    }
+}
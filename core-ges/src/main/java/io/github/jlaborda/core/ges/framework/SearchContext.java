@@ -0,0 +1,142 @@
+package io.github.jlaborda.core.ges.framework;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.jlaborda.core.common.utils.Utils;
+import io.github.jlaborda.core.ges.threads.GESThread;
+
+/**
+ * State of a single run of a {@link BNBuilder BNBuilder}, shared by its stages, fusions and threads: the budget of the
+ * run, its random number generator, the times of its threads used to stop the slow ones, and the ids given to its
+ * threads. Each call to {@link BNBuilder#search()} creates a context of its own, so several searches can run at the
+ * same time in one JVM, even over the same pool, without sharing any mutable state.
+ */
+public final class SearchContext {
+
+    private final SearchBudget.Tracker budget;
+
+    private final Random random;
+
+    private final ThreadTimes forwardTimes = new ThreadTimes();
+
+    private final ThreadTimes backwardTimes = new ThreadTimes();
+
+    private final AtomicInteger threadIds = new AtomicInteger(1);
+
+    /**
+     * Creates the context of a run.
+     * @param budget budget of the run.
+     * @param random random number generator of the run.
+     */
+    public SearchContext(SearchBudget.Tracker budget, Random random) {
+        if (budget == null)
+            throw new NullPointerException("The budget must not be null");
+        if (random == null)
+            throw new NullPointerException("The random number generator must not be null");
+        this.budget = budget;
+        this.random = random;
+    }
+
+    /**
+     * Creates a context without limits for the stages and threads run outside of a {@link BNBuilder BNBuilder}. It
+     * has a random number generator of its own, seeded with {@link Utils#getSeed()}, so they keep following
+     * {@link Utils#setSeed(long)} without sharing the generator of the JVM, and a budget of its own, so that an
+     * interrupted stage can cancel it.
+     * @return a new context.
+     */
+    public static SearchContext standalone() {
+        return new SearchContext(SearchBudget.UNLIMITED.start(null), new Random(Utils.getSeed()));
+    }
+
+    public SearchBudget.Tracker getBudget() {
+        return budget;
+    }
+
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * Gets the times of the threads of the forward stages of the run.
+     * @return times of the forward threads.
+     */
+    public ThreadTimes getForwardTimes() {
+        return forwardTimes;
+    }
+
+    /**
+     * Gets the times of the threads of the backward stages of the run.
+     * @return times of the backward threads.
+     */
+    public ThreadTimes getBackwardTimes() {
+        return backwardTimes;
+    }
+
+    /**
+     * Cancels the run: its budget is exhausted from now on, so its threads stop before applying their next operator
+     * and the search returns the best graph found so far.
+     */
+    void cancel() {
+        budget.cancel();
+    }
+
+    /**
+     * Gets the id of a new thread of the run. Ids start at 1.
+     * @return id of the thread.
+     */
+    public int nextThreadId() {
+        return threadIds.getAndIncrement();
+    }
+
+    /**
+     * Mean and variance of the elapsed times of the threads of every stage of one direction run so far. A thread of
+     * that direction whose time is more than three standard deviations over the mean is stopped.
+     */
+    public static final class ThreadTimes {
+
+        private long sumTimeThreads = 0;
+        private long sumDeviationThreads = 0;
+        private int n = 0;
+
+        private volatile double meanTimeTotal = 0;
+        private volatile double varianceTimeTotal = 0;
+
+        /**
+         * Adds the elapsed times of the threads of a stage to the statistics.
+         * @param threads threads of the stage, already finished.
+         */
+        public synchronized void record(GESThread[] threads) {
+            // Calculating mean
+            for (GESThread g : threads) {
+                n++;
+                sumTimeThreads += g.getElapsedTime();
+            }
+            meanTimeTotal = (double) sumTimeThreads / n;
+
+            // Calculating std
+            for (GESThread g : threads) {
+                sumDeviationThreads += Math.pow((g.getElapsedTime() - meanTimeTotal), 2);
+            }
+            varianceTimeTotal = (double) sumDeviationThreads / n;
+        }
+
+        /**
+         * Gets the mean elapsed time of the threads.
+         * @return mean time in milliseconds, or 0 if no stage has been recorded.
+         */
+        public double getMeanTimeTotal() {
+            return meanTimeTotal;
+        }
+
+        public double getVarianceTimeTotal() {
+            return varianceTimeTotal;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "n=" + n + " sumTimeThreads=" + sumTimeThreads + " meanTimeTotal: " + meanTimeTotal
+                    + " sumDeviationThreads=" + sumDeviationThreads + " varianceTimeTotal: " + varianceTimeTotal;
+        }
+    }
+}
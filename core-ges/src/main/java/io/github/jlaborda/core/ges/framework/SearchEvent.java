@@ -0,0 +1,95 @@
+package io.github.jlaborda.core.ges.framework;
+
+import edu.cmu.tetrad.graph.Graph;
+
+/**
+ * Progress of a search of a {@link BNBuilder BNBuilder} after one of its stages or fusions, sent to its
+ * {@link SearchListener SearchListeners}.
+ */
+public final class SearchEvent {
+
+    /**
+     * Step of an iteration of the search.
+     */
+    public enum Phase {
+        FORWARD_STAGE,
+        FORWARD_FUSION,
+        BACKWARD_STAGE,
+        BACKWARD_FUSION
+    }
+
+    private final int iteration;
+    private final Phase phase;
+    private final Graph graph;
+    private final double score;
+    private final long phaseMillis;
+    private final long elapsedMillis;
+
+    public SearchEvent(int iteration, Phase phase, Graph graph, double score, long phaseMillis, long elapsedMillis) {
+        this.iteration = iteration;
+        this.phase = phase;
+        this.graph = graph;
+        this.score = score;
+        this.phaseMillis = phaseMillis;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Gets the iteration of the search the phase belongs to. Iterations start at 1.
+     * @return iteration of the search.
+     */
+    public int getIteration() {
+        return iteration;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Gets a copy of the current graph of the search once the phase finished. After a fusion, this is the result of
+     * the fusion.
+     * @return graph of the search, or null if the search has no graph yet.
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Gets the number of edges of the {@link #getGraph() graph} of the search.
+     * @return number of edges, or 0 if the search has no graph yet.
+     */
+    public int getNumEdges() {
+        return graph == null ? 0 : graph.getNumEdges();
+    }
+
+    /**
+     * Gets the BDeu score of the {@link #getGraph() graph} of the search.
+     * @return score of the graph, or negative infinity if the search has no graph yet.
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the wall-clock time the phase took.
+     * @return time in milliseconds.
+     */
+    public long getPhaseMillis() {
+        return phaseMillis;
+    }
+
+    /**
+     * Gets the wall-clock time since the search started.
+     * @return time in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchEvent{iteration=" + iteration + ", phase=" + phase + ", score=" + score + ", edges="
+                + getNumEdges() + ", phaseMillis=" + phaseMillis + ", elapsedMillis=" + elapsedMillis + "}";
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.jlaborda.core.ges.framework;
+
+/**
+ * Listener of the progress of the searches of a {@link BNBuilder BNBuilder}. It is called from the thread running the
+ * search once each stage and fusion finishes, so it should return quickly. An exception thrown by the listener ends
+ * the search with that exception.
+ */
+@FunctionalInterface
+public interface SearchListener {
+
+    /**
+     * Called when a stage or a fusion of the search finishes.
+     * @param event what the stage or fusion did.
+     */
+    void onEvent(SearchEvent event);
+}
@@ -0,0 +1,95 @@
+package io.github.jlaborda.core.ges.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+
+/**
+ * Runs many independent searches, as GES or PGES over different datasets, at the same time on a shared
+ * {@link ForkJoinPool ForkJoinPool}. Each search is a task of the pool, and the stages of the searches and the scoring
+ * of their operators are split into tasks of the same pool, so the workers left idle by one search steal the work of
+ * the others. Every search runs in a {@link SearchContext SearchContext} of its own, so the searches only share the
+ * workers.
+ * <p>
+ * The threads of a stage share the workers of the pool too, so a stage with more threads than the pool has workers
+ * searches some of its subsets after others. A search with an {@link ExecutionPolicy ExecutionPolicy} keeps running
+ * in the pool of its policy.
+ */
+public class SearchRunner implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+
+    private final StageExecutor executor;
+
+    /**
+     * Creates a runner with a pool of its own.
+     * @param parallelism number of workers of the pool.
+     * @throws IllegalArgumentException if parallelism is less than 1.
+     */
+    public SearchRunner(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("The parallelism must be positive");
+        this.pool = new ForkJoinPool(parallelism);
+        this.executor = new StageExecutor(pool);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Starts a search in the pool. The stages of the builder run in the pool from now on. Cancelling the returned
+     * future cancels the search, as in {@link BNBuilder#searchAsync(java.util.concurrent.Executor)}.
+     * @param builder algorithm to run. It must not search again until the future completes.
+     * @return future completed with the graph found by the search, or with the exception thrown by the search.
+     */
+    public CompletableFuture<Graph> submit(BNBuilder builder) {
+        if (builder == null)
+            throw new NullPointerException("The builder must not be null");
+        builder.setStageExecutor(executor);
+        return builder.searchAsync(pool);
+    }
+
+    /**
+     * Starts a search for each dataset. The builders are created in the calling thread, in order.
+     * @param datasets datasets to learn a network from.
+     * @param factory creates the algorithm that searches each dataset.
+     * @return future of each search, in the same order as the datasets.
+     */
+    public List<CompletableFuture<Graph>> submitAll(List<DataSet> datasets,
+                                                    Function<DataSet, ? extends BNBuilder> factory) {
+        if (datasets == null || factory == null)
+            throw new NullPointerException("The datasets and the factory must not be null");
+        List<CompletableFuture<Graph>> futures = new ArrayList<>(datasets.size());
+        for (DataSet dataSet : datasets) {
+            futures.add(submit(factory.apply(dataSet)));
+        }
+        return futures;
+    }
+
+    /**
+     * Waits until the searches submitted so far finish, after {@link #close()}.
+     * @param timeout maximum time to wait.
+     * @param unit unit of the timeout.
+     * @return true if every search finished, false if the timeout elapsed first.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Stops accepting searches. The searches already submitted keep running; the ones submitted afterwards complete
+     * exceptionally with a {@link java.util.concurrent.RejectedExecutionException RejectedExecutionException}.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
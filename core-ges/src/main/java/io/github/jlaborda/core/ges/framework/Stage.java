@@ -20,6 +20,11 @@ public abstract class Stage {
      */
     protected ArrayList<Dag> graphs = null;
 
+    /**
+     * Context of the search the stage is part of, shared with the threads the stage runs.
+     */
+    protected SearchContext context = SearchContext.standalone();
+
     public Stage(Problem problem){
         this.problem = problem;
         this.currentGraph = null;
@@ -41,4 +46,26 @@ public abstract class Stage {
     public Graph getCurrentGraph(){
         return currentGraph;
     }
+
+    /**
+     * Sets the context of the search the stage is part of.
+     * @param context context shared by the stages and threads of the search.
+     */
+    public void setContext(SearchContext context) {
+        if (context == null)
+            throw new NullPointerException("The context must not be null");
+        this.context = context;
+    }
+
+    public SearchContext getContext() {
+        return context;
+    }
+
+    /**
+     * Gets the budget of the search the stage is part of.
+     * @return budget of the context of the stage.
+     */
+    public SearchBudget.Tracker getBudget() {
+        return context.getBudget();
+    }
 }
@@ -0,0 +1,213 @@
+package io.github.jlaborda.core.ges.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the threads of a {@link ThreadStage ThreadStage} as tasks of a {@link ForkJoinPool ForkJoinPool} instead of
+ * starting a {@link Thread Thread} for each one. The parallel streams the threads use to score their candidates are
+ * split into tasks of the same pool, so the workers that finish their own subset steal the scoring work of the
+ * subsets that are still running, and a stage no longer waits idle for its slowest subset.
+ * Each task still computes the result of its own subset.
+ * <p>
+ * By default each stage runs in a {@link #perStage() pool of its own} with one worker for each of its threads, so
+ * every subset is searched at the same time as before. A shared pool, like the {@link #common() common} one, may have
+ * fewer workers than threads, and then some subsets wait for others to finish.
+ */
+public class StageExecutor {
+
+    private static final StageExecutor COMMON = new StageExecutor(ForkJoinPool.commonPool());
+
+    private static final StageExecutor PER_STAGE = new StageExecutor();
+
+    /**
+     * Pool of the executor, or null to create a pool for each call to {@link #invokeAll(Runnable[])}.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an executor that runs the stages in the given pool.
+     * @param pool pool whose workers run the threads of the stages and their scoring tasks.
+     */
+    public StageExecutor(ForkJoinPool pool) {
+        if (pool == null)
+            throw new NullPointerException("The pool must not be null");
+        this.pool = pool;
+    }
+
+    private StageExecutor() {
+        this.pool = null;
+    }
+
+    /**
+     * Gets the executor backed by the common {@link ForkJoinPool ForkJoinPool}.
+     * @return the shared executor.
+     */
+    public static StageExecutor common() {
+        return COMMON;
+    }
+
+    /**
+     * Gets the executor that runs the tasks of each call in a new pool with one worker for each task, used by
+     * default. The pool is shut down once the tasks finish.
+     * @return the per-stage executor.
+     */
+    public static StageExecutor perStage() {
+        return PER_STAGE;
+    }
+
+    /**
+     * Gets the pool of the executor.
+     * @return pool of the executor, or null if each call runs in a pool of its own.
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Runs every task in the pool and waits until all of them finish. If the caller is already a worker of the
+     * pool, it helps running the tasks instead of blocking.
+     * @param tasks tasks to run.
+     * @throws InterruptedException if the calling thread is interrupted while waiting. The tasks that haven't started
+     * are cancelled, but the running ones can't be interrupted and keep running.
+     * @throws RuntimeException if a task fails, with the failure of the first failed task, in order.
+     */
+    public void invokeAll(Runnable[] tasks) throws InterruptedException {
+        run(tasks, null);
+    }
+
+    /**
+     * Runs every task of a search in the pool and waits until all of them finish, as {@link #invokeAll(Runnable[])}.
+     * Since a running {@link ForkJoinTask ForkJoinTask} can't be interrupted, an interruption cancels the context of
+     * the search instead, whose threads stop before applying their next operator, and waits for the running tasks to
+     * stop before throwing.
+     * @param tasks tasks to run.
+     * @param context context of the search the tasks belong to.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     * @throws RuntimeException if a task fails, with the failure of the first failed task, in order.
+     */
+    public void invokeAll(Runnable[] tasks, SearchContext context) throws InterruptedException {
+        if (context == null)
+            throw new NullPointerException("The context must not be null");
+        run(tasks, context::cancel);
+    }
+
+    /**
+     * Runs the tasks, calling onInterrupt, if there is one, when the caller is interrupted while waiting.
+     */
+    private void run(Runnable[] tasks, Runnable onInterrupt) throws InterruptedException {
+        if (pool == null) {
+            ForkJoinPool stagePool = new ForkJoinPool(Math.max(1, tasks.length));
+            try {
+                new StageExecutor(stagePool).run(tasks, onInterrupt);
+            } finally {
+                stagePool.shutdown();
+            }
+            return;
+        }
+
+        List<StageTask> stageTasks = new ArrayList<>(tasks.length);
+        for (Runnable task : tasks) {
+            stageTasks.add(new StageTask(task));
+        }
+
+        if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(stageTasks);
+        } else {
+            for (StageTask task : stageTasks) {
+                pool.execute(task);
+            }
+            for (StageTask task : stageTasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    List<StageTask> running = new ArrayList<>();
+                    for (StageTask t : stageTasks) {
+                        if (!t.preventStart())
+                            running.add(t);
+                    }
+                    if (onInterrupt != null) {
+                        onInterrupt.run();
+                        // The running tasks finish once they see the cancelled budget
+                        running.forEach(StageTask::awaitFinished);
+                    }
+                    throw e;
+                }
+            }
+        }
+
+        for (StageTask task : stageTasks) {
+            if (task.failure instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            if (task.failure instanceof Error error)
+                throw error;
+        }
+    }
+
+    /**
+     * Task that keeps the failure of its runnable, since the exceptions rethrown by {@link ForkJoinTask ForkJoinTask}
+     * in another thread are copies of the original ones. It also tells whether its runnable started, since a
+     * cancelled {@link ForkJoinTask ForkJoinTask} is done even while its computation keeps running.
+     */
+    private static final class StageTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Runnable task;
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private final transient CountDownLatch finished = new CountDownLatch(1);
+
+        private Throwable failure;
+
+        StageTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        protected void compute() {
+            if (!claimed.compareAndSet(false, true))
+                return;
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        /**
+         * Cancels the task so that its runnable never starts, if it hasn't started yet.
+         * @return true if the runnable won't run, false if it is running or has finished.
+         */
+        boolean preventStart() {
+            boolean prevented = claimed.compareAndSet(false, true);
+            cancel(false);
+            return prevented;
+        }
+
+        /**
+         * Waits until the runnable finishes, ignoring interruptions.
+         */
+        void awaitFinished() {
+            while (true) {
+                try {
+                    finished.await();
+                    return;
+                } catch (InterruptedException e) {
+                    // Keeps waiting, the caller is already throwing an InterruptedException
+                }
+            }
+        }
+    }
+}
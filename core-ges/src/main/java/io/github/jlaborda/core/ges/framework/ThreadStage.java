@@ -20,9 +20,15 @@ public abstract class ThreadStage extends Stage{
     protected GESThread[] gesThreads;
 
     /**
-     * The {@link Thread Thread} array that encapsulate the {@link GESThread GESThread} for each stage.
+     * Executor that runs the {@link GESThread GESThreads} of the stage, by default in a pool with one worker for each
+     * of them.
      */
-    protected Thread[] threads;
+    protected StageExecutor executor = StageExecutor.perStage();
+
+    /**
+     * Whether the {@link GESThread GESThreads} of the stage score their operators in parallel.
+     */
+    protected boolean parallelScoring = true;
 
     protected boolean flag = false;
 
@@ -35,7 +41,6 @@ public abstract class ThreadStage extends Stage{
     public ThreadStage(Problem problem, int nThreads, int itInterleaving, List<Set<Edge>> subsets) {
         super(problem);
         this.nThreads = nThreads;
-        this.threads = new Thread[nThreads];
         this.gesThreads = new GESThread[nThreads];
         this.itInterleaving = itInterleaving;
         this.subsets = subsets;
@@ -45,7 +50,6 @@ public abstract class ThreadStage extends Stage{
         super(problem, currentGraph);
         this.currentGraph = currentGraph;
         this.nThreads = nThreads;
-        this.threads = new Thread[nThreads];
         this.gesThreads = new GESThread[nThreads];
         this.itInterleaving = itInterleaving;
         this.subsets = subsets;
@@ -56,16 +60,17 @@ public abstract class ThreadStage extends Stage{
      * @throws InterruptedException Exception caused by an external interruption.
      */
     protected void runThreads() throws InterruptedException {
-        // Starting the threads
-        for (Thread thread: this.threads) {
-            thread.start();
+        // Running the threads and waiting for all of them
+        for (GESThread thread : this.gesThreads) {
+            thread.setParallelScoring(parallelScoring);
+            thread.setContext(context);
         }
+        executor.invokeAll(this.gesThreads, context);
 
         // Getting results
         double score_threads = 0;
-        for(int i = 0 ; i< this.threads.length; i++){
-            // Joining threads and getting currentGraph
-            threads[i].join();
+        for(int i = 0 ; i< this.gesThreads.length; i++){
+            // Getting currentGraph
             Graph g = gesThreads[i].getCurrentGraph();
 
             // Thread Score
@@ -102,6 +107,32 @@ public abstract class ThreadStage extends Stage{
 
 
 
+    /**
+     * Sets the executor that runs the threads of the stage.
+     * @param executor executor of the stage.
+     */
+    public void setExecutor(StageExecutor executor) {
+        if (executor == null)
+            throw new NullPointerException("The executor must not be null");
+        this.executor = executor;
+    }
+
+    public StageExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets whether the threads of the stage score their operators in parallel.
+     * @param parallelScoring true to score the operators of each thread in parallel.
+     */
+    public void setParallelScoring(boolean parallelScoring) {
+        this.parallelScoring = parallelScoring;
+    }
+
+    public boolean isParallelScoring() {
+        return parallelScoring;
+    }
+
     public boolean checkWorkingStatus() throws InterruptedException {
         for (GESThread g: gesThreads) {
             if (g.getFlag() ){
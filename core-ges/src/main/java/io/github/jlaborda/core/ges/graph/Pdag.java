@@ -0,0 +1,559 @@
+package io.github.jlaborda.core.ges.graph;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Edges;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * Partially directed acyclic graph whose nodes are identified by their position in a list of variables. The parents,
+ * children and undirected neighbors of each node are kept in {@link BitSet BitSets}, so adjacency queries take
+ * constant time and set operations over neighborhoods work a word at a time.
+ * The search threads work on this representation and only convert from and to Tetrad {@link Graph Graphs} when they
+ * start and finish, which is where the stages exchange their graphs.
+ * Every modification increases the version of the PDAG. Results that depend on the whole graph, such as the nodes
+ * reachable by semi-directed paths, are cached with the version they were computed for, so they are reused until the
+ * graph changes.
+ * This class is not thread-safe: it can be read concurrently, but it must not be modified while being read.
+ */
+public class Pdag {
+
+    private final List<Node> nodes;
+
+    private final Map<Node, Integer> indices;
+
+    private final BitSet[] parents;
+
+    private final BitSet[] children;
+
+    private final BitSet[] neighbors;
+
+    /**
+     * Union of the parents, children and neighbors of each node.
+     */
+    private final BitSet[] adjacents;
+
+    private int numEdges;
+
+    private long version;
+
+    /**
+     * Nodes reachable from each node by semi-directed paths, with the version of the graph they were computed for.
+     */
+    private final AtomicReferenceArray<Reachability> reachability;
+
+    /**
+     * Creates an empty PDAG.
+     * @param nodes variables of the graph. The index of each node is its position in the list.
+     */
+    public Pdag(List<Node> nodes) {
+        this.nodes = List.copyOf(nodes);
+        this.indices = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            indices.put(nodes.get(i), i);
+        }
+        int n = nodes.size();
+        this.parents = new BitSet[n];
+        this.children = new BitSet[n];
+        this.neighbors = new BitSet[n];
+        this.adjacents = new BitSet[n];
+        for (int i = 0; i < n; i++) {
+            parents[i] = new BitSet(n);
+            children[i] = new BitSet(n);
+            neighbors[i] = new BitSet(n);
+            adjacents[i] = new BitSet(n);
+        }
+        this.reachability = new AtomicReferenceArray<>(n);
+    }
+
+    /**
+     * Creates a copy of another PDAG.
+     * @param other PDAG being copied.
+     */
+    public Pdag(Pdag other) {
+        this.nodes = other.nodes;
+        this.indices = other.indices;
+        int n = nodes.size();
+        this.parents = new BitSet[n];
+        this.children = new BitSet[n];
+        this.neighbors = new BitSet[n];
+        this.adjacents = new BitSet[n];
+        for (int i = 0; i < n; i++) {
+            parents[i] = (BitSet) other.parents[i].clone();
+            children[i] = (BitSet) other.children[i].clone();
+            neighbors[i] = (BitSet) other.neighbors[i].clone();
+            adjacents[i] = (BitSet) other.adjacents[i].clone();
+        }
+        this.numEdges = other.numEdges;
+        this.reachability = new AtomicReferenceArray<>(n);
+    }
+
+    /**
+     * Builds a PDAG with the directed and undirected edges of a Tetrad graph.
+     * @param nodes variables of the PDAG. Every node of the graph must be in the list.
+     * @param graph graph being converted.
+     * @return the PDAG with the edges of the graph.
+     * @throws IllegalArgumentException if the graph has a node that isn't in the list, or an edge that is neither
+     * directed nor undirected.
+     */
+    public static Pdag fromGraph(List<Node> nodes, Graph graph) {
+        Pdag pdag = new Pdag(nodes);
+        for (Edge edge : graph.getEdges()) {
+            int a = pdag.indexOf(edge.getNode1());
+            int b = pdag.indexOf(edge.getNode2());
+            if (Edges.isUndirectedEdge(edge)) {
+                pdag.addUndirectedEdge(a, b);
+            } else if (Edges.isDirectedEdge(edge)) {
+                pdag.addDirectedEdge(pdag.indexOf(Edges.getDirectedEdgeTail(edge)),
+                        pdag.indexOf(Edges.getDirectedEdgeHead(edge)));
+            } else {
+                throw new IllegalArgumentException("Edge is neither directed nor undirected: " + edge);
+            }
+        }
+        return pdag;
+    }
+
+    /**
+     * Creates a Tetrad graph with the nodes and edges of this PDAG.
+     * @return a new {@link EdgeListGraph EdgeListGraph}.
+     */
+    public Graph toGraph() {
+        Graph graph = new EdgeListGraph(nodes);
+        writeTo(graph);
+        return graph;
+    }
+
+    /**
+     * Replaces the edges of a Tetrad graph with the edges of this PDAG.
+     * @param graph graph whose edges are replaced. It must contain the nodes of this PDAG.
+     */
+    public void writeTo(Graph graph) {
+        graph.removeEdges(graph.getEdges());
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int j = children[i].nextSetBit(0); j >= 0; j = children[i].nextSetBit(j + 1)) {
+                graph.addDirectedEdge(nodes.get(i), nodes.get(j));
+            }
+            for (int j = neighbors[i].nextSetBit(i + 1); j >= 0; j = neighbors[i].nextSetBit(j + 1)) {
+                graph.addUndirectedEdge(nodes.get(i), nodes.get(j));
+            }
+        }
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    public int getNumNodes() {
+        return nodes.size();
+    }
+
+    public int getNumEdges() {
+        return numEdges;
+    }
+
+    /**
+     * Gets the version of the PDAG, which increases with every modification.
+     * @return current version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public Node getNode(int index) {
+        return nodes.get(index);
+    }
+
+    /**
+     * Gets the index of a node.
+     * @param node node of the PDAG.
+     * @return position of the node in the list of variables.
+     * @throws IllegalArgumentException if the node isn't in the PDAG.
+     */
+    public int indexOf(Node node) {
+        Integer index = indices.get(node);
+        if (index == null)
+            throw new IllegalArgumentException("Node " + node + " is not in the graph");
+        return index;
+    }
+
+    //==========================QUERIES==========================//
+
+    public boolean isAdjacent(int a, int b) {
+        return adjacents[a].get(b);
+    }
+
+    /**
+     * Checks whether there is a directed edge a -> b.
+     * @param a tail of the edge.
+     * @param b head of the edge.
+     * @return true if a is a parent of b.
+     */
+    public boolean isParent(int a, int b) {
+        return parents[b].get(a);
+    }
+
+    public boolean isUndirected(int a, int b) {
+        return neighbors[a].get(b);
+    }
+
+    /**
+     * Gets the parents of a node. The returned set is the one backing the PDAG, so it must not be modified.
+     * @param node index of the node.
+     * @return parents of the node.
+     */
+    public BitSet parentsOf(int node) {
+        return parents[node];
+    }
+
+    /**
+     * Gets the children of a node. The returned set is the one backing the PDAG, so it must not be modified.
+     * @param node index of the node.
+     * @return children of the node.
+     */
+    public BitSet childrenOf(int node) {
+        return children[node];
+    }
+
+    /**
+     * Gets the nodes joined to a node by an undirected edge. The returned set is the one backing the PDAG, so it
+     * must not be modified.
+     * @param node index of the node.
+     * @return undirected neighbors of the node.
+     */
+    public BitSet neighborsOf(int node) {
+        return neighbors[node];
+    }
+
+    /**
+     * Gets every node adjacent to a node.
+     * @param node index of the node.
+     * @return a new set with the parents, children and neighbors of the node.
+     */
+    public BitSet adjacentsOf(int node) {
+        return (BitSet) adjacents[node].clone();
+    }
+
+    /**
+     * Gets the neighbors of y that are adjacent to x, that is, NA_{Y,X} in Chickering (2002).
+     * @param x index of x.
+     * @param y index of y.
+     * @return a new set with the nodes joined to y by an undirected edge and adjacent to x.
+     */
+    public BitSet naYX(int x, int y) {
+        BitSet naYX = (BitSet) neighbors[y].clone();
+        naYX.and(adjacents[x]);
+        return naYX;
+    }
+
+    /**
+     * Gets the neighbors of y that are not adjacent to x, which are the candidates of the T set of Insert(x, y, T).
+     * @param x index of x.
+     * @param y index of y.
+     * @return a new set with the nodes joined to y by an undirected edge and not adjacent to x.
+     */
+    public BitSet neighborsNotAdjacentTo(int x, int y) {
+        BitSet result = (BitSet) neighbors[y].clone();
+        result.andNot(adjacents[x]);
+        result.clear(x);
+        return result;
+    }
+
+    /**
+     * Checks whether every pair of nodes of a set is adjacent. Each node is checked against the whole set at once,
+     * comparing its adjacents with the set a word at a time.
+     * @param set indices of the nodes.
+     * @return true if the set is a clique.
+     */
+    public boolean isClique(BitSet set) {
+        BitSet missing = new BitSet(nodes.size());
+        for (int a = set.nextSetBit(0); a >= 0; a = set.nextSetBit(a + 1)) {
+            missing.clear();
+            missing.or(set);
+            missing.andNot(adjacents[a]);
+            missing.clear(a);
+            if (!missing.isEmpty())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether every semi-directed path from y to x goes through a node of a set. A semi-directed path only
+     * follows directed edges forwards and undirected edges.
+     * The nodes reachable from y are cached for the current version of the graph, so most checks from the same y
+     * are answered without a search: if x isn't reachable there is no path to block, and if no blocked node is
+     * reachable no path is blocked. Otherwise, a breadth-first search that skips the blocked nodes is run.
+     * @param x index of the end of the paths.
+     * @param y index of the start of the paths.
+     * @param blocked nodes that block a path.
+     * @return true if no semi-directed path from y reaches x without going through a blocked node.
+     */
+    public boolean isSemiDirectedBlocked(int x, int y, BitSet blocked) {
+        if (blocked.get(y))
+            return true;
+        if (x == y)
+            return false;
+        BitSet reachable = semiDirectedReachable(y);
+        if (!reachable.get(x))
+            return true;
+        if (!reachable.intersects(blocked))
+            return false;
+        return !reaches(y, x, blocked);
+    }
+
+    /**
+     * Gets the nodes reachable from a node by semi-directed paths, including the node itself. The result is cached
+     * until the graph changes.
+     * @param y index of the start of the paths.
+     * @return the reachable nodes. The returned set is shared, so it must not be modified.
+     */
+    public BitSet semiDirectedReachable(int y) {
+        Reachability cached = reachability.get(y);
+        long current = version;
+        if (cached != null && cached.version == current)
+            return cached.nodes;
+        BitSet visited = new BitSet(nodes.size());
+        visited.set(y);
+        expand(y, -1, visited);
+        reachability.set(y, new Reachability(current, visited));
+        return visited;
+    }
+
+    /**
+     * Checks whether x can be reached from y by a semi-directed path that avoids the blocked nodes.
+     */
+    private boolean reaches(int y, int x, BitSet blocked) {
+        BitSet visited = (BitSet) blocked.clone();
+        visited.set(y);
+        return expand(y, x, visited);
+    }
+
+    /**
+     * Breadth-first expansion of the semi-directed paths from a node, a level at a time. Every node of the frontier
+     * adds its children and neighbors to the next level with a word-parallel union.
+     * @param start index of the start of the paths.
+     * @param target index of the node that stops the search, or -1 to expand every reachable node.
+     * @param visited nodes that are not expanded. The reached nodes are added to it.
+     * @return true if the target was reached.
+     */
+    private boolean expand(int start, int target, BitSet visited) {
+        BitSet frontier = new BitSet(nodes.size());
+        frontier.set(start);
+        BitSet next = new BitSet(nodes.size());
+        while (!frontier.isEmpty()) {
+            next.clear();
+            for (int a = frontier.nextSetBit(0); a >= 0; a = frontier.nextSetBit(a + 1)) {
+                next.or(children[a]);
+                next.or(neighbors[a]);
+            }
+            next.andNot(visited);
+            if (target >= 0 && next.get(target))
+                return true;
+            visited.or(next);
+            BitSet swap = frontier;
+            frontier = next;
+            next = swap;
+        }
+        return false;
+    }
+
+    //==========================MODIFICATIONS==========================//
+
+    /**
+     * Adds the directed edge a -> b, replacing any edge between both nodes.
+     * @param a tail of the edge.
+     * @param b head of the edge.
+     */
+    public void addDirectedEdge(int a, int b) {
+        removeEdge(a, b);
+        children[a].set(b);
+        parents[b].set(a);
+        adjacents[a].set(b);
+        adjacents[b].set(a);
+        numEdges++;
+        version++;
+    }
+
+    /**
+     * Adds the undirected edge a -- b, replacing any edge between both nodes.
+     * @param a one end of the edge.
+     * @param b the other end of the edge.
+     */
+    public void addUndirectedEdge(int a, int b) {
+        removeEdge(a, b);
+        neighbors[a].set(b);
+        neighbors[b].set(a);
+        adjacents[a].set(b);
+        adjacents[b].set(a);
+        numEdges++;
+        version++;
+    }
+
+    /**
+     * Removes the edge between two nodes, if any.
+     * @param a one end of the edge.
+     * @param b the other end of the edge.
+     */
+    public void removeEdge(int a, int b) {
+        if (!isAdjacent(a, b))
+            return;
+        parents[a].clear(b);
+        parents[b].clear(a);
+        children[a].clear(b);
+        children[b].clear(a);
+        neighbors[a].clear(b);
+        neighbors[b].clear(a);
+        adjacents[a].clear(b);
+        adjacents[b].clear(a);
+        numEdges--;
+        version++;
+    }
+
+    /**
+     * Applies the Insert(x, y, T) operator of Chickering (2002): adds x -> y and directs every t -- y as t -> y.
+     * @param x tail of the inserted edge.
+     * @param y head of the inserted edge.
+     * @param t nodes whose edges to y are directed towards y.
+     */
+    public void insert(int x, int y, BitSet t) {
+        addDirectedEdge(x, y);
+        for (int node = t.nextSetBit(0); node >= 0; node = t.nextSetBit(node + 1)) {
+            addDirectedEdge(node, y);
+        }
+    }
+
+    /**
+     * Applies the Delete(x, y, H) operator of Chickering (2002): removes the edge between x and y, directs every
+     * y -- h as y -> h and every undirected x -- h as x -> h.
+     * @param x one end of the deleted edge.
+     * @param y the other end of the deleted edge.
+     * @param h nodes whose edges from x and y are directed away from them.
+     */
+    public void delete(int x, int y, BitSet h) {
+        removeEdge(x, y);
+        for (int node = h.nextSetBit(0); node >= 0; node = h.nextSetBit(node + 1)) {
+            if (!isParent(node, x) && !isParent(x, node)) {
+                addDirectedEdge(x, node);
+            }
+            addDirectedEdge(y, node);
+        }
+    }
+
+    /**
+     * Turns the PDAG into the completed pattern of its equivalence class. Every directed edge that isn't part of an
+     * unshielded collider is made undirected, and then the edges implied by Meek's rules R1, R2 and R3 are directed
+     * until no rule applies. R4 is not needed because there is no background knowledge.
+     */
+    public void rebuildPattern() {
+        basicCpdag();
+        orientImplied();
+    }
+
+    /**
+     * Makes undirected every directed edge x -> y such that every other parent of y is adjacent to x.
+     */
+    private void basicCpdag() {
+        int n = nodes.size();
+        boolean[][] undirect = new boolean[n][];
+        for (int y = 0; y < n; y++) {
+            for (int x = parents[y].nextSetBit(0); x >= 0; x = parents[y].nextSetBit(x + 1)) {
+                BitSet others = (BitSet) parents[y].clone();
+                others.clear(x);
+                others.andNot(adjacents[x]);
+                if (others.isEmpty()) {
+                    if (undirect[y] == null)
+                        undirect[y] = new boolean[n];
+                    undirect[y][x] = true;
+                }
+            }
+        }
+        for (int y = 0; y < n; y++) {
+            if (undirect[y] == null)
+                continue;
+            for (int x = 0; x < n; x++) {
+                if (undirect[y][x])
+                    addUndirectedEdge(x, y);
+            }
+        }
+    }
+
+    private void orientImplied() {
+        int n = nodes.size();
+        boolean oriented = true;
+        while (oriented) {
+            oriented = false;
+            for (int a = 0; a < n; a++) {
+                for (int b = neighbors[a].nextSetBit(0); b >= 0; b = neighbors[a].nextSetBit(b + 1)) {
+                    if (impliesDirection(a, b)) {
+                        addDirectedEdge(a, b);
+                        oriented = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether Meek's rules direct the undirected edge a -- b as a -> b.
+     */
+    private boolean impliesDirection(int a, int b) {
+        // R1: c -> a -- b, with c and b not adjacent
+        BitSet r1 = (BitSet) parents[a].clone();
+        r1.andNot(adjacents[b]);
+        r1.clear(b);
+        if (!r1.isEmpty())
+            return true;
+
+        // R2: a -> c -> b
+        if (children[a].intersects(parents[b]))
+            return true;
+
+        // R3: a -- c -> b and a -- d -> b, with c and d not adjacent
+        BitSet r3 = (BitSet) neighbors[a].clone();
+        r3.and(parents[b]);
+        for (int c = r3.nextSetBit(0); c >= 0; c = r3.nextSetBit(c + 1)) {
+            BitSet others = (BitSet) r3.clone();
+            others.clear(c);
+            others.andNot(adjacents[c]);
+            if (!others.isEmpty())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the nodes whose parents, children or neighbors differ from those in another PDAG over the same nodes.
+     * @param other PDAG being compared.
+     * @return indices of the nodes with a different neighborhood.
+     */
+    public BitSet changedNodes(Pdag other) {
+        BitSet changed = new BitSet(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            if (!parents[i].equals(other.parents[i]) || !children[i].equals(other.children[i])
+                    || !neighbors[i].equals(other.neighbors[i])) {
+                changed.set(i);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Nodes reachable from a node, computed for a version of the graph.
+     */
+    private static final class Reachability {
+        private final long version;
+        private final BitSet nodes;
+
+        private Reachability(long version, BitSet nodes) {
+            this.version = version;
+            this.nodes = nodes;
+        }
+    }
+}
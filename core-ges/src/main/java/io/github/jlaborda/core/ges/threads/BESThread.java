@@ -2,25 +2,30 @@ package io.github.jlaborda.core.ges.threads;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import edu.cmu.tetrad.graph.Edge;
 import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Edges;
 import edu.cmu.tetrad.graph.Graph;
-import edu.cmu.tetrad.graph.Node;
-import es.uclm.i3a.simd.consensusBN.PowerSet;
 import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.ges.graph.Pdag;
 import static io.github.jlaborda.core.common.utils.Utils.pdagToDag;
 
 @SuppressWarnings("DuplicatedCode")
 public class BESThread extends GESThread {
 
 
-    private static int threadCounter = 1;
+    /**
+     * Best deletion operator of each edge of the graph, used in incremental mode. The score of each operator is the
+     * change of the score of the graph, not the resulting score.
+     */
+    private OperatorQueue operators;
 
     /**
      * Constructor of ThFES with an initial DAG
@@ -38,8 +43,6 @@ public class BESThread extends GESThread {
         // Setting structure prior and sample prior
         setStructurePrior(0.001);
         setSamplePrior(10.0);
-        this.id = threadCounter;
-        threadCounter++;
         this.isForwards = false;
     }
 
@@ -58,10 +61,8 @@ public class BESThread extends GESThread {
      * @return PDAG that contains either the result of the BES or FES method.
      */
     private Graph search() {
-        if (!S.isEmpty()) {
+        if (!S.isEmpty() && !budget.isExhausted()) {
             startTime = System.currentTimeMillis();
-            numTotalCalls=0;
-            numNonCachedCalls=0;
             //localScoreCache.clear();
 
             Graph graph = new EdgeListGraph(this.initialDag);
@@ -112,11 +113,15 @@ public class BESThread extends GESThread {
         y_d = null;
         h_0 = null;
 
+        if (incremental) {
+            return besIncremental(graph, score);
+        }
+
         //System.out.println("Initial Score = " + nf.format(bestScore));
         // Calling fs to calculate best edge to add.
         bestDelete = bs(graph,bestScore);
 
-        while(x_d != null){
+        while(x_d != null && !budget.isExhausted()){
             // Changing best score because x_d, and y_d are not null
             // bestScore = bestDelete; // Removed: The assigned value is never used
 
@@ -163,7 +168,7 @@ public class BESThread extends GESThread {
      * @param initialScore score the current graph has.
      * @return score of the best possible deletion found.
      */
-    private double bs(Graph graph, double initialScore){
+    protected double bs(Graph graph, double initialScore){
         //   	System.out.println("\n** BACKWARD ELIMINATION SEARCH");
         //   	System.out.println("Initial Score = " + nf.format(initialScore));
 
@@ -175,10 +180,13 @@ public class BESThread extends GESThread {
         Set<Edge> edgesInGraph = graph.getEdges();
         EdgeSearch[] edgeSearchResults = new EdgeSearch[edgesInGraph.size()];
         List<Edge> edges = new ArrayList<>(edgesInGraph);
+        Pdag pdag = Pdag.fromGraph(getVariables(), graph);
         
-        Arrays.parallelSetAll(edgeSearchResults, e->{
-            return scoreEdge(graph, edges.get(e), initialScore);
-        });
+        if (parallelScoring) {
+            Arrays.parallelSetAll(edgeSearchResults, e -> scoreEdge(pdag, edges.get(e), initialScore));
+        } else {
+            Arrays.setAll(edgeSearchResults, e -> scoreEdge(pdag, edges.get(e), initialScore));
+        }
         
         EdgeSearch max = Collections.max(Arrays.asList(edgeSearchResults));
 
@@ -191,38 +199,170 @@ public class BESThread extends GESThread {
         return max.score;
     }
     
-    private EdgeSearch scoreEdge(Graph graph, Edge edge, double initialScore) {
+    /**
+     * Backward equivalence search of the incremental mode. The search works on a {@link Pdag Pdag} copy of the graph,
+     * keeps the best deletion of each edge in an {@link OperatorQueue OperatorQueue} and, after each deletion, only
+     * scores again the deletions it affects.
+     *
+     * @param graph The graph in the state prior to the backward equivalence search. It is changed to its state after
+     *              the search.
+     * @param score The score in the state prior to the backward equivalence search
+     * @return the score in the state after the BES method.
+     */
+    private double besIncremental(Graph graph, double score) {
+        double bestScore = score;
+
+        Pdag pdag = Pdag.fromGraph(getVariables(), graph);
+        operators = new OperatorQueue();
+        BitSet all = new BitSet(pdag.getNumNodes());
+        all.set(0, pdag.getNumNodes());
+        rescore(pdag, all);
+        double bestDelete = selectOperator(bestScore);
+
+        while (x_d != null && !budget.isExhausted()) {
+            Pdag before = new Pdag(pdag);
+            int x = pdag.indexOf(x_d);
+            int y = pdag.indexOf(y_d);
+            pdag.delete(x, y, toIndices(h_0, pdag));
+            pdag.rebuildPattern();
+            updateOperators(pdag, before, x, y);
+
+            bestScore = bestDelete;
+
+            // Checking that the maximum number of edges has not been reached
+            if (getMaxNumEdges() != -1 && pdag.getNumEdges() > getMaxNumEdges()) {
+                break;
+            }
+
+            bestDelete = selectOperator(bestScore);
+
+            // Indicating that the thread has deleted an edge to the graph
+            this.flag = true;
+        }
+        pdag.writeTo(graph);
+        return bestScore;
+    }
+
+    /**
+     * Scores the deletion of every arc of S that is a directed edge into one of the given nodes.
+     * @param pdag current graph of the thread.
+     * @param heads indices of the heads of the edges.
+     */
+    private void rescore(Pdag pdag, BitSet heads) {
+        List<Edge> edges = new ArrayList<>();
+        for (int y = heads.nextSetBit(0); y >= 0; y = heads.nextSetBit(y + 1)) {
+            BitSet parents = pdag.parentsOf(y);
+            for (int x = parents.nextSetBit(0); x >= 0; x = parents.nextSetBit(x + 1)) {
+                Edge edge = Edges.directedEdge(pdag.getNode(x), pdag.getNode(y));
+                if (S.contains(edge)) {
+                    edges.add(edge);
+                }
+            }
+        }
+        List<EdgeSearch> newOperators = scoringStream(edges)
+                .map(e -> scoreEdge(pdag, e))
+                .collect(Collectors.toList());
+        newOperators.forEach(operators::update);
+    }
+
+    /**
+     * Re-scores the operators affected by the last deletion. The score of Delete(x, y, H) depends on the parents and
+     * neighbors of y and on the adjacents of x, and its clique test on the adjacencies among the neighbors of y. A
+     * deletion, together with the orientations it implies, only changes the parents and neighbors of the nodes whose
+     * edges changed, the adjacents of x and y, and the adjacency between them.
+     * @param pdag graph after the deletion.
+     * @param before graph before the deletion.
+     * @param x index of the tail of the deleted edge.
+     * @param y index of the head of the deleted edge.
+     */
+    private void updateOperators(Pdag pdag, Pdag before, int x, int y) {
+        BitSet changed = pdag.changedNodes(before);
+        changed.set(x);
+        changed.set(y);
+        // Common adjacents of x and y may now have a clique among their neighbors
+        BitSet common = pdag.adjacentsOf(x);
+        common.and(pdag.adjacentsOf(y));
+        changed.or(common);
+
+        // Edges from and into the changed nodes, in any direction, are dropped and the current ones scored again
+        BitSet heads = (BitSet) changed.clone();
+        for (int node = changed.nextSetBit(0); node >= 0; node = changed.nextSetBit(node + 1)) {
+            removeOperators(before, node);
+            heads.or(pdag.childrenOf(node));
+        }
+        rescore(pdag, heads);
+    }
+
+    private void removeOperators(Pdag pdag, int node) {
+        BitSet parents = pdag.parentsOf(node);
+        for (int p = parents.nextSetBit(0); p >= 0; p = parents.nextSetBit(p + 1)) {
+            operators.remove(Edges.directedEdge(pdag.getNode(p), pdag.getNode(node)));
+        }
+        BitSet children = pdag.childrenOf(node);
+        for (int c = children.nextSetBit(0); c >= 0; c = children.nextSetBit(c + 1)) {
+            operators.remove(Edges.directedEdge(pdag.getNode(node), pdag.getNode(c)));
+        }
+    }
+
+    /**
+     * Selects the best deletion of the incremental mode from the operator queue.
+     * @param initialScore score the current graph has.
+     * @return score of the graph after the best deletion, or initialScore if no deletion improves it.
+     */
+    private double selectOperator(double initialScore) {
+        x_d = y_d = null;
+        h_0 = null;
+
+        EdgeSearch max = operators.peek();
+        if (max == null) {
+            return initialScore;
+        }
+        x_d = Edges.getDirectedEdgeTail(max.edge);
+        y_d = Edges.getDirectedEdgeHead(max.edge);
+        h_0 = max.hSubset;
+        return initialScore + max.score;
+    }
+
+    /**
+     * Scores the best Delete(x, y, H) operator of a directed edge over a {@link Pdag Pdag}, trying the subsets H of
+     * NA_{Y,X}, the neighbors of y adjacent to x, with a {@link DeleteLattice DeleteLattice}, as in Definition 13 of
+     * Chickering (2002).
+     * @param pdag current graph of the thread.
+     * @param edge directed edge x -> y of the graph.
+     * @return the operator with the change of the score of the graph, or with score 0 if no deletion improves it.
+     */
+    private EdgeSearch scoreEdge(Pdag pdag, Edge edge) {
+        int x = pdag.indexOf(Edges.getDirectedEdgeTail(edge));
+        int y = pdag.indexOf(Edges.getDirectedEdgeHead(edge));
+
+        DeleteLattice.Best best = DeleteLattice.search(pdag, problem, x, y, pdag.naYX(x, y),
+                parallelScoring);
+        if (best.score > 0) {
+            return new EdgeSearch(best.score, toNodes(best.h, pdag), edge);
+        }
+        return new EdgeSearch(0, new HashSet<>(), edge);
+    }
+
+    /**
+     * Scores the best Delete(x, y, H) operator of an edge of the graph, as {@link #scoreEdge(Pdag, Edge)} does.
+     * @param pdag copy of the current graph of the thread.
+     * @param edge edge of the graph.
+     * @param initialScore score the current graph has.
+     * @return the operator with the score of the graph after the deletion, or with initialScore if no deletion
+     * improves it.
+     */
+    private EdgeSearch scoreEdge(Pdag pdag, Edge edge, double initialScore) {
         // Checking if the edge is actually inside the graph
         if(S.contains(edge)) {
-            Node _x = Edges.getDirectedEdgeTail(edge);
-            Node _y = Edges.getDirectedEdgeHead(edge);
+            int x = pdag.indexOf(Edges.getDirectedEdgeTail(edge));
+            int y = pdag.indexOf(Edges.getDirectedEdgeHead(edge));
 
-            List<Node> hNeighbors = getSubsetOfNeighbors(_x, _y, graph);
-            PowerSet hSubsets = new PowerSet(hNeighbors);//PowerSetFabric.getPowerSet(_x, _y, hNeighbors);
-            
-            double changueEval;
-            double evalScore;
-            double bestScore = initialScore; 
-            Set<Node> bestSubSet = new HashSet<>();
-            
-            while(hSubsets.hasMoreElements()) {
-                Set<Node> hSubset = hSubsets.nextElement();
-                changueEval = deleteEval(_x, _y, hSubset, graph);
-                
-                evalScore = initialScore + changueEval;
-
-                if (evalScore > bestScore) {
-                    // START TEST 1
-                    List<Node> naYXH = findNaYX(_x, _y, graph);
-                    naYXH.removeAll(hSubset);
-                    if (isClique(naYXH, graph)) {
-                        // END TEST 1
-                        bestScore = evalScore;
-                        bestSubSet = hSubset;
-                    }
-                }
+            DeleteLattice.Best best = DeleteLattice.search(pdag, problem, x, y, pdag.naYX(x, y),
+                    parallelScoring);
+            double evalScore = initialScore + best.score;
+            if (evalScore > initialScore) {
+                return new EdgeSearch(evalScore, toNodes(best.h, pdag), edge);
             }
-            return new EdgeSearch(bestScore, bestSubSet, edge);
         }
         return new EdgeSearch(initialScore, new HashSet<>(), edge);
     }
@@ -6,8 +6,6 @@ import io.github.jlaborda.core.common.utils.Problem;
 import java.util.*;
 
 public class BackwardsHillClimbingThread extends GESThread {
-    private static int threadCounter = 1;
-
 
     /**
      * Constructor of ThFES with an initial DAG
@@ -21,8 +19,6 @@ public class BackwardsHillClimbingThread extends GESThread {
         setInitialGraph(initialDag);
         setSubSetSearch(subset);
         setMaxIt(maxIt);
-        this.id = threadCounter;
-        threadCounter++;
     }
 
     /**
@@ -36,8 +32,6 @@ public class BackwardsHillClimbingThread extends GESThread {
         this.initialDag = new EdgeListGraph(new LinkedList<>(getVariables()));
         setSubSetSearch(subset);
         setMaxIt(maxIt);
-        this.id = threadCounter;
-        threadCounter++;
         this.isForwards = false;
     }
 
@@ -61,8 +55,6 @@ public class BackwardsHillClimbingThread extends GESThread {
 
     private Graph search() {
         startTime = System.currentTimeMillis();
-        numTotalCalls = 0;
-        numNonCachedCalls = 0;
 
 
         Graph graph = new EdgeListGraph(this.initialDag);
@@ -0,0 +1,354 @@
+package io.github.jlaborda.core.ges.threads;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.ges.graph.Pdag;
+
+/**
+ * Search of the best Delete(x, y, H) operator of an edge over the lattice of the subsets H of its candidate nodes,
+ * which the {@link BESThread} takes from NA_{Y,X}. Each subset is a bitmask over the candidates, and everything the
+ * operator depends on is computed once per edge: NA_{Y,X}, the parents of y and the adjacencies among the nodes of
+ * NA_{Y,X}.
+ * <p>
+ * Only the candidates in NA_{Y,X} change the family of y and the clique test of NA_{Y,X} \ H, so the lattice is
+ * enumerated over them alone: any other candidate leads to the same operator as the subset without it, which is
+ * enumerated first. The clique test is turned into constraints on the mask before any subset is scored. A node of
+ * NA_{Y,X} that isn't a candidate always stays in NA_{Y,X} \ H, so a candidate not adjacent to it must be in H, and
+ * of two candidates that aren't adjacent at least one must be in H. If two such fixed nodes aren't adjacent, no
+ * subset passes and nothing is scored. The subsets that fail the constraints are skipped without being scored, and
+ * the rest are scored in batches with {@link Problem#evaluateDeltas(int, int[][], int[])}, split across the common
+ * pool when there are many of them.
+ * <p>
+ * The subsets are kept in long masks while there are at most {@link #MAX_MASK_NODES} candidates in NA_{Y,X}. An edge
+ * with more of them keeps its subsets in {@link BitSet BitSets} instead, which is slower but enumerates the same
+ * subsets in the same order.
+ */
+final class DeleteLattice {
+
+    /**
+     * Minimum number of subsets of an edge before its lattice is split across several tasks.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 8;
+
+    /**
+     * Number of subsets enumerated and scored together, and of each task when the lattice is split.
+     */
+    static final int CHUNK_SIZE = 1 << 6;
+
+    /**
+     * Largest number of candidates whose subsets are kept in long masks.
+     */
+    static final int MAX_MASK_NODES = Long.SIZE - 1;
+
+    /**
+     * Largest number of free candidates whose subsets can be enumerated with a long index.
+     */
+    static final int MAX_FREE_NODES = Long.SIZE - 2;
+
+    /**
+     * Best subset of an edge.
+     */
+    static final class Best {
+
+        /**
+         * Change of the score of the graph after the deletion, or negative infinity if no subset passes the clique
+         * test.
+         */
+        final double score;
+
+        /**
+         * Indices of the nodes of H.
+         */
+        final BitSet h;
+
+        /**
+         * Position of the subset in the enumeration, used to break ties the way a sequential search does.
+         */
+        private final long order;
+
+        private Best(double score, BitSet h, long order) {
+            this.score = score;
+            this.h = h;
+            this.order = order;
+        }
+
+        private boolean isBetterThan(Best other) {
+            return score > other.score || (score == other.score && order < other.order);
+        }
+    }
+
+    private static final Best NONE = new Best(Double.NEGATIVE_INFINITY, new BitSet(), Long.MAX_VALUE);
+
+    private final Problem problem;
+    private final int x;
+    private final int y;
+
+    /**
+     * Candidates of NA_{Y,X}, one per bit of the masks.
+     */
+    private final int[] nodes;
+
+    /**
+     * Parents of y that don't depend on H: its parents and the nodes of NA_{Y,X} that aren't candidates, without x.
+     */
+    private final BitSet base;
+
+    /**
+     * Whether the subsets are kept in BitSets because there are too many candidates for a long mask.
+     */
+    private final boolean wide;
+
+    /**
+     * Positions of the candidates every passing subset has.
+     */
+    private final BitSet requiredPositions;
+
+    /**
+     * Positions of the candidates that are free once the required ones are set, in increasing order.
+     */
+    private final int[] freePositions;
+
+    /**
+     * Pairs of positions of non-adjacent candidates, of which every passing subset has at least one.
+     */
+    private final int[][] pairPositions;
+
+    /**
+     * Bits every passing mask has, if the subsets are kept in masks.
+     */
+    private final long required;
+
+    /**
+     * Bits that are free once the required ones are set, if the subsets are kept in masks.
+     */
+    private final long free;
+
+    /**
+     * Pairs of non-adjacent candidates as masks, if the subsets are kept in masks.
+     */
+    private final long[] pairs;
+
+    /**
+     * Whether some pair of nodes of NA_{Y,X} that are never in H aren't adjacent.
+     */
+    private final boolean empty;
+
+    private DeleteLattice(Pdag pdag, Problem problem, int x, int y, BitSet candidates) {
+        this.problem = problem;
+        this.x = x;
+        this.y = y;
+
+        BitSet naYX = pdag.naYX(x, y);
+        BitSet inNaYX = (BitSet) candidates.clone();
+        inNaYX.and(naYX);
+        nodes = inNaYX.stream().toArray();
+
+        BitSet fixed = (BitSet) naYX.clone();
+        fixed.andNot(inNaYX);
+        base = (BitSet) fixed.clone();
+        base.or(pdag.parentsOf(y));
+        base.clear(x);
+
+        empty = !pdag.isClique(fixed);
+        requiredPositions = new BitSet(nodes.length);
+        List<int[]> pairList = new ArrayList<>();
+        for (int i = 0; i < nodes.length; i++) {
+            BitSet adjacents = pdag.adjacentsOf(nodes[i]);
+            if (!isSubset(fixed, adjacents)) {
+                requiredPositions.set(i);
+            }
+            for (int j = i + 1; j < nodes.length; j++) {
+                if (!adjacents.get(nodes[j])) {
+                    pairList.add(new int[]{i, j});
+                }
+            }
+        }
+        pairPositions = pairList.toArray(new int[0][]);
+
+        BitSet freeSet = new BitSet(nodes.length);
+        freeSet.set(0, nodes.length);
+        freeSet.andNot(requiredPositions);
+        freePositions = freeSet.stream().toArray();
+        if (freePositions.length > MAX_FREE_NODES) {
+            throw new IllegalArgumentException("Too many free candidates to enumerate the subsets of: "
+                    + freePositions.length);
+        }
+
+        wide = nodes.length > MAX_MASK_NODES;
+        if (wide) {
+            required = 0;
+            free = 0;
+            pairs = null;
+        } else {
+            required = toMask(requiredPositions);
+            free = toMask(freeSet);
+            pairs = new long[pairPositions.length];
+            for (int p = 0; p < pairs.length; p++) {
+                pairs[p] = (1L << pairPositions[p][0]) | (1L << pairPositions[p][1]);
+            }
+        }
+    }
+
+    /**
+     * Finds the best Delete(x, y, H) operator with H a subset of the candidates such that NA_{Y,X} \ H is a clique.
+     * Ties are broken in favor of the first subset of a sequential enumeration.
+     * @param pdag current graph, whose node indices are the indices of the variables of the problem.
+     * @param problem problem that scores the families of y.
+     * @param x index of the tail of the deleted edge.
+     * @param y index of the head of the deleted edge.
+     * @param candidates indices of the nodes H is drawn from.
+     * @param parallel whether a large lattice may be split across the common pool.
+     * @return the best subset, with a score of negative infinity if no subset passes the clique test.
+     * @throws IllegalArgumentException if more than {@link #MAX_FREE_NODES} candidates are free, since their
+     * subsets can't be enumerated.
+     */
+    static Best search(Pdag pdag, Problem problem, int x, int y, BitSet candidates, boolean parallel) {
+        DeleteLattice lattice = new DeleteLattice(pdag, problem, x, y, candidates);
+        if (lattice.empty) {
+            return NONE;
+        }
+        long size = 1L << lattice.freePositions.length;
+        LongStream chunks = LongStream.range(0, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        if (parallel && size >= PARALLEL_THRESHOLD) {
+            chunks = chunks.parallel();
+        }
+        return chunks
+                .mapToObj(chunk -> lattice.search(chunk * CHUNK_SIZE, Math.min(size, (chunk + 1) * CHUNK_SIZE)))
+                .reduce(NONE, (a, b) -> b.isBetterThan(a) ? b : a);
+    }
+
+    /**
+     * Scores the passing subsets of a range of the enumeration. The i-th subset sets the required positions and
+     * spreads the bits of i over the free ones.
+     * @param from first position of the range.
+     * @param to position after the last one of the range.
+     * @return best subset of the range.
+     */
+    private Best search(long from, long to) {
+        long[] orders = new long[(int) (to - from)];
+        int count = 0;
+        for (long i = from; i < to; i++) {
+            if (wide ? passes(positions(i)) : passes(required | deposit(i, free))) {
+                orders[count] = i;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return NONE;
+        }
+
+        int[][] parents = new int[count][];
+        int[] extra = new int[count];
+        for (int s = 0; s < count; s++) {
+            parents[s] = family(orders[s]);
+            extra[s] = x;
+        }
+        double[] deltas = problem.evaluateDeltas(y, parents, extra);
+
+        int best = 0;
+        for (int s = 1; s < count; s++) {
+            if (-deltas[s] > -deltas[best]) {
+                best = s;
+            }
+        }
+        return new Best(-deltas[best], toIndices(orders[best]), orders[best]);
+    }
+
+    private boolean passes(long mask) {
+        for (long pair : pairs) {
+            if ((mask & pair) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean passes(BitSet positions) {
+        for (int[] pair : pairPositions) {
+            if (!positions.get(pair[0]) && !positions.get(pair[1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the positions of the candidates of the i-th subset of the enumeration.
+     */
+    private BitSet positions(long i) {
+        if (!wide) {
+            return BitSet.valueOf(new long[]{required | deposit(i, free)});
+        }
+        BitSet positions = (BitSet) requiredPositions.clone();
+        for (int b = 0; b < freePositions.length; b++) {
+            if ((i & (1L << b)) != 0) {
+                positions.set(freePositions[b]);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Gets the parents of y without x after deleting the i-th subset of the enumeration.
+     */
+    private int[] family(long i) {
+        BitSet family = (BitSet) base.clone();
+        if (wide) {
+            BitSet positions = positions(i);
+            for (int b = positions.nextClearBit(0); b < nodes.length; b = positions.nextClearBit(b + 1)) {
+                family.set(nodes[b]);
+            }
+        } else {
+            long mask = required | deposit(i, free);
+            for (int b = 0; b < nodes.length; b++) {
+                if ((mask & (1L << b)) == 0) {
+                    family.set(nodes[b]);
+                }
+            }
+        }
+        return family.stream().toArray();
+    }
+
+    /**
+     * Gets the indices of the nodes of the i-th subset of the enumeration.
+     */
+    private BitSet toIndices(long i) {
+        BitSet positions = positions(i);
+        BitSet h = new BitSet();
+        for (int b = positions.nextSetBit(0); b >= 0; b = positions.nextSetBit(b + 1)) {
+            h.set(nodes[b]);
+        }
+        return h;
+    }
+
+    private static long toMask(BitSet positions) {
+        long[] words = positions.toLongArray();
+        return words.length == 0 ? 0 : words[0];
+    }
+
+    /**
+     * Spreads the low bits of a value over the set bits of a mask, lowest first.
+     */
+    private static long deposit(long value, long mask) {
+        long result = 0;
+        for (long bit = 1; mask != 0 && value != 0; bit <<= 1) {
+            long lowest = mask & -mask;
+            if ((value & bit) != 0) {
+                result |= lowest;
+            }
+            value &= ~bit;
+            mask &= mask - 1;
+        }
+        return result;
+    }
+
+    private static boolean isSubset(BitSet set, BitSet of) {
+        BitSet rest = (BitSet) set.clone();
+        rest.andNot(of);
+        return rest.isEmpty();
+    }
+}
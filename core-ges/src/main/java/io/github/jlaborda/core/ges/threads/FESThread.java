@@ -1,13 +1,19 @@
 package io.github.jlaborda.core.ges.threads;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.ges.graph.Pdag;
 import static io.github.jlaborda.core.common.utils.Utils.pdagToDag;
 
 import edu.cmu.tetrad.graph.Edge;
@@ -21,10 +27,23 @@ import edu.cmu.tetrad.search.utils.MeekRules;
 @SuppressWarnings("DuplicatedCode")
 public class FESThread extends GESThread {
 
-    private static int threadCounter = 1;
-    
     private final boolean speedUp;
 
+    /**
+     * Best insertion operator of each arc of S, used in incremental mode.
+     */
+    private OperatorQueue operators;
+
+    /**
+     * Arcs of S indexed by their head, that is, by the node whose parents they change.
+     */
+    private Map<Node, List<Edge>> arcsByHead;
+
+    /**
+     * Arcs of S indexed by their tail.
+     */
+    private Map<Node, List<Edge>> arcsByTail;
+
     /**
      * Constructor of FESThread with an initial DAG
      *
@@ -56,8 +75,6 @@ public class FESThread extends GESThread {
         this.initialDag = new EdgeListGraph(new LinkedList<>(getVariables()));
         setSubSetSearch(subset);
         setMaxIt(maxIt);
-        this.id = threadCounter;
-        threadCounter++;
         this.isForwards = true;
         this.speedUp = speedUp;
     }
@@ -82,10 +99,8 @@ public class FESThread extends GESThread {
      * @return the resulting Pattern.
      */
     private Graph search() {
-        if (!S.isEmpty()) {
+        if (!S.isEmpty() && !budget.isExhausted()) {
             startTime = System.currentTimeMillis();
-            numTotalCalls = 0;
-            numNonCachedCalls = 0;
             //localScoreCache.clear();
 
             Graph graph = new EdgeListGraph(this.initialDag);
@@ -138,11 +153,15 @@ public class FESThread extends GESThread {
         //t_0 = null;
         iterations = 0;
         
+        if (incremental) {
+            return fesIncremental(graph, score);
+        }
+
         //System.out.println("Initial Score = " + nf.format(bestScore));
         // Calling fs to calculate best edge to add.
         edgesCandidates = S;
         bestInsert = fs(graph);
-        while ((x_i != null) && (iterations < this.maxIt)) {
+        while ((x_i != null) && (iterations < this.maxIt) && !budget.isExhausted()) {
             // Changing best score because x_i, and therefore, y_i is not null
             bestScore = bestInsert;
 
@@ -192,7 +211,7 @@ public class FESThread extends GESThread {
      * that the graph is changed as a side-effect to its state after the forward
      * equivalence search.
      */
-    private double fs(Graph graph) {
+    protected double fs(Graph graph) {
         //       System.out.println("** FORWARD EQUIVALENCE SEARCH");
         //       System.out.println("Initial Score = " + nf.format(bestScore));
 
@@ -217,7 +236,7 @@ public class FESThread extends GESThread {
         }
         */
         
-        Set<EdgeSearch> newScores = edgesCandidates.parallelStream()
+        Set<EdgeSearch> newScores = scoringStream(edgesCandidates)
                 .map(e -> scoreEdge(graph, e))
                 .collect(Collectors.toSet());
         
@@ -242,6 +261,201 @@ public class FESThread extends GESThread {
         return max.score;
     }
 
+    /**
+     * Forward equivalence search of the incremental mode. The search works on a {@link Pdag Pdag} copy of the graph,
+     * keeps the best operator of each arc of S in an {@link OperatorQueue OperatorQueue} and, after each insertion,
+     * only scores again the operators the insertion affects.
+     *
+     * @param graph The graph in the state prior to the forward equivalence
+     * search. It is changed to its state after the search.
+     * @param score The score in the state prior to the forward equivalence
+     * search
+     * @return the score in the state after the FES method.
+     */
+    private double fesIncremental(Graph graph, double score) {
+        double bestScore = score;
+        iterations = 0;
+
+        Pdag pdag = Pdag.fromGraph(getVariables(), graph);
+        initOperators(pdag);
+        double bestInsert = selectOperator(pdag);
+        while ((x_i != null) && (iterations < this.maxIt) && !budget.isExhausted()) {
+            bestScore = bestInsert;
+
+            Pdag before = new Pdag(pdag);
+            int x = pdag.indexOf(x_i);
+            int y = pdag.indexOf(y_i);
+            pdag.insert(x, y, toIndices(t_0, pdag));
+            if (!speedUp) {
+                pdag.rebuildPattern();
+            }
+            updateOperators(pdag, before, x, y);
+
+            // Checking that the maximum number of edges has not been reached
+            if (getMaxNumEdges() != -1 && pdag.getNumEdges() >= getMaxNumEdges()) {
+                break;
+            }
+
+            bestInsert = selectOperator(pdag);
+
+            // Indicating that the thread has added an edge to the graph
+            this.flag = true;
+            iterations++;
+        }
+        pdag.writeTo(graph);
+        return bestScore;
+    }
+
+    /**
+     * Scores every arc of S and indexes the arcs by their head and their tail.
+     *
+     * @param pdag The graph in the state prior to the forward equivalence
+     * search.
+     */
+    private void initOperators(Pdag pdag) {
+        arcsByHead = new HashMap<>();
+        arcsByTail = new HashMap<>();
+        for (Edge arc : S) {
+            arcsByHead.computeIfAbsent(Edges.getDirectedEdgeHead(arc), n -> new ArrayList<>()).add(arc);
+            arcsByTail.computeIfAbsent(Edges.getDirectedEdgeTail(arc), n -> new ArrayList<>()).add(arc);
+        }
+        operators = new OperatorQueue();
+        rescore(pdag, S);
+    }
+
+    private void rescore(Pdag pdag, Collection<Edge> arcs) {
+        List<EdgeSearch> newOperators = scoringStream(arcs)
+                .map(e -> scoreEdge(pdag, e))
+                .collect(Collectors.toList());
+        newOperators.forEach(operators::update);
+    }
+
+    /**
+     * Re-scores the operators affected by the last insertion. The score of Insert(x, y, T) depends on the parents
+     * and neighbors of y and on the adjacents of x, and its clique test on the adjacencies among the neighbors of y.
+     * An insertion, together with the orientations it implies, only changes the parents and neighbors of the
+     * nodes whose edges changed, the adjacents of x and y, and the adjacency between them. Whether a
+     * semi-directed path is blocked can change anywhere in the graph, so it is checked again in
+     * {@link #selectOperator(Pdag)}.
+     *
+     * @param pdag graph after the insertion.
+     * @param before graph before the insertion.
+     * @param x index of the tail of the inserted edge.
+     * @param y index of the head of the inserted edge.
+     */
+    private void updateOperators(Pdag pdag, Pdag before, int x, int y) {
+        BitSet heads = pdag.changedNodes(before);
+        // Common adjacents of x and y may now have a clique among their neighbors
+        BitSet common = pdag.adjacentsOf(x);
+        common.and(pdag.adjacentsOf(y));
+        heads.or(common);
+
+        Set<Edge> affected = new HashSet<>();
+        for (int head = heads.nextSetBit(0); head >= 0; head = heads.nextSetBit(head + 1)) {
+            affected.addAll(arcsByHead.getOrDefault(pdag.getNode(head), Collections.emptyList()));
+        }
+        affected.addAll(arcsByTail.getOrDefault(x_i, Collections.emptyList()));
+        affected.addAll(arcsByTail.getOrDefault(y_i, Collections.emptyList()));
+        rescore(pdag, affected);
+    }
+
+    /**
+     * Selects the best operator of the incremental mode from the operator queue. Before selecting it, the operator is
+     * checked against the current graph; if it is no longer valid, it is scored again and the next best one is taken.
+     *
+     * @param pdag current graph.
+     * @return the score of the selected operator, or 0 if no operator improves the score.
+     */
+    private double selectOperator(Pdag pdag) {
+        x_i = y_i = null;
+        t_0 = null;
+
+        EdgeSearch max;
+        while ((max = operators.peek()) != null) {
+            if (isValidInsert(pdag, max)) {
+                x_i = Edges.getDirectedEdgeTail(max.edge);
+                y_i = Edges.getDirectedEdgeHead(max.edge);
+                t_0 = max.hSubset;
+                return max.score;
+            }
+            operators.update(scoreEdge(pdag, max.edge));
+        }
+        return 0;
+    }
+
+    private boolean isValidInsert(Pdag pdag, EdgeSearch op) {
+        int x = pdag.indexOf(Edges.getDirectedEdgeTail(op.edge));
+        int y = pdag.indexOf(Edges.getDirectedEdgeHead(op.edge));
+        if (pdag.isAdjacent(x, y)) {
+            return false;
+        }
+        BitSet naYXT = toIndices(op.hSubset, pdag);
+        naYXT.or(pdag.naYX(x, y));
+        return pdag.isClique(naYXT) && pdag.isSemiDirectedBlocked(x, y, naYXT);
+    }
+
+    /**
+     * Scores the best Insert(x, y, T) operator of an arc over a {@link Pdag Pdag}. As in
+     * {@link #scoreEdge(Graph, Edge)}, T is built greedily from the neighbors of y that are not adjacent to x, adding
+     * the node that improves the score the most while the operator stays valid, up to two nodes.
+     *
+     * @param pdag current graph.
+     * @param edge arc x -> y being scored.
+     * @return the operator with the score of the insertion, or with score 0 if the arc can't be inserted.
+     */
+    private EdgeSearch scoreEdge(Pdag pdag, Edge edge) {
+        int x = pdag.indexOf(Edges.getDirectedEdgeTail(edge));
+        int y = pdag.indexOf(Edges.getDirectedEdgeHead(edge));
+
+        if (x != y && !pdag.isAdjacent(x, y)) {
+            BitSet naYX = pdag.naYX(x, y);
+            // Parents of y after inserting x -> y with an empty T
+            int numParents = naYX.cardinality() + pdag.parentsOf(y).cardinality() + 1;
+            if (exceedsInDegree(numParents)) {
+                return new EdgeSearch(0, new HashSet<>(), edge);
+            }
+            BitSet tSubset = new BitSet(pdag.getNumNodes());
+            double insertEval = insertEval(x, y, tSubset, pdag, problem);
+            if (insertEval > 0) {
+                if (pdag.isClique(naYX) && pdag.isSemiDirectedBlocked(x, y, naYX)) {
+                    BitSet tNeighbors = pdag.neighborsNotAdjacentTo(x, y);
+                    double greedyScore = insertEval;
+                    int bestNode;
+                    do {
+                        bestNode = -1;
+                        if (exceedsInDegree(numParents + tSubset.cardinality() + 1)) {
+                            break;
+                        }
+                        // The candidates of a round only differ in one node, so they are evaluated together
+                        double[] evals = insertEvals(x, y, tSubset, tNeighbors, pdag, problem);
+                        int candidate = 0;
+                        for (int node = tNeighbors.nextSetBit(0); node >= 0; node = tNeighbors.nextSetBit(node + 1)) {
+                            BitSet newT = (BitSet) tSubset.clone();
+                            newT.set(node);
+                            double eval = evals[candidate++];
+                            if (eval <= greedyScore) {
+                                continue;
+                            }
+                            newT.or(naYX);
+                            if (!pdag.isClique(newT) || !pdag.isSemiDirectedBlocked(x, y, newT)) {
+                                continue;
+                            }
+                            bestNode = node;
+                            greedyScore = eval;
+                        }
+                        if (bestNode != -1) {
+                            tSubset.set(bestNode);
+                            tNeighbors.clear(bestNode);
+                        }
+                    } while ((bestNode != -1) && (tSubset.cardinality() <= 1));
+
+                    return new EdgeSearch(greedyScore, toNodes(tSubset, pdag), edge);
+                }
+            }
+        }
+        return new EdgeSearch(0, new HashSet<>(), edge);
+    }
+
     private void updateEdges(Graph graph){
         // Modo normal
         if (!speedUp) {
@@ -285,6 +499,12 @@ public class FESThread extends GESThread {
         Node _y = Edges.getDirectedEdgeHead(edge);
 
         if (!graph.isAdjacentTo(_x, _y)) {
+            List<Node> naYX = findNaYX(_x, _y, graph);
+            // Parents of y after inserting x -> y with an empty T
+            int numParents = naYX.size() + graph.getParents(_y).size() + 1;
+            if (exceedsInDegree(numParents)) {
+                return new EdgeSearch(0, new HashSet<>(), edge);
+            }
             List<Node> tNeighbors = getSubsetOfNeighbors(_x, _y, graph);
 
             Set<Node> tSubset = new HashSet<>();
@@ -292,7 +512,6 @@ public class FESThread extends GESThread {
             //System.out.println("InsertEval: " + insertEval);
             if (insertEval > 0) {
                 List<Node> naYXT = new LinkedList<>(tSubset);
-                List<Node> naYX = findNaYX(_x, _y, graph);
                 naYXT.addAll(naYX);
 
                 boolean passTests = true;
@@ -328,6 +547,9 @@ public class FESThread extends GESThread {
 
                     do {
                         bestNodeIndex = -1;
+                        if (exceedsInDegree(numParents + tSubset.size() + 1)) {
+                            break;
+                        }
                         for (int k = 0; k < tNeighbors.size(); k++) {
                             Node node = tNeighbors.get(k);
                             Set<Node> newT = new HashSet<>(tSubset);
@@ -18,8 +18,6 @@ import edu.cmu.tetrad.search.utils.MeekRules;
 @SuppressWarnings("DuplicatedCode")
 public class FESThreadBP extends GESThread {
 
-    private static int threadCounter = 1;
-    
     private final boolean speedUp;
 
     private BestEdgesStore bestEdgesStore = new BestEdgesStore();
@@ -60,8 +58,6 @@ public class FESThreadBP extends GESThread {
         this.initialDag = new EdgeListGraph(new LinkedList<>(getVariables()));
         setSubSetSearch(subset);
         setMaxIt(maxIt);
-        this.id = threadCounter;
-        threadCounter++;
         this.isForwards = true;
         this.speedUp = speedUp;
     }
@@ -86,10 +82,8 @@ public class FESThreadBP extends GESThread {
      * @return the resulting Pattern.
      */
     private Graph search() {
-        if (!S.isEmpty()) {
+        if (!S.isEmpty() && !budget.isExhausted()) {
             startTime = System.currentTimeMillis();
-            numTotalCalls = 0;
-            numNonCachedCalls = 0;
             //localScoreCache.clear();
 
             Graph graph = new EdgeListGraph(this.initialDag);
@@ -144,7 +138,7 @@ public class FESThreadBP extends GESThread {
         iterations = 0;
         edgesCandidates = S;
         bestInsert = fs(graph);
-        while ((x_i != null) && (iterations < this.maxIt)) {
+        while ((x_i != null) && (iterations < this.maxIt) && !budget.isExhausted()) {
             // Changing best score because x_i, and therefore, y_i is not null
             bestScore = bestInsert;
 
@@ -201,7 +195,7 @@ public class FESThreadBP extends GESThread {
         t_0 = null;
         
         // Calculating best edges and storing them in bestEdgesStore
-        edgesCandidates.parallelStream().forEach(e -> scoreEdge(graph, e));
+        scoringStream(edgesCandidates).forEach(e -> scoreEdge(graph, e));
 
         // Choosing best edge from the storage (Randomly or Greedy)
         EdgeSearch max = null;
@@ -310,6 +304,12 @@ public class FESThreadBP extends GESThread {
         Node _y = edge.getNode2();//Edges.getDirectedEdgeHead(edge);
 
         if (!graph.isAdjacentTo(_x, _y)) {
+            List<Node> naYX = findNaYX(_x, _y, graph);
+            // Parents of y after inserting x -> y with an empty T
+            int numParents = naYX.size() + graph.getParents(_y).size() + 1;
+            if (exceedsInDegree(numParents)) {
+                return;
+            }
             List<Node> tNeighbors = getSubsetOfNeighbors(_x, _y, graph);
 
             Set<Node> tSubset = new HashSet<>();
@@ -317,7 +317,6 @@ public class FESThreadBP extends GESThread {
             //System.out.println("InsertEval: " + insertEval);
             if (insertEval > 0) {
                 List<Node> naYXT = new LinkedList<>(tSubset);
-                List<Node> naYX = findNaYX(_x, _y, graph);
                 naYXT.addAll(naYX);
 
                 boolean passTests = evaluateTestConditions(graph, _x, _y, naYXT);
@@ -329,6 +328,9 @@ public class FESThreadBP extends GESThread {
 
                     do {
                         bestNodeIndex = -1;
+                        if (exceedsInDegree(numParents + tSubset.size() + 1)) {
+                            break;
+                        }
                         for (int k = 0; k < tNeighbors.size(); k++) {
                             Node node = tNeighbors.get(k);
                             Set<Node> newT = new HashSet<>(tSubset);
@@ -16,8 +16,6 @@ import edu.cmu.tetrad.graph.Node;
 
 public class ForwardHillClimbingThread extends GESThread {
 
-    private static int threadCounter = 1;
-
 
     /**
      * Constructor of ThFES with an initial DAG
@@ -32,8 +30,6 @@ public class ForwardHillClimbingThread extends GESThread {
         setInitialGraph(initialDag);
         setSubSetSearch(subset);
         this.maxIt = maxIt;
-        this.id = threadCounter;
-        threadCounter++;
         this.isForwards = true;
     }
 
@@ -49,8 +45,6 @@ public class ForwardHillClimbingThread extends GESThread {
         this.initialDag = new EdgeListGraph(new LinkedList<>(getVariables()));
         setSubSetSearch(subset);
         this.maxIt = maxIt;
-        this.id = threadCounter;
-        threadCounter++;
     }
 
 
@@ -61,8 +55,6 @@ public class ForwardHillClimbingThread extends GESThread {
 
     private Graph search() {
         startTime = System.currentTimeMillis();
-        numTotalCalls=0;
-        numNonCachedCalls=0;
 
 
         Graph graph = new EdgeListGraph(this.initialDag);
@@ -122,6 +114,10 @@ public class ForwardHillClimbingThread extends GESThread {
                     continue;
                 }
 
+                if (exceedsInDegree(graph.getParents(_y).size() + 1)) {
+                    continue;
+                }
+
                 // Comprobar ciclos dirigidos aquí?
                 if(graph.paths().existsDirectedPath(_y, _x)) {
                     continue;
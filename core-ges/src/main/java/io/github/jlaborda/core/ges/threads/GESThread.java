@@ -1,6 +1,8 @@
 package io.github.jlaborda.core.ges.threads;
 
 import java.text.NumberFormat;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -8,6 +10,7 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import edu.cmu.tetrad.graph.Edge;
 import edu.cmu.tetrad.graph.EdgeListGraph;
@@ -19,8 +22,9 @@ import edu.cmu.tetrad.search.utils.MeekRules;
 import edu.cmu.tetrad.util.NumberFormatUtil;
 import io.github.jlaborda.core.common.utils.Problem;
 import static io.github.jlaborda.core.common.utils.Utils.pdagToDag;
-import io.github.jlaborda.core.ges.framework.BackwardStage;
-import io.github.jlaborda.core.ges.framework.ForwardStage;
+import io.github.jlaborda.core.ges.framework.SearchBudget;
+import io.github.jlaborda.core.ges.framework.SearchContext;
+import io.github.jlaborda.core.ges.graph.Pdag;
 
 /*
   GESThread is an abstract class that encapsulates the common attributes and methods of the threads executed in both the FES
@@ -65,16 +69,6 @@ public abstract class GESThread implements Runnable{
      */
     protected final NumberFormat nf = NumberFormatUtil.getInstance().getNumberFormat();
 
-    /**
-     * Total calls done
-     */
-    protected static int numTotalCalls=0;
-
-    /**
-     * Total calls done to non-cached information
-     */
-    protected static int numNonCachedCalls=0;
-
     /**
      * Elapsed time of the most recent search.
      */
@@ -141,15 +135,38 @@ public abstract class GESThread implements Runnable{
     protected Set<Node> h_0;
 
     /**
-     * Id of the thread
+     * Context of the search the thread is part of: its budget, and the times of the threads of its stages.
      */
-    protected int id = -1;
+    protected SearchContext context = SearchContext.standalone();
+
+    /**
+     * Id of the thread, unique among the threads of its context.
+     */
+    protected int id = context.nextThreadId();
 
     /**
      * Boolean value that says if the thread is from a forward stage (true) or from a backwards stage (false)
      */
     protected boolean isForwards;
 
+    /**
+     * Whether the operators are kept between iterations and only the ones affected by the last change of the graph
+     * are scored again.
+     */
+    protected boolean incremental = true;
+
+    /**
+     * Whether the candidate operators are scored in parallel, splitting the work into tasks of the pool that runs the
+     * thread.
+     */
+    protected boolean parallelScoring = true;
+
+    /**
+     * Budget of the context of the thread. The thread stops before applying its next operator once it runs out, and
+     * doesn't score the insertions that exceed its in-degree limit.
+     */
+    protected SearchBudget.Tracker budget = context.getBudget();
+
     /**
      * Evaluate the Insert(X, Y, T) operator (@see <a href="http://www.jmlr.org/papers/volume3/chickering02b/chickering02b.pdf"> Definition 12 from Chickering 2002</a>,
      * ).
@@ -184,6 +201,96 @@ public abstract class GESThread implements Runnable{
 
 
 
+    /**
+     * Evaluate the Insert(X, Y, T) operator over a {@link Pdag Pdag} whose node indices are the indices of the
+     * variables of the problem.
+     * @param x index of the tail of the inserted edge.
+     * @param y index of the head of the inserted edge.
+     * @param t indices of the nodes of the T set.
+     * @param pdag Current graph of the stage.
+     * @param problem problem whose variables are the nodes of the graph.
+     * @return Score difference of the insertion.
+     */
+    public static double insertEval(int x, int y, BitSet t, Pdag pdag, Problem problem) {
+        BitSet parents = pdag.naYX(x, y);
+        parents.or(t);
+        parents.or(pdag.parentsOf(y));
+        parents.clear(x);
+        return problem.evaluateDelta(y, parents.stream().toArray(), x);
+    }
+
+    /**
+     * Evaluate the Insert(X, Y, T + {node}) operators for several candidate nodes at once, so that the families of y
+     * they need are counted together. See {@link Problem#evaluateDeltas(int, int[][], int[])}.
+     * @param x index of the tail of the inserted edge.
+     * @param y index of the head of the inserted edge.
+     * @param t indices of the nodes of the T set shared by every operator.
+     * @param candidates indices of the nodes added to T in each operator.
+     * @param pdag Current graph of the stage.
+     * @param problem problem whose variables are the nodes of the graph.
+     * @return Score difference of the insertion with each candidate, in increasing order of the candidates.
+     */
+    public static double[] insertEvals(int x, int y, BitSet t, BitSet candidates, Pdag pdag, Problem problem) {
+        BitSet base = pdag.naYX(x, y);
+        base.or(t);
+        base.or(pdag.parentsOf(y));
+        base.clear(x);
+        int[][] parents = new int[candidates.cardinality()][];
+        int[] extra = new int[parents.length];
+        for (int node = candidates.nextSetBit(0), i = 0; node >= 0; node = candidates.nextSetBit(node + 1), i++) {
+            BitSet withNode = (BitSet) base.clone();
+            withNode.set(node);
+            parents[i] = withNode.stream().toArray();
+            extra[i] = x;
+        }
+        return problem.evaluateDeltas(y, parents, extra);
+    }
+
+    /**
+     * Evaluate the Delete(X, Y, H) operator over a {@link Pdag Pdag} whose node indices are the indices of the
+     * variables of the problem.
+     * @param x index of the tail of the deleted edge.
+     * @param y index of the head of the deleted edge.
+     * @param h indices of the nodes of the H set.
+     * @param pdag Current graph of the stage.
+     * @return Score difference of the deletion.
+     */
+    protected double deleteEval(int x, int y, BitSet h, Pdag pdag) {
+        BitSet parents = pdag.naYX(x, y);
+        parents.andNot(h);
+        parents.or(pdag.parentsOf(y));
+        parents.clear(x);
+        return -problem.evaluateDelta(y, parents.stream().toArray(), x);
+    }
+
+    /**
+     * Gets the nodes of a set of indices of a {@link Pdag Pdag}.
+     * @param indices indices of the nodes.
+     * @param pdag graph the indices belong to.
+     * @return set with the nodes.
+     */
+    protected static Set<Node> toNodes(BitSet indices, Pdag pdag) {
+        Set<Node> result = new HashSet<>();
+        for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1)) {
+            result.add(pdag.getNode(i));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the indices of a set of nodes in a {@link Pdag Pdag}.
+     * @param nodes nodes of the graph.
+     * @param pdag graph the nodes belong to.
+     * @return set with the indices of the nodes.
+     */
+    protected static BitSet toIndices(Set<Node> nodes, Pdag pdag) {
+        BitSet result = new BitSet(pdag.getNumNodes());
+        for (Node node : nodes) {
+            result.set(pdag.indexOf(node));
+        }
+        return result;
+    }
+
     /**
      * Do an actual insertion of an edge.
      * (@see <a href="http://www.jmlr.org/papers/volume3/chickering02b/chickering02b.pdf"> Definition 12 from Chickering 2002</a>).
@@ -302,10 +409,11 @@ public abstract class GESThread implements Runnable{
      * @return true if there is a clique, false otherwise.
      */
     protected static boolean isClique(List<Node> set, Graph graph) {
-        List<Node> setNeighbors = new LinkedList<>(set);
-        for (int i = 0; i < setNeighbors.size() - 1; i++) {
-            for (int j = i + 1; j < setNeighbors.size(); j++) {
-                if (!graph.isAdjacentTo(setNeighbors.get(i), setNeighbors.get(j))) {
+        // Indexed access, since the callers usually pass a LinkedList
+        Node[] setNeighbors = set.toArray(new Node[0]);
+        for (int i = 0; i < setNeighbors.length - 1; i++) {
+            for (int j = i + 1; j < setNeighbors.length; j++) {
+                if (!graph.isAdjacentTo(setNeighbors[i], setNeighbors[j])) {
                     return false;
                 }
             }
@@ -667,6 +775,83 @@ public abstract class GESThread implements Runnable{
 
     }
 
+    /**
+     * Checks whether the thread keeps the scored operators between iterations.
+     * @return true if only the operators affected by each change of the graph are scored again.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Sets whether the operators are kept between iterations. In incremental mode, after each change of the graph
+     * only the operators whose head changed its parents or neighbors, or whose tail changed its adjacents, are scored
+     * again, and the best one is taken from a queue instead of scanning every operator. Otherwise, the operators are
+     * scored again in every iteration: every arc of S touching the neighborhood of the inserted edge in
+     * {@link FESThread FESThread}, and every edge of the graph in {@link BESThread BESThread}.
+     * @param incremental true to use the incremental mode.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Checks whether the candidate operators are scored in parallel.
+     * @return true if the operators are scored in parallel.
+     */
+    public boolean isParallelScoring() {
+        return parallelScoring;
+    }
+
+    /**
+     * Sets whether the candidate operators are scored in parallel. When several threads already run at once, scoring
+     * each subset sequentially avoids creating more tasks than there are cores to run them.
+     * @param parallelScoring true to score the operators in parallel.
+     */
+    public void setParallelScoring(boolean parallelScoring) {
+        this.parallelScoring = parallelScoring;
+    }
+
+    public SearchBudget.Tracker getBudget() {
+        return budget;
+    }
+
+    public SearchContext getContext() {
+        return context;
+    }
+
+    /**
+     * Sets the context of the search the thread is part of, which gives the thread its budget and a new id.
+     * @param context context shared by the stages and threads of the search.
+     */
+    public void setContext(SearchContext context) {
+        if (context == null)
+            throw new NullPointerException("The context must not be null");
+        this.context = context;
+        this.budget = context.getBudget();
+        this.id = context.nextThreadId();
+    }
+
+    /**
+     * Checks whether an operator would give its head more parents than the problem or the budget allow. The score of
+     * such an operator is negative infinity, so it is pruned without being scored.
+     * @param numParents number of parents of the head after the operator.
+     * @return true if the operator has to be pruned.
+     */
+    protected boolean exceedsInDegree(int numParents) {
+        return numParents > problem.getMaxParents() || budget.exceedsInDegree(numParents);
+    }
+
+    /**
+     * Stream over the candidates to score, parallel or sequential depending on {@link #isParallelScoring()}.
+     * @param candidates candidates to score.
+     * @param <T> type of the candidates.
+     * @return stream over the candidates.
+     */
+    protected <T> Stream<T> scoringStream(Collection<T> candidates) {
+        return parallelScoring ? candidates.parallelStream() : candidates.stream();
+    }
+
     /**
      * Checking if the thread is aggressively preventing cycles
      * @return true if it prevents cycles, false otherwise.
@@ -762,22 +947,13 @@ public abstract class GESThread implements Runnable{
     }
 
     protected boolean isTimeout(){
-        //return ((timeout != -1) &&
-        //        ((System.currentTimeMillis() - startTime) > timeout));
+        if (budget.isExhausted())
+            return true;
         long time = (System.currentTimeMillis() - startTime);
         double zScore = 0;
-        //System.out.println("Forward Meantime: " + ForwardStage.meanTimeTotal);
-        //System.out.println("Backward Meantime: " + BackwardStage.meanTimeTotal);
-
-        if(isForwards) {
-            if (ForwardStage.meanTimeTotal != 0)
-                zScore = (time - ForwardStage.meanTimeTotal) / Math.sqrt(ForwardStage.varianceTimeTotal);
-        }
-        else{
-            if (BackwardStage.meanTimeTotal != 0)
-                zScore = (time - BackwardStage.meanTimeTotal) / Math.sqrt(BackwardStage.varianceTimeTotal);
-
-        }
+        SearchContext.ThreadTimes times = isForwards ? context.getForwardTimes() : context.getBackwardTimes();
+        if (times.getMeanTimeTotal() != 0)
+            zScore = (time - times.getMeanTimeTotal()) / Math.sqrt(times.getVarianceTimeTotal());
         if(zScore > 3)
             System.out.println("Timeout! Finishing Thread");
         return zScore > 3;
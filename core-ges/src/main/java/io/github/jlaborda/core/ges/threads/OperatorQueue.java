@@ -0,0 +1,91 @@
+package io.github.jlaborda.core.ges.threads;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import edu.cmu.tetrad.graph.Edge;
+
+/**
+ * Operators of a search thread, one {@link EdgeSearch EdgeSearch} per edge, together with a lazy max-heap of the ones
+ * that improve the score. Updating the operator of an edge doesn't search the heap: the new operator is pushed and
+ * the table keeps it as the current version of the edge. Entries of the heap that are no longer the current version
+ * are discarded when they reach the top, so finding the best operator costs O(log n) amortized instead of a scan of
+ * every operator.
+ */
+class OperatorQueue {
+
+    /**
+     * Minimum number of entries before the heap is rebuilt to drop the stale ones.
+     */
+    private static final int MIN_COMPACTION_SIZE = 1024;
+
+    /**
+     * Current operator of each edge.
+     */
+    private final Map<Edge, EdgeSearch> operators = new HashMap<>();
+
+    /**
+     * Operators with a positive score, best first. It may hold operators that were replaced or removed afterwards.
+     */
+    private PriorityQueue<EdgeSearch> heap = new PriorityQueue<>(Collections.reverseOrder());
+
+    /**
+     * Sets the current operator of its edge. Only operators with a positive score are queued.
+     * @param operator new operator of the edge.
+     */
+    void update(EdgeSearch operator) {
+        operators.put(operator.edge, operator);
+        if (operator.score > 0) {
+            heap.add(operator);
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * Removes the operator of an edge.
+     * @param edge edge whose operator is removed.
+     */
+    void remove(Edge edge) {
+        operators.remove(edge);
+    }
+
+    /**
+     * Gets the best current operator without removing it.
+     * @return the operator with the highest positive score, or null if no operator has a positive score.
+     */
+    EdgeSearch peek() {
+        EdgeSearch top = heap.peek();
+        while (top != null && !isCurrent(top)) {
+            heap.poll();
+            top = heap.peek();
+        }
+        return top;
+    }
+
+    /**
+     * Gets the number of edges with an operator.
+     * @return number of operators.
+     */
+    int size() {
+        return operators.size();
+    }
+
+    private boolean isCurrent(EdgeSearch entry) {
+        return operators.get(entry.edge) == entry;
+    }
+
+    private void compactIfNeeded() {
+        if (heap.size() < MIN_COMPACTION_SIZE || heap.size() < 2 * operators.size())
+            return;
+        PriorityQueue<EdgeSearch> compacted = new PriorityQueue<>(Math.max(operators.size(), 1),
+                Collections.reverseOrder());
+        for (EdgeSearch operator : operators.values()) {
+            if (operator.score > 0) {
+                compacted.add(operator);
+            }
+        }
+        heap = compacted;
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.jlaborda.core.ges.clustering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.common.utils.SymmetricMatrix;
+import io.github.jlaborda.test.utils.Resources;
+
+public class AgglomerativeClusteringTest {
+
+    @Test
+    public void sameClustersAsFullMatrixMergingTest() {
+        SymmetricMatrix scores = new Problem(Resources.ALARM_DATASET).getPairwiseStatistics().getBdeuGainMatrix();
+
+        for (int numClusters : new int[]{1, 2, 4, 7, 20, scores.getSize()}) {
+            List<int[]> expected = mergeFullMatrix(scores, numClusters);
+            assertSameClusters(expected, new AgglomerativeClustering(scores, false).cluster(numClusters));
+            assertSameClusters(expected, new AgglomerativeClustering(scores, true).cluster(numClusters));
+        }
+    }
+
+    @Test
+    public void tiesAreBrokenLikeAScanOfTheMatrixTest() {
+        // Few distinct values, so that many pairs tie
+        int n = 30;
+        Random random = new Random(7);
+        SymmetricMatrix scores = new SymmetricMatrix(n, false);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                scores.set(i, j, random.nextInt(3));
+            }
+        }
+
+        for (int numClusters = 1; numClusters <= n; numClusters += 4) {
+            assertSameClusters(mergeFullMatrix(scores, numClusters),
+                    new AgglomerativeClustering(scores, false).cluster(numClusters));
+        }
+    }
+
+    private static void assertSameClusters(List<int[]> expected, List<int[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int c = 0; c < expected.size(); c++) {
+            int[] sorted = actual.get(c).clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(expected.get(c), sorted);
+        }
+    }
+
+    /**
+     * Merges the rows of a full similarity matrix, re-summing every pair of the merged clusters, as the clustering
+     * did before the condensed engine.
+     */
+    private static List<int[]> mergeFullMatrix(SymmetricMatrix scores, int numClusters) {
+        int n = scores.getSize();
+        List<List<Integer>> clusters = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            clusters.add(new ArrayList<>(List.of(i)));
+        }
+        double[][] sim = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                sim[i][j] = scores.get(i, j);
+            }
+        }
+        while (clusters.size() > numClusters) {
+            double max = Double.NEGATIVE_INFINITY;
+            int posI = -1;
+            int posJ = -1;
+            for (int i = 0; i < clusters.size() - 1; i++) {
+                for (int j = i + 1; j < clusters.size(); j++) {
+                    if (sim[i][j] > max) {
+                        max = sim[i][j];
+                        posI = i;
+                        posJ = j;
+                    }
+                }
+            }
+            clusters.get(posI).addAll(clusters.get(posJ));
+            clusters.remove(posJ);
+            for (int i = posJ; i < clusters.size(); i++) {
+                sim[i] = sim[i + 1];
+            }
+            for (double[] row : sim) {
+                System.arraycopy(row, posJ + 1, row, posJ, n - posJ - 1);
+            }
+            for (int k = 0; k < clusters.size(); k++) {
+                if (k == posI)
+                    continue;
+                double value = average(scores, clusters.get(posI), clusters.get(k));
+                sim[Math.min(k, posI)][Math.max(k, posI)] = value;
+            }
+        }
+        List<int[]> result = new ArrayList<>();
+        for (List<Integer> cluster : clusters) {
+            result.add(cluster.stream().mapToInt(Integer::intValue).sorted().toArray());
+        }
+        return result;
+    }
+
+    private static double average(SymmetricMatrix scores, List<Integer> a, List<Integer> b) {
+        List<Integer> union = new ArrayList<>(a);
+        union.addAll(b);
+        double score = 0;
+        for (int i = 0; i < union.size() - 1; i++) {
+            for (int j = i + 1; j < union.size(); j++) {
+                score += scores.get(union.get(i), union.get(j));
+            }
+        }
+        return score / ((double) union.size() * (union.size() - 1) / 2);
+    }
+}
@@ -183,4 +183,35 @@ public class HierarchicalClusteringTest {
 
     }
 
+    @Test
+    public void jointClustersMatchFullRescanTest() {
+        HierarchicalNodeClustering clustering = new HierarchicalNodeClustering(alarmProblem);
+        List<Set<Node>> expected = clustering.generateNodeClusters(4).stream()
+                .map(cluster -> (Set<Node>) new HashSet<>(cluster))
+                .collect(Collectors.toList());
+        int maxSize = expected.stream().mapToInt(Set::size).max().orElseThrow();
+        // Growing each cluster scanning every node and summing the whole cluster for each of them
+        for (Set<Node> cluster : expected) {
+            while (cluster.size() < maxSize) {
+                Node bestNode = null;
+                double bestScore = Double.NEGATIVE_INFINITY;
+                for (Node node : alarmProblem.getVariables()) {
+                    if (!cluster.contains(node)) {
+                        double score = clustering.getScoreDifference(cluster, node);
+                        if (score > bestScore) {
+                            bestScore = score;
+                            bestNode = node;
+                        }
+                    }
+                }
+                cluster.add(bestNode);
+            }
+        }
+
+        HierarchicalNodeClustering jointClustering = new HierarchicalNodeClustering(true, true);
+        jointClustering.setProblem(alarmProblem);
+        List<Set<Node>> clusters = jointClustering.generateNodeClusters(4);
+
+        assertEquals(expected, clusters);
+    }
 }
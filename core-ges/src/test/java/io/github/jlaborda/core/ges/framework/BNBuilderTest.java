@@ -1,29 +1,37 @@
 package io.github.jlaborda.core.ges.framework;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
 import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.common.utils.ScoreMetrics;
 import io.github.jlaborda.core.common.utils.Utils;
+import io.github.jlaborda.core.ges.algorithms.GreedyEquivalenceSearch;
 import io.github.jlaborda.core.ges.algorithms.HillClimbingSearch;
 import io.github.jlaborda.test.utils.Resources;
 
 public class BNBuilderTest {
 
-    @BeforeEach
-    public void restartMeans(){
-        BackwardStage.meanTimeTotal = 0;
-        ForwardStage.meanTimeTotal = 0;
-    }
-
     @Test
     public void settersAndGettersTest() throws IOException{
         DataSet ds = Resources.CANCER_DATASET;
@@ -50,4 +58,105 @@ public class BNBuilderTest {
 
 
     }
+
+    @Test
+    public void scoreMetricsAfterSearchTest() {
+        DataSet ds = Resources.CANCER_DATASET;
+        BNBuilder algorithm = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+        assertNull(algorithm.getScoreMetrics());
+
+        algorithm.search();
+        ScoreMetrics.Snapshot metrics = algorithm.getScoreMetrics();
+
+        assertNotNull(metrics);
+        assertTrue(metrics.getTotalCalls() > 0);
+        assertEquals(metrics.getTotalCalls(), metrics.getHits() + metrics.getMisses());
+        assertTrue(metrics.getScoreComputations() <= metrics.getMisses());
+    }
+
+    @Test
+    public void searchAsyncReportsProgressTest() throws InterruptedException, ExecutionException {
+        DataSet ds = Resources.CANCER_DATASET;
+        Graph expected = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false).search();
+
+        BNBuilder algorithm = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+        List<SearchEvent> events = new CopyOnWriteArrayList<>();
+        algorithm.addSearchListener(events::add);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Graph result = algorithm.searchAsync(executor).get();
+
+            assertEquals(new HashSet<>(expected.getEdges()), new HashSet<>(result.getEdges()));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, events.size());
+        assertEquals(SearchEvent.Phase.FORWARD_STAGE, events.get(0).getPhase());
+        assertEquals(SearchEvent.Phase.BACKWARD_STAGE, events.get(1).getPhase());
+        SearchEvent last = events.get(1);
+        assertEquals(1, last.getIteration());
+        assertEquals(algorithm.getCurrentGraph().getNumEdges(), last.getNumEdges());
+        assertEquals(algorithm.getProblem().scoreGraph(algorithm.getCurrentGraph()), last.getScore(), 1e-6);
+        assertTrue(last.getPhaseMillis() <= last.getElapsedMillis());
+        assertThrows(NullPointerException.class, () -> algorithm.addSearchListener(null));
+        assertThrows(NullPointerException.class, () -> algorithm.searchAsync(null));
+    }
+
+    @Test
+    public void listenersDoNotChangeTheSearchTest() {
+        DataSet ds = Resources.ALARM_DATASET;
+        BNBuilder plain = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+        plain.setSearchBudget(new SearchBudget(-1, 2000, -1));
+        Graph expected = plain.search();
+
+        BNBuilder listened = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+        listened.setSearchBudget(new SearchBudget(-1, 2000, -1));
+        List<SearchEvent> events = new CopyOnWriteArrayList<>();
+        listened.addSearchListener(events::add);
+        Graph result = listened.search();
+
+        // Scoring the events neither spends the budget nor shows up in the metrics of the search
+        assertTrue(!events.isEmpty());
+        assertEquals(new HashSet<>(expected.getEdges()), new HashSet<>(result.getEdges()));
+        assertEquals(plain.getScoreMetrics().getScoreComputations(), listened.getScoreMetrics().getScoreComputations());
+        assertEquals(plain.getScoreMetrics().getTotalCalls(), listened.getScoreMetrics().getTotalCalls());
+    }
+
+    @Test
+    public void cancelStopsTheSearchTest() throws InterruptedException {
+        DataSet ds = Resources.ALARM_DATASET;
+        BNBuilder full = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+        full.search();
+
+        BNBuilder algorithm = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+        ScoreMetrics metrics = algorithm.getProblem().getScoreMetrics();
+        long computationsBefore = metrics.getScoreComputations();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CompletableFuture<Graph> future = algorithm.searchAsync(executor);
+        // Cancelling once the search has started scoring operators
+        while (metrics.getScoreComputations() == computationsBefore) {
+            Thread.sleep(1);
+        }
+        future.cancel(true);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertThrows(CancellationException.class, future::join);
+        assertTrue(algorithm.getBudget().isCancelled());
+        assertTrue(algorithm.getScoreMetrics().getScoreComputations() < full.getScoreMetrics().getScoreComputations());
+    }
+
+    @Test
+    public void cancelBeforeStartingTest() {
+        DataSet ds = Resources.CANCER_DATASET;
+        BNBuilder algorithm = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+        List<Runnable> queued = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Graph> future = algorithm.searchAsync(queued::add);
+        future.cancel(false);
+        queued.forEach(Runnable::run);
+
+        assertTrue(future.isCancelled());
+        assertNull(algorithm.getScoreMetrics());
+    }
 }
@@ -0,0 +1,73 @@
+package io.github.jlaborda.core.ges.framework;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
+import io.github.jlaborda.core.ges.algorithms.GreedyEquivalenceSearch;
+import io.github.jlaborda.test.utils.Resources;
+
+public class ExecutionPolicyTest {
+
+    @Test
+    public void poolSizeIsBoundedByTheBudgetTest() {
+        ExecutionPolicy policy = new ExecutionPolicy(8, 4, true);
+        assertEquals(8, policy.getPoolSize());
+        assertTrue(policy.isParallelScoring());
+
+        ExecutionPolicy small = new ExecutionPolicy(8, 3, false);
+        assertEquals(3, small.getPoolSize());
+
+        ExecutionPolicy sequential = ExecutionPolicy.withParallelism(4);
+        assertEquals(4, sequential.getOuterThreads());
+        assertEquals(4, sequential.getPoolSize());
+        assertFalse(sequential.isParallelScoring());
+
+        ForkJoinPool pool = policy.createPool();
+        assertEquals(8, pool.getParallelism());
+        pool.shutdown();
+    }
+
+    @Test
+    public void invalidValuesThrowTest() {
+        assertThrows(IllegalArgumentException.class, () -> new ExecutionPolicy(0, 1, false));
+        assertThrows(IllegalArgumentException.class, () -> new ExecutionPolicy(2, 0, false));
+        assertThrows(IllegalArgumentException.class, () -> new ExecutionPolicy(2, 3, true));
+    }
+
+    @Test
+    public void blockedWorkersAreReplacedTest() throws Exception {
+        ForkJoinPool pool = new ExecutionPolicy(1, 1, true).createPool();
+        try {
+            // The only worker blocks until a task queued after it finishes, so the pool needs a spare worker
+            Future<Integer> result = pool.submit(() -> CompletableFuture.supplyAsync(() -> 1, pool).join());
+            assertEquals(1, result.get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void searchWithPolicyMatchesSearchWithoutItTest() {
+        DataSet ds = Resources.ALARM_DATASET;
+        BNBuilder expected = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+        BNBuilder algorithm = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+        algorithm.setExecutionPolicy(new ExecutionPolicy(2, 1, true));
+
+        Graph expectedGraph = expected.search();
+        Graph graph = algorithm.search();
+
+        assertEquals(expectedGraph, graph);
+        assertEquals(StageExecutor.perStage(), algorithm.getStageExecutor());
+    }
+}
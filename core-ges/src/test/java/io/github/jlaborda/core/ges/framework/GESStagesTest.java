@@ -7,7 +7,6 @@ import java.util.Set;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import edu.cmu.tetrad.data.DataSet;
@@ -22,12 +21,6 @@ import io.github.jlaborda.test.utils.Resources;
 
 public class GESStagesTest {
 
-    @BeforeEach
-    public void restartMeans(){
-        BackwardStage.meanTimeTotal = 0;
-        ForwardStage.meanTimeTotal = 0;
-    }
-
     @Test
     public void runTest() throws InterruptedException, IOException{
         //Arrange
@@ -0,0 +1,106 @@
+package io.github.jlaborda.core.ges.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.ges.algorithms.GreedyEquivalenceSearch;
+import io.github.jlaborda.core.ges.algorithms.HillClimbingSearch;
+import io.github.jlaborda.test.utils.Resources;
+
+public class SearchBudgetTest {
+
+    @Test
+    public void trackerRunsOutOfScoreComputationsTest() {
+        Problem problem = new Problem(Resources.ALARM_DATASET);
+        SearchBudget.Tracker tracker = new SearchBudget(-1, 2, -1).start(problem);
+        assertFalse(tracker.isExhausted());
+
+        problem.evaluate(0, new int[]{1});
+        assertFalse(tracker.isExhausted());
+        problem.evaluate(0, new int[]{2});
+        assertTrue(tracker.isExhausted());
+        // Once exhausted, it stays exhausted
+        problem.getScoreMetrics().reset();
+        assertTrue(tracker.isExhausted());
+    }
+
+    @Test
+    public void cancelledTrackerIsExhaustedTest() {
+        SearchBudget.Tracker tracker = SearchBudget.UNLIMITED.start(null);
+        assertFalse(tracker.isExhausted());
+
+        tracker.cancel();
+        assertTrue(tracker.isExhausted());
+        assertTrue(tracker.isCancelled());
+        assertThrows(IllegalStateException.class, SearchBudget.Tracker.UNLIMITED::cancel);
+        assertFalse(SearchBudget.Tracker.UNLIMITED.isCancelled());
+    }
+
+    @Test
+    public void inDegreeLimitTest() {
+        SearchBudget.Tracker tracker = new SearchBudget(-1, -1, 2).start(null);
+        assertFalse(tracker.exceedsInDegree(2));
+        assertTrue(tracker.exceedsInDegree(3));
+        assertFalse(SearchBudget.Tracker.UNLIMITED.exceedsInDegree(Integer.MAX_VALUE));
+        assertFalse(SearchBudget.Tracker.UNLIMITED.isExhausted());
+    }
+
+    @Test
+    public void expiredDeadlineReturnsInitialGraphTest() {
+        DataSet ds = Resources.ALARM_DATASET;
+        BNBuilder algorithm = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+        algorithm.setSearchBudget(new SearchBudget(0, -1, -1));
+
+        Graph result = algorithm.search();
+
+        assertEquals(0, result.getNumEdges());
+        assertEquals(0, algorithm.getScoreMetrics().getScoreComputations());
+    }
+
+    @Test
+    public void scoreComputationsStopTheSearchTest() {
+        DataSet ds = Resources.ALARM_DATASET;
+        BNBuilder unlimited = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+        Graph full = unlimited.search();
+
+        BNBuilder limited = new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+        limited.setSearchBudget(new SearchBudget(-1, 1500, -1));
+        Graph partial = limited.search();
+
+        assertTrue(partial.getNumEdges() > 0);
+        assertTrue(partial.getNumEdges() < full.getNumEdges());
+    }
+
+    @Test
+    public void inDegreeIsBoundedTest() {
+        DataSet ds = Resources.ALARM_DATASET;
+        for (BNBuilder algorithm : new BNBuilder[]{
+                new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false),
+                new HillClimbingSearch(ds, 15, 5)}) {
+            algorithm.setSearchBudget(new SearchBudget(-1, -1, 1));
+            Graph result = algorithm.search();
+            assertTrue(result.getNumEdges() > 0);
+            for (Node node : result.getNodes()) {
+                assertTrue(result.getParents(node).size() <= 1, node + " has more than one parent");
+            }
+        }
+    }
+
+    @Test
+    public void invalidValuesThrowTest() {
+        assertThrows(IllegalArgumentException.class, () -> new SearchBudget(-2, -1, -1));
+        assertThrows(IllegalArgumentException.class, () -> new SearchBudget(-1, -2, -1));
+        assertThrows(IllegalArgumentException.class, () -> new SearchBudget(-1, -1, -2));
+        BNBuilder algorithm = new HillClimbingSearch(Resources.CANCER_DATASET);
+        assertEquals(SearchBudget.UNLIMITED, algorithm.getSearchBudget());
+        assertThrows(NullPointerException.class, () -> algorithm.setSearchBudget(null));
+    }
+}
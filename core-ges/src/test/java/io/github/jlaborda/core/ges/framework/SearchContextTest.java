@@ -0,0 +1,72 @@
+package io.github.jlaborda.core.ges.framework;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.graph.Edge;
+import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.common.utils.Utils;
+import io.github.jlaborda.core.ges.algorithms.GreedyEquivalenceSearch;
+import io.github.jlaborda.core.ges.threads.FESThread;
+import io.github.jlaborda.core.ges.threads.GESThread;
+import io.github.jlaborda.test.utils.Resources;
+
+public class SearchContextTest {
+
+    @Test
+    public void threadsTakeTheirIdsAndTimesFromTheirContextTest() {
+        Problem problem = new Problem(Resources.CANCER_DATASET);
+        Set<Edge> arcs = Utils.calculateArcs(problem.getData());
+        SearchContext first = new SearchContext(SearchBudget.Tracker.UNLIMITED, new Random(1));
+        SearchContext second = new SearchContext(SearchBudget.Tracker.UNLIMITED, new Random(1));
+
+        GESThread[] threads = {new FESThread(problem, arcs, 15, false), new FESThread(problem, arcs, 15, false)};
+        for (GESThread thread : threads) {
+            thread.setContext(first);
+            thread.run();
+        }
+        FESThread other = new FESThread(problem, arcs, 15, false);
+        other.setContext(second);
+
+        assertEquals(1, threads[0].getId());
+        assertEquals(2, threads[1].getId());
+        assertEquals(1, other.getId());
+        assertSame(first.getBudget(), threads[0].getBudget());
+
+        first.getForwardTimes().record(threads);
+        double mean = (threads[0].getElapsedTime() + threads[1].getElapsedTime()) / 2.0;
+        assertEquals(mean, first.getForwardTimes().getMeanTimeTotal());
+        assertEquals(0, second.getForwardTimes().getMeanTimeTotal());
+        assertEquals(0, first.getBackwardTimes().getMeanTimeTotal());
+    }
+
+    @Test
+    public void contextsSplitWithTheirOwnGeneratorTest() {
+        Set<Edge> edges = new HashSet<>(Utils.calculateArcs(Resources.ALARM_DATASET));
+        SearchContext first = new SearchContext(SearchBudget.Tracker.UNLIMITED, new Random(7));
+        SearchContext second = new SearchContext(SearchBudget.Tracker.UNLIMITED, new Random(7));
+
+        // The generator shared by the JVM doesn't change the split of a context
+        Utils.setSeed(3);
+        List<Set<Edge>> expected = Utils.split(edges, 4, first.getRandom());
+        Utils.split(edges, 4);
+        assertEquals(expected, Utils.split(edges, 4, second.getRandom()));
+        assertNotEquals(expected, Utils.split(edges, 4, new Random(8)));
+
+        // The seed of a builder is only used by its own searches
+        BNBuilder algorithm = new GreedyEquivalenceSearch(Resources.CANCER_DATASET, false);
+        algorithm.setSeed(11);
+        assertEquals(11, algorithm.getSeed());
+        assertEquals(3, Utils.getSeed());
+        assertThrows(NullPointerException.class, () -> new SearchContext(null, new Random()));
+        assertThrows(NullPointerException.class, () -> new SearchContext(SearchBudget.Tracker.UNLIMITED, null));
+    }
+}
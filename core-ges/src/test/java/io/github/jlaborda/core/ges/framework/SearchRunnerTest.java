@@ -0,0 +1,71 @@
+package io.github.jlaborda.core.ges.framework;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
+import io.github.jlaborda.core.ges.algorithms.GreedyEquivalenceSearch;
+import io.github.jlaborda.test.utils.Resources;
+
+public class SearchRunnerTest {
+
+    private static BNBuilder ges(DataSet ds) {
+        return new GreedyEquivalenceSearch(new EdgeListGraph(ds.getVariables()), ds, false);
+    }
+
+    @Test
+    public void concurrentSearchesMatchSequentialOnesTest() throws InterruptedException, ExecutionException {
+        List<DataSet> datasets = List.of(Resources.ALARM_DATASET, Resources.CANCER_DATASET, Resources.ALARM_DATASET);
+        List<Set<Edge>> expected = new ArrayList<>();
+        for (DataSet ds : datasets) {
+            expected.add(new HashSet<>(ges(ds).search().getEdges()));
+        }
+
+        // Every search runs at once, sharing the workers of the runner to score their operators
+        try (SearchRunner runner = new SearchRunner(2)) {
+            List<CompletableFuture<Graph>> results = runner.submitAll(datasets, SearchRunnerTest::ges);
+            for (int i = 0; i < datasets.size(); i++) {
+                assertEquals(expected.get(i), new HashSet<>(results.get(i).get().getEdges()));
+            }
+        }
+    }
+
+    @Test
+    public void closedRunnerRejectsSearchesTest() throws InterruptedException {
+        SearchRunner runner = new SearchRunner(1);
+        assertEquals(1, runner.getParallelism());
+        CompletableFuture<Graph> running = runner.submit(ges(Resources.CANCER_DATASET));
+        runner.close();
+
+        CompletableFuture<Graph> rejected = runner.submit(ges(Resources.CANCER_DATASET));
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+
+        // The searches submitted before closing the runner still finish
+        assertTrue(runner.awaitTermination(30, TimeUnit.SECONDS));
+        assertTrue(running.isDone() && !running.isCompletedExceptionally());
+    }
+
+    @Test
+    public void invalidArgumentsTest() {
+        assertThrows(IllegalArgumentException.class, () -> new SearchRunner(0));
+        try (SearchRunner runner = new SearchRunner(1)) {
+            assertThrows(NullPointerException.class, () -> runner.submit(null));
+            assertThrows(NullPointerException.class, () -> runner.submitAll(null, SearchRunnerTest::ges));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.jlaborda.core.ges.framework;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class StageExecutorTest {
+
+    @Test
+    public void runsEveryTaskTest() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        StageExecutor executor = new StageExecutor(pool);
+        AtomicInteger counter = new AtomicInteger();
+        Runnable[] tasks = new Runnable[10];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = counter::incrementAndGet;
+        }
+
+        executor.invokeAll(tasks);
+
+        assertEquals(10, counter.get());
+        assertSame(pool, executor.getPool());
+        pool.shutdown();
+    }
+
+    @Test
+    public void nestedParallelStreamsRunInThePoolTest() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        StageExecutor executor = new StageExecutor(pool);
+        AtomicInteger outsidePool = new AtomicInteger();
+        Runnable task = () -> IntStream.range(0, 1000).parallel().forEach(i -> {
+            if (ForkJoinTask.getPool() != pool)
+                outsidePool.incrementAndGet();
+        });
+
+        executor.invokeAll(new Runnable[]{task, task, task, task});
+
+        assertEquals(0, outsidePool.get());
+        pool.shutdown();
+    }
+
+    @Test
+    public void failuresArePropagatedTest() {
+        StageExecutor executor = StageExecutor.common();
+        Runnable[] tasks = {() -> { }, () -> {
+            throw new IllegalStateException("failed");
+        }};
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> executor.invokeAll(tasks));
+        assertEquals("failed", e.getMessage());
+    }
+
+    @Test
+    public void invokingFromAWorkerOfThePoolTest() {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        StageExecutor executor = new StageExecutor(pool);
+        AtomicInteger counter = new AtomicInteger();
+
+        // With a single worker, blocking it would never finish
+        pool.submit(() -> {
+            executor.invokeAll(new Runnable[]{counter::incrementAndGet, counter::incrementAndGet});
+            return null;
+        }).join();
+
+        assertEquals(2, counter.get());
+        assertTrue(pool.awaitQuiescence(5, TimeUnit.SECONDS));
+        pool.shutdown();
+    }
+
+    @Test
+    public void perStageRunsEveryTaskAtOnceTest() throws InterruptedException {
+        // More tasks than workers of the common pool: each of them waits until all the others have started
+        int nTasks = ForkJoinPool.getCommonPoolParallelism() + 2;
+        CyclicBarrier barrier = new CyclicBarrier(nTasks);
+        AtomicInteger counter = new AtomicInteger();
+        Runnable[] tasks = new Runnable[nTasks];
+        for (int i = 0; i < nTasks; i++) {
+            tasks[i] = () -> {
+                try {
+                    barrier.await(10, TimeUnit.SECONDS);
+                    counter.incrementAndGet();
+                } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        }
+
+        StageExecutor.perStage().invokeAll(tasks);
+
+        assertEquals(nTasks, counter.get());
+        assertNull(StageExecutor.perStage().getPool());
+    }
+
+    @Test
+    public void interruptionCancelsTheSearchTest() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        StageExecutor executor = new StageExecutor(pool);
+        SearchContext context = SearchContext.standalone();
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        // The first task only stops when the budget is cancelled, and the second one waits for the only worker
+        Runnable[] tasks = {() -> {
+            started.countDown();
+            while (!context.getBudget().isExhausted()) {
+                Thread.onSpinWait();
+            }
+            finished.set(true);
+        }, () -> queuedRan.set(true)};
+
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean finishedWhenThrown = new AtomicBoolean();
+        Thread caller = new Thread(() -> {
+            try {
+                executor.invokeAll(tasks, context);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+                finishedWhenThrown.set(finished.get());
+            }
+        });
+        caller.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(10_000);
+
+        assertTrue(interrupted.get());
+        assertTrue(context.getBudget().isCancelled());
+        assertTrue(finishedWhenThrown.get());
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertFalse(queuedRan.get());
+        assertThrows(NullPointerException.class, () -> executor.invokeAll(tasks, null));
+    }
+
+    @Test
+    public void nullPoolThrowsTest() {
+        assertThrows(NullPointerException.class, () -> new StageExecutor(null));
+    }
+}
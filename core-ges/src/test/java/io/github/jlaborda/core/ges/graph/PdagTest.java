@@ -0,0 +1,254 @@
+package io.github.jlaborda.core.ges.graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Edges;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphNode;
+import edu.cmu.tetrad.graph.GraphTransforms;
+import edu.cmu.tetrad.graph.Node;
+
+public class PdagTest {
+
+    private static List<Node> nodes(int n) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            nodes.add(new GraphNode("X" + i));
+        }
+        return nodes;
+    }
+
+    private static BitSet bits(int... indices) {
+        BitSet bits = new BitSet();
+        for (int i : indices) {
+            bits.set(i);
+        }
+        return bits;
+    }
+
+    private static Graph randomDag(List<Node> nodes, double density, Random random) {
+        Graph dag = new EdgeListGraph(nodes);
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int j = i + 1; j < nodes.size(); j++) {
+                if (random.nextDouble() < density) {
+                    dag.addDirectedEdge(nodes.get(i), nodes.get(j));
+                }
+            }
+        }
+        return dag;
+    }
+
+    @Test
+    public void fromGraphAndToGraphTest() {
+        List<Node> nodes = nodes(4);
+        Graph graph = new EdgeListGraph(nodes);
+        graph.addDirectedEdge(nodes.get(0), nodes.get(1));
+        graph.addUndirectedEdge(nodes.get(1), nodes.get(2));
+        graph.addDirectedEdge(nodes.get(3), nodes.get(2));
+
+        Pdag pdag = Pdag.fromGraph(nodes, graph);
+
+        assertEquals(3, pdag.getNumEdges());
+        assertTrue(pdag.isParent(0, 1));
+        assertFalse(pdag.isParent(1, 0));
+        assertTrue(pdag.isUndirected(1, 2));
+        assertTrue(pdag.isUndirected(2, 1));
+        assertTrue(pdag.isAdjacent(2, 3));
+        assertFalse(pdag.isAdjacent(0, 3));
+        assertEquals(graph, pdag.toGraph());
+    }
+
+    @Test
+    public void unknownNodeThrowsTest() {
+        List<Node> nodes = nodes(2);
+        Graph graph = new EdgeListGraph(nodes);
+        graph.addNode(new GraphNode("Other"));
+        graph.addDirectedEdge(nodes.get(0), graph.getNode("Other"));
+
+        assertThrows(IllegalArgumentException.class, () -> Pdag.fromGraph(nodes, graph));
+    }
+
+    @Test
+    public void addingAnEdgeReplacesThePreviousOneTest() {
+        Pdag pdag = new Pdag(nodes(3));
+        pdag.addUndirectedEdge(0, 1);
+        pdag.addDirectedEdge(1, 0);
+
+        assertEquals(1, pdag.getNumEdges());
+        assertTrue(pdag.isParent(1, 0));
+        assertFalse(pdag.isUndirected(0, 1));
+
+        pdag.removeEdge(0, 1);
+        pdag.removeEdge(0, 1);
+        assertEquals(0, pdag.getNumEdges());
+    }
+
+    @Test
+    public void neighborhoodQueriesTest() {
+        // 0 -- 2, 1 -- 2, 3 -- 2, 0 -> 4, 0 -- 1
+        Pdag pdag = new Pdag(nodes(5));
+        pdag.addUndirectedEdge(0, 2);
+        pdag.addUndirectedEdge(1, 2);
+        pdag.addUndirectedEdge(2, 3);
+        pdag.addDirectedEdge(0, 4);
+        pdag.addUndirectedEdge(0, 1);
+
+        // Neighbors of 2 adjacent to 0, and not adjacent to 0
+        assertEquals(bits(1), pdag.naYX(0, 2));
+        assertEquals(bits(1, 3), pdag.neighborsNotAdjacentTo(4, 2));
+        assertEquals(bits(1, 2, 4), pdag.adjacentsOf(0));
+
+        assertTrue(pdag.isClique(bits(0, 1, 2)));
+        assertFalse(pdag.isClique(bits(0, 1, 3)));
+        assertTrue(pdag.isClique(bits()));
+    }
+
+    @Test
+    public void semiDirectedPathTest() {
+        // 0 -> 1 -- 2 -> 3, and 3 -> 4 <- 0
+        Pdag pdag = new Pdag(nodes(5));
+        pdag.addDirectedEdge(0, 1);
+        pdag.addUndirectedEdge(1, 2);
+        pdag.addDirectedEdge(2, 3);
+        pdag.addDirectedEdge(3, 4);
+        pdag.addDirectedEdge(0, 4);
+
+        // 1 -- 2 -> 3 is semi-directed, 3 -> 2 isn't
+        assertFalse(pdag.isSemiDirectedBlocked(3, 1, bits()));
+        assertTrue(pdag.isSemiDirectedBlocked(3, 1, bits(2)));
+        assertTrue(pdag.isSemiDirectedBlocked(1, 3, bits()));
+        // Paths can't go against 0 -> 1
+        assertTrue(pdag.isSemiDirectedBlocked(0, 2, bits()));
+        assertTrue(pdag.isSemiDirectedBlocked(4, 2, bits(4)));
+    }
+
+    @Test
+    public void insertAndDeleteTest() {
+        // 1 -- 2, 3 -- 2, 3 -- 1
+        Pdag pdag = new Pdag(nodes(4));
+        pdag.addUndirectedEdge(1, 2);
+        pdag.addUndirectedEdge(3, 2);
+        pdag.addUndirectedEdge(3, 1);
+
+        pdag.insert(0, 2, bits(1));
+
+        assertTrue(pdag.isParent(0, 2));
+        assertTrue(pdag.isParent(1, 2));
+        assertTrue(pdag.isUndirected(3, 2));
+        assertEquals(4, pdag.getNumEdges());
+
+        // Delete 3 -- 2 with H = {1}: 1 -> 2 becomes 2 -> 1 and 3 -- 1 becomes 3 -> 1
+        pdag.delete(3, 2, bits(1));
+
+        assertFalse(pdag.isAdjacent(3, 2));
+        assertTrue(pdag.isParent(2, 1));
+        assertTrue(pdag.isParent(3, 1));
+        assertEquals(3, pdag.getNumEdges());
+    }
+
+    @Test
+    public void rebuildPatternMatchesTetradCpdagTest() {
+        Random random = new Random(42);
+        List<Node> nodes = nodes(15);
+        for (int i = 0; i < 50; i++) {
+            Graph dag = randomDag(nodes, 0.1 + 0.3 * random.nextDouble(), random);
+            Pdag pdag = Pdag.fromGraph(nodes, dag);
+
+            pdag.rebuildPattern();
+
+            assertEquals(GraphTransforms.dagToCpdag(dag), pdag.toGraph());
+        }
+    }
+
+    @Test
+    public void changedNodesTest() {
+        Pdag pdag = new Pdag(nodes(4));
+        pdag.addDirectedEdge(0, 1);
+        pdag.addUndirectedEdge(2, 3);
+        Pdag copy = new Pdag(pdag);
+
+        copy.addDirectedEdge(1, 0);
+
+        assertEquals(bits(), pdag.changedNodes(new Pdag(pdag)));
+        assertEquals(bits(0, 1), copy.changedNodes(pdag));
+        assertTrue(Edges.isDirectedEdge(copy.toGraph().getEdge(copy.getNode(1), copy.getNode(0))));
+    }
+
+    /**
+     * Reference check of semi-directed paths: a depth-first search over the edges, one node at a time.
+     */
+    private static boolean naiveBlocked(Pdag pdag, int x, int y, BitSet blocked) {
+        if (blocked.get(y))
+            return true;
+        BitSet visited = (BitSet) blocked.clone();
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(y);
+        visited.set(y);
+        while (!stack.isEmpty()) {
+            int a = stack.pop();
+            if (a == x)
+                return false;
+            for (int b = 0; b < pdag.getNumNodes(); b++) {
+                if (!visited.get(b) && (pdag.isParent(a, b) || pdag.isUndirected(a, b))) {
+                    visited.set(b);
+                    stack.push(b);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void semiDirectedBlockedMatchesNaiveSearchTest() {
+        Random random = new Random(7);
+        List<Node> nodes = nodes(20);
+        for (int i = 0; i < 20; i++) {
+            Pdag pdag = Pdag.fromGraph(nodes, randomDag(nodes, 0.15, random));
+            pdag.rebuildPattern();
+            for (int j = 0; j < 200; j++) {
+                int x = random.nextInt(nodes.size());
+                int y = random.nextInt(nodes.size());
+                BitSet blocked = new BitSet();
+                for (int k = 0; k < 3; k++) {
+                    int b = random.nextInt(nodes.size());
+                    if (b != x && random.nextBoolean())
+                        blocked.set(b);
+                }
+                assertEquals(naiveBlocked(pdag, x, y, blocked), pdag.isSemiDirectedBlocked(x, y, blocked));
+            }
+        }
+    }
+
+    @Test
+    public void reachabilityIsRecomputedAfterChangesTest() {
+        // 0 -> 1 -> 2
+        Pdag pdag = new Pdag(nodes(3));
+        pdag.addDirectedEdge(0, 1);
+        pdag.addDirectedEdge(1, 2);
+        long version = pdag.getVersion();
+
+        assertEquals(bits(0, 1, 2), pdag.semiDirectedReachable(0));
+        assertFalse(pdag.isSemiDirectedBlocked(2, 0, bits()));
+        // Cached for the same version
+        assertSame(pdag.semiDirectedReachable(0), pdag.semiDirectedReachable(0));
+
+        pdag.addDirectedEdge(2, 1);
+
+        assertTrue(pdag.getVersion() > version);
+        assertEquals(bits(0, 1), pdag.semiDirectedReachable(0));
+        assertTrue(pdag.isSemiDirectedBlocked(2, 0, bits()));
+    }
+}
@@ -1,14 +1,15 @@
 package io.github.jlaborda.core.ges.threads;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import edu.cmu.tetrad.data.DataSet;
@@ -20,8 +21,6 @@ import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
 import io.github.jlaborda.core.common.utils.Problem;
 import io.github.jlaborda.core.common.utils.Utils;
-import io.github.jlaborda.core.ges.framework.BackwardStage;
-import io.github.jlaborda.core.ges.framework.ForwardStage;
 import io.github.jlaborda.test.utils.Resources;
 
 /**
@@ -75,12 +74,6 @@ public class BESThreadTest {
         initializeSubsets();
     }
 
-    @BeforeEach
-    public void restartMeans(){
-        BackwardStage.meanTimeTotal = 0;
-        ForwardStage.meanTimeTotal = 0;
-    }
-
 
     /**
      * This method initializes the subsets, splitting the nodes in what is expected to happen when the seed is 42
@@ -186,11 +179,93 @@ public class BESThreadTest {
 
     }
 
+    /**
+     * Checks that the incremental mode, which keeps the deletion operators in a queue and only re-scores the ones
+     * affected by each deletion, returns the same graph as scoring every edge in each iteration.
+     * @result Both modes return the same graph and score.
+     * @throws InterruptedException Caused by an external interruption.
+     */
+    @Test
+    public void deletionsDrawHFromNaYXTest() {
+        // Arrange: an arc between the parents of cancer, which is a neighbor of both of them
+        List<Node> nodes = Arrays.asList(cancer, xray, dyspnoea, pollution, smoker);
+        Graph graph = new EdgeListGraph(nodes);
+        graph.addDirectedEdge(smoker, pollution);
+        graph.addUndirectedEdge(pollution, cancer);
+        graph.addUndirectedEdge(smoker, cancer);
+        graph.addDirectedEdge(cancer, xray);
+        graph.addDirectedEdge(cancer, dyspnoea);
+        Set<Edge> arcs = Utils.calculateArcs(dataset);
+        BESThread thread = new BESThread(problem, graph, arcs);
 
+        // Act
+        double score = thread.bs(graph, 0);
+
+        // Assert: the chosen operator is the best Delete(x, y, H) over every H in NA_{Y,X} that leaves a clique
+        double best = 0;
+        Set<Node> bestH = null;
+        Edge bestEdge = null;
+        for (Edge edge : graph.getEdges()) {
+            if (!Edges.isDirectedEdge(edge))
+                continue;
+            Node x = Edges.getDirectedEdgeTail(edge);
+            Node y = Edges.getDirectedEdgeHead(edge);
+            List<Node> naYX = GESThread.findNaYX(x, y, graph);
+            for (int mask = 0; mask < 1 << naYX.size(); mask++) {
+                Set<Node> h = new HashSet<>();
+                for (int b = 0; b < naYX.size(); b++) {
+                    if ((mask & (1 << b)) != 0)
+                        h.add(naYX.get(b));
+                }
+                List<Node> rest = new ArrayList<>(naYX);
+                rest.removeAll(h);
+                double delta = thread.deleteEval(x, y, h, graph);
+                if (GESThread.isClique(rest, graph) && delta > best) {
+                    best = delta;
+                    bestH = h;
+                    bestEdge = edge;
+                }
+            }
+        }
+        assertNotNull(bestEdge);
+        assertEquals(best, score, 1e-9);
+        assertEquals(bestEdge.getNode1(), thread.x_d);
+        assertEquals(bestEdge.getNode2(), thread.y_d);
+        assertEquals(bestH, thread.h_0);
+        // Deleting the arc with H = {cancer} leaves the collider pollution -> cancer <- smoker
+        assertEquals(Set.of(cancer), thread.h_0);
+    }
 
+    @Test
+    public void incrementalModeLearnsSameGraphTest() throws InterruptedException {
+        // Arrange: a dense DAG over alarm, with arcs following the order of the variables
+        DataSet alarm = Resources.ALARM_DATASET;
+        List<Node> nodes = alarm.getVariables();
+        Graph dense = new EdgeListGraph(nodes);
+        Random random = new Random(42);
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int j = i + 1; j < nodes.size(); j++) {
+                if (random.nextDouble() < 0.1) {
+                    dense.addDirectedEdge(nodes.get(i), nodes.get(j));
+                }
+            }
+        }
+        // Some nodes have more parents than an insertion could give them, and their deletions are still scored
+        assertTrue(nodes.stream().anyMatch(node -> dense.getParents(node).size() > Problem.DEFAULT_MAX_PARENTS));
+        Set<Edge> arcs = Utils.calculateArcs(alarm);
+        BESThread incremental = new BESThread(new Problem(alarm), dense, arcs);
+        BESThread full = new BESThread(new Problem(alarm), dense, arcs);
+        full.setIncremental(false);
 
-
-
-
-
+        // Act
+        incremental.run();
+        full.run();
+
+        // Assert
+        assertTrue(incremental.isIncremental());
+        assertEquals(full.getCurrentGraph(), incremental.getCurrentGraph());
+        assertEquals(full.getScoreBDeu(), incremental.getScoreBDeu(), 1e-9);
+        assertTrue(Double.isFinite(incremental.getScoreBDeu()));
+        assertTrue(incremental.getCurrentGraph().getNumEdges() < dense.getNumEdges());
+    }
 }
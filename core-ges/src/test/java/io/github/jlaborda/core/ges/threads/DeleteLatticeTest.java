@@ -0,0 +1,182 @@
+package io.github.jlaborda.core.ges.threads;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.data.IntDataBox;
+import edu.cmu.tetrad.graph.Node;
+import io.github.jlaborda.core.common.utils.Problem;
+import io.github.jlaborda.core.ges.graph.Pdag;
+import io.github.jlaborda.test.utils.Resources;
+
+public class DeleteLatticeTest {
+
+    private final Problem problem = new Problem(Resources.ALARM_DATASET);
+
+    /**
+     * A graph where the edge 1 -> 0 has NA_{Y,X} = {2, ..., 10}, with no adjacencies among them, so only the subsets
+     * that leave at most one of them in NA_{Y,X} \ H pass the clique test.
+     */
+    private Pdag independentNeighbors() {
+        Pdag pdag = new Pdag(problem.getVariables());
+        pdag.addDirectedEdge(1, 0);
+        for (int z = 2; z <= 10; z++) {
+            pdag.addUndirectedEdge(0, z);
+            pdag.addDirectedEdge(z, 1);
+        }
+        return pdag;
+    }
+
+    @Test
+    public void matchesPowerSetTest() {
+        Pdag pdag = independentNeighbors();
+        BitSet candidates = pdag.naYX(1, 0);
+        assertTrue(512 >= DeleteLattice.PARALLEL_THRESHOLD);
+
+        Expected expected = powerSet(pdag, 1, 0, candidates);
+        for (boolean parallel : new boolean[]{false, true}) {
+            DeleteLattice.Best best = DeleteLattice.search(pdag, problem, 1, 0, candidates, parallel);
+            assertEquals(expected.score, best.score, 1e-9);
+            assertEquals(expected.h, best.h);
+        }
+    }
+
+    @Test
+    public void candidatesOutsideNaYXTest() {
+        Pdag pdag = independentNeighbors();
+        pdag.removeEdge(1, 0);
+        pdag.addDirectedEdge(11, 0);
+        pdag.addUndirectedEdge(0, 12);
+        pdag.addUndirectedEdge(0, 13);
+
+        // The neighbors of 0 not adjacent to 11 don't change the family of 0, so the empty subset is the best one
+        BitSet candidates = pdag.neighborsNotAdjacentTo(11, 0);
+        DeleteLattice.Best best = DeleteLattice.search(pdag, problem, 11, 0, candidates, false);
+        assertEquals(powerSet(pdag, 11, 0, candidates).score, best.score, 1e-9);
+        assertTrue(best.h.isEmpty());
+
+        // Once 2 and 3 are in NA_{Y,X} and aren't candidates, no subset passes the clique test
+        pdag.addDirectedEdge(2, 11);
+        pdag.addDirectedEdge(3, 11);
+        candidates = pdag.neighborsNotAdjacentTo(11, 0);
+        best = DeleteLattice.search(pdag, problem, 11, 0, candidates, false);
+        assertEquals(Double.NEGATIVE_INFINITY, best.score);
+    }
+
+    @Test
+    public void requiredCandidatesTest() {
+        Pdag pdag = independentNeighbors();
+        // 2 stays in NA_{Y,X} \ H, so the candidates not adjacent to it must be in H
+        for (int z = 4; z <= 10; z++) {
+            pdag.addUndirectedEdge(2, z);
+        }
+        BitSet candidates = pdag.naYX(1, 0);
+        candidates.clear(2);
+
+        DeleteLattice.Best best = DeleteLattice.search(pdag, problem, 1, 0, candidates, true);
+        Expected expected = powerSet(pdag, 1, 0, candidates);
+        assertTrue(best.h.get(3));
+        assertEquals(expected.score, best.score, 1e-9);
+        assertEquals(expected.h, best.h);
+    }
+
+    @Test
+    public void moreCandidatesThanMaskBitsTest() {
+        // Binary variables, enough for NA_{Y,X} = {2, ..., 71}
+        int numVariables = 72;
+        List<Node> variables = new ArrayList<>();
+        for (int i = 0; i < numVariables; i++) {
+            variables.add(new DiscreteVariable("X" + i, 2));
+        }
+        Random random = new Random(3);
+        int[][] data = new int[200][numVariables];
+        for (int[] row : data) {
+            for (int j = 0; j < numVariables; j++) {
+                row[j] = random.nextInt(2);
+            }
+        }
+        Problem wideProblem = new Problem(new BoxDataSet(new IntDataBox(data), variables));
+
+        Pdag pdag = new Pdag(wideProblem.getVariables());
+        pdag.addDirectedEdge(1, 0);
+        for (int z = 2; z < numVariables; z++) {
+            pdag.addUndirectedEdge(0, z);
+            pdag.addDirectedEdge(z, 1);
+        }
+        // 2 stays in NA_{Y,X} \ H and is only adjacent to 3, 4 and 5, so every other candidate must be in H
+        for (int z = 3; z <= 5; z++) {
+            pdag.addUndirectedEdge(2, z);
+        }
+        BitSet candidates = pdag.naYX(1, 0);
+        candidates.clear(2);
+        assertTrue(candidates.cardinality() > DeleteLattice.MAX_MASK_NODES);
+
+        BitSet free = new BitSet();
+        free.set(3, 6);
+        BitSet required = (BitSet) candidates.clone();
+        required.andNot(free);
+        Expected expected = powerSet(wideProblem, pdag, 1, 0, free, required);
+        assertTrue(Double.isFinite(expected.score));
+        for (boolean parallel : new boolean[]{false, true}) {
+            DeleteLattice.Best best = DeleteLattice.search(pdag, wideProblem, 1, 0, candidates, parallel);
+            assertEquals(expected.score, best.score, 1e-9);
+            assertEquals(expected.h, best.h);
+        }
+    }
+
+    private Expected powerSet(Pdag pdag, int x, int y, BitSet candidates) {
+        return powerSet(problem, pdag, x, y, candidates, new BitSet());
+    }
+
+    /**
+     * Tries every subset of the candidates in order, as a {@link es.uclm.i3a.simd.consensusBN.PowerSet PowerSet}
+     * does, scoring the families with {@link Problem#evaluate(int, int[])}. Every subset also has the nodes of always.
+     */
+    private static Expected powerSet(Problem problem, Pdag pdag, int x, int y, BitSet candidates, BitSet always) {
+        int[] nodes = candidates.stream().toArray();
+        double bestScore = Double.NEGATIVE_INFINITY;
+        BitSet bestH = new BitSet();
+        for (long mask = 0; mask < 1L << nodes.length; mask++) {
+            BitSet h = (BitSet) always.clone();
+            for (int b = 0; b < nodes.length; b++) {
+                if ((mask & (1L << b)) != 0) {
+                    h.set(nodes[b]);
+                }
+            }
+            BitSet naYXH = pdag.naYX(x, y);
+            naYXH.andNot(h);
+            if (!pdag.isClique(naYXH)) {
+                continue;
+            }
+            BitSet without = (BitSet) naYXH.clone();
+            without.or(pdag.parentsOf(y));
+            without.clear(x);
+            BitSet with = (BitSet) without.clone();
+            with.set(x);
+            double score = problem.evaluate(y, without.stream().toArray()) - problem.evaluate(y, with.stream().toArray());
+            if (score > bestScore) {
+                bestScore = score;
+                bestH = h;
+            }
+        }
+        return new Expected(bestScore, bestH);
+    }
+
+    private static final class Expected {
+        private final double score;
+        private final BitSet h;
+
+        private Expected(double score, BitSet h) {
+            this.score = score;
+            this.h = h;
+        }
+    }
+}
@@ -11,7 +11,6 @@ import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import edu.cmu.tetrad.data.DataSet;
@@ -22,8 +21,6 @@ import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
 import io.github.jlaborda.core.common.utils.Problem;
 import io.github.jlaborda.core.common.utils.Utils;
-import io.github.jlaborda.core.ges.framework.BackwardStage;
-import io.github.jlaborda.core.ges.framework.ForwardStage;
 import io.github.jlaborda.test.utils.Resources;
 
 public class FESThreadTest {
@@ -75,12 +72,6 @@ public class FESThreadTest {
         initializeSubsets();
     }
 
-    @BeforeEach
-    public void restartMeans(){
-        BackwardStage.meanTimeTotal = 0;
-        ForwardStage.meanTimeTotal = 0;
-    }
-
 
     /**
      * This method initializes the subsets, splitting the nodes in what is expected to happen when the seed is 42
@@ -140,8 +131,6 @@ public class FESThreadTest {
      */
     @Test
     public void searchTwoThreadsTest() throws InterruptedException {
-        BackwardStage.meanTimeTotal = 0;
-        ForwardStage.meanTimeTotal = 0;
         // ThFES objects
         FESThread thread1 = new FESThread(problem, subset1, 15, false);
         FESThread thread2 = new FESThread(problem, subset2, 15, false);
@@ -445,8 +434,61 @@ public class FESThreadTest {
         assertEquals(expected, actual);
     }
 
+    /**
+     * Checks that the incremental mode, which only re-scores the operators affected by each insertion, learns the
+     * same graph as re-scoring every candidate touching the neighborhood of the inserted edge, with fewer evaluations.
+     * @result Both modes return the same graph and score, and the incremental mode evaluates fewer families.
+     * @throws InterruptedException Caused by an external interruption.
+     */
+    @Test
+    public void incrementalModeLearnsSameGraphTest() throws InterruptedException {
+        // Arrange
+        DataSet alarm = Resources.ALARM_DATASET;
+        Set<Edge> arcs = Utils.calculateArcs(alarm);
+        Problem incrementalProblem = new Problem(alarm);
+        Problem fullProblem = new Problem(alarm);
+        FESThread incremental = new FESThread(incrementalProblem, new HashSet<>(arcs), 1000, false);
+        FESThread full = new FESThread(fullProblem, new HashSet<>(arcs), 1000, false);
+        full.setIncremental(false);
 
+        // Act
+        incremental.run();
+        full.run();
 
+        // Assert
+        assertTrue(incremental.isIncremental());
+        assertEquals(full.getCurrentGraph(), incremental.getCurrentGraph());
+        assertEquals(full.getScoreBDeu(), incremental.getScoreBDeu(), 1e-9);
+        assertTrue(incrementalProblem.getScoreMetrics().snapshot().getTotalCalls()
+                < fullProblem.getScoreMetrics().snapshot().getTotalCalls());
+    }
 
+    /**
+     * Checks that the insertions that would give a node more parents than the problem allows are pruned before they
+     * are scored.
+     * @result No family over the bound is evaluated, and no node of the result has more parents than the bound.
+     * @throws InterruptedException Caused by an external interruption.
+     */
+    @Test
+    public void maxParentsPrunesInsertionsTest() throws InterruptedException {
+        // Arrange
+        DataSet alarm = Resources.ALARM_DATASET;
+        Problem maxParentsProblem = new Problem(alarm);
+        maxParentsProblem.setMaxParents(2);
+        FESThread thread = new FESThread(maxParentsProblem, new HashSet<>(Utils.calculateArcs(alarm)), 1000, false);
 
+        // Act
+        thread.run();
+
+        // Assert
+        long[] histogram = maxParentsProblem.getScoreMetrics().snapshot().getParentSetSizeHistogram();
+        for (int nParents = 3; nParents < histogram.length; nParents++) {
+            assertEquals(0, histogram[nParents]);
+        }
+        Graph result = thread.getCurrentGraph();
+        assertTrue(result.getNumEdges() > 0);
+        for (Node node : result.getNodes()) {
+            assertTrue(result.getParents(node).size() <= 2);
+        }
+    }
 }
@@ -9,7 +9,6 @@ import java.util.Set;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import edu.cmu.tetrad.data.DataSet;
@@ -21,8 +20,6 @@ import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
 import io.github.jlaborda.core.common.utils.Problem;
 import io.github.jlaborda.core.common.utils.Utils;
-import io.github.jlaborda.core.ges.framework.BackwardStage;
-import io.github.jlaborda.core.ges.framework.ForwardStage;
 import io.github.jlaborda.test.utils.Resources;
 
 
@@ -67,12 +64,6 @@ public class ForwardHillClimbingThreadTest {
     private final Problem problem;
 
 
-    @BeforeEach
-    public void restartMeans(){
-        BackwardStage.meanTimeTotal = 0;
-        ForwardStage.meanTimeTotal = 0;
-    }
-
 
     /**
      * Constructor of the test. It initializes the subsets.
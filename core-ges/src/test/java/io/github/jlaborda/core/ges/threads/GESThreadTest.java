@@ -10,10 +10,8 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import com.github.benmanes.caffeine.cache.Cache;
 
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.Dag;
@@ -24,10 +22,8 @@ import edu.cmu.tetrad.graph.Endpoint;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphNode;
 import edu.cmu.tetrad.graph.Node;
-import io.github.jlaborda.core.common.utils.ParentSetKey;
+import io.github.jlaborda.core.common.utils.LocalScoreCache;
 import io.github.jlaborda.core.common.utils.Problem;
-import io.github.jlaborda.core.ges.framework.BackwardStage;
-import io.github.jlaborda.core.ges.framework.ForwardStage;
 import io.github.jlaborda.test.utils.Resources;
 
 /**
@@ -71,12 +67,6 @@ public class GESThreadTest {
      */
     final Set<Edge> subset2 = new HashSet<>();
 
-    @BeforeEach
-    public void restartMeans() {
-        BackwardStage.meanTimeTotal = 0;
-        ForwardStage.meanTimeTotal = 0;
-    }
-
     /**
      * Constructor of the test. It initializes the subsets
      */
@@ -524,7 +514,7 @@ void setMaxNumEdgesErrorTest() {
         Problem problem = new Problem(dataset);
         GESThread thread = new FESThread(problem, subset1, 15, false);
 
-        Cache<ParentSetKey,Double> result = thread.getProblem().getLocalScoreCache();
+        LocalScoreCache result = thread.getProblem().getLocalScoreCache();
         //ConcurrentHashMap<ParentSetKey,Double> result = thread.getProblem().getLocalScoreCache();
         assertNotNull(result);
 
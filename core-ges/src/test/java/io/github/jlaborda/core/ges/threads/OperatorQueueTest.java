@@ -0,0 +1,73 @@
+package io.github.jlaborda.core.ges.threads;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.Edges;
+import edu.cmu.tetrad.graph.GraphNode;
+import edu.cmu.tetrad.graph.Node;
+
+public class OperatorQueueTest {
+
+    private final Node a = new GraphNode("A");
+    private final Node b = new GraphNode("B");
+    private final Node c = new GraphNode("C");
+
+    private final Edge ab = Edges.directedEdge(a, b);
+    private final Edge bc = Edges.directedEdge(b, c);
+
+    @Test
+    public void peekReturnsBestOperatorTest() {
+        OperatorQueue queue = new OperatorQueue();
+        EdgeSearch best = new EdgeSearch(5, new HashSet<>(), ab);
+        queue.update(new EdgeSearch(3, new HashSet<>(), bc));
+        queue.update(best);
+
+        assertSame(best, queue.peek());
+        // Peeking doesn't remove the operator
+        assertSame(best, queue.peek());
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void replacedOperatorsAreDiscardedTest() {
+        OperatorQueue queue = new OperatorQueue();
+        EdgeSearch other = new EdgeSearch(3, new HashSet<>(), bc);
+        queue.update(new EdgeSearch(5, new HashSet<>(), ab));
+        queue.update(other);
+        // The new version of A->B is worse than B->C
+        queue.update(new EdgeSearch(1, new HashSet<>(), ab));
+
+        assertSame(other, queue.peek());
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void removedAndNonPositiveOperatorsAreNotReturnedTest() {
+        OperatorQueue queue = new OperatorQueue();
+        queue.update(new EdgeSearch(5, new HashSet<>(), ab));
+        queue.update(new EdgeSearch(0, new HashSet<>(), bc));
+        queue.remove(ab);
+
+        assertNull(queue.peek());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void compactionKeepsCurrentOperatorsTest() {
+        OperatorQueue queue = new OperatorQueue();
+        for (int i = 0; i < 5000; i++) {
+            queue.update(new EdgeSearch(i, new HashSet<>(), ab));
+        }
+        EdgeSearch last = new EdgeSearch(2, new HashSet<>(), ab);
+        queue.update(last);
+
+        assertSame(last, queue.peek());
+        assertEquals(1, queue.size());
+    }
+}
@@ -103,6 +103,9 @@ public class ParallelGreedyEquivalenceSearch extends BNBuilder {
     @Override
     protected void forwardStage(){
         fesStage = new FESStage(problem, currentGraph,nThreads,nItInterleaving, subSets, speedUp);
+        fesStage.setExecutor(getStageExecutor());
+        fesStage.setParallelScoring(isParallelScoring());
+        fesStage.setContext(getContext());
         fesStage.run();
         graphs = fesStage.getGraphs();
     }
@@ -110,6 +113,7 @@ public class ParallelGreedyEquivalenceSearch extends BNBuilder {
     @Override
     protected void forwardFusion() throws InterruptedException {
         FESFusion fesFusion = new FESFusion(problem, currentGraph, graphs);
+        fesFusion.setContext(getContext());
         fesFusion.run();
         currentGraph = fesFusion.getCurrentGraph();
     }
@@ -117,6 +121,9 @@ public class ParallelGreedyEquivalenceSearch extends BNBuilder {
     @Override
     protected void backwardStage(){
         besStage = new BESStage(problem, currentGraph, nThreads, nItInterleaving, subSets);
+        besStage.setExecutor(getStageExecutor());
+        besStage.setParallelScoring(isParallelScoring());
+        besStage.setContext(getContext());
         besStage.run();
         graphs = besStage.getGraphs();
     }
@@ -124,6 +131,7 @@ public class ParallelGreedyEquivalenceSearch extends BNBuilder {
     @Override
     protected void backwardFusion() throws InterruptedException {
         BESFusion besFusion = new BESFusion(problem, currentGraph, graphs, besStage);
+        besFusion.setContext(getContext());
         besFusion.run();
         currentGraph = besFusion.getCurrentGraph();
     }
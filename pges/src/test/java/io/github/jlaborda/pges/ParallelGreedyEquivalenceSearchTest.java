@@ -4,24 +4,27 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.Dag;
 import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
 import io.github.jlaborda.core.common.utils.Utils;
 import io.github.jlaborda.core.ges.clustering.EdgeClustering;
 import io.github.jlaborda.core.ges.clustering.RandomClustering;
-import io.github.jlaborda.core.ges.framework.BackwardStage;
-import io.github.jlaborda.core.ges.framework.ForwardStage;
+import io.github.jlaborda.core.ges.framework.ExecutionPolicy;
+import io.github.jlaborda.core.ges.framework.SearchEvent;
+import io.github.jlaborda.core.ges.framework.SearchRunner;
 import io.github.jlaborda.test.utils.Resources;
 
 
@@ -32,12 +35,6 @@ public class ParallelGreedyEquivalenceSearchTest {
     String path = Resources.CANCER_DATASET_PATH;
     EdgeClustering clustering = new RandomClustering();
 
-    @BeforeEach
-    public void restartMeans(){
-        BackwardStage.meanTimeTotal = 0;
-        ForwardStage.meanTimeTotal = 0;
-    }
-
 
     @Test
     public void testConstructor() throws IOException{
@@ -159,5 +156,60 @@ public class ParallelGreedyEquivalenceSearchTest {
 
     }
 
+    @Test
+    public void searchWithExecutionPolicyTest() {
+        ParallelGreedyEquivalenceSearch alg = new ParallelGreedyEquivalenceSearch(dataSet, new RandomClustering(42), 2, 100, 5, false);
+        alg.setExecutionPolicy(new ExecutionPolicy(3, 3, false));
+
+        alg.search();
+
+        assertEquals(3, alg.getnThreads());
+        assertEquals(3, alg.getSubSets().size());
+        assertNotNull(alg.getCurrentGraph());
+        assertTrue(alg.getCurrentGraph() instanceof Dag);
+    }
+
+    @Test
+    public void concurrentSearchesAreIsolatedTest() throws InterruptedException, ExecutionException {
+        ParallelGreedyEquivalenceSearch sequential = new ParallelGreedyEquivalenceSearch(Resources.ALARM_DATASET,
+                new RandomClustering(42), 2, 2, 5, false);
+        sequential.search();
+
+        // Searches running at once over the same pool split the edges as the same search run alone
+        try (SearchRunner runner = new SearchRunner(3)) {
+            List<ParallelGreedyEquivalenceSearch> searches = new ArrayList<>();
+            List<Future<Graph>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                ParallelGreedyEquivalenceSearch pges = new ParallelGreedyEquivalenceSearch(Resources.ALARM_DATASET,
+                        new RandomClustering(42), 2, 2, 5, false);
+                searches.add(pges);
+                results.add(runner.submit(pges));
+            }
+            for (int i = 0; i < searches.size(); i++) {
+                assertNotNull(results.get(i).get());
+                assertEquals(sequential.getSubSets(), searches.get(i).getSubSets());
+            }
+        }
+    }
+
+    @Test
+    public void searchListenerTest() {
+        ParallelGreedyEquivalenceSearch alg = new ParallelGreedyEquivalenceSearch(dataSet, new RandomClustering(42), 2, 100, 5, false);
+        List<SearchEvent> events = new ArrayList<>();
+        alg.addSearchListener(events::add);
+
+        alg.search();
+
+        // Every iteration reports its stages and fusions in order
+        SearchEvent.Phase[] phases = SearchEvent.Phase.values();
+        assertTrue(!events.isEmpty() && events.size() % 4 == 0);
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(phases[i % 4], events.get(i).getPhase());
+            assertEquals(i / 4 + 1, events.get(i).getIteration());
+        }
+        SearchEvent last = events.get(events.size() - 1);
+        assertEquals(alg.getCurrentGraph().getNumEdges(), last.getNumEdges());
+        assertEquals(alg.getProblem().scoreGraph(alg.getCurrentGraph()), last.getScore(), 1e-6);
+    }
 
 }